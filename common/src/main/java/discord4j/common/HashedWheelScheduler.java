@@ -0,0 +1,321 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * A {@link Scheduler} keeping delayed and periodic tasks in a hashed wheel timer with coarse ticks, where scheduling
+ * and cancelling a task are constant-time operations regardless of how many tasks are pending.
+ * <p>
+ * The wheel thread only fires timeouts: every task, delayed or not, is run on the given executor {@link Scheduler}.
+ * Delays are rounded up to the next tick, making this scheduler suited for timers tolerating a few milliseconds of
+ * imprecision like heartbeats, rate limiter refills and back-offs, but not for tasks like sending voice packets.
+ * <p>
+ * Disposing this scheduler stops the wheel thread but leaves the executor running, as it may be shared.
+ */
+public class HashedWheelScheduler implements Scheduler {
+
+    public static final Duration DEFAULT_TICK_DURATION = Duration.ofMillis(10);
+    public static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+    private static final AtomicInteger ID = new AtomicInteger();
+
+    private final HashedWheelTimer timer;
+    private final Scheduler executor;
+    private volatile boolean disposed;
+
+    private HashedWheelScheduler(Scheduler executor, Duration tickDuration, int ticksPerWheel) {
+        this.timer = new HashedWheelTimer(new DefaultThreadFactory("d4j-wheel-timer-" + ID.incrementAndGet(), true),
+                tickDuration.toNanos(), TimeUnit.NANOSECONDS, ticksPerWheel);
+        this.executor = executor;
+    }
+
+    /**
+     * Create a {@link HashedWheelScheduler} with the default tick duration and wheel size, running its tasks on the
+     * given {@link Scheduler}.
+     *
+     * @param executor the {@link Scheduler} to run the tasks on
+     * @return a new {@link HashedWheelScheduler}
+     */
+    public static HashedWheelScheduler create(Scheduler executor) {
+        return create(executor, DEFAULT_TICK_DURATION, DEFAULT_TICKS_PER_WHEEL);
+    }
+
+    /**
+     * Create a {@link HashedWheelScheduler} running its tasks on the given {@link Scheduler}.
+     *
+     * @param executor the {@link Scheduler} to run the tasks on
+     * @param tickDuration the precision of the timer, delays are rounded up to a multiple of it
+     * @param ticksPerWheel the number of slots in the wheel, should be large enough so most delays fit in one turn
+     * @return a new {@link HashedWheelScheduler}
+     */
+    public static HashedWheelScheduler create(Scheduler executor, Duration tickDuration, int ticksPerWheel) {
+        return new HashedWheelScheduler(executor, tickDuration, ticksPerWheel);
+    }
+
+    @Override
+    public Disposable schedule(Runnable task) {
+        return executor.schedule(task);
+    }
+
+    @Override
+    public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+        if (delay <= 0) {
+            return executor.schedule(task);
+        }
+        return newTimeout(new DelayedTask(task, executor::schedule, null), delay, unit);
+    }
+
+    @Override
+    public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        return newTimeout(new PeriodicTask(task, executor::schedule, null, unit.toNanos(period)),
+                initialDelay, unit);
+    }
+
+    @Override
+    public long now(TimeUnit unit) {
+        return executor.now(unit);
+    }
+
+    @Override
+    public Worker createWorker() {
+        return new WheelWorker(executor.createWorker());
+    }
+
+    @Override
+    public void start() {
+        timer.start();
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        timer.stop();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    private <T extends AbstractTask> T newTimeout(T task, long delay, TimeUnit unit) {
+        if (disposed) {
+            task.dispose();
+            throw Exceptions.failWithRejected();
+        }
+        try {
+            task.timeout = timer.newTimeout(task, Math.max(0, delay), unit);
+        } catch (IllegalStateException e) {
+            // the timer was stopped concurrently
+            task.dispose();
+            throw Exceptions.failWithRejected(e);
+        }
+        return task;
+    }
+
+    private abstract class AbstractTask implements TimerTask, Disposable {
+
+        protected final Runnable task;
+        protected final Function<Runnable, Disposable> executor;
+        @Nullable
+        protected final Set<AbstractTask> parent;
+        protected volatile Timeout timeout;
+        protected volatile Disposable running;
+        protected volatile boolean disposed;
+
+        AbstractTask(Runnable task, Function<Runnable, Disposable> executor, @Nullable Set<AbstractTask> parent) {
+            this.task = task;
+            this.executor = executor;
+            this.parent = parent;
+        }
+
+        protected void execute(Runnable runnable) {
+            if (disposed) {
+                return;
+            }
+            try {
+                running = executor.apply(runnable);
+            } catch (RejectedExecutionException e) {
+                dispose();
+                return;
+            }
+            // disposed while being handed to the executor
+            if (disposed) {
+                running.dispose();
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (disposed) {
+                return;
+            }
+            disposed = true;
+            Timeout t = timeout;
+            if (t != null) {
+                t.cancel();
+            }
+            Disposable r = running;
+            if (r != null) {
+                r.dispose();
+            }
+            if (parent != null) {
+                parent.remove(this);
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+
+    private final class DelayedTask extends AbstractTask {
+
+        DelayedTask(Runnable task, Function<Runnable, Disposable> executor, @Nullable Set<AbstractTask> parent) {
+            super(task, executor, parent);
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    if (parent != null) {
+                        parent.remove(this);
+                    }
+                }
+            });
+        }
+    }
+
+    private final class PeriodicTask extends AbstractTask {
+
+        private final long periodNanos;
+        private long nextDeadline;
+
+        PeriodicTask(Runnable task, Function<Runnable, Disposable> executor, @Nullable Set<AbstractTask> parent,
+                     long periodNanos) {
+            super(task, executor, parent);
+            this.periodNanos = periodNanos;
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            execute(() -> {
+                if (disposed) {
+                    return;
+                }
+                if (nextDeadline == 0) {
+                    nextDeadline = System.nanoTime();
+                }
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    // like other schedulers, an error cancels further executions
+                    dispose();
+                    throw t;
+                }
+                if (periodNanos <= 0 || disposed) {
+                    dispose();
+                    return;
+                }
+                // fixed rate: the next execution is relative to the previous deadline, not to this execution
+                nextDeadline += periodNanos;
+                try {
+                    this.timeout = timer.newTimeout(this, Math.max(0, nextDeadline - System.nanoTime()),
+                            TimeUnit.NANOSECONDS);
+                } catch (IllegalStateException e) {
+                    dispose();
+                }
+                if (disposed) {
+                    this.timeout.cancel();
+                }
+            });
+        }
+    }
+
+    private final class WheelWorker implements Worker {
+
+        private final Worker worker;
+        private final Set<AbstractTask> workerTasks = ConcurrentHashMap.newKeySet();
+        private volatile boolean workerDisposed;
+
+        WheelWorker(Worker worker) {
+            this.worker = worker;
+        }
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            return worker.schedule(task);
+        }
+
+        @Override
+        public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+            if (delay <= 0) {
+                return worker.schedule(task);
+            }
+            return add(new DelayedTask(task, worker::schedule, workerTasks), delay, unit);
+        }
+
+        @Override
+        public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+            return add(new PeriodicTask(task, worker::schedule, workerTasks, unit.toNanos(period)),
+                    initialDelay, unit);
+        }
+
+        private Disposable add(AbstractTask task, long delay, TimeUnit unit) {
+            workerTasks.add(task);
+            if (workerDisposed) {
+                task.dispose();
+                throw Exceptions.failWithRejected();
+            }
+            return newTimeout(task, delay, unit);
+        }
+
+        @Override
+        public void dispose() {
+            workerDisposed = true;
+            for (AbstractTask task : workerTasks) {
+                task.dispose();
+            }
+            worker.dispose();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return workerDisposed;
+        }
+    }
+}
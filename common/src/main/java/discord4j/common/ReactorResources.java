@@ -24,6 +24,7 @@ import reactor.netty.resources.ConnectionProvider;
 import reactor.netty.resources.LoopResources;
 
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
@@ -42,10 +43,12 @@ public class ReactorResources {
     public static final Supplier<Scheduler> DEFAULT_TIMER_TASK_SCHEDULER = () ->
             Schedulers.newParallel("d4j-parallel-" + ID.incrementAndGet(), Schedulers.DEFAULT_POOL_SIZE, true);
     public static final Supplier<Scheduler> DEFAULT_BLOCKING_TASK_SCHEDULER = Schedulers::boundedElastic;
+    public static final Function<Scheduler, Scheduler> DEFAULT_COARSE_TIMER_SCHEDULER = HashedWheelScheduler::create;
 
     private final HttpClient httpClient;
     private final Scheduler timerTaskScheduler;
     private final Scheduler blockingTaskScheduler;
+    private final Scheduler coarseTimerScheduler;
 
     /**
      * Create with a default {@link HttpClient} and {@link Scheduler}s for timed and blocking tasks.
@@ -54,6 +57,7 @@ public class ReactorResources {
         this.httpClient = DEFAULT_HTTP_CLIENT.get();
         this.timerTaskScheduler = DEFAULT_TIMER_TASK_SCHEDULER.get();
         this.blockingTaskScheduler = DEFAULT_BLOCKING_TASK_SCHEDULER.get();
+        this.coarseTimerScheduler = DEFAULT_COARSE_TIMER_SCHEDULER.apply(timerTaskScheduler);
     }
 
     /**
@@ -64,9 +68,25 @@ public class ReactorResources {
      * @param blockingTaskScheduler the {@link Scheduler} to use for potentially blocking tasks
      */
     public ReactorResources(HttpClient httpClient, Scheduler timerTaskScheduler, Scheduler blockingTaskScheduler) {
+        this(httpClient, timerTaskScheduler, blockingTaskScheduler,
+                DEFAULT_COARSE_TIMER_SCHEDULER.apply(timerTaskScheduler));
+    }
+
+    /**
+     * Create with a pre-configured {@link HttpClient} and {@link Scheduler}s for timed, blocking and coarse timed
+     * tasks.
+     *
+     * @param httpClient the underlying {@link HttpClient} to use
+     * @param timerTaskScheduler the time-capable {@link Scheduler} to use
+     * @param blockingTaskScheduler the {@link Scheduler} to use for potentially blocking tasks
+     * @param coarseTimerScheduler the time-capable {@link Scheduler} to use for timers tolerating a coarse precision
+     */
+    public ReactorResources(HttpClient httpClient, Scheduler timerTaskScheduler, Scheduler blockingTaskScheduler,
+                            Scheduler coarseTimerScheduler) {
         this.httpClient = httpClient;
         this.timerTaskScheduler = timerTaskScheduler;
         this.blockingTaskScheduler = blockingTaskScheduler;
+        this.coarseTimerScheduler = coarseTimerScheduler;
     }
 
     protected ReactorResources(Builder builder) {
@@ -75,6 +95,8 @@ public class ReactorResources {
                 DEFAULT_TIMER_TASK_SCHEDULER.get() : builder.timerTaskScheduler;
         this.blockingTaskScheduler = builder.blockingTaskScheduler == null ?
                 DEFAULT_BLOCKING_TASK_SCHEDULER.get() : builder.blockingTaskScheduler;
+        this.coarseTimerScheduler = builder.coarseTimerScheduler == null ?
+                DEFAULT_COARSE_TIMER_SCHEDULER.apply(timerTaskScheduler) : builder.coarseTimerScheduler;
     }
 
     public static ReactorResources create() {
@@ -90,6 +112,7 @@ public class ReactorResources {
         private HttpClient httpClient;
         private Scheduler timerTaskScheduler;
         private Scheduler blockingTaskScheduler;
+        private Scheduler coarseTimerScheduler;
 
         protected Builder() {
         }
@@ -124,6 +147,18 @@ public class ReactorResources {
             return this;
         }
 
+        /**
+         * Sets the time-capable {@link Scheduler} to use for timers tolerating a coarse precision, like heartbeats,
+         * rate limiter refills and back-offs. Defaults to a {@link HashedWheelScheduler} running its tasks on the
+         * timer task scheduler.
+         *
+         * @return This builder, for chaining.
+         */
+        public Builder coarseTimerScheduler(Scheduler coarseTimerScheduler) {
+            this.coarseTimerScheduler = coarseTimerScheduler;
+            return this;
+        }
+
         /**
          * Create the {@link ReactorResources}.
          *
@@ -162,6 +197,17 @@ public class ReactorResources {
         return blockingTaskScheduler;
     }
 
+    /**
+     * Get the {@link Scheduler} configured by this provider to be used in timers tolerating a coarse precision, like
+     * heartbeats, rate limiter refills and back-offs. Scheduling and cancelling these timers is cheap even when there
+     * are many of them, but they may fire a few milliseconds late.
+     *
+     * @return a time-capable {@link Scheduler} with coarse precision
+     */
+    public Scheduler getCoarseTimerScheduler() {
+        return coarseTimerScheduler;
+    }
+
     /**
      * Create a Reactor Netty {@link HttpClient} using the given connection pool and event loop threads.
      * <p>Use this in case you want dedicated resources for a particular client or clients instead of the global
@@ -14,52 +14,81 @@
  * You should have received a copy of the GNU Lesser General Public License
  * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
  */
-
 package discord4j.common.operator;
 
-import discord4j.common.sinks.EmissionStrategy;
 import org.reactivestreams.Publisher;
-import reactor.core.publisher.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
 import reactor.core.scheduler.Scheduler;
-import reactor.core.scheduler.Schedulers;
 import reactor.util.Logger;
 import reactor.util.Loggers;
+import reactor.util.annotation.Nullable;
 
 import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
-import java.util.function.Supplier;
+import java.util.function.LongSupplier;
 
 /**
- * A rate limiting operator based off the token bucket algorithm. From
- * <a href="https://aliz.ai/rate-limiting-in-rxjs/">Rate Limiting in rxjs</a>.
+ * A rate limiting operator based off the token bucket algorithm, allowing up to {@code capacity} values within any
+ * window of one refill period. Each value acquires a token, which is given back once the refill period has elapsed
+ * since it was acquired.
+ * <p>
+ * Refills are computed lazily from {@link System#nanoTime()} when acquiring, which only takes a compare-and-set in
+ * the common case where a token is available. Values arriving while no token is available wait in a queue, in
+ * arrival order, and a single wake-up is scheduled on the delay {@link Scheduler} for the time the next token is
+ * given back. No thread is dedicated to an operator, and each operator has at most one pending wake-up.
+ * <p>
+ * An operator instance can be applied to multiple sequences, which then share its tokens.
  *
  * @param <T> the type of the transformed sequence
  */
 public class RateLimitOperator<T> implements Function<Publisher<T>, Publisher<T>> {
 
     private static final Logger log = Loggers.getLogger("discord4j.limiter");
-    private static final Supplier<Scheduler> DEFAULT_PUBLISH_SCHEDULER = () ->
-            Schedulers.newSingle("d4j-limiter", true);
 
-    private final AtomicInteger tokens;
-    private final Duration refillPeriod;
+    private final TokenBucket bucket;
     private final Scheduler delayScheduler;
-    private final Sinks.Many<Integer> tokenSink;
-    private final Scheduler tokenPublishScheduler;
-    private final EmissionStrategy emissionStrategy;
+    @Nullable
+    private final Scheduler publishScheduler;
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
 
+    /**
+     * Create a new operator allowing {@code capacity} values per {@code refillPeriod}.
+     *
+     * @param capacity the number of values allowed within any window of {@code refillPeriod}
+     * @param refillPeriod the {@link Duration} after which an acquired token is given back
+     * @param delayScheduler the {@link Scheduler} used to wake up values waiting for a token
+     */
     public RateLimitOperator(int capacity, Duration refillPeriod, Scheduler delayScheduler) {
-        this(capacity, refillPeriod, delayScheduler, DEFAULT_PUBLISH_SCHEDULER.get());
+        this(capacity, refillPeriod, delayScheduler, null, System::nanoTime);
     }
 
+    /**
+     * Create a new operator allowing {@code capacity} values per {@code refillPeriod}, emitting the values that had
+     * to wait for a token on the given {@code publishScheduler}.
+     *
+     * @param capacity the number of values allowed within any window of {@code refillPeriod}
+     * @param refillPeriod the {@link Duration} after which an acquired token is given back
+     * @param delayScheduler the {@link Scheduler} used to wake up values waiting for a token
+     * @param publishScheduler the {@link Scheduler} used to emit values that waited for a token
+     */
     public RateLimitOperator(int capacity, Duration refillPeriod, Scheduler delayScheduler, Scheduler publishScheduler) {
-        this.tokens = new AtomicInteger(capacity);
-        this.refillPeriod = refillPeriod;
+        this(capacity, refillPeriod, delayScheduler, publishScheduler, System::nanoTime);
+    }
+
+    RateLimitOperator(int capacity, Duration refillPeriod, Scheduler delayScheduler,
+                      @Nullable Scheduler publishScheduler, LongSupplier clock) {
+        this.bucket = new TokenBucket(capacity, refillPeriod.toNanos(), clock);
         this.delayScheduler = delayScheduler;
-        this.tokenSink = Sinks.many().replay().latestOrDefault(capacity);
-        this.tokenPublishScheduler = publishScheduler;
-        this.emissionStrategy = EmissionStrategy.park(Duration.ofNanos(10));
+        this.publishScheduler = publishScheduler;
     }
 
     private String id() {
@@ -68,37 +97,81 @@ public class RateLimitOperator<T> implements Function<Publisher<T>, Publisher<T>
 
     @Override
     public Publisher<T> apply(Publisher<T> source) {
-        return Flux.from(source).flatMap(value -> availableTokens()
-                .next()
-                .doOnSubscribe(s -> {
-                    if (log.isTraceEnabled()) {
-                        log.trace("[{}] Subscribed to limiter", id());
-                    }
-                })
-                .map(token -> {
-                    acquire();
-                    Mono.delay(refillPeriod, delayScheduler).subscribe(__ -> release());
-                    return value;
-                }));
+        return Flux.from(source).concatMap(value -> acquire().thenReturn(value));
     }
 
-    private void acquire() {
-        int token = tokens.decrementAndGet();
-        if (log.isTraceEnabled()) {
-            log.trace("[{}] Acquired a token, {} tokens remaining", id(), token);
+    private Mono<Void> acquire() {
+        return Mono.defer(() -> {
+            // values already waiting have priority over new ones
+            if (waiters.isEmpty() && bucket.tryAcquire()) {
+                if (log.isTraceEnabled()) {
+                    log.trace("[{}] Acquired a token, {} tokens remaining", id(), bucket.availableTokens());
+                }
+                return Mono.empty();
+            }
+            Mono<Void> wait = Mono.create(sink -> {
+                Waiter waiter = new Waiter(sink);
+                sink.onCancel(() -> waiter.cancelled = true);
+                waiters.offer(waiter);
+                if (log.isTraceEnabled()) {
+                    log.trace("[{}] Waiting for a token", id());
+                }
+                drain();
+            });
+            return publishScheduler == null ? wait : wait.publishOn(publishScheduler);
+        });
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
         }
-        emissionStrategy.emitNext(tokenSink, token);
+        int missed = 1;
+        do {
+            Waiter waiter;
+            while ((waiter = waiters.peek()) != null) {
+                if (waiter.cancelled) {
+                    waiters.poll();
+                    continue;
+                }
+                if (!bucket.tryAcquire()) {
+                    break;
+                }
+                waiters.poll();
+                if (log.isTraceEnabled()) {
+                    log.trace("[{}] Acquired a token after waiting, {} tokens remaining", id(),
+                            bucket.availableTokens());
+                }
+                waiter.sink.success();
+            }
+            if (waiter != null) {
+                scheduleWakeUp();
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
     }
 
-    private void release() {
-        int token = tokens.incrementAndGet();
+    private void scheduleWakeUp() {
+        if (!wakeUpPending.compareAndSet(false, true)) {
+            return;
+        }
+        long delay = bucket.nanosUntilNextToken();
         if (log.isTraceEnabled()) {
-            log.trace("[{}] Released a token, {} tokens remaining", id(), token);
+            log.trace("[{}] Next token available in {} ns", id(), delay);
         }
-        emissionStrategy.emitNext(tokenSink, token);
+        delayScheduler.schedule(() -> {
+            wakeUpPending.set(false);
+            drain();
+        }, delay, TimeUnit.NANOSECONDS);
     }
 
-    private Flux<Integer> availableTokens() {
-        return tokenSink.asFlux().publishOn(tokenPublishScheduler).filter(__ -> tokens.get() > 0);
+    private static final class Waiter {
+
+        private final MonoSink<Void> sink;
+        private volatile boolean cancelled;
+
+        private Waiter(MonoSink<Void> sink) {
+            this.sink = sink;
+        }
     }
 }
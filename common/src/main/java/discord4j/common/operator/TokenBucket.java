@@ -0,0 +1,116 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.operator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * A lock-free token bucket where each acquired token is given back once its refill period has elapsed, so at most
+ * {@code capacity} tokens are acquired within any window of one refill period.
+ * <p>
+ * Instead of scheduling a refill for each token, the time at which each token becomes available again is recorded in
+ * a ring of {@code capacity} slots, and compared with the current time when acquiring. Tokens are taken from the slots
+ * in order: the next slot always holds the token that was acquired the longest time ago.
+ */
+class TokenBucket {
+
+    private static final long FREE = Long.MIN_VALUE;
+    private static final long CLAIMED = Long.MAX_VALUE;
+
+    private final int capacity;
+    private final long refillNanos;
+    private final LongSupplier clock;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLongArray releaseTimes;
+
+    TokenBucket(int capacity, long refillNanos, LongSupplier clock) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.refillNanos = refillNanos;
+        this.clock = clock;
+        this.releaseTimes = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            releaseTimes.set(i, FREE);
+        }
+    }
+
+    /**
+     * Acquire a token if one is available.
+     *
+     * @return {@code true} if a token was acquired
+     */
+    boolean tryAcquire() {
+        for (;;) {
+            long ticket = head.get();
+            int index = (int) (ticket % capacity);
+            long releaseTime = releaseTimes.get(index);
+            if (releaseTime == CLAIMED) {
+                // the previous owner of this slot is publishing its release time
+                continue;
+            }
+            long now = clock.getAsLong();
+            if (releaseTime != FREE && releaseTime - now > 0) {
+                return false;
+            }
+            // claim the slot first so no later ticket can read it before its new release time is published
+            if (!releaseTimes.compareAndSet(index, releaseTime, CLAIMED)) {
+                continue;
+            }
+            if (head.compareAndSet(ticket, ticket + 1)) {
+                releaseTimes.set(index, now + refillNanos);
+                return true;
+            }
+            releaseTimes.set(index, releaseTime);
+        }
+    }
+
+    /**
+     * Return the time to wait until the next token is available, relative to the clock of this bucket.
+     *
+     * @return the number of nanoseconds until the next token is available, zero if one is available now
+     */
+    long nanosUntilNextToken() {
+        long releaseTime = releaseTimes.get((int) (head.get() % capacity));
+        if (releaseTime == FREE || releaseTime == CLAIMED) {
+            return 0;
+        }
+        return Math.max(0, releaseTime - clock.getAsLong());
+    }
+
+    /**
+     * Return the number of tokens that can be acquired now.
+     *
+     * @return the number of available tokens
+     */
+    int availableTokens() {
+        long now = clock.getAsLong();
+        long ticket = head.get();
+        int available = 0;
+        for (int i = 0; i < capacity; i++) {
+            long releaseTime = releaseTimes.get((int) ((ticket + i) % capacity));
+            if (releaseTime != FREE && (releaseTime == CLAIMED || releaseTime - now > 0)) {
+                break;
+            }
+            available++;
+        }
+        return available;
+    }
+}
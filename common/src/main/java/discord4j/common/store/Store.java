@@ -25,7 +25,12 @@ import discord4j.common.store.api.layout.GatewayDataUpdater;
 import discord4j.common.store.api.layout.StoreLayout;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -144,6 +149,8 @@ public final class Store {
                         .getExactMembersInGuild(action.getGuildId()))
                 .map(GetMemberByIdAction.class, action -> dataAccessor
                         .getMemberById(action.getGuildId(), action.getUserId()))
+                .map(GetMemberAndRolesByIdAction.class, action -> dataAccessor
+                        .getMemberAndRolesById(action.getGuildId(), action.getUserId()))
                 .map(GetMessagesAction.class, action -> dataAccessor.getMessages())
                 .map(GetMessagesInChannelAction.class, action -> dataAccessor
                         .getMessagesInChannel(action.getChannelId()))
@@ -180,6 +187,8 @@ public final class Store {
                         .onChannelUpdate(action.getShardIndex(), action.getChannelUpdate()))
                 .map(GuildCreateAction.class, action -> gatewayDataUpdater
                         .onGuildCreate(action.getShardIndex(), action.getGuildCreate()))
+                .map(GuildCreateBatchAction.class, action -> gatewayDataUpdater
+                        .onGuildCreateBatch(action.getShardIndex(), action.getGuildCreates()))
                 .map(GuildDeleteAction.class, action -> gatewayDataUpdater
                         .onGuildDelete(action.getShardIndex(), action.getGuildDelete()))
                 .map(GuildEmojisUpdateAction.class, action -> gatewayDataUpdater
@@ -190,6 +199,8 @@ public final class Store {
                         .onGuildMemberRemove(action.getShardIndex(), action.getGuildMemberRemove()))
                 .map(GuildMembersChunkAction.class, action -> gatewayDataUpdater
                         .onGuildMembersChunk(action.getShardIndex(), action.getGuildMembersChunk()))
+                .map(GuildMembersChunkBatchAction.class, action -> gatewayDataUpdater
+                        .onGuildMembersChunkBatch(action.getShardIndex(), action.getGuildMembersChunks()))
                 .map(GuildMemberUpdateAction.class, action -> gatewayDataUpdater
                         .onGuildMemberUpdate(action.getShardIndex(), action.getGuildMemberUpdate()))
                 .map(GuildRoleCreateAction.class, action -> gatewayDataUpdater
@@ -245,4 +256,33 @@ public final class Store {
                 .<Publisher<R>>map(h -> h.apply(action))
                 .orElse(Flux.empty());
     }
+
+    /**
+     * Executes the given list of actions as a single unit of work. If the layout defines a
+     * {@link ActionMapper.BatchHandler} through its {@link ActionMapper}, the whole list is given to it at once,
+     * otherwise each action is executed in order as if {@link #execute(StoreAction)} were called for each of them, the
+     * next action being executed once the previous one completes.
+     * <p>
+     * This method is intended for actions producing at most one result, such as the ones obtained from
+     * {@link GatewayActions}. For actions producing several results, only the first one is kept.
+     *
+     * @param actions the actions to execute, in order
+     * @return a {@link Mono} where, upon successful completion, emits the outcome of each action in the same order as
+     * the given actions: a {@link Signal#next(Object)} holding its result, {@link Signal#complete()} for actions
+     * producing no result, or {@link Signal#error(Throwable)} if the action failed. The failure of an action does not
+     * prevent the following ones from being executed. If an error prevents the whole batch from being executed, it is
+     * emitted through the {@link Mono}.
+     */
+    public Mono<List<Signal<?>>> executeBatch(List<? extends StoreAction<?>> actions) {
+        Objects.requireNonNull(actions);
+        if (actions.isEmpty()) {
+            return Mono.just(Collections.emptyList());
+        }
+        List<StoreAction<?>> batch = Collections.unmodifiableList(new ArrayList<>(actions));
+        return actionMapper.findBatchHandler()
+                .map(handler -> Mono.defer(() -> handler.apply(batch, actionMapper)))
+                .orElseGet(() -> Flux.fromIterable(batch)
+                        .<Signal<?>>concatMap(action -> Mono.defer(() -> Mono.from(execute(action))).materialize())
+                        .collectList());
+    }
 }
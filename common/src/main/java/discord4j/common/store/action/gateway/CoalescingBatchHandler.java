@@ -0,0 +1,124 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.action.gateway;
+
+import discord4j.common.store.api.ActionMapper;
+import discord4j.common.store.api.StoreAction;
+import discord4j.discordjson.json.gateway.GuildCreate;
+import discord4j.discordjson.json.gateway.GuildMembersChunk;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@link ActionMapper.BatchHandler} merging each run of consecutive {@link GuildCreateAction} or
+ * {@link GuildMembersChunkAction} from the same shard into a single {@link GuildCreateBatchAction} or
+ * {@link GuildMembersChunkBatchAction}, so layouts overriding the batch methods of their
+ * {@link discord4j.common.store.api.layout.GatewayDataUpdater} can apply the guilds and members received after READY
+ * in bulk. Other actions are executed one at a time, in order.
+ * <p>
+ * Both merged actions replace the entities they carry, so a failed run is executed again one action at a time,
+ * restricting the failure to the actions causing it.
+ */
+public class CoalescingBatchHandler implements ActionMapper.BatchHandler {
+
+    private static final Logger log = Loggers.getLogger(CoalescingBatchHandler.class);
+
+    private CoalescingBatchHandler() {
+    }
+
+    /**
+     * Creates a new {@link CoalescingBatchHandler}.
+     *
+     * @return a new {@link CoalescingBatchHandler}
+     */
+    public static CoalescingBatchHandler create() {
+        return new CoalescingBatchHandler();
+    }
+
+    @Override
+    public Mono<List<Signal<?>>> apply(List<StoreAction<?>> actions, ActionMapper mapper) {
+        return Flux.fromIterable(split(actions))
+                .concatMap(run -> executeRun(run, mapper))
+                .collectList();
+    }
+
+    private static List<List<StoreAction<?>>> split(List<StoreAction<?>> actions) {
+        List<List<StoreAction<?>>> runs = new ArrayList<>();
+        List<StoreAction<?>> run = null;
+        for (StoreAction<?> action : actions) {
+            if (run != null && canMerge(run.get(run.size() - 1), action)) {
+                run.add(action);
+            } else {
+                run = new ArrayList<>();
+                run.add(action);
+                runs.add(run);
+            }
+        }
+        return runs;
+    }
+
+    private static boolean canMerge(StoreAction<?> previous, StoreAction<?> action) {
+        return (action instanceof GuildCreateAction || action instanceof GuildMembersChunkAction)
+                && previous.getClass() == action.getClass()
+                && ((ShardAwareAction<?>) previous).getShardIndex() == ((ShardAwareAction<?>) action).getShardIndex();
+    }
+
+    private static Flux<Signal<?>> executeRun(List<StoreAction<?>> run, ActionMapper mapper) {
+        if (run.size() == 1) {
+            return execute(run.get(0), mapper).flux();
+        }
+        return execute(merge(run), mapper)
+                .<Signal<?>>flatMapMany(signal -> {
+                    if (!signal.isOnError()) {
+                        return Flux.fromIterable(run).<Signal<?>>map(action -> Signal.complete());
+                    }
+                    log.debug("Unable to execute a batch of {} actions, executing them one at a time",
+                            run.size(), signal.getThrowable());
+                    return Flux.fromIterable(run).concatMap(action -> execute(action, mapper));
+                });
+    }
+
+    private static StoreAction<?> merge(List<StoreAction<?>> run) {
+        int shardIndex = ((ShardAwareAction<?>) run.get(0)).getShardIndex();
+        if (run.get(0) instanceof GuildCreateAction) {
+            List<GuildCreate> guildCreates = new ArrayList<>(run.size());
+            for (StoreAction<?> action : run) {
+                guildCreates.add(((GuildCreateAction) action).getGuildCreate());
+            }
+            return GatewayActions.guildCreateBatch(shardIndex, guildCreates);
+        }
+        List<GuildMembersChunk> chunks = new ArrayList<>(run.size());
+        for (StoreAction<?> action : run) {
+            chunks.add(((GuildMembersChunkAction) action).getGuildMembersChunk());
+        }
+        return GatewayActions.guildMembersChunkBatch(shardIndex, chunks);
+    }
+
+    private static <R> Mono<Signal<?>> execute(StoreAction<R> action, ActionMapper mapper) {
+        return Mono.defer(() -> mapper.findHandlerForAction(action)
+                .map(handler -> Mono.from(handler.apply(action)))
+                .orElse(Mono.empty()))
+                .materialize()
+                .<Signal<?>>map(signal -> signal);
+    }
+}
@@ -21,6 +21,8 @@ import discord4j.common.store.api.StoreAction;
 import discord4j.common.store.api.object.InvalidationCause;
 import discord4j.discordjson.json.gateway.*;
 
+import java.util.List;
+
 /**
  * Provides static factories to obtain {@link StoreAction} instances that enable updating data in a store in response
  * to an event received from the Discord gateway.
@@ -75,6 +77,17 @@ public class GatewayActions {
         return new GuildCreateAction(shardIndex, dispatch);
     }
 
+    /**
+     * Creates an action to execute when a batch of {@link GuildCreate} is received from the same shard.
+     *
+     * @param shardIndex the index of the shard where the dispatches come from
+     * @param dispatches the dispatch data coming from Discord gateway
+     * @return a new {@link GuildCreateBatchAction}
+     */
+    public static GuildCreateBatchAction guildCreateBatch(int shardIndex, List<GuildCreate> dispatches) {
+        return new GuildCreateBatchAction(shardIndex, dispatches);
+    }
+
     /**
      * Creates an action to execute when a {@link GuildDelete} is received from the gateway.
      *
@@ -130,6 +143,18 @@ public class GatewayActions {
         return new GuildMembersChunkAction(shardIndex, dispatch);
     }
 
+    /**
+     * Creates an action to execute when a batch of {@link GuildMembersChunk} is received from the same shard.
+     *
+     * @param shardIndex the index of the shard where the dispatches come from
+     * @param dispatches the dispatch data coming from Discord gateway
+     * @return a new {@link GuildMembersChunkBatchAction}
+     */
+    public static GuildMembersChunkBatchAction guildMembersChunkBatch(int shardIndex,
+                                                                      List<GuildMembersChunk> dispatches) {
+        return new GuildMembersChunkBatchAction(shardIndex, dispatches);
+    }
+
     /**
      * Creates an action to execute when a {@link GuildMemberUpdate} is received from the gateway.
      *
@@ -325,6 +325,18 @@ public class ReadActions {
         return new GetMemberByIdAction(guildId, userId);
     }
 
+    /**
+     * Creates an action to retrieve data for the member corresponding to the given guild ID and user ID, along with
+     * the data of its guild and roles.
+     *
+     * @param guildId the guild ID
+     * @param userId  the user ID
+     * @return a new {@link GetMemberAndRolesByIdAction}
+     */
+    public static GetMemberAndRolesByIdAction getMemberAndRolesById(long guildId, long userId) {
+        return new GetMemberAndRolesByIdAction(guildId, userId);
+    }
+
     /**
      * Creates an action to retrieve data for all messages present in a store.
      *
@@ -18,6 +18,9 @@
 package discord4j.common.store.api;
 
 import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+import reactor.util.annotation.Nullable;
 
 import java.util.*;
 import java.util.function.Function;
@@ -28,12 +31,16 @@ import java.util.stream.Collectors;
  */
 public class ActionMapper {
 
-    private static final ActionMapper EMPTY = new ActionMapper(Collections.emptyMap());
+    private static final ActionMapper EMPTY = new ActionMapper(Collections.emptyMap(), null);
 
     private final Map<Class<? extends StoreAction<?>>, Function<StoreAction<?>, ? extends Publisher<?>>> mappings;
+    @Nullable
+    private final BatchHandler batchHandler;
 
-    private ActionMapper(Map<Class<? extends StoreAction<?>>, Function<StoreAction<?>, ? extends Publisher<?>>> mappings) {
+    private ActionMapper(Map<Class<? extends StoreAction<?>>, Function<StoreAction<?>, ? extends Publisher<?>>> mappings,
+                         @Nullable BatchHandler batchHandler) {
         this.mappings = mappings;
+        this.batchHandler = batchHandler;
     }
 
     /**
@@ -56,20 +63,29 @@ public class ActionMapper {
 
     /**
      * Aggregates the mappings contained in the given {@link ActionMapper mappers} into a single {@link ActionMapper}
-     * instance. All mappers must be defining distinct sets of actions, any conflicts will cause an
-     * {@link IllegalStateException} to be thrown.
+     * instance. All mappers must be defining distinct sets of actions and at most one of them may define a batch
+     * handler, any conflicts will cause an {@link IllegalStateException} to be thrown.
      *
      * @param mappers the mappers to aggregate
      * @return an aggregated {@link ActionMapper}
-     * @throws IllegalStateException if two or more mappers define a mapping for the same action type
+     * @throws IllegalStateException if two or more mappers define a mapping for the same action type, or if two or
+     * more mappers define a batch handler
      */
     public static ActionMapper aggregate(ActionMapper... mappers) {
         Objects.requireNonNull(mappers);
         if (mappers.length == 0) return EMPTY;
         if (mappers.length == 1) return mappers[0];
+        List<BatchHandler> batchHandlers = Arrays.stream(mappers)
+                .map(mapper -> mapper.batchHandler)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        if (batchHandlers.size() > 1) {
+            throw new IllegalStateException("More than one batch handler defined");
+        }
         return new ActionMapper(Arrays.stream(mappers)
                 .flatMap(mapper -> mapper.mappings.entrySet().stream())
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue))); // throws ISE if duplicates
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)), // throws ISE if duplicates
+                batchHandlers.isEmpty() ? null : batchHandlers.get(0));
     }
 
     /**
@@ -86,9 +102,40 @@ public class ActionMapper {
                 .map(handler -> a -> (Publisher<R>) handler.apply(a));
     }
 
+    /**
+     * Retrieves the handler able to execute a whole list of actions at once, if any.
+     *
+     * @return the batch handler, or {@link Optional#empty()} if not defined
+     */
+    public Optional<BatchHandler> findBatchHandler() {
+        return Optional.ofNullable(batchHandler);
+    }
+
+    /**
+     * Executes a whole list of actions as a single unit of work.
+     */
+    @FunctionalInterface
+    public interface BatchHandler {
+
+        /**
+         * Executes the given actions, in order. The handler must emit a list holding one {@link Signal} per action, in
+         * the same order as the given actions: {@link Signal#next(Object)} with the result of the action,
+         * {@link Signal#complete()} for actions producing no result, or {@link Signal#error(Throwable)} if the action
+         * failed. A failed action must not prevent the following ones from being executed.
+         *
+         * @param actions the actions to execute, in order
+         * @param mapper the {@link ActionMapper} holding the handlers of single actions, to execute the actions the
+         * batch handler does not apply itself
+         * @return a {@link Mono} emitting the outcome of each action
+         */
+        Mono<List<Signal<?>>> apply(List<StoreAction<?>> actions, ActionMapper mapper);
+    }
+
     public static class Builder {
 
         private final Map<Class<? extends StoreAction<?>>, Function<StoreAction<?>, ? extends Publisher<?>>> mappings;
+        @Nullable
+        private BatchHandler batchHandler;
 
         private Builder() {
             this.mappings = new HashMap<>();
@@ -112,13 +159,25 @@ public class ActionMapper {
             return this;
         }
 
+        /**
+         * Defines a handler able to execute a whole list of actions as a single unit of work, for example in a single
+         * round trip to a remote store.
+         *
+         * @param batchHandler the handler to execute when a list of actions is received
+         * @return this {@link Builder} enriched with the batch handler
+         */
+        public Builder mapBatch(BatchHandler batchHandler) {
+            this.batchHandler = Objects.requireNonNull(batchHandler);
+            return this;
+        }
+
         /**
          * Builds an {@link ActionMapper} with all declared mappings.
          *
          * @return a new {@link ActionMapper}
          */
         public ActionMapper build() {
-            return new ActionMapper(mappings);
+            return new ActionMapper(mappings, batchHandler);
         }
     }
 }
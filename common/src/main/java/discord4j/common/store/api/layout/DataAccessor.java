@@ -18,6 +18,8 @@
 package discord4j.common.store.api.layout;
 
 import discord4j.common.store.api.object.ExactResultNotAvailableException;
+import discord4j.common.store.api.object.MemberAndRolesData;
+import discord4j.common.util.Snowflake;
 import discord4j.discordjson.json.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -260,6 +262,28 @@ public interface DataAccessor {
      */
     Mono<MemberData> getMemberById(long guildId, long userId);
 
+    /**
+     * Retrieves data for the member corresponding to the given guild ID and user ID, along with the owner of its guild
+     * and the data of its roles, including the everyone role. The default implementation combines
+     * {@link #getMemberById(long, long)}, {@link #getGuildById(long)} and {@link #getRoleById(long, long)}, layouts
+     * able to read them at once should override it.
+     *
+     * @param guildId the guild ID
+     * @param userId  the user ID
+     * @return A {@link Mono} emitting the member, guild owner and roles, or empty if the member or the guild is not
+     * found
+     */
+    default Mono<MemberAndRolesData> getMemberAndRolesById(long guildId, long userId) {
+        return Mono.zip(getMemberById(guildId, userId), getGuildById(guildId))
+                .flatMap(tuple -> Flux.fromIterable(tuple.getT1().roles())
+                        .map(Snowflake::asLong)
+                        .startWith(guildId)
+                        .flatMapSequential(roleId -> getRoleById(guildId, roleId))
+                        .collectList()
+                        .map(roles -> MemberAndRolesData.of(tuple.getT1(), Snowflake.asLong(tuple.getT2().ownerId()),
+                                roles)));
+    }
+
     /**
      * Retrieves data for all messages present in the store.
      *
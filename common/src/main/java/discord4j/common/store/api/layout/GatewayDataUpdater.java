@@ -21,8 +21,10 @@ import discord4j.common.store.api.object.InvalidationCause;
 import discord4j.common.store.api.object.PresenceAndUserData;
 import discord4j.discordjson.json.*;
 import discord4j.discordjson.json.gateway.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -75,6 +77,22 @@ public interface GatewayDataUpdater {
      */
     Mono<Void> onGuildCreate(int shardIndex, GuildCreate dispatch);
 
+    /**
+     * Updates the internal state of the store according to the given batch of {@link GuildCreate} gateway dispatches
+     * received from the same shard. Implementations can override this method to perform a single bulk insert per
+     * entity type across the whole batch. By default, each dispatch is handled sequentially by
+     * {@link #onGuildCreate(int, GuildCreate)}.
+     *
+     * @param shardIndex the index of the shard where the dispatches come from
+     * @param dispatches the dispatch data coming from Discord gateway, in the order they were received
+     * @return a {@link Mono} completing when the operation is done
+     */
+    default Mono<Void> onGuildCreateBatch(int shardIndex, List<GuildCreate> dispatches) {
+        return Flux.fromIterable(dispatches)
+                .concatMap(dispatch -> onGuildCreate(shardIndex, dispatch))
+                .then();
+    }
+
     /**
      * Updates the internal state of the store according to the given {@link GuildDelete} gateway dispatch. This
      * will typically perform a delete operation on a related {@link GuildData} that is already present in the store,
@@ -136,6 +154,22 @@ public interface GatewayDataUpdater {
      */
     Mono<Void> onGuildMembersChunk(int shardIndex, GuildMembersChunk dispatch);
 
+    /**
+     * Updates the internal state of the store according to the given batch of {@link GuildMembersChunk} gateway
+     * dispatches received from the same shard. Implementations can override this method to perform a single bulk
+     * insert per entity type across the whole batch. By default, each dispatch is handled sequentially by
+     * {@link #onGuildMembersChunk(int, GuildMembersChunk)}.
+     *
+     * @param shardIndex the index of the shard where the dispatches come from
+     * @param dispatches the dispatch data coming from Discord gateway, in the order they were received
+     * @return a {@link Mono} completing when the operation is done
+     */
+    default Mono<Void> onGuildMembersChunkBatch(int shardIndex, List<GuildMembersChunk> dispatches) {
+        return Flux.fromIterable(dispatches)
+                .concatMap(dispatch -> onGuildMembersChunk(shardIndex, dispatch))
+                .then();
+    }
+
     /**
      * Updates the internal state of the store according to the given {@link GuildMemberUpdate} gateway dispatch.
      * This will typically perform an update operation on a related {@link MemberData} that is already present in
@@ -0,0 +1,105 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.api.object;
+
+import discord4j.discordjson.json.MemberData;
+import discord4j.discordjson.json.RoleData;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Represents a member along with the owner of its guild and the data of its roles, everything needed to compute its
+ * base permissions.
+ */
+public class MemberAndRolesData {
+
+    private final MemberData memberData;
+    private final long guildOwnerId;
+    private final List<RoleData> roleData;
+
+    private MemberAndRolesData(MemberData memberData, long guildOwnerId, List<RoleData> roleData) {
+        this.memberData = memberData;
+        this.guildOwnerId = guildOwnerId;
+        this.roleData = roleData;
+    }
+
+    /**
+     * Creates a new {@link MemberAndRolesData} wrapping the given member and role data.
+     *
+     * @param memberData   the member data
+     * @param guildOwnerId the ID of the owner of the guild of the member
+     * @param roleData     the data of the roles of the member, including the everyone role
+     * @return a new {@link MemberAndRolesData}
+     */
+    public static MemberAndRolesData of(MemberData memberData, long guildOwnerId, List<RoleData> roleData) {
+        return new MemberAndRolesData(memberData, guildOwnerId, Collections.unmodifiableList(roleData));
+    }
+
+    /**
+     * Returns the member data.
+     *
+     * @return the {@link MemberData}
+     */
+    public MemberData getMemberData() {
+        return memberData;
+    }
+
+    /**
+     * Returns the ID of the owner of the guild of the member, who is granted every permission.
+     *
+     * @return the ID of the guild owner
+     */
+    public long getGuildOwnerId() {
+        return guildOwnerId;
+    }
+
+    /**
+     * Returns the data of the roles of the member, including the everyone role of the guild. Roles missing from the
+     * store are not included.
+     *
+     * @return a list of {@link RoleData}
+     */
+    public List<RoleData> getRoleData() {
+        return roleData;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MemberAndRolesData)) return false;
+        MemberAndRolesData that = (MemberAndRolesData) o;
+        return memberData.equals(that.memberData) &&
+                guildOwnerId == that.guildOwnerId &&
+                roleData.equals(that.roleData);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(memberData, guildOwnerId, roleData);
+    }
+
+    @Override
+    public String toString() {
+        return "MemberAndRolesData{" +
+                "memberData=" + memberData +
+                ", guildOwnerId=" + guildOwnerId +
+                ", roleData=" + roleData +
+                '}';
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An {@link EntityFormat} storing the JSON tokens of an entity in a compact binary form. Integers, and strings holding
+ * the decimal form of a non-negative integer such as snowflake IDs, are written as variable-length values. Field
+ * names and the values of the few fields with a small set of possible values, such as statuses, are written as an
+ * index in a dictionary shared by every entity encoded with this format.
+ * <p>
+ * The dictionary only grows, up to a fixed number of entries, after which new strings are written as is. It is kept
+ * to low-cardinality strings, so it stays small however many entities are encoded.
+ */
+class CompactEntityFormat implements EntityFormat {
+
+    private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+    private static final int MAX_INTERNED_LENGTH = 64;
+    private static final Set<String> INTERNED_FIELDS = new HashSet<>(Arrays.asList(
+            "status", "desktop", "mobile", "web"));
+    // the digits of Long.MAX_VALUE
+    private static final int MAX_UNSIGNED_DIGITS = 19;
+
+    private static final byte START_OBJECT = 1;
+    private static final byte END_OBJECT = 2;
+    private static final byte START_ARRAY = 3;
+    private static final byte END_ARRAY = 4;
+    private static final byte FIELD_NAME = 5;
+    private static final byte STRING = 6;
+    private static final byte INTEGER = 7;
+    private static final byte BIG_NUMBER = 8;
+    private static final byte DOUBLE = 9;
+    private static final byte TRUE = 10;
+    private static final byte FALSE = 11;
+    private static final byte NULL = 12;
+    private static final byte NUMERIC_STRING = 13;
+
+    private final Map<String, Integer> indexes = new ConcurrentHashMap<>();
+    // guarded by this, republished after each addition so readers always see complete entries
+    private volatile String[] entries = new String[64];
+    private int size;
+
+    @Override
+    public <V> byte[] encode(ObjectMapper mapper, EntityCodec<V> codec, V value) throws IOException {
+        TokenBuffer buffer = new TokenBuffer(mapper, false);
+        codec.write(mapper, buffer, value);
+        Output out = new Output();
+        // the field each enclosing container is the value of, to find the field of array elements
+        Deque<String> containerFields = new ArrayDeque<>();
+        Deque<Boolean> containerIsArray = new ArrayDeque<>();
+        String field = null;
+        try (JsonParser parser = buffer.asParser()) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                switch (token) {
+                    case START_OBJECT:
+                    case START_ARRAY:
+                        out.write(token == JsonToken.START_OBJECT ? START_OBJECT : START_ARRAY);
+                        containerFields.push(field == null ? "" : field);
+                        containerIsArray.push(token == JsonToken.START_ARRAY);
+                        break;
+                    case END_OBJECT:
+                    case END_ARRAY:
+                        out.write(token == JsonToken.END_OBJECT ? END_OBJECT : END_ARRAY);
+                        field = containerFields.pop();
+                        containerIsArray.pop();
+                        break;
+                    case FIELD_NAME:
+                        field = parser.getCurrentName();
+                        writeString(out, FIELD_NAME, field, true);
+                        break;
+                    case VALUE_STRING:
+                        boolean inArray = !containerIsArray.isEmpty() && containerIsArray.peek();
+                        String owner = inArray ? containerFields.peek() : field;
+                        String text = parser.getText();
+                        long numeric = parseNumeric(text);
+                        if (numeric >= 0) {
+                            out.write(NUMERIC_STRING);
+                            out.writeVarLong(numeric);
+                        } else {
+                            writeString(out, STRING, text, INTERNED_FIELDS.contains(owner));
+                        }
+                        break;
+                    case VALUE_NUMBER_INT:
+                        JsonParser.NumberType numberType = parser.getNumberType();
+                        if (numberType == JsonParser.NumberType.INT || numberType == JsonParser.NumberType.LONG) {
+                            out.write(INTEGER);
+                            out.writeVarLong(zigZag(parser.getLongValue()));
+                        } else {
+                            writeString(out, BIG_NUMBER, parser.getText(), false);
+                        }
+                        break;
+                    case VALUE_NUMBER_FLOAT:
+                        out.write(DOUBLE);
+                        out.writeLong(Double.doubleToRawLongBits(parser.getDoubleValue()));
+                        break;
+                    case VALUE_TRUE:
+                        out.write(TRUE);
+                        break;
+                    case VALUE_FALSE:
+                        out.write(FALSE);
+                        break;
+                    case VALUE_NULL:
+                        out.write(NULL);
+                        break;
+                    default:
+                        throw new IOException("Unsupported token " + token);
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public <V> V decode(ObjectMapper mapper, EntityCodec<V> codec, byte[] bytes) throws IOException {
+        TokenBuffer buffer = new TokenBuffer(mapper, false);
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        while (in.hasRemaining()) {
+            byte tag = in.get();
+            switch (tag) {
+                case START_OBJECT:
+                    buffer.writeStartObject();
+                    break;
+                case END_OBJECT:
+                    buffer.writeEndObject();
+                    break;
+                case START_ARRAY:
+                    buffer.writeStartArray();
+                    break;
+                case END_ARRAY:
+                    buffer.writeEndArray();
+                    break;
+                case FIELD_NAME:
+                    buffer.writeFieldName(readString(in));
+                    break;
+                case STRING:
+                    buffer.writeString(readString(in));
+                    break;
+                case NUMERIC_STRING:
+                    buffer.writeString(Long.toString(readVarLong(in)));
+                    break;
+                case INTEGER:
+                    buffer.writeNumber(unZigZag(readVarLong(in)));
+                    break;
+                case BIG_NUMBER:
+                    buffer.writeNumber(new BigInteger(readString(in)));
+                    break;
+                case DOUBLE:
+                    buffer.writeNumber(Double.longBitsToDouble(in.getLong()));
+                    break;
+                case TRUE:
+                    buffer.writeBoolean(true);
+                    break;
+                case FALSE:
+                    buffer.writeBoolean(false);
+                    break;
+                case NULL:
+                    buffer.writeNull();
+                    break;
+                default:
+                    throw new IOException("Unknown tag " + tag);
+            }
+        }
+        try (JsonParser parser = buffer.asParser()) {
+            return codec.read(mapper, parser);
+        }
+    }
+
+    int getDictionarySize() {
+        return indexes.size();
+    }
+
+    // strings start with a header whose lowest bit tells if it is followed by UTF-8 bytes or is a dictionary index
+    private void writeString(Output out, byte tag, String value, boolean intern) {
+        int index = intern ? indexOf(value) : -1;
+        out.write(tag);
+        if (index >= 0) {
+            out.writeVarLong(((long) index << 1) | 1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeVarLong((long) bytes.length << 1);
+            out.writeAll(bytes);
+        }
+    }
+
+    private String readString(ByteBuffer in) {
+        long header = readVarLong(in);
+        if ((header & 1) == 1) {
+            return entries[(int) (header >>> 1)];
+        }
+        int length = (int) (header >>> 1);
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private int indexOf(String value) {
+        Integer index = indexes.get(value);
+        if (index != null) {
+            return index;
+        }
+        if (value.length() > MAX_INTERNED_LENGTH) {
+            return -1;
+        }
+        synchronized (this) {
+            index = indexes.get(value);
+            if (index != null) {
+                return index;
+            }
+            if (size == MAX_DICTIONARY_SIZE) {
+                return -1;
+            }
+            String[] current = entries;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size << 1);
+            }
+            current[size] = value;
+            entries = current;
+            indexes.put(value, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Parse a string holding the canonical decimal form of a non-negative {@code long}, the one {@link Long#toString}
+     * gives back, so that decoding restores the exact same string.
+     *
+     * @param text the string to parse
+     * @return the parsed value, or {@code -1} if the string is not in that form
+     */
+    private static long parseNumeric(String text) {
+        int length = text.length();
+        if (length == 0 || length > MAX_UNSIGNED_DIGITS || (length > 1 && text.charAt(0) == '0')) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+            if (value < 0) {
+                // overflow past Long.MAX_VALUE
+                return -1;
+            }
+        }
+        return value;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static final class Output extends ByteArrayOutputStream {
+
+        private Output() {
+            super(128);
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        private void writeLong(long value) {
+            for (int i = 56; i >= 0; i -= 8) {
+                write((int) (value >>> i));
+            }
+        }
+
+        private void writeAll(byte[] bytes) {
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import reactor.core.Exceptions;
+import reactor.util.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link LongMap} keeping its values encoded in byte arrays by an {@link EntityFormat}, decoding them each time they
+ * are read. Not thread-safe.
+ *
+ * @param <V> the type of the values
+ */
+class CompactLongMap<V> extends LongMap<V> {
+
+    private final LongObjectMap<byte[]> encoded;
+    private final EntityCodec<V> codec;
+    private final EntityFormat format;
+    private final ObjectMapper mapper;
+
+    CompactLongMap(EntityCodec<V> codec, EntityFormat format, ObjectMapper mapper, int expectedSize) {
+        this.encoded = new LongObjectMap<>(expectedSize);
+        this.codec = codec;
+        this.format = format;
+        this.mapper = mapper;
+    }
+
+    @Override
+    int size() {
+        return encoded.size();
+    }
+
+    @Override
+    boolean containsKey(long key) {
+        return encoded.containsKey(key);
+    }
+
+    @Nullable
+    @Override
+    V get(long key) {
+        byte[] bytes = encoded.get(key);
+        return bytes == null ? null : decode(bytes);
+    }
+
+    @Nullable
+    @Override
+    V put(long key, V value) {
+        byte[] old = encoded.put(key, encode(value));
+        return old == null ? null : decode(old);
+    }
+
+    @Nullable
+    @Override
+    V remove(long key) {
+        byte[] old = encoded.remove(key);
+        return old == null ? null : decode(old);
+    }
+
+    @Override
+    void ensureCapacity(int expectedSize) {
+        encoded.ensureCapacity(expectedSize);
+    }
+
+    @Override
+    long[] keys() {
+        return encoded.keys();
+    }
+
+    @Override
+    List<V> values() {
+        List<byte[]> values = encoded.values();
+        List<V> result = new ArrayList<>(values.size());
+        for (byte[] bytes : values) {
+            result.add(decode(bytes));
+        }
+        return result;
+    }
+
+    @Override
+    void clear() {
+        encoded.clear();
+    }
+
+    private byte[] encode(V value) {
+        try {
+            return format.encode(mapper, codec, value);
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    private V decode(byte[] bytes) {
+        try {
+            return format.decode(mapper, codec, bytes);
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package discord4j.common.store.impl;
+
+import reactor.util.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * A thread-safe map of primitive {@code long} keys to non-null values, split in a fixed number of {@link LongMap}
+ * segments that are each guarded by their own lock.
+ * <p>
+ * This class is shared by the store layouts of this module and is not meant to be used by applications.
+ *
+ * @param <V> the type of the values
+ */
+public class ConcurrentLongObjectMap<V> {
+
+    private static final int SEGMENT_BITS = 6;
+
+    private final LongMap<V>[] segments;
+
+    public ConcurrentLongObjectMap() {
+        this(LongObjectMap::new);
+    }
+
+    @SuppressWarnings("unchecked")
+    ConcurrentLongObjectMap(Supplier<LongMap<V>> segmentFactory) {
+        this.segments = new LongMap[1 << SEGMENT_BITS];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = segmentFactory.get();
+        }
+    }
+
+    @Nullable
+    public V get(long key) {
+        LongMap<V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    @Nullable
+    public V put(long key, V value) {
+        LongMap<V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.put(key, value);
+        }
+    }
+
+    @Nullable
+    public V remove(long key) {
+        LongMap<V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.remove(key);
+        }
+    }
+
+    /**
+     * Atomically compute a new value for the given key.
+     *
+     * @param key the key
+     * @param function the function receiving the current value, or {@code null} if absent, and returning the new
+     * value, or {@code null} to remove it
+     * @return the previous value for this key, or {@code null} if there was none
+     */
+    @Nullable
+    public V compute(long key, UnaryOperator<V> function) {
+        LongMap<V> segment = segmentFor(key);
+        synchronized (segment) {
+            V old = segment.get(key);
+            V value = function.apply(old);
+            if (value == null) {
+                segment.remove(key);
+            } else if (value != old) {
+                segment.put(key, value);
+            }
+            return old;
+        }
+    }
+
+    /**
+     * Return the value for the given key, atomically creating it first if absent.
+     *
+     * @param key the key
+     * @param factory the function creating the value from the key
+     * @return the current value for this key
+     */
+    public V computeIfAbsent(long key, LongFunction<V> factory) {
+        LongMap<V> segment = segmentFor(key);
+        synchronized (segment) {
+            V value = segment.get(key);
+            if (value == null) {
+                value = factory.apply(key);
+                segment.put(key, value);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Atomically replace the value for the given key, if present.
+     *
+     * @param key the key
+     * @param function the function receiving the current value and returning the new one, or {@code null} to remove
+     * it
+     * @return the previous value for this key, or {@code null} if there was none
+     */
+    @Nullable
+    public V computeIfPresent(long key, UnaryOperator<V> function) {
+        return compute(key, old -> old == null ? null : function.apply(old));
+    }
+
+    public long size() {
+        long size = 0;
+        for (LongMap<V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public List<V> values() {
+        List<V> result = new ArrayList<>();
+        for (LongMap<V> segment : segments) {
+            synchronized (segment) {
+                result.addAll(segment.values());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return up to {@code max} values from a random position in this map, visiting every entry only if the map
+     * holds fewer values than requested.
+     *
+     * @param max the maximum number of values to return
+     * @return a sample of the values in this map
+     */
+    public List<V> sample(int max) {
+        List<V> result = new ArrayList<>(max);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int start = random.nextInt(segments.length);
+        int seed = random.nextInt();
+        for (int i = 0; i < segments.length && result.size() < max; i++) {
+            LongMap<V> segment = segments[(start + i) & (segments.length - 1)];
+            synchronized (segment) {
+                segment.sample(seed, max - result.size(), result);
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        for (LongMap<V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    private LongMap<V> segmentFor(long key) {
+        // use the high bits so segment selection is independent from the slot within the segment
+        return segments[(int) ((key * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - SEGMENT_BITS))];
+    }
+}
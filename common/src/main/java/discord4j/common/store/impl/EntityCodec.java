@@ -0,0 +1,56 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * Converts entities to and from a stream of JSON tokens, which an {@link EntityFormat} turns into bytes.
+ *
+ * @param <V> the type of the entities
+ */
+interface EntityCodec<V> {
+
+    void write(ObjectMapper mapper, JsonGenerator generator, V value) throws IOException;
+
+    V read(ObjectMapper mapper, JsonParser parser) throws IOException;
+
+    /**
+     * Create a codec writing entities as their JSON representation.
+     *
+     * @param type the class of the entities
+     * @param <V> the type of the entities
+     * @return a new JSON codec
+     */
+    static <V> EntityCodec<V> json(Class<V> type) {
+        return new EntityCodec<V>() {
+            @Override
+            public void write(ObjectMapper mapper, JsonGenerator generator, V value) throws IOException {
+                mapper.writeValue(generator, value);
+            }
+
+            @Override
+            public V read(ObjectMapper mapper, JsonParser parser) throws IOException {
+                return mapper.readValue(parser, type);
+            }
+        };
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Defines the bytes an entity is stored as, given the {@link EntityCodec} of its type.
+ */
+interface EntityFormat {
+
+    /**
+     * Store entities as UTF-8 encoded JSON.
+     */
+    EntityFormat JSON = new EntityFormat() {
+        @Override
+        public <V> byte[] encode(ObjectMapper mapper, EntityCodec<V> codec, V value) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+                codec.write(mapper, generator, value);
+            }
+            return out.toByteArray();
+        }
+
+        @Override
+        public <V> V decode(ObjectMapper mapper, EntityCodec<V> codec, byte[] bytes) throws IOException {
+            try (JsonParser parser = mapper.getFactory().createParser(bytes)) {
+                return codec.read(mapper, parser);
+            }
+        }
+    };
+
+    <V> byte[] encode(ObjectMapper mapper, EntityCodec<V> codec, V value) throws IOException;
+
+    <V> V decode(ObjectMapper mapper, EntityCodec<V> codec, byte[] bytes) throws IOException;
+}
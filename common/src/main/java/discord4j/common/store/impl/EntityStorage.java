@@ -0,0 +1,44 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+/**
+ * Defines where the entities of a {@link LocalStoreLayout} with the highest cardinality (members, presences and users)
+ * are kept, by creating the maps holding them.
+ */
+abstract class EntityStorage {
+
+    /**
+     * Keep every entity as an object on the heap.
+     */
+    static final EntityStorage HEAP = new EntityStorage() {
+        @Override
+        <V> LongMap<V> newMap(EntityCodec<V> codec, int expectedSize) {
+            return new LongObjectMap<>(expectedSize);
+        }
+    };
+
+    /**
+     * Create a new map of entities.
+     *
+     * @param codec the codec to use if entities are not kept as objects
+     * @param expectedSize the number of entities expected to be held by the map
+     * @param <V> the type of the entities
+     * @return a new map, not thread-safe
+     */
+    abstract <V> LongMap<V> newMap(EntityCodec<V> codec, int expectedSize);
+}
@@ -0,0 +1,909 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import discord4j.common.store.api.ActionMapper;
+import discord4j.common.store.api.layout.DataAccessor;
+import discord4j.common.store.api.layout.GatewayDataUpdater;
+import discord4j.common.store.api.layout.StoreLayout;
+import discord4j.common.store.api.object.InvalidationCause;
+import discord4j.common.store.api.object.MemberAndRolesData;
+import discord4j.common.store.api.object.PresenceAndUserData;
+import discord4j.common.util.Snowflake;
+import discord4j.discordjson.json.*;
+import discord4j.discordjson.json.gateway.*;
+import discord4j.discordjson.possible.Possible;
+import discord4j.store.api.util.LongLongTuple2;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.annotation.Nullable;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * A {@link StoreLayout} decorating another layout to bound the number of cached entities of some types with an
+ * {@link EvictionPolicy} each. Evictable entities are kept in caches owned by this layout, every other entity is kept
+ * by the decorated layout.
+ * <ul>
+ *     <li>Messages are always kept by this layout, and never reach the decorated layout.</li>
+ *     <li>If a presence policy is set, presences other than offline are kept by this layout. The decorated layout
+ *     only sees members as offline, so an evicted presence is read back as offline.</li>
+ *     <li>If a user policy is set, this layout also caches the users seen outside of guild member lists, such as
+ *     message authors, which the decorated layout does not keep.</li>
+ * </ul>
+ * Guilds, channels, roles and members are never evicted. Hit, miss and eviction statistics of each cache are available
+ * from {@link #getMessageStats()}, {@link #getPresenceStats()} and {@link #getUserStats()}.
+ */
+public class EvictingStoreLayout implements StoreLayout, DataAccessor, GatewayDataUpdater {
+
+    private static final String OFFLINE = "offline";
+
+    private final StoreLayout delegate;
+    private final DataAccessor accessor;
+    private final GatewayDataUpdater updater;
+    private final Cache<Long, MessageData> messages;
+    @Nullable
+    private final Cache<LongLongTuple2, PresenceData> presences;
+    @Nullable
+    private final Cache<Long, UserData> users;
+    // message IDs by channel, each channel tagged with its shard
+    final KeyIndex messageIdsByChannel = new KeyIndex();
+    final KeyIndex channelIdsByShard = new KeyIndex();
+    // user IDs of the cached presences by guild, each guild tagged with its shard
+    final KeyIndex presenceUserIdsByGuild = new KeyIndex();
+    final KeyIndex presenceGuildIdsByShard = new KeyIndex();
+    // the ID of the current user, as given by READY, or 0 before it
+    private volatile long selfId;
+
+    private EvictingStoreLayout(Builder builder) {
+        this.delegate = builder.delegate;
+        this.accessor = delegate.getDataAccessor();
+        this.updater = delegate.getGatewayDataUpdater();
+        this.messages = builder.messagePolicy.buildCache(this::onMessageRemoval);
+        this.presences = builder.presencePolicy == null ? null :
+                builder.presencePolicy.buildCache(this::onPresenceRemoval);
+        this.users = builder.userPolicy == null ? null :
+                builder.userPolicy.buildCache((id, user, cause) -> {});
+    }
+
+    /**
+     * Create a new {@link EvictingStoreLayout} caching messages according to the given policy, and every other entity
+     * in the given layout.
+     *
+     * @param delegate the layout to keep every entity other than messages in
+     * @param messagePolicy the policy bounding the message cache
+     * @return a new {@link EvictingStoreLayout}
+     */
+    public static EvictingStoreLayout create(StoreLayout delegate, EvictionPolicy<MessageData> messagePolicy) {
+        return builder(delegate).setMessagePolicy(messagePolicy).build();
+    }
+
+    /**
+     * Create a new builder for {@link EvictingStoreLayout}.
+     *
+     * @param delegate the layout to keep every entity that is not evictable in
+     * @return a new builder
+     */
+    public static EvictingStoreLayout.Builder builder(StoreLayout delegate) {
+        return new Builder(delegate);
+    }
+
+    /**
+     * Return a snapshot of the statistics of the message cache.
+     *
+     * @return the message {@link CacheStats}
+     */
+    public CacheStats getMessageStats() {
+        return messages.stats();
+    }
+
+    /**
+     * Return a snapshot of the statistics of the presence cache, empty if no presence policy was set.
+     *
+     * @return the presence {@link CacheStats}
+     */
+    public CacheStats getPresenceStats() {
+        return presences == null ? CacheStats.empty() : presences.stats();
+    }
+
+    /**
+     * Return a snapshot of the statistics of the cache of users seen outside of guild member lists, empty if no user
+     * policy was set.
+     *
+     * @return the user {@link CacheStats}
+     */
+    public CacheStats getUserStats() {
+        return users == null ? CacheStats.empty() : users.stats();
+    }
+
+    @Override
+    public DataAccessor getDataAccessor() {
+        return this;
+    }
+
+    @Override
+    public GatewayDataUpdater getGatewayDataUpdater() {
+        return this;
+    }
+
+    @Override
+    public ActionMapper getCustomActionMapper() {
+        return delegate.getCustomActionMapper();
+    }
+
+    /////////////////////////////////////////////////////////////////////////////
+    //// Query model methods
+    /////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public Mono<Long> countChannels() {
+        return accessor.countChannels();
+    }
+
+    @Override
+    public Mono<Long> countChannelsInGuild(long guildId) {
+        return accessor.countChannelsInGuild(guildId);
+    }
+
+    @Override
+    public Mono<Long> countEmojis() {
+        return accessor.countEmojis();
+    }
+
+    @Override
+    public Mono<Long> countEmojisInGuild(long guildId) {
+        return accessor.countEmojisInGuild(guildId);
+    }
+
+    @Override
+    public Mono<Long> countGuilds() {
+        return accessor.countGuilds();
+    }
+
+    @Override
+    public Mono<Long> countMembers() {
+        return accessor.countMembers();
+    }
+
+    @Override
+    public Mono<Long> countMembersInGuild(long guildId) {
+        return accessor.countMembersInGuild(guildId);
+    }
+
+    @Override
+    public Mono<Long> countExactMembersInGuild(long guildId) {
+        return accessor.countExactMembersInGuild(guildId);
+    }
+
+    @Override
+    public Mono<Long> countMessages() {
+        return Mono.fromCallable(messages::estimatedSize);
+    }
+
+    @Override
+    public Mono<Long> countMessagesInChannel(long channelId) {
+        return getMessagesInChannel(channelId).count();
+    }
+
+    @Override
+    public Mono<Long> countPresences() {
+        if (presences == null) {
+            return accessor.countPresences();
+        }
+        return getPresences().count();
+    }
+
+    @Override
+    public Mono<Long> countPresencesInGuild(long guildId) {
+        if (presences == null) {
+            return accessor.countPresencesInGuild(guildId);
+        }
+        return getPresencesInGuild(guildId).count();
+    }
+
+    @Override
+    public Mono<Long> countRoles() {
+        return accessor.countRoles();
+    }
+
+    @Override
+    public Mono<Long> countRolesInGuild(long guildId) {
+        return accessor.countRolesInGuild(guildId);
+    }
+
+    @Override
+    public Mono<Long> countUsers() {
+        if (users == null) {
+            return accessor.countUsers();
+        }
+        return getUsers().count();
+    }
+
+    @Override
+    public Mono<Long> countVoiceStates() {
+        return accessor.countVoiceStates();
+    }
+
+    @Override
+    public Mono<Long> countVoiceStatesInGuild(long guildId) {
+        return accessor.countVoiceStatesInGuild(guildId);
+    }
+
+    @Override
+    public Mono<Long> countVoiceStatesInChannel(long guildId, long channelId) {
+        return accessor.countVoiceStatesInChannel(guildId, channelId);
+    }
+
+    @Override
+    public Flux<ChannelData> getChannels() {
+        return accessor.getChannels();
+    }
+
+    @Override
+    public Flux<ChannelData> getChannelsInGuild(long guildId) {
+        return accessor.getChannelsInGuild(guildId);
+    }
+
+    @Override
+    public Mono<ChannelData> getChannelById(long channelId) {
+        return accessor.getChannelById(channelId);
+    }
+
+    @Override
+    public Flux<EmojiData> getEmojis() {
+        return accessor.getEmojis();
+    }
+
+    @Override
+    public Flux<EmojiData> getEmojisInGuild(long guildId) {
+        return accessor.getEmojisInGuild(guildId);
+    }
+
+    @Override
+    public Mono<EmojiData> getEmojiById(long guildId, long emojiId) {
+        return accessor.getEmojiById(guildId, emojiId);
+    }
+
+    @Override
+    public Flux<GuildData> getGuilds() {
+        return accessor.getGuilds();
+    }
+
+    @Override
+    public Mono<GuildData> getGuildById(long guildId) {
+        return accessor.getGuildById(guildId);
+    }
+
+    @Override
+    public Flux<MemberData> getMembers() {
+        return accessor.getMembers();
+    }
+
+    @Override
+    public Flux<MemberData> getMembersInGuild(long guildId) {
+        return accessor.getMembersInGuild(guildId);
+    }
+
+    @Override
+    public Flux<MemberData> getExactMembersInGuild(long guildId) {
+        return accessor.getExactMembersInGuild(guildId);
+    }
+
+    @Override
+    public Mono<MemberData> getMemberById(long guildId, long userId) {
+        return accessor.getMemberById(guildId, userId);
+    }
+
+    @Override
+    public Mono<MemberAndRolesData> getMemberAndRolesById(long guildId, long userId) {
+        return accessor.getMemberAndRolesById(guildId, userId);
+    }
+
+    @Override
+    public Flux<MessageData> getMessages() {
+        return Flux.defer(() -> Flux.fromIterable(new ArrayList<>(messages.asMap().values())));
+    }
+
+    @Override
+    public Flux<MessageData> getMessagesInChannel(long channelId) {
+        return Flux.defer(() -> Flux.fromIterable(messages.getAllPresent(toList(messageIds(channelId))).values()));
+    }
+
+    @Override
+    public Mono<MessageData> getMessageById(long channelId, long messageId) {
+        return Mono.fromCallable(() -> {
+            MessageData message = messages.getIfPresent(messageId);
+            return message != null && Snowflake.asLong(message.channelId()) == channelId ? message : null;
+        });
+    }
+
+    @Override
+    public Flux<PresenceData> getPresences() {
+        if (presences == null) {
+            return accessor.getPresences();
+        }
+        // presences of the decorated layout do not tell their guild, so they are overlaid guild by guild
+        return accessor.getGuilds()
+                .concatMap(guild -> getPresencesInGuild(Snowflake.asLong(guild.id())));
+    }
+
+    @Override
+    public Flux<PresenceData> getPresencesInGuild(long guildId) {
+        if (presences == null) {
+            return accessor.getPresencesInGuild(guildId);
+        }
+        return Flux.defer(() -> {
+            List<LongLongTuple2> keys = new ArrayList<>();
+            for (long userId : presenceUserIdsByGuild.keys(guildId)) {
+                keys.add(LongLongTuple2.of(guildId, userId));
+            }
+            Map<Long, PresenceData> cached = new LinkedHashMap<>();
+            presences.getAllPresent(keys).forEach((key, presence) -> cached.put(key.getT2(), presence));
+            return accessor.getPresencesInGuild(guildId)
+                    .filter(presence -> !cached.containsKey(Snowflake.asLong(presence.user().id())))
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(cached.values())));
+        });
+    }
+
+    @Override
+    public Mono<PresenceData> getPresenceById(long guildId, long userId) {
+        if (presences == null) {
+            return accessor.getPresenceById(guildId, userId);
+        }
+        return Mono.fromCallable(() -> presences.getIfPresent(LongLongTuple2.of(guildId, userId)))
+                .switchIfEmpty(accessor.getPresenceById(guildId, userId));
+    }
+
+    @Override
+    public Flux<RoleData> getRoles() {
+        return accessor.getRoles();
+    }
+
+    @Override
+    public Flux<RoleData> getRolesInGuild(long guildId) {
+        return accessor.getRolesInGuild(guildId);
+    }
+
+    @Override
+    public Mono<RoleData> getRoleById(long guildId, long roleId) {
+        return accessor.getRoleById(guildId, roleId);
+    }
+
+    @Override
+    public Flux<UserData> getUsers() {
+        if (users == null) {
+            return accessor.getUsers();
+        }
+        return Flux.defer(() -> {
+            Map<Long, UserData> cached = new HashMap<>(users.asMap());
+            return accessor.getUsers()
+                    .doOnNext(user -> cached.remove(Snowflake.asLong(user.id())))
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(cached.values())));
+        });
+    }
+
+    @Override
+    public Mono<UserData> getUserById(long userId) {
+        if (users == null) {
+            return accessor.getUserById(userId);
+        }
+        return accessor.getUserById(userId)
+                .switchIfEmpty(Mono.fromCallable(() -> users.getIfPresent(userId)));
+    }
+
+    @Override
+    public Flux<VoiceStateData> getVoiceStates() {
+        return accessor.getVoiceStates();
+    }
+
+    @Override
+    public Flux<VoiceStateData> getVoiceStatesInChannel(long guildId, long channelId) {
+        return accessor.getVoiceStatesInChannel(guildId, channelId);
+    }
+
+    @Override
+    public Flux<VoiceStateData> getVoiceStatesInGuild(long guildId) {
+        return accessor.getVoiceStatesInGuild(guildId);
+    }
+
+    @Override
+    public Mono<VoiceStateData> getVoiceStateById(long guildId, long userId) {
+        return accessor.getVoiceStateById(guildId, userId);
+    }
+
+    /////////////////////////////////////////////////////////////////////////////
+    //// Update model methods
+    /////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public Mono<Void> onChannelCreate(int shardIndex, ChannelCreate dispatch) {
+        return updater.onChannelCreate(shardIndex, dispatch);
+    }
+
+    @Override
+    public Mono<ChannelData> onChannelDelete(int shardIndex, ChannelDelete dispatch) {
+        long channelId = Snowflake.asLong(dispatch.channel().id());
+        return updater.onChannelDelete(shardIndex, dispatch)
+                .doFinally(signal -> deleteChannelMessages(channelId));
+    }
+
+    @Override
+    public Mono<ChannelData> onChannelUpdate(int shardIndex, ChannelUpdate dispatch) {
+        return updater.onChannelUpdate(shardIndex, dispatch);
+    }
+
+    @Override
+    public Mono<Void> onGuildCreate(int shardIndex, GuildCreate dispatch) {
+        return Mono.fromCallable(() -> takePresences(shardIndex, dispatch))
+                .flatMap(guildCreate -> updater.onGuildCreate(shardIndex, guildCreate));
+    }
+
+    @Override
+    public Mono<Void> onGuildCreateBatch(int shardIndex, List<GuildCreate> dispatches) {
+        return Mono.fromCallable(() -> {
+            List<GuildCreate> guildCreates = new ArrayList<>(dispatches.size());
+            for (GuildCreate dispatch : dispatches) {
+                guildCreates.add(takePresences(shardIndex, dispatch));
+            }
+            return guildCreates;
+        })
+                .flatMap(guildCreates -> updater.onGuildCreateBatch(shardIndex, guildCreates));
+    }
+
+    @Override
+    public Mono<GuildData> onGuildDelete(int shardIndex, GuildDelete dispatch) {
+        long guildId = Snowflake.asLong(dispatch.guild().id());
+        return updater.onGuildDelete(shardIndex, dispatch)
+                .doOnNext(guild -> guild.channels().forEach(id -> deleteChannelMessages(Snowflake.asLong(id))))
+                .doFinally(signal -> deleteGuildPresences(guildId));
+    }
+
+    @Override
+    public Mono<Set<EmojiData>> onGuildEmojisUpdate(int shardIndex, GuildEmojisUpdate dispatch) {
+        return updater.onGuildEmojisUpdate(shardIndex, dispatch);
+    }
+
+    @Override
+    public Mono<Void> onGuildMemberAdd(int shardIndex, GuildMemberAdd dispatch) {
+        return updater.onGuildMemberAdd(shardIndex, dispatch);
+    }
+
+    @Override
+    public Mono<MemberData> onGuildMemberRemove(int shardIndex, GuildMemberRemove dispatch) {
+        long guildId = Snowflake.asLong(dispatch.guildId());
+        long userId = Snowflake.asLong(dispatch.user().id());
+        return updater.onGuildMemberRemove(shardIndex, dispatch)
+                .doFinally(signal -> deletePresence(guildId, userId));
+    }
+
+    @Override
+    public Mono<Void> onGuildMembersChunk(int shardIndex, GuildMembersChunk dispatch) {
+        return updater.onGuildMembersChunk(shardIndex, dispatch);
+    }
+
+    @Override
+    public Mono<Void> onGuildMembersChunkBatch(int shardIndex, List<GuildMembersChunk> dispatches) {
+        return updater.onGuildMembersChunkBatch(shardIndex, dispatches);
+    }
+
+    @Override
+    public Mono<MemberData> onGuildMemberUpdate(int shardIndex, GuildMemberUpdate dispatch) {
+        return updater.onGuildMemberUpdate(shardIndex, dispatch);
+    }
+
+    @Override
+    public Mono<Void> onGuildRoleCreate(int shardIndex, GuildRoleCreate dispatch) {
+        return updater.onGuildRoleCreate(shardIndex, dispatch);
+    }
+
+    @Override
+    public Mono<RoleData> onGuildRoleDelete(int shardIndex, GuildRoleDelete dispatch) {
+        return updater.onGuildRoleDelete(shardIndex, dispatch);
+    }
+
+    @Override
+    public Mono<RoleData> onGuildRoleUpdate(int shardIndex, GuildRoleUpdate dispatch) {
+        return updater.onGuildRoleUpdate(shardIndex, dispatch);
+    }
+
+    @Override
+    public Mono<GuildData> onGuildUpdate(int shardIndex, GuildUpdate dispatch) {
+        return updater.onGuildUpdate(shardIndex, dispatch);
+    }
+
+    @Override
+    public Mono<Void> onShardInvalidation(int shardIndex, InvalidationCause cause) {
+        return updater.onShardInvalidation(shardIndex, cause)
+                .then(Mono.fromRunnable(() -> {
+                    KeyIndex.Bucket shardChannels = channelIdsByShard.removeBucket(shardIndex);
+                    if (shardChannels != null) {
+                        for (long channelId : shardChannels.keys()) {
+                            deleteChannelMessages(channelId);
+                        }
+                    }
+                    KeyIndex.Bucket shardGuilds = presenceGuildIdsByShard.removeBucket(shardIndex);
+                    if (shardGuilds != null) {
+                        for (long guildId : shardGuilds.keys()) {
+                            deleteGuildPresences(guildId);
+                        }
+                    }
+                }));
+    }
+
+    @Override
+    public Mono<Void> onMessageCreate(int shardIndex, MessageCreate dispatch) {
+        MessageData message = dispatch.message();
+        long messageId = Snowflake.asLong(message.id());
+        long channelId = Snowflake.asLong(message.channelId());
+
+        Mono<Void> saveMessage = Mono.fromRunnable(() -> {
+            // the channel is indexed before its shard, see deleteMessage
+            messageIdsByChannel.add(channelId, messageId, shardIndex);
+            channelIdsByShard.add(shardIndex, channelId, KeyIndex.NO_TAG);
+            messages.put(messageId, message);
+            if (users != null) {
+                users.put(Snowflake.asLong(message.author().id()), message.author());
+            }
+        });
+
+        // the channel is kept by the decorated layout, which never receives the message itself
+        Mono<Void> editLastMessageId = accessor.getChannelById(channelId)
+                .map(channel -> ChannelData.builder()
+                        .from(channel)
+                        .lastMessageId(message.id())
+                        .build())
+                .flatMap(channel -> updater.onChannelUpdate(shardIndex, ChannelUpdate.builder()
+                        .channel(channel)
+                        .build()))
+                .then();
+
+        return saveMessage.and(editLastMessageId);
+    }
+
+    @Override
+    public Mono<MessageData> onMessageDelete(int shardIndex, MessageDelete dispatch) {
+        long messageId = Snowflake.asLong(dispatch.id());
+        long channelId = Snowflake.asLong(dispatch.channelId());
+
+        return Mono.fromCallable(() -> deleteMessage(channelId, messageId));
+    }
+
+    @Override
+    public Mono<Set<MessageData>> onMessageDeleteBulk(int shardIndex, MessageDeleteBulk dispatch) {
+        long channelId = Snowflake.asLong(dispatch.channelId());
+
+        return Mono.fromCallable(() -> {
+            Set<MessageData> deleted = new HashSet<>();
+            for (String id : dispatch.ids()) {
+                MessageData message = deleteMessage(channelId, Snowflake.asLong(id));
+                if (message != null) {
+                    deleted.add(message);
+                }
+            }
+            return deleted;
+        });
+    }
+
+    @Override
+    public Mono<Void> onMessageReactionAdd(int shardIndex, MessageReactionAdd dispatch) {
+        boolean me = Snowflake.asLong(dispatch.userId()) == selfId;
+
+        return updateMessage(dispatch.messageId(),
+                oldMessage -> MessageUpdates.addReaction(oldMessage, dispatch.emoji(), me)).then();
+    }
+
+    @Override
+    public Mono<Void> onMessageReactionRemove(int shardIndex, MessageReactionRemove dispatch) {
+        boolean me = Snowflake.asLong(dispatch.userId()) == selfId;
+
+        return updateMessage(dispatch.messageId(),
+                oldMessage -> MessageUpdates.removeReaction(oldMessage, dispatch.emoji(), me)).then();
+    }
+
+    @Override
+    public Mono<Void> onMessageReactionRemoveAll(int shardIndex, MessageReactionRemoveAll dispatch) {
+        return updateMessage(dispatch.messageId(), MessageUpdates::removeAllReactions).then();
+    }
+
+    @Override
+    public Mono<Void> onMessageReactionRemoveEmoji(int shardIndex, MessageReactionRemoveEmoji dispatch) {
+        return updateMessage(dispatch.messageId(),
+                oldMessage -> MessageUpdates.removeReactionEmoji(oldMessage, dispatch.emoji())).then();
+    }
+
+    @Override
+    public Mono<MessageData> onMessageUpdate(int shardIndex, MessageUpdate dispatch) {
+        PartialMessageData messageData = dispatch.message();
+
+        return updateMessage(messageData.id(), oldMessage -> MessageUpdates.update(oldMessage, messageData));
+    }
+
+    @Override
+    public Mono<PresenceAndUserData> onPresenceUpdate(int shardIndex, PresenceUpdate dispatch) {
+        if (presences == null) {
+            return updater.onPresenceUpdate(shardIndex, dispatch)
+                    .doOnNext(result -> updateUser(dispatch.user()));
+        }
+        long guildId = Snowflake.asLong(dispatch.guildId());
+        long userId = Snowflake.asLong(dispatch.user().id());
+
+        Mono<Optional<PresenceData>> savePresence = Mono.fromCallable(() -> {
+            if (OFFLINE.equals(dispatch.status())) {
+                return Optional.ofNullable(deletePresence(guildId, userId));
+            }
+            return Optional.ofNullable(savePresence(shardIndex, guildId, userId, PresenceData.builder()
+                    .user(dispatch.user())
+                    .status(dispatch.status())
+                    .activities(dispatch.activities())
+                    .clientStatus(dispatch.clientStatus())
+                    .build()));
+        });
+
+        // the decorated layout keeps the user and sees the member as offline
+        PresenceUpdate offlineUpdate = PresenceUpdate.builder()
+                .from(dispatch)
+                .status(OFFLINE)
+                .activities(Collections.emptyList())
+                .build();
+
+        return savePresence.flatMap(oldPresence -> updater.onPresenceUpdate(shardIndex, offlineUpdate)
+                .map(result -> PresenceAndUserData.of(
+                        oldPresence.orElse(result.getPresenceData().orElse(null)),
+                        result.getUserData().orElse(null)))
+                .defaultIfEmpty(PresenceAndUserData.of(oldPresence.orElse(null), null)))
+                .doOnNext(result -> updateUser(dispatch.user()));
+    }
+
+    @Override
+    public Mono<Void> onReady(Ready dispatch) {
+        return Mono.fromRunnable(() -> selfId = Snowflake.asLong(dispatch.user().id()))
+                .then(updater.onReady(dispatch));
+    }
+
+    @Override
+    public Mono<UserData> onUserUpdate(int shardIndex, UserUpdate dispatch) {
+        return updater.onUserUpdate(shardIndex, dispatch);
+    }
+
+    @Override
+    public Mono<VoiceStateData> onVoiceStateUpdateDispatch(int shardIndex, VoiceStateUpdateDispatch dispatch) {
+        return updater.onVoiceStateUpdateDispatch(shardIndex, dispatch);
+    }
+
+    @Override
+    public Mono<Void> onGuildMembersCompletion(long guildId) {
+        return updater.onGuildMembersCompletion(guildId);
+    }
+
+    /////////////////////////////////////////////////////////////////////////////
+    //// Message cache helpers
+    /////////////////////////////////////////////////////////////////////////////
+
+    private Mono<MessageData> updateMessage(String messageId, UnaryOperator<MessageData> updater) {
+        long id = Snowflake.asLong(messageId);
+        return Mono.fromCallable(() -> {
+            MessageData[] oldMessage = new MessageData[1];
+            messages.asMap().computeIfPresent(id, (key, message) -> {
+                oldMessage[0] = message;
+                return updater.apply(message);
+            });
+            return oldMessage[0];
+        });
+    }
+
+    @Nullable
+    private MessageData deleteMessage(long channelId, long messageId) {
+        removeMessageKey(channelId, messageId);
+        return messages.asMap().remove(messageId);
+    }
+
+    private void deleteChannelMessages(long channelId) {
+        KeyIndex.Bucket channelMessages = messageIdsByChannel.removeBucket(channelId);
+        if (channelMessages == null) {
+            return;
+        }
+        channelIdsByShard.remove(channelMessages.tag, channelId, messageIdsByChannel::contains);
+        messages.invalidateAll(toList(channelMessages.keys()));
+    }
+
+    private void onMessageRemoval(@Nullable Long messageId, @Nullable MessageData message, RemovalCause cause) {
+        if (cause.wasEvicted() && messageId != null && message != null) {
+            removeMessageKey(Snowflake.asLong(message.channelId()), messageId);
+        }
+    }
+
+    private void removeMessageKey(long channelId, long messageId) {
+        int shardIndex = messageIdsByChannel.remove(channelId, messageId);
+        if (shardIndex != KeyIndex.NO_TAG) {
+            // a message created concurrently indexes its channel again before its shard, so the channel is only
+            // unlinked from its shard while it has no messages
+            channelIdsByShard.remove(shardIndex, channelId, messageIdsByChannel::contains);
+        }
+    }
+
+    private long[] messageIds(long channelId) {
+        return messageIdsByChannel.keys(channelId);
+    }
+
+    /////////////////////////////////////////////////////////////////////////////
+    //// Presence and user cache helpers
+    /////////////////////////////////////////////////////////////////////////////
+
+    private GuildCreate takePresences(int shardIndex, GuildCreate dispatch) {
+        if (presences == null) {
+            return dispatch;
+        }
+        GuildCreateData createData = dispatch.guild();
+        long guildId = Snowflake.asLong(createData.id());
+        // the guild replaces any previous state of it
+        deleteGuildPresences(guildId);
+        if (createData.presences().isEmpty()) {
+            return dispatch;
+        }
+        for (PresenceData presence : createData.presences()) {
+            if (!OFFLINE.equals(presence.status())) {
+                savePresence(shardIndex, guildId, Snowflake.asLong(presence.user().id()), presence);
+            }
+        }
+        return GuildCreate.builder()
+                .from(dispatch)
+                .guild(GuildCreateData.builder()
+                        .from(createData)
+                        .presences(Collections.emptyList())
+                        .build())
+                .build();
+    }
+
+    @Nullable
+    private PresenceData savePresence(int shardIndex, long guildId, long userId, PresenceData presence) {
+        Objects.requireNonNull(presences);
+        // the guild is indexed before its shard, see removePresenceKey
+        presenceUserIdsByGuild.add(guildId, userId, shardIndex);
+        presenceGuildIdsByShard.add(shardIndex, guildId, KeyIndex.NO_TAG);
+        return presences.asMap().put(LongLongTuple2.of(guildId, userId), presence);
+    }
+
+    @Nullable
+    private PresenceData deletePresence(long guildId, long userId) {
+        if (presences == null) {
+            return null;
+        }
+        removePresenceKey(guildId, userId);
+        return presences.asMap().remove(LongLongTuple2.of(guildId, userId));
+    }
+
+    private void deleteGuildPresences(long guildId) {
+        if (presences == null) {
+            return;
+        }
+        KeyIndex.Bucket guildPresences = presenceUserIdsByGuild.removeBucket(guildId);
+        if (guildPresences == null) {
+            return;
+        }
+        presenceGuildIdsByShard.remove(guildPresences.tag, guildId, presenceUserIdsByGuild::contains);
+        List<LongLongTuple2> keys = new ArrayList<>();
+        for (long userId : guildPresences.keys()) {
+            keys.add(LongLongTuple2.of(guildId, userId));
+        }
+        presences.invalidateAll(keys);
+    }
+
+    private void onPresenceRemoval(@Nullable LongLongTuple2 key, @Nullable PresenceData presence,
+                                   RemovalCause cause) {
+        if (cause.wasEvicted() && key != null) {
+            removePresenceKey(key.getT1(), key.getT2());
+        }
+    }
+
+    private void removePresenceKey(long guildId, long userId) {
+        int shardIndex = presenceUserIdsByGuild.remove(guildId, userId);
+        if (shardIndex != KeyIndex.NO_TAG) {
+            presenceGuildIdsByShard.remove(shardIndex, guildId, presenceUserIdsByGuild::contains);
+        }
+    }
+
+    private void updateUser(PartialUserData userData) {
+        if (users == null) {
+            return;
+        }
+        Optional<String> avatar = Possible.flatOpt(userData.avatar());
+        users.asMap().computeIfPresent(Snowflake.asLong(userData.id()), (id, user) -> UserData.builder()
+                .from(user)
+                .username(userData.username().toOptional().orElse(user.username()))
+                .discriminator(userData.discriminator().toOptional().orElse(user.discriminator()))
+                .avatar(avatar.isPresent() ? avatar : user.avatar())
+                .build());
+    }
+
+    void cleanUp() {
+        messages.cleanUp();
+        if (presences != null) {
+            presences.cleanUp();
+        }
+        if (users != null) {
+            users.cleanUp();
+        }
+    }
+
+    private static List<Long> toList(long[] ids) {
+        List<Long> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    public static class Builder {
+
+        private final StoreLayout delegate;
+        private EvictionPolicy<MessageData> messagePolicy = EvictionPolicy.<MessageData>builder().build();
+        private EvictionPolicy<PresenceData> presencePolicy;
+        private EvictionPolicy<UserData> userPolicy;
+
+        protected Builder(StoreLayout delegate) {
+            this.delegate = Objects.requireNonNull(delegate);
+        }
+
+        /**
+         * Set the policy bounding the message cache. Defaults to keeping every message until it is deleted.
+         *
+         * @param messagePolicy the policy bounding the message cache
+         * @return this builder
+         */
+        public Builder setMessagePolicy(EvictionPolicy<MessageData> messagePolicy) {
+            this.messagePolicy = Objects.requireNonNull(messagePolicy);
+            return this;
+        }
+
+        /**
+         * Set the policy bounding the presence cache. Defaults to none, keeping presences in the decorated layout
+         * where they are never evicted.
+         *
+         * @param presencePolicy the policy bounding the presence cache
+         * @return this builder
+         */
+        public Builder setPresencePolicy(EvictionPolicy<PresenceData> presencePolicy) {
+            this.presencePolicy = Objects.requireNonNull(presencePolicy);
+            return this;
+        }
+
+        /**
+         * Set the policy bounding the cache of users seen outside of guild member lists, such as message authors.
+         * Defaults to none, not caching such users.
+         *
+         * @param userPolicy the policy bounding the user cache
+         * @return this builder
+         */
+        public Builder setUserPolicy(EvictionPolicy<UserData> userPolicy) {
+            this.userPolicy = Objects.requireNonNull(userPolicy);
+            return this;
+        }
+
+        /**
+         * Create the {@link EvictingStoreLayout}.
+         *
+         * @return a new evicting layout
+         */
+        public EvictingStoreLayout build() {
+            return new EvictingStoreLayout(this);
+        }
+    }
+}
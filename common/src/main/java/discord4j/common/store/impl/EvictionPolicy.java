@@ -0,0 +1,164 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalListener;
+import reactor.util.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+/**
+ * A configuration object defining when cached entities of a given type are evicted. Entities can be bounded by count,
+ * by weight or by time since they were last accessed, and the weight and count bounds are mutually exclusive.
+ *
+ * @param <V> the type of the cached entities
+ */
+public class EvictionPolicy<V> {
+
+    private final long maximumSize;
+    private final long maximumWeight;
+    @Nullable
+    private final ToIntFunction<? super V> weigher;
+    @Nullable
+    private final Duration expireAfterAccess;
+
+    protected EvictionPolicy(Builder<V> builder) {
+        if (builder.maximumSize >= 0 && builder.weigher != null) {
+            throw new IllegalStateException("maximumSize and maximumWeight cannot be combined");
+        }
+        this.maximumSize = builder.maximumSize;
+        this.maximumWeight = builder.maximumWeight;
+        this.weigher = builder.weigher;
+        this.expireAfterAccess = builder.expireAfterAccess;
+    }
+
+    /**
+     * Create a new builder for {@link EvictionPolicy}.
+     *
+     * @param <V> the type of the cached entities
+     * @return a new builder
+     */
+    public static <V> EvictionPolicy.Builder<V> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Create an {@link EvictionPolicy} keeping at most the given number of entities.
+     *
+     * @param maximumSize the maximum number of entities to keep
+     * @param <V> the type of the cached entities
+     * @return a new eviction policy bounded by count
+     */
+    public static <V> EvictionPolicy<V> maximumSize(long maximumSize) {
+        return EvictionPolicy.<V>builder().setMaximumSize(maximumSize).build();
+    }
+
+    public static class Builder<V> {
+
+        private long maximumSize = -1;
+        private long maximumWeight = -1;
+        private ToIntFunction<? super V> weigher;
+        private Duration expireAfterAccess;
+
+        protected Builder() {
+        }
+
+        /**
+         * Set the maximum number of entities to keep. The least likely to be used again are evicted first.
+         *
+         * @param maximumSize the maximum number of entities, must not be negative
+         * @return this builder
+         */
+        public Builder<V> setMaximumSize(long maximumSize) {
+            if (maximumSize < 0) {
+                throw new IllegalArgumentException("maximumSize must not be negative");
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Set the maximum total weight of the entities to keep, the weight of each entity being computed once when
+         * it is stored. This can be used to bound the cache by an approximate footprint instead of a count.
+         *
+         * @param maximumWeight the maximum total weight, must not be negative
+         * @param weigher the function computing the weight of an entity, must not return a negative value
+         * @return this builder
+         */
+        public Builder<V> setMaximumWeight(long maximumWeight, ToIntFunction<? super V> weigher) {
+            if (maximumWeight < 0) {
+                throw new IllegalArgumentException("maximumWeight must not be negative");
+            }
+            this.maximumWeight = maximumWeight;
+            this.weigher = Objects.requireNonNull(weigher);
+            return this;
+        }
+
+        /**
+         * Set the time after which an entity is evicted if it has not been read or written.
+         *
+         * @param expireAfterAccess the time-to-idle of each entity
+         * @return this builder
+         */
+        public Builder<V> setExpireAfterAccess(Duration expireAfterAccess) {
+            this.expireAfterAccess = Objects.requireNonNull(expireAfterAccess);
+            return this;
+        }
+
+        /**
+         * Create the {@link EvictionPolicy}.
+         *
+         * @return a new eviction policy
+         * @throws IllegalStateException if both a maximum size and a maximum weight were set
+         */
+        public EvictionPolicy<V> build() {
+            return new EvictionPolicy<>(this);
+        }
+    }
+
+    <K> Cache<K, V> buildCache(RemovalListener<K, V> removalListener) {
+        Caffeine<K, V> caffeine = Caffeine.newBuilder()
+                .executor(Runnable::run)
+                .recordStats()
+                .removalListener(removalListener);
+        if (maximumSize >= 0) {
+            caffeine.maximumSize(maximumSize);
+        }
+        if (weigher != null) {
+            ToIntFunction<? super V> weigher = this.weigher;
+            caffeine.maximumWeight(maximumWeight)
+                    .weigher((K key, V value) -> weigher.applyAsInt(value));
+        }
+        if (expireAfterAccess != null) {
+            caffeine.expireAfterAccess(expireAfterAccess);
+        }
+        return caffeine.build();
+    }
+
+    @Override
+    public String toString() {
+        return "EvictionPolicy{" +
+                "maximumSize=" + maximumSize +
+                ", maximumWeight=" + maximumWeight +
+                ", expireAfterAccess=" + expireAfterAccess +
+                '}';
+    }
+}
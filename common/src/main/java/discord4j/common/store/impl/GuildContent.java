@@ -0,0 +1,67 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package discord4j.common.store.impl;
+
+import discord4j.common.util.Snowflake;
+import discord4j.discordjson.json.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * All cached entities scoped to a single guild. The {@link GuildData} is kept without its ID lists, which are
+ * derived from the content of this bucket when it is read. Every access must be synchronized on this instance.
+ * <p>
+ * Each bucket belongs to the shard that received its guild, so the state of a shard can be dropped on its own.
+ */
+class GuildContent {
+
+    private static final EntityCodec<MemberData> MEMBER_CODEC = EntityCodec.json(MemberData.class);
+    private static final EntityCodec<PresenceData> PRESENCE_CODEC = EntityCodec.json(PresenceData.class);
+
+    final int shardIndex;
+    GuildData guild;
+    final LongObjectMap<Boolean> channelIds = new LongObjectMap<>();
+    final LongObjectMap<RoleData> roles = new LongObjectMap<>();
+    final LongObjectMap<EmojiData> emojis = new LongObjectMap<>();
+    final LongMap<MemberData> members;
+    final LongMap<PresenceData> presences;
+    final LongObjectMap<VoiceStateData> voiceStates = new LongObjectMap<>();
+
+    GuildContent(int shardIndex, GuildData guild, int expectedMembers, EntityStorage storage) {
+        this.shardIndex = shardIndex;
+        this.guild = guild;
+        this.members = storage.newMap(MEMBER_CODEC, expectedMembers);
+        this.presences = storage.newMap(PRESENCE_CODEC, 8);
+    }
+
+    GuildData toGuildData() {
+        return GuildData.builder()
+                .from(guild)
+                .channels(toIds(channelIds.keys()))
+                .roles(toIds(roles.keys()))
+                .emojis(toIds(emojis.keys()))
+                .members(toIds(members.keys()))
+                .build();
+    }
+
+    private static List<String> toIds(long[] ids) {
+        return Arrays.stream(ids).mapToObj(Snowflake::asString).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import reactor.util.annotation.Nullable;
+
+import java.util.function.LongPredicate;
+
+/**
+ * An index of {@code long} keys grouped in buckets, such as the IDs of the messages cached for each channel. A bucket
+ * is created with its first key and dropped with its last one, so the index never retains empty buckets. Each bucket
+ * records the tag it was created with, such as the shard owning a channel.
+ */
+class KeyIndex {
+
+    static final int NO_TAG = -1;
+
+    private final ConcurrentLongObjectMap<Bucket> buckets = new ConcurrentLongObjectMap<>();
+
+    void add(long bucketId, long key, int tag) {
+        for (;;) {
+            Bucket bucket = buckets.computeIfAbsent(bucketId, id -> new Bucket(tag));
+            synchronized (bucket) {
+                // the bucket may have been dropped since it was looked up, in which case a new one is created
+                if (!bucket.removed) {
+                    bucket.keys.put(key, Boolean.TRUE);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove a key from a bucket, dropping the bucket if it becomes empty.
+     *
+     * @param bucketId the bucket ID
+     * @param key the key to remove
+     * @return the tag of the bucket if it was dropped, or {@link #NO_TAG}
+     */
+    int remove(long bucketId, long key) {
+        return remove(bucketId, key, k -> false);
+    }
+
+    /**
+     * Remove a key from a bucket unless the given predicate, evaluated while the bucket is locked, tells to keep it.
+     * The bucket is dropped if it becomes empty.
+     *
+     * @param bucketId the bucket ID
+     * @param key the key to remove
+     * @param keep the predicate telling whether the key must be kept
+     * @return the tag of the bucket if it was dropped, or {@link #NO_TAG}
+     */
+    int remove(long bucketId, long key, LongPredicate keep) {
+        Bucket bucket = buckets.get(bucketId);
+        if (bucket == null) {
+            return NO_TAG;
+        }
+        synchronized (bucket) {
+            if (bucket.removed || keep.test(key) || bucket.keys.remove(key) == null || !bucket.keys.isEmpty()) {
+                return NO_TAG;
+            }
+            detach(bucketId, bucket);
+            return bucket.tag;
+        }
+    }
+
+    /**
+     * Drop a bucket with all its keys.
+     *
+     * @param bucketId the bucket ID
+     * @return the dropped bucket, or {@code null} if there was none
+     */
+    @Nullable
+    Bucket removeBucket(long bucketId) {
+        Bucket bucket = buckets.get(bucketId);
+        if (bucket == null) {
+            return null;
+        }
+        synchronized (bucket) {
+            if (bucket.removed) {
+                return null;
+            }
+            detach(bucketId, bucket);
+            return bucket;
+        }
+    }
+
+    long[] keys(long bucketId) {
+        Bucket bucket = buckets.get(bucketId);
+        return bucket == null ? new long[0] : bucket.keys();
+    }
+
+    boolean contains(long bucketId) {
+        return buckets.get(bucketId) != null;
+    }
+
+    long size() {
+        return buckets.size();
+    }
+
+    // must be called while holding the lock of the bucket
+    private void detach(long bucketId, Bucket bucket) {
+        bucket.removed = true;
+        buckets.computeIfPresent(bucketId, current -> current == bucket ? null : current);
+    }
+
+    static final class Bucket {
+
+        final int tag;
+        private final LongObjectMap<Boolean> keys = new LongObjectMap<>();
+        private boolean removed;
+
+        private Bucket(int tag) {
+            this.tag = tag;
+        }
+
+        synchronized long[] keys() {
+            return keys.keys();
+        }
+    }
+}
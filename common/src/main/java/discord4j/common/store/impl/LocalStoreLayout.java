@@ -0,0 +1,1045 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package discord4j.common.store.impl;
+
+import discord4j.common.JacksonResources;
+import discord4j.common.store.action.gateway.CoalescingBatchHandler;
+import discord4j.common.store.api.ActionMapper;
+import discord4j.common.store.api.layout.DataAccessor;
+import discord4j.common.store.api.layout.GatewayDataUpdater;
+import discord4j.common.store.api.layout.StoreLayout;
+import discord4j.common.store.api.object.InvalidationCause;
+import discord4j.common.store.api.object.MemberAndRolesData;
+import discord4j.common.store.api.object.PresenceAndUserData;
+import discord4j.common.util.Snowflake;
+import discord4j.discordjson.json.*;
+import discord4j.discordjson.json.gateway.*;
+import discord4j.discordjson.possible.Possible;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.annotation.Nullable;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link StoreLayout} keeping all entities in memory, in maps keyed by primitive {@code long} IDs.
+ * <p>
+ * Entities scoped to a guild (members, presences, voice states, roles and emojis) are kept in a bucket per guild, so
+ * lookups by guild and user ID do not allocate a composite key and guild-wide queries do not rely on range scans over
+ * a sorted map. Channels, users and messages are kept in global maps, with messages bucketed by channel.
+ * <p>
+ * Like {@link discord4j.common.store.legacy.LegacyStoreLayout} created in its implicit offline presence mode, members
+ * without a stored presence are reported as offline instead of storing a presence for each of them.
+ */
+public class LocalStoreLayout implements StoreLayout, DataAccessor, GatewayDataUpdater {
+
+    private static final String OFFLINE = "offline";
+    private static final int GUILD_COUNT_STRIPES = 64;
+    private static final EntityCodec<UserData> USER_CODEC = EntityCodec.json(UserData.class);
+
+    private final EntityStorage storage;
+    private final ConcurrentLongObjectMap<GuildContent> guilds = new ConcurrentLongObjectMap<>();
+    private final ConcurrentLongObjectMap<ChannelData> channels = new ConcurrentLongObjectMap<>();
+    private final ConcurrentLongObjectMap<UserData> users;
+    // the number of cached guilds each user is a member of, kept on the heap so that changing it does not rewrite
+    // the user in the storage, and only changed while holding the lock of the user
+    private final LongLongMap[] guildCounts = new LongLongMap[GUILD_COUNT_STRIPES];
+    private final ConcurrentLongObjectMap<LongObjectMap<MessageData>> messages = new ConcurrentLongObjectMap<>();
+    private final ConcurrentLongObjectMap<LongObjectMap<Boolean>> guildsByShard = new ConcurrentLongObjectMap<>();
+    // the ID of the current user, as given by READY, or 0 before it
+    private volatile long selfId;
+
+    LocalStoreLayout(EntityStorage storage) {
+        this.storage = storage;
+        this.users = new ConcurrentLongObjectMap<>(() -> storage.newMap(USER_CODEC, 8));
+        for (int i = 0; i < guildCounts.length; i++) {
+            guildCounts[i] = new LongLongMap(8);
+        }
+    }
+
+    public static LocalStoreLayout create() {
+        return new LocalStoreLayout(EntityStorage.HEAP);
+    }
+
+    /**
+     * Create a {@link LocalStoreLayout} keeping members, presences and users in a compact binary form instead of as
+     * objects, trading decoding work on each read for a several-fold smaller heap footprint per member. Field names
+     * and statuses are shared between entities through a dictionary, and IDs are written as variable-length integers.
+     *
+     * @return a new compact layout
+     */
+    public static LocalStoreLayout createCompact() {
+        return new LocalStoreLayout(new CompactEntityStorage(JacksonResources.create().getObjectMapper()));
+    }
+
+    @Override
+    public DataAccessor getDataAccessor() {
+        return this;
+    }
+
+    @Override
+    public GatewayDataUpdater getGatewayDataUpdater() {
+        return this;
+    }
+
+    @Override
+    public ActionMapper getCustomActionMapper() {
+        // runs of GUILD_CREATE and member chunks are applied through the batch methods
+        return ActionMapper.builder()
+                .mapBatch(CoalescingBatchHandler.create())
+                .build();
+    }
+
+    /////////////////////////////////////////////////////////////////////////////
+    //// Query model methods
+    /////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public Mono<Long> countChannels() {
+        return Mono.fromCallable(channels::size);
+    }
+
+    @Override
+    public Mono<Long> countChannelsInGuild(long guildId) {
+        return readGuild(guildId, content -> (long) content.channelIds.size()).defaultIfEmpty(0L);
+    }
+
+    @Override
+    public Mono<Long> countEmojis() {
+        return sumGuilds(content -> content.emojis.size());
+    }
+
+    @Override
+    public Mono<Long> countEmojisInGuild(long guildId) {
+        return readGuild(guildId, content -> (long) content.emojis.size()).defaultIfEmpty(0L);
+    }
+
+    @Override
+    public Mono<Long> countGuilds() {
+        return Mono.fromCallable(guilds::size);
+    }
+
+    @Override
+    public Mono<Long> countMembers() {
+        return sumGuilds(content -> content.members.size());
+    }
+
+    @Override
+    public Mono<Long> countMembersInGuild(long guildId) {
+        return readGuild(guildId, content -> (long) content.members.size()).defaultIfEmpty(0L);
+    }
+
+    @Override
+    public Mono<Long> countExactMembersInGuild(long guildId) {
+        return countMembersInGuild(guildId);
+    }
+
+    @Override
+    public Mono<Long> countMessages() {
+        return Mono.fromCallable(() -> {
+            long count = 0;
+            for (LongObjectMap<MessageData> channelMessages : messages.values()) {
+                synchronized (channelMessages) {
+                    count += channelMessages.size();
+                }
+            }
+            return count;
+        });
+    }
+
+    @Override
+    public Mono<Long> countMessagesInChannel(long channelId) {
+        return readMessages(channelId, channelMessages -> (long) channelMessages.size()).defaultIfEmpty(0L);
+    }
+
+    @Override
+    public Mono<Long> countPresences() {
+        // every member has a presence, offline ones are derived on read
+        return countMembers();
+    }
+
+    @Override
+    public Mono<Long> countPresencesInGuild(long guildId) {
+        return countMembersInGuild(guildId);
+    }
+
+    @Override
+    public Mono<Long> countRoles() {
+        return sumGuilds(content -> content.roles.size());
+    }
+
+    @Override
+    public Mono<Long> countRolesInGuild(long guildId) {
+        return readGuild(guildId, content -> (long) content.roles.size()).defaultIfEmpty(0L);
+    }
+
+    @Override
+    public Mono<Long> countUsers() {
+        return Mono.fromCallable(users::size);
+    }
+
+    @Override
+    public Mono<Long> countVoiceStates() {
+        return sumGuilds(content -> content.voiceStates.size());
+    }
+
+    @Override
+    public Mono<Long> countVoiceStatesInGuild(long guildId) {
+        return readGuild(guildId, content -> (long) content.voiceStates.size()).defaultIfEmpty(0L);
+    }
+
+    @Override
+    public Mono<Long> countVoiceStatesInChannel(long guildId, long channelId) {
+        return getVoiceStatesInChannel(guildId, channelId).count();
+    }
+
+    @Override
+    public Flux<ChannelData> getChannels() {
+        return Flux.defer(() -> Flux.fromIterable(channels.values()));
+    }
+
+    @Override
+    public Flux<ChannelData> getChannelsInGuild(long guildId) {
+        return readGuild(guildId, content -> content.channelIds.keys())
+                .flatMapIterable(ids -> {
+                    List<ChannelData> result = new ArrayList<>(ids.length);
+                    for (long id : ids) {
+                        ChannelData channel = channels.get(id);
+                        if (channel != null) {
+                            result.add(channel);
+                        }
+                    }
+                    return result;
+                });
+    }
+
+    @Override
+    public Mono<ChannelData> getChannelById(long channelId) {
+        return Mono.fromCallable(() -> channels.get(channelId));
+    }
+
+    @Override
+    public Flux<EmojiData> getEmojis() {
+        return allGuilds(content -> content.emojis.values());
+    }
+
+    @Override
+    public Flux<EmojiData> getEmojisInGuild(long guildId) {
+        return readGuild(guildId, content -> content.emojis.values()).flatMapIterable(list -> list);
+    }
+
+    @Override
+    public Mono<EmojiData> getEmojiById(long guildId, long emojiId) {
+        return readGuild(guildId, content -> content.emojis.get(emojiId));
+    }
+
+    @Override
+    public Flux<GuildData> getGuilds() {
+        return allGuilds(content -> Collections.singletonList(content.toGuildData()));
+    }
+
+    @Override
+    public Mono<GuildData> getGuildById(long guildId) {
+        return readGuild(guildId, GuildContent::toGuildData);
+    }
+
+    @Override
+    public Flux<MemberData> getMembers() {
+        return allGuilds(content -> content.members.values());
+    }
+
+    @Override
+    public Flux<MemberData> getMembersInGuild(long guildId) {
+        return readGuild(guildId, content -> content.members.values()).flatMapIterable(list -> list);
+    }
+
+    @Override
+    public Flux<MemberData> getExactMembersInGuild(long guildId) {
+        return getMembersInGuild(guildId);
+    }
+
+    @Override
+    public Mono<MemberData> getMemberById(long guildId, long userId) {
+        return readGuild(guildId, content -> content.members.get(userId));
+    }
+
+    @Override
+    public Mono<MemberAndRolesData> getMemberAndRolesById(long guildId, long userId) {
+        return readGuild(guildId, content -> {
+            MemberData member = content.members.get(userId);
+            if (member == null) {
+                return null;
+            }
+            List<RoleData> roles = new ArrayList<>(member.roles().size() + 1);
+            RoleData everyoneRole = content.roles.get(guildId);
+            if (everyoneRole != null) {
+                roles.add(everyoneRole);
+            }
+            for (String roleId : member.roles()) {
+                RoleData role = content.roles.get(Snowflake.asLong(roleId));
+                if (role != null) {
+                    roles.add(role);
+                }
+            }
+            return MemberAndRolesData.of(member, Snowflake.asLong(content.guild.ownerId()), roles);
+        });
+    }
+
+    @Override
+    public Flux<MessageData> getMessages() {
+        return Flux.defer(() -> Flux.fromIterable(messages.values()))
+                .flatMapIterable(channelMessages -> {
+                    synchronized (channelMessages) {
+                        return channelMessages.values();
+                    }
+                });
+    }
+
+    @Override
+    public Flux<MessageData> getMessagesInChannel(long channelId) {
+        return readMessages(channelId, LongObjectMap::values).flatMapIterable(list -> list);
+    }
+
+    @Override
+    public Mono<MessageData> getMessageById(long channelId, long messageId) {
+        return readMessages(channelId, channelMessages -> channelMessages.get(messageId));
+    }
+
+    @Override
+    public Flux<PresenceData> getPresences() {
+        return allGuilds(LocalStoreLayout::getPresences);
+    }
+
+    @Override
+    public Flux<PresenceData> getPresencesInGuild(long guildId) {
+        return readGuild(guildId, LocalStoreLayout::getPresences).flatMapIterable(list -> list);
+    }
+
+    @Override
+    public Mono<PresenceData> getPresenceById(long guildId, long userId) {
+        return readGuild(guildId, content -> getPresence(content, userId));
+    }
+
+    @Override
+    public Flux<RoleData> getRoles() {
+        return allGuilds(content -> content.roles.values());
+    }
+
+    @Override
+    public Flux<RoleData> getRolesInGuild(long guildId) {
+        return readGuild(guildId, content -> content.roles.values()).flatMapIterable(list -> list);
+    }
+
+    @Override
+    public Mono<RoleData> getRoleById(long guildId, long roleId) {
+        return readGuild(guildId, content -> content.roles.get(roleId));
+    }
+
+    @Override
+    public Flux<UserData> getUsers() {
+        return Flux.defer(() -> Flux.fromIterable(users.values()));
+    }
+
+    @Override
+    public Mono<UserData> getUserById(long userId) {
+        return Mono.fromCallable(() -> users.get(userId));
+    }
+
+    @Override
+    public Flux<VoiceStateData> getVoiceStates() {
+        return allGuilds(content -> content.voiceStates.values());
+    }
+
+    @Override
+    public Flux<VoiceStateData> getVoiceStatesInChannel(long guildId, long channelId) {
+        return getVoiceStatesInGuild(guildId)
+                .filter(data -> data.channelId()
+                        .filter(id -> Snowflake.asLong(id) == channelId)
+                        .isPresent());
+    }
+
+    @Override
+    public Flux<VoiceStateData> getVoiceStatesInGuild(long guildId) {
+        return readGuild(guildId, content -> content.voiceStates.values()).flatMapIterable(list -> list);
+    }
+
+    @Override
+    public Mono<VoiceStateData> getVoiceStateById(long guildId, long userId) {
+        return readGuild(guildId, content -> content.voiceStates.get(userId));
+    }
+
+    /////////////////////////////////////////////////////////////////////////////
+    //// Command model methods
+    /////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public Mono<Void> onChannelCreate(int shardIndex, ChannelCreate dispatch) {
+        ChannelData channel = dispatch.channel();
+        if (channel.guildId().isAbsent()) {
+            return Mono.empty();
+        }
+        long guildId = Snowflake.asLong(channel.guildId().get());
+        long channelId = Snowflake.asLong(channel.id());
+
+        return Mono.fromRunnable(() -> {
+            updateGuild(guildId, content -> content.channelIds.put(channelId, Boolean.TRUE));
+            channels.put(channelId, channel);
+        });
+    }
+
+    @Override
+    public Mono<ChannelData> onChannelDelete(int shardIndex, ChannelDelete dispatch) {
+        ChannelData channel = dispatch.channel();
+        if (channel.guildId().isAbsent()) {
+            return Mono.empty();
+        }
+        long guildId = Snowflake.asLong(channel.guildId().get());
+        long channelId = Snowflake.asLong(channel.id());
+
+        return Mono.fromCallable(() -> {
+            updateGuild(guildId, content -> content.channelIds.remove(channelId));
+            channels.remove(channelId);
+            messages.remove(channelId);
+            return channel;
+        });
+    }
+
+    @Override
+    public Mono<ChannelData> onChannelUpdate(int shardIndex, ChannelUpdate dispatch) {
+        ChannelData channel = dispatch.channel();
+        if (channel.guildId().isAbsent()) {
+            return Mono.empty();
+        }
+        long guildId = Snowflake.asLong(channel.guildId().get());
+        long channelId = Snowflake.asLong(channel.id());
+
+        return Mono.fromCallable(() -> {
+            updateGuild(guildId, content -> content.channelIds.put(channelId, Boolean.TRUE));
+            return channels.put(channelId, channel);
+        });
+    }
+
+    @Override
+    public Mono<Void> onGuildCreate(int shardIndex, GuildCreate dispatch) {
+        return Mono.fromRunnable(() -> createGuild(shardIndex, dispatch.guild()));
+    }
+
+    @Override
+    public Mono<Void> onGuildCreateBatch(int shardIndex, List<GuildCreate> dispatches) {
+        return Mono.fromRunnable(() -> {
+            for (GuildCreate dispatch : dispatches) {
+                createGuild(shardIndex, dispatch.guild());
+            }
+        });
+    }
+
+    private void createGuild(int shardIndex, GuildCreateData createData) {
+        long guildId = Snowflake.asLong(createData.id());
+        GuildContent content = new GuildContent(shardIndex, GuildData.builder().from(createData).build(),
+                createData.members().size(), storage);
+        for (ChannelData channel : createData.channels()) {
+            long channelId = Snowflake.asLong(channel.id());
+            content.channelIds.put(channelId, Boolean.TRUE);
+            channels.put(channelId, ChannelData.builder().from(channel).guildId(createData.id()).build());
+        }
+        for (RoleData role : createData.roles()) {
+            content.roles.put(Snowflake.asLong(role.id()), role);
+        }
+        for (EmojiData emoji : createData.emojis()) {
+            content.emojis.put(emoji.id().map(Snowflake::asLong).orElseThrow(NoSuchElementException::new),
+                    emoji);
+        }
+        for (MemberData member : createData.members()) {
+            long userId = Snowflake.asLong(member.user().id());
+            if (content.members.put(userId, member) == null) {
+                retainUser(userId, member.user());
+            }
+        }
+        for (PresenceData presence : createData.presences()) {
+            if (!OFFLINE.equals(presence.status())) {
+                content.presences.put(Snowflake.asLong(presence.user().id()), presence);
+            }
+        }
+        for (VoiceStateData voiceState : createData.voiceStates()) {
+            content.voiceStates.put(Snowflake.asLong(voiceState.userId()),
+                    VoiceStateData.builder().from(voiceState).guildId(createData.id()).build());
+        }
+        GuildContent old = guilds.put(guildId, content);
+        if (old != null) {
+            if (old.shardIndex != shardIndex) {
+                removeFromShard(old.shardIndex, guildId);
+            }
+            release(old, content);
+        }
+        LongObjectMap<Boolean> shardGuilds = guildsByShard.computeIfAbsent(shardIndex,
+                key -> new LongObjectMap<>());
+        synchronized (shardGuilds) {
+            shardGuilds.put(guildId, Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public Mono<GuildData> onGuildDelete(int shardIndex, GuildDelete dispatch) {
+        long guildId = Snowflake.asLong(dispatch.guild().id());
+
+        return Mono.fromCallable(() -> {
+            GuildContent content = guilds.remove(guildId);
+            if (content == null) {
+                return null;
+            }
+            removeFromShard(content.shardIndex, guildId);
+            return release(content, null);
+        });
+    }
+
+    private void removeFromShard(int shardIndex, long guildId) {
+        LongObjectMap<Boolean> shardGuilds = guildsByShard.get(shardIndex);
+        if (shardGuilds != null) {
+            synchronized (shardGuilds) {
+                shardGuilds.remove(guildId);
+            }
+        }
+    }
+
+    @Override
+    public Mono<Set<EmojiData>> onGuildEmojisUpdate(int shardIndex, GuildEmojisUpdate dispatch) {
+        long guildId = Snowflake.asLong(dispatch.guildId());
+
+        return readGuild(guildId, content -> {
+            Set<EmojiData> oldEmojis = new HashSet<>(content.emojis.values());
+            content.emojis.clear();
+            for (EmojiData emoji : dispatch.emojis()) {
+                content.emojis.put(emoji.id().map(Snowflake::asLong).orElseThrow(NoSuchElementException::new),
+                        emoji);
+            }
+            return oldEmojis;
+        });
+    }
+
+    @Override
+    public Mono<Void> onGuildMemberAdd(int shardIndex, GuildMemberAdd dispatch) {
+        long guildId = Snowflake.asLong(dispatch.guildId());
+        MemberData member = dispatch.member();
+        long userId = Snowflake.asLong(member.user().id());
+
+        return Mono.fromRunnable(() -> updateGuild(guildId, content -> {
+            content.guild = GuildData.builder()
+                    .from(content.guild)
+                    .memberCount(content.guild.memberCount() + 1)
+                    .build();
+            if (content.members.put(userId, member) == null) {
+                retainUser(userId, member.user());
+            }
+        }));
+    }
+
+    @Override
+    public Mono<MemberData> onGuildMemberRemove(int shardIndex, GuildMemberRemove dispatch) {
+        long guildId = Snowflake.asLong(dispatch.guildId());
+        long userId = Snowflake.asLong(dispatch.user().id());
+
+        return readGuild(guildId, content -> {
+            MemberData member = content.members.remove(userId);
+            if (member != null) {
+                content.guild = GuildData.builder()
+                        .from(content.guild)
+                        .memberCount(content.guild.memberCount() - 1)
+                        .build();
+                content.presences.remove(userId);
+                releaseUser(userId);
+            }
+            return member;
+        });
+    }
+
+    @Override
+    public Mono<Void> onGuildMembersChunk(int shardIndex, GuildMembersChunk dispatch) {
+        return Mono.fromRunnable(() -> saveMembers(dispatch));
+    }
+
+    @Override
+    public Mono<Void> onGuildMembersChunkBatch(int shardIndex, List<GuildMembersChunk> dispatches) {
+        return Mono.fromRunnable(() -> {
+            for (GuildMembersChunk dispatch : dispatches) {
+                saveMembers(dispatch);
+            }
+        });
+    }
+
+    private void saveMembers(GuildMembersChunk dispatch) {
+        updateGuild(Snowflake.asLong(dispatch.guildId()), content -> {
+            // grow the member map once per chunk rather than while adding its members
+            content.members.ensureCapacity(content.members.size() + dispatch.members().size());
+            for (MemberData member : dispatch.members()) {
+                long userId = Snowflake.asLong(member.user().id());
+                if (content.members.put(userId, member) == null) {
+                    retainUser(userId, member.user());
+                }
+            }
+        });
+    }
+
+    @Override
+    public Mono<MemberData> onGuildMemberUpdate(int shardIndex, GuildMemberUpdate dispatch) {
+        long guildId = Snowflake.asLong(dispatch.guildId());
+        long userId = Snowflake.asLong(dispatch.user().id());
+
+        return readGuild(guildId, content -> {
+            MemberData oldMember = content.members.get(userId);
+            if (oldMember != null) {
+                content.members.put(userId, MemberData.builder()
+                        .from(oldMember)
+                        .nick(dispatch.nick())
+                        .roles(dispatch.roles())
+                        .premiumSince(dispatch.premiumSince())
+                        .build());
+            }
+            return oldMember;
+        });
+    }
+
+    @Override
+    public Mono<Void> onGuildRoleCreate(int shardIndex, GuildRoleCreate dispatch) {
+        long guildId = Snowflake.asLong(dispatch.guildId());
+        RoleData role = dispatch.role();
+
+        return Mono.fromRunnable(() -> updateGuild(guildId,
+                content -> content.roles.put(Snowflake.asLong(role.id()), role)));
+    }
+
+    @Override
+    public Mono<RoleData> onGuildRoleDelete(int shardIndex, GuildRoleDelete dispatch) {
+        long guildId = Snowflake.asLong(dispatch.guildId());
+        long roleId = Snowflake.asLong(dispatch.roleId());
+
+        return readGuild(guildId, content -> {
+            RoleData role = content.roles.remove(roleId);
+            if (role != null) {
+                for (MemberData member : content.members.values()) {
+                    if (member.roles().contains(dispatch.roleId())) {
+                        content.members.put(Snowflake.asLong(member.user().id()), MemberData.builder()
+                                .from(member)
+                                .roles(member.roles().stream()
+                                        .filter(id -> !id.equals(dispatch.roleId()))
+                                        .collect(Collectors.toList()))
+                                .build());
+                    }
+                }
+            }
+            return role;
+        });
+    }
+
+    @Override
+    public Mono<RoleData> onGuildRoleUpdate(int shardIndex, GuildRoleUpdate dispatch) {
+        long guildId = Snowflake.asLong(dispatch.guildId());
+        RoleData role = dispatch.role();
+
+        return readGuild(guildId, content -> content.roles.put(Snowflake.asLong(role.id()), role));
+    }
+
+    @Override
+    public Mono<GuildData> onGuildUpdate(int shardIndex, GuildUpdate dispatch) {
+        long guildId = Snowflake.asLong(dispatch.guild().id());
+
+        return readGuild(guildId, content -> {
+            GuildData oldGuild = content.toGuildData();
+            content.guild = GuildData.builder()
+                    .from(content.guild)
+                    .from(dispatch.guild())
+                    .roles(Collections.emptyList())
+                    .emojis(Collections.emptyList())
+                    .build();
+            content.roles.clear();
+            for (RoleData role : dispatch.guild().roles()) {
+                content.roles.put(Snowflake.asLong(role.id()), role);
+            }
+            content.emojis.clear();
+            for (EmojiData emoji : dispatch.guild().emojis()) {
+                emoji.id().ifPresent(id -> content.emojis.put(Snowflake.asLong(id), emoji));
+            }
+            return oldGuild;
+        });
+    }
+
+    @Override
+    public Mono<Void> onShardInvalidation(int shardIndex, InvalidationCause cause) {
+        return Mono.fromRunnable(() -> {
+            LongObjectMap<Boolean> shardGuilds = guildsByShard.remove(shardIndex);
+            if (shardGuilds == null) {
+                return;
+            }
+            long[] guildIds;
+            synchronized (shardGuilds) {
+                guildIds = shardGuilds.keys();
+            }
+            for (long guildId : guildIds) {
+                // the guild may have been received again by another shard in the meantime
+                GuildContent content = guilds.computeIfPresent(guildId,
+                        current -> current.shardIndex == shardIndex ? null : current);
+                if (content != null && content.shardIndex == shardIndex) {
+                    release(content, null);
+                }
+            }
+        });
+    }
+
+    @Override
+    public Mono<Void> onMessageCreate(int shardIndex, MessageCreate dispatch) {
+        MessageData message = dispatch.message();
+        long messageId = Snowflake.asLong(message.id());
+        long channelId = Snowflake.asLong(message.channelId());
+
+        return Mono.fromRunnable(() -> {
+            LongObjectMap<MessageData> channelMessages = messages.computeIfAbsent(channelId,
+                    id -> new LongObjectMap<>());
+            synchronized (channelMessages) {
+                channelMessages.put(messageId, message);
+            }
+            channels.computeIfPresent(channelId, channel -> ChannelData.builder()
+                    .from(channel)
+                    .lastMessageId(message.id())
+                    .build());
+        });
+    }
+
+    @Override
+    public Mono<MessageData> onMessageDelete(int shardIndex, MessageDelete dispatch) {
+        long messageId = Snowflake.asLong(dispatch.id());
+        long channelId = Snowflake.asLong(dispatch.channelId());
+
+        return readMessages(channelId, channelMessages -> channelMessages.remove(messageId));
+    }
+
+    @Override
+    public Mono<Set<MessageData>> onMessageDeleteBulk(int shardIndex, MessageDeleteBulk dispatch) {
+        long channelId = Snowflake.asLong(dispatch.channelId());
+
+        return readMessages(channelId, channelMessages -> {
+            Set<MessageData> deleted = new HashSet<>();
+            for (String id : dispatch.ids()) {
+                MessageData message = channelMessages.remove(Snowflake.asLong(id));
+                if (message != null) {
+                    deleted.add(message);
+                }
+            }
+            return deleted;
+        }).defaultIfEmpty(Collections.emptySet());
+    }
+
+    @Override
+    public Mono<Void> onMessageReactionAdd(int shardIndex, MessageReactionAdd dispatch) {
+        boolean me = Snowflake.asLong(dispatch.userId()) == selfId;
+
+        return updateMessage(dispatch.channelId(), dispatch.messageId(),
+                oldMessage -> MessageUpdates.addReaction(oldMessage, dispatch.emoji(), me));
+    }
+
+    @Override
+    public Mono<Void> onMessageReactionRemove(int shardIndex, MessageReactionRemove dispatch) {
+        boolean me = Snowflake.asLong(dispatch.userId()) == selfId;
+
+        return updateMessage(dispatch.channelId(), dispatch.messageId(),
+                oldMessage -> MessageUpdates.removeReaction(oldMessage, dispatch.emoji(), me));
+    }
+
+    @Override
+    public Mono<Void> onMessageReactionRemoveAll(int shardIndex, MessageReactionRemoveAll dispatch) {
+        return updateMessage(dispatch.channelId(), dispatch.messageId(), MessageUpdates::removeAllReactions);
+    }
+
+    @Override
+    public Mono<Void> onMessageReactionRemoveEmoji(int shardIndex, MessageReactionRemoveEmoji dispatch) {
+        return updateMessage(dispatch.channelId(), dispatch.messageId(),
+                oldMessage -> MessageUpdates.removeReactionEmoji(oldMessage, dispatch.emoji()));
+    }
+
+    @Override
+    public Mono<MessageData> onMessageUpdate(int shardIndex, MessageUpdate dispatch) {
+        PartialMessageData messageData = dispatch.message();
+        long messageId = Snowflake.asLong(messageData.id());
+
+        return readMessages(Snowflake.asLong(messageData.channelId()), channelMessages -> {
+            MessageData oldMessageData = channelMessages.get(messageId);
+            if (oldMessageData != null) {
+                channelMessages.put(messageId, MessageUpdates.update(oldMessageData, messageData));
+            }
+            return oldMessageData;
+        });
+    }
+
+    @Override
+    public Mono<PresenceAndUserData> onPresenceUpdate(int shardIndex, PresenceUpdate dispatch) {
+        long guildId = Snowflake.asLong(dispatch.guildId());
+        PartialUserData userData = dispatch.user();
+        long userId = Snowflake.asLong(userData.id());
+        PresenceData presenceData = PresenceData.builder()
+                .user(dispatch.user())
+                .status(dispatch.status())
+                .activities(dispatch.activities())
+                .clientStatus(dispatch.clientStatus())
+                .build();
+
+        Mono<Optional<PresenceData>> savePresence = readGuild(guildId, content -> {
+            PresenceData oldPresence = getPresence(content, userId);
+            // offline presences are not stored as they are derived from the member, or absent without a member
+            if (OFFLINE.equals(dispatch.status())) {
+                content.presences.remove(userId);
+            } else {
+                content.presences.put(userId, presenceData);
+            }
+            return oldPresence;
+        })
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty());
+
+        Optional<String> avatar = Possible.flatOpt(userData.avatar());
+        Mono<Optional<UserData>> saveUser = Mono.fromCallable(() -> users.computeIfPresent(userId,
+                oldUser -> UserData.builder()
+                        .from(oldUser)
+                        .username(userData.username().toOptional()
+                                .orElse(oldUser.username()))
+                        .discriminator(userData.discriminator().toOptional()
+                                .orElse(oldUser.discriminator()))
+                        .avatar(avatar.isPresent() ? avatar : oldUser.avatar())
+                        .build()))
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty());
+
+        return Mono.zip(savePresence, saveUser,
+                (p, u) -> PresenceAndUserData.of(p.orElse(null), u.orElse(null)));
+    }
+
+    @Override
+    public Mono<Void> onReady(Ready dispatch) {
+        UserData userData = dispatch.user();
+        long userId = Snowflake.asLong(userData.id());
+
+        return Mono.fromRunnable(() -> {
+            selfId = userId;
+            users.put(userId, userData);
+        });
+    }
+
+    @Override
+    public Mono<UserData> onUserUpdate(int shardIndex, UserUpdate dispatch) {
+        UserData userData = dispatch.user();
+        long userId = Snowflake.asLong(userData.id());
+
+        return Mono.fromCallable(() -> users.put(userId, userData));
+    }
+
+    @Override
+    public Mono<VoiceStateData> onVoiceStateUpdateDispatch(int shardIndex, VoiceStateUpdateDispatch dispatch) {
+        VoiceStateData voiceStateData = dispatch.voiceState();
+        long guildId = Snowflake.asLong(voiceStateData.guildId().get());
+        long userId = Snowflake.asLong(voiceStateData.userId());
+
+        return readGuild(guildId, content -> voiceStateData.channelId().isPresent()
+                ? content.voiceStates.put(userId, voiceStateData)
+                : content.voiceStates.remove(userId));
+    }
+
+    @Override
+    public Mono<Void> onGuildMembersCompletion(long guildId) {
+        return Mono.empty();
+    }
+
+    /////////////////////////////////////////////////////////////////////////////
+    //// Helpers
+    /////////////////////////////////////////////////////////////////////////////
+
+    private <R> Mono<R> readGuild(long guildId, Function<GuildContent, R> reader) {
+        return Mono.fromCallable(() -> {
+            GuildContent content = guilds.get(guildId);
+            if (content == null) {
+                return null;
+            }
+            synchronized (content) {
+                return reader.apply(content);
+            }
+        });
+    }
+
+    private void updateGuild(long guildId, Consumer<GuildContent> updater) {
+        GuildContent content = guilds.get(guildId);
+        if (content != null) {
+            synchronized (content) {
+                updater.accept(content);
+            }
+        }
+    }
+
+    private <R> Flux<R> allGuilds(Function<GuildContent, List<R>> reader) {
+        return Flux.defer(() -> Flux.fromIterable(guilds.values()))
+                .flatMapIterable(content -> {
+                    synchronized (content) {
+                        return reader.apply(content);
+                    }
+                });
+    }
+
+    private Mono<Long> sumGuilds(ToIntFunction<GuildContent> counter) {
+        return Mono.fromCallable(() -> {
+            long count = 0;
+            for (GuildContent content : guilds.values()) {
+                synchronized (content) {
+                    count += counter.applyAsInt(content);
+                }
+            }
+            return count;
+        });
+    }
+
+    private <R> Mono<R> readMessages(long channelId, Function<LongObjectMap<MessageData>, R> reader) {
+        return Mono.fromCallable(() -> {
+            LongObjectMap<MessageData> channelMessages = messages.get(channelId);
+            if (channelMessages == null) {
+                return null;
+            }
+            synchronized (channelMessages) {
+                return reader.apply(channelMessages);
+            }
+        });
+    }
+
+    private Mono<Void> updateMessage(String channelId, String messageId, UnaryOperator<MessageData> updater) {
+        long id = Snowflake.asLong(messageId);
+        return readMessages(Snowflake.asLong(channelId), channelMessages -> {
+            MessageData message = channelMessages.get(id);
+            if (message != null) {
+                channelMessages.put(id, updater.apply(message));
+            }
+            return message;
+        }).then();
+    }
+
+    private static List<PresenceData> getPresences(GuildContent content) {
+        List<PresenceData> result = new ArrayList<>(content.members.size());
+        for (long userId : content.members.keys()) {
+            result.add(getPresence(content, userId));
+        }
+        return result;
+    }
+
+    @Nullable
+    private static PresenceData getPresence(GuildContent content, long userId) {
+        PresenceData presence = content.presences.get(userId);
+        if (presence != null) {
+            return presence;
+        }
+        MemberData member = content.members.get(userId);
+        return member == null ? null : createOfflinePresence(member);
+    }
+
+    private static PresenceData createOfflinePresence(MemberData member) {
+        return PresenceData.builder()
+                .user(PartialUserData.builder()
+                        .id(member.user().id())
+                        .username(member.user().username())
+                        .discriminator(member.user().discriminator())
+                        .avatar(Possible.of(member.user().avatar()))
+                        .bot(member.user().bot())
+                        .system(member.user().system())
+                        .mfaEnabled(member.user().mfaEnabled())
+                        .locale(member.user().locale())
+                        .verified(member.user().verified())
+                        .email(member.user().email().isAbsent() ? Possible.absent() :
+                                member.user().email().get().map(Possible::of).orElse(Possible.absent()))
+                        .flags(member.user().flags())
+                        .premiumType(member.user().premiumType())
+                        .build())
+                .status(OFFLINE)
+                .clientStatus(ClientStatusData.builder()
+                        .desktop(Possible.absent())
+                        .mobile(Possible.absent())
+                        .web(Possible.absent())
+                        .build())
+                .build();
+    }
+
+    private void retainUser(long userId, UserData user) {
+        users.compute(userId, oldUser -> {
+            LongLongMap counts = guildCountsFor(userId);
+            synchronized (counts) {
+                counts.put(userId, counts.get(userId) + 1);
+            }
+            // a user seen again through another guild is only rewritten if it changed
+            return user.equals(oldUser) ? oldUser : user;
+        });
+    }
+
+    private void releaseUser(long userId) {
+        // the current user stays cached when leaving its last guild
+        boolean pinned = userId == selfId;
+        users.computeIfPresent(userId, oldUser -> {
+            LongLongMap counts = guildCountsFor(userId);
+            long guildCount;
+            synchronized (counts) {
+                guildCount = counts.get(userId) - 1;
+                if (guildCount > 0) {
+                    counts.put(userId, guildCount);
+                } else {
+                    counts.remove(userId);
+                }
+            }
+            return guildCount > 0 || pinned ? oldUser : null;
+        });
+    }
+
+    private LongLongMap guildCountsFor(long userId) {
+        return guildCounts[LongObjectMap.mix(userId) & (GUILD_COUNT_STRIPES - 1)];
+    }
+
+    /**
+     * Release the global entries held by a guild that is no longer cached.
+     *
+     * @param content the removed guild content
+     * @param replacement the content now cached for the same guild, whose channels must be kept
+     * @return the last state of the removed guild
+     */
+    private GuildData release(GuildContent content, @Nullable GuildContent replacement) {
+        synchronized (content) {
+            for (long channelId : content.channelIds.keys()) {
+                if (replacement == null || !containsChannel(replacement, channelId)) {
+                    channels.remove(channelId);
+                    messages.remove(channelId);
+                }
+            }
+            for (long userId : content.members.keys()) {
+                releaseUser(userId);
+            }
+            GuildData guild = content.toGuildData();
+            // free the entities of the storage, as the content itself may still be referenced
+            content.members.clear();
+            content.presences.clear();
+            return guild;
+        }
+    }
+
+    private static boolean containsChannel(GuildContent content, long channelId) {
+        synchronized (content) {
+            return content.channelIds.containsKey(channelId);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+/**
+ * A map of primitive {@code long} keys to positive {@code long} values using open addressing with linear probing. A
+ * value of {@code 0} denotes an absent key. Not thread-safe.
+ * <p>
+ * This class is shared by the store layouts of this module and is not meant to be used by applications.
+ */
+public class LongLongMap {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    public LongLongMap(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize);
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the value associated to a key.
+     *
+     * @param key the key
+     * @return the value for this key, or {@code 0} if there is none
+     */
+    public long get(long key) {
+        int mask = keys.length - 1;
+        int i = LongObjectMap.mix(key) & mask;
+        while (values[i] != 0) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Associate the given value to a key.
+     *
+     * @param key the key
+     * @param value the value, must be positive
+     * @return the previous value for this key, or {@code 0} if there was none
+     */
+    public long put(long key, long value) {
+        int mask = keys.length - 1;
+        int i = LongObjectMap.mix(key) & mask;
+        while (values[i] != 0) {
+            if (keys[i] == key) {
+                long old = values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length * LOAD_FACTOR) {
+            rehash(keys.length << 1);
+        }
+        return 0;
+    }
+
+    /**
+     * Remove the value associated to a key.
+     *
+     * @param key the key
+     * @return the removed value, or {@code 0} if there was none
+     */
+    public long remove(long key) {
+        int mask = keys.length - 1;
+        int i = LongObjectMap.mix(key) & mask;
+        while (values[i] != 0) {
+            if (keys[i] == key) {
+                long old = values[i];
+                shiftBack(i);
+                size--;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        return 0;
+    }
+
+    public long[] keys() {
+        long[] result = new long[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != 0) {
+                result[n++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    public long[] values() {
+        long[] result = new long[size];
+        int n = 0;
+        for (long value : values) {
+            if (value != 0) {
+                result[n++] = value;
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        int capacity = tableSizeFor(8);
+        keys = new long[capacity];
+        values = new long[capacity];
+        size = 0;
+    }
+
+    /**
+     * Prepare this map to hold the given number of entries, so adding them does not cause repeated resizing.
+     *
+     * @param expectedSize the number of entries this map is about to hold
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize);
+        if (capacity > keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    // backward shift deletion, see LongObjectMap
+    private void shiftBack(int slot) {
+        int mask = keys.length - 1;
+        int gap = slot;
+        int i = (slot + 1) & mask;
+        while (values[i] != 0) {
+            int home = LongObjectMap.mix(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+            i = (i + 1) & mask;
+        }
+        values[gap] = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[capacity];
+        values = new long[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != 0) {
+                int i = LongObjectMap.mix(oldKeys[j]) & mask;
+                while (values[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(expectedSize, 2) / LOAD_FACTOR);
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import reactor.util.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * A map of primitive {@code long} keys to non-null values. Implementations decide where values are kept and are not
+ * required to be thread-safe.
+ *
+ * @param <V> the type of the values
+ */
+abstract class LongMap<V> {
+
+    abstract int size();
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    @Nullable
+    abstract V get(long key);
+
+    /**
+     * Associate the given value to a key.
+     *
+     * @param key the key
+     * @param value the value, not null
+     * @return the previous value for this key, or {@code null} if there was none
+     */
+    @Nullable
+    abstract V put(long key, V value);
+
+    @Nullable
+    abstract V remove(long key);
+
+    abstract long[] keys();
+
+    abstract List<V> values();
+
+    abstract void clear();
+
+    /**
+     * Prepare this map to hold the given number of entries, so adding them does not cause repeated resizing. Does
+     * nothing by default.
+     *
+     * @param expectedSize the number of entries this map is about to hold
+     */
+    void ensureCapacity(int expectedSize) {
+    }
+
+    /**
+     * Add up to {@code max} values of this map to the given list, starting from a position derived from the given
+     * seed. Used to pick eviction candidates without visiting every entry.
+     *
+     * @param seed the seed choosing where to start
+     * @param max the maximum number of values to add
+     * @param into the list to add values to
+     */
+    void sample(int seed, int max, List<? super V> into) {
+        long[] keys = keys();
+        for (int i = 0; i < keys.length && i < max; i++) {
+            into.add(get(keys[Math.floorMod(seed + i, keys.length)]));
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import reactor.util.Logger;
+import reactor.util.Loggers;
+import reactor.util.annotation.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An append-only log of entity records split in fixed-size segment files, each mapped in memory so records are read
+ * and written off-heap.
+ * <p>
+ * A record is addressed by a positive position combining the index of its segment and its offset within it. Records
+ * are never updated in place: a new version of an entity is appended and the previous one is freed. Once a sealed
+ * segment holds few live records, they are relocated to the active segment by their owning {@link MappedLongMap} on
+ * the given executor, and the segment file is deleted once it holds no live record.
+ * <p>
+ * Mapped buffers are never unmapped explicitly: Java 8 has no supported way to do it, and unmapping a buffer that a
+ * concurrent reader or compaction still references would crash the JVM instead of failing. The memory of a deleted
+ * segment is therefore only released once its buffer is garbage collected. Where the file of a mapped segment cannot be
+ * deleted, as on Windows, it is deleted when the JVM exits instead.
+ */
+class MappedEntityLog {
+
+    private static final Logger log = Loggers.getLogger(MappedEntityLog.class);
+
+    // record header: payload length, owner ID and key
+    static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    private static final double COMPACTION_THRESHOLD = 0.25;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Executor compactionExecutor;
+    private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+    private final Map<Integer, MappedLongMap<?>> owners = new ConcurrentHashMap<>();
+    private final AtomicInteger nextOwnerId = new AtomicInteger();
+
+    // guarded by this
+    @Nullable
+    private Segment active;
+    private int nextSegmentIndex = 1;
+
+    MappedEntityLog(Path directory, int segmentSize, Executor compactionExecutor) {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("segmentSize must be greater than " + HEADER_SIZE);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.compactionExecutor = compactionExecutor;
+    }
+
+    int register(MappedLongMap<?> owner) {
+        int ownerId = nextOwnerId.incrementAndGet();
+        owners.put(ownerId, owner);
+        return ownerId;
+    }
+
+    void unregister(int ownerId) {
+        owners.remove(ownerId);
+    }
+
+    /**
+     * Append a record to the active segment, creating a new one if it is full.
+     *
+     * @param ownerId the ID of the map owning the record
+     * @param key the key of the record within its owner
+     * @param payload the encoded entity
+     * @return the position of the new record
+     */
+    synchronized long append(int ownerId, long key, byte[] payload) {
+        int recordSize = HEADER_SIZE + payload.length;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("Entity of " + payload.length + " bytes does not fit in a segment");
+        }
+        if (active == null || active.writeOffset + recordSize > segmentSize) {
+            Segment sealed = active;
+            active = createSegment();
+            if (sealed != null) {
+                reclaim(sealed);
+            }
+        }
+        Segment segment = active;
+        int offset = segment.writeOffset;
+        ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(offset);
+        buffer.putInt(payload.length).putInt(ownerId).putLong(key).put(payload);
+        segment.writeOffset += recordSize;
+        segment.liveBytes += recordSize;
+        return position(segment.index, offset);
+    }
+
+    /**
+     * Read the payload of a live record. Callers must make sure the record cannot be freed concurrently.
+     *
+     * @param position the position of the record
+     * @return the encoded entity
+     */
+    byte[] read(long position) {
+        Segment segment = segments.get(segmentIndex(position));
+        if (segment == null) {
+            throw new IllegalStateException("No segment for position " + position);
+        }
+        ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(offset(position));
+        byte[] payload = new byte[buffer.getInt()];
+        buffer.position(offset(position) + HEADER_SIZE);
+        buffer.get(payload);
+        return payload;
+    }
+
+    /**
+     * Mark a record as no longer used, allowing its segment to be reclaimed.
+     *
+     * @param position the position of the record
+     */
+    synchronized void free(long position) {
+        Segment segment = segments.get(segmentIndex(position));
+        if (segment == null) {
+            return;
+        }
+        segment.liveBytes -= HEADER_SIZE + segment.buffer.getInt(offset(position));
+        if (segment != active) {
+            reclaim(segment);
+        }
+    }
+
+    synchronized long getLiveBytes() {
+        long liveBytes = 0;
+        for (Segment segment : segments.values()) {
+            liveBytes += segment.liveBytes;
+        }
+        return liveBytes;
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Delete every segment. The log must not be used afterwards.
+     */
+    synchronized void dispose() {
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            delete(segment);
+        }
+        active = null;
+        owners.clear();
+    }
+
+    private Segment createSegment() {
+        int index = nextSegmentIndex++;
+        Path file = directory.resolve("segment-" + index + ".log");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping remains valid after the channel is closed
+            Segment segment = new Segment(index, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+            segments.put(index, segment);
+            log.debug("Created store segment {}", file);
+            return segment;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to create store segment " + file, e);
+        }
+    }
+
+    // must be called while holding the lock, on a sealed segment
+    private void reclaim(Segment segment) {
+        if (segment.liveBytes == 0) {
+            delete(segment);
+        } else if (!segment.compacting && segment.liveBytes < segmentSize * COMPACTION_THRESHOLD) {
+            segment.compacting = true;
+            compactionExecutor.execute(() -> compact(segment));
+        }
+    }
+
+    private void delete(Segment segment) {
+        segments.remove(segment.index);
+        try {
+            Files.deleteIfExists(segment.file);
+            log.debug("Deleted store segment {}", segment.file);
+        } catch (AccessDeniedException e) {
+            // the file is still mapped, which prevents deleting it on Windows until the buffer is collected
+            segment.file.toFile().deleteOnExit();
+            log.debug("Store segment {} is still mapped, deleting it on exit", segment.file);
+        } catch (IOException e) {
+            log.warn("Unable to delete store segment {}", segment.file, e);
+        }
+    }
+
+    private void compact(Segment segment) {
+        int offset = 0;
+        // a sealed segment is never written again, its end offset is final
+        int end = segment.writeOffset;
+        while (offset < end && segments.get(segment.index) == segment) {
+            int length = segment.buffer.getInt(offset);
+            MappedLongMap<?> owner = owners.get(segment.buffer.getInt(offset + Integer.BYTES));
+            if (owner != null) {
+                owner.relocate(segment.buffer.getLong(offset + Integer.BYTES * 2), position(segment.index, offset));
+            }
+            offset += HEADER_SIZE + length;
+        }
+    }
+
+    private static long position(int segmentIndex, int offset) {
+        return ((long) segmentIndex << 32) | offset;
+    }
+
+    private static int segmentIndex(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static int offset(long position) {
+        return (int) position;
+    }
+
+    private static final class Segment {
+
+        private final int index;
+        private final Path file;
+        private final MappedByteBuffer buffer;
+        // guarded by the log
+        private int writeOffset;
+        private long liveBytes;
+        private boolean compacting;
+
+        private Segment(int index, Path file, MappedByteBuffer buffer) {
+            this.index = index;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * An {@link EntityStorage} keeping entities in a {@link MappedEntityLog}, with the most recently used ones cached as
+ * objects on the heap.
+ */
+class MappedEntityStorage extends EntityStorage {
+
+    private final MappedEntityLog log;
+    private final EntityFormat format;
+    private final ObjectMapper mapper;
+    private final Cache<Long, Object> cache;
+
+    MappedEntityStorage(MappedEntityLog log, EntityFormat format, ObjectMapper mapper, long cacheMaximumSize) {
+        this.log = log;
+        this.format = format;
+        this.mapper = mapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .build();
+    }
+
+    @Override
+    <V> LongMap<V> newMap(EntityCodec<V> codec, int expectedSize) {
+        return new MappedLongMap<>(log, codec, format, mapper, cache, expectedSize);
+    }
+
+    MappedEntityLog getLog() {
+        return log;
+    }
+
+    void invalidateCache() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import reactor.core.Exceptions;
+import reactor.util.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link LongMap} keeping its values as records of a {@link MappedEntityLog}, only holding their positions on the
+ * heap. Decoded values are kept in a cache shared by all maps of the same log, keyed by record position, which cannot
+ * become stale as records are never updated in place.
+ * <p>
+ * Every method is synchronized so records can be relocated by log compaction while the map is in use.
+ *
+ * @param <V> the type of the values
+ */
+class MappedLongMap<V> extends LongMap<V> {
+
+    private final MappedEntityLog log;
+    private final EntityCodec<V> codec;
+    private final EntityFormat format;
+    private final ObjectMapper mapper;
+    private final Cache<Long, Object> cache;
+    private final LongLongMap positions;
+    private int ownerId;
+
+    MappedLongMap(MappedEntityLog log, EntityCodec<V> codec, EntityFormat format, ObjectMapper mapper,
+                  Cache<Long, Object> cache, int expectedSize) {
+        this.log = log;
+        this.codec = codec;
+        this.format = format;
+        this.mapper = mapper;
+        this.cache = cache;
+        this.positions = new LongLongMap(expectedSize);
+        this.ownerId = log.register(this);
+    }
+
+    @Override
+    synchronized int size() {
+        return positions.size();
+    }
+
+    @Override
+    synchronized boolean containsKey(long key) {
+        return positions.get(key) != 0;
+    }
+
+    @Nullable
+    @Override
+    synchronized V get(long key) {
+        long position = positions.get(key);
+        return position == 0 ? null : load(position);
+    }
+
+    @Nullable
+    @Override
+    synchronized V put(long key, V value) {
+        if (ownerId == 0) {
+            ownerId = log.register(this);
+        }
+        long position = log.append(ownerId, key, encode(value));
+        cache.put(position, value);
+        long oldPosition = positions.put(key, position);
+        return oldPosition == 0 ? null : free(oldPosition);
+    }
+
+    @Nullable
+    @Override
+    synchronized V remove(long key) {
+        long position = positions.remove(key);
+        return position == 0 ? null : free(position);
+    }
+
+    @Override
+    synchronized void ensureCapacity(int expectedSize) {
+        positions.ensureCapacity(expectedSize);
+    }
+
+    @Override
+    synchronized long[] keys() {
+        return positions.keys();
+    }
+
+    @Override
+    synchronized List<V> values() {
+        long[] values = positions.values();
+        List<V> result = new ArrayList<>(values.length);
+        for (long position : values) {
+            result.add(load(position));
+        }
+        return result;
+    }
+
+    @Override
+    synchronized void clear() {
+        for (long position : positions.values()) {
+            log.free(position);
+            cache.invalidate(position);
+        }
+        positions.clear();
+        log.unregister(ownerId);
+        ownerId = 0;
+    }
+
+    /**
+     * Move the record of a key to the end of the log, if it is still the current record of this key.
+     *
+     * @param key the key of the record
+     * @param position the position of the record to move
+     */
+    synchronized void relocate(long key, long position) {
+        if (positions.get(key) != position) {
+            return;
+        }
+        long newPosition = log.append(ownerId, key, log.read(position));
+        positions.put(key, newPosition);
+        Object value = cache.getIfPresent(position);
+        if (value != null) {
+            cache.put(newPosition, value);
+        }
+        cache.invalidate(position);
+        log.free(position);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V load(long position) {
+        return (V) cache.get(position, this::decode);
+    }
+
+    private V free(long position) {
+        V value = load(position);
+        cache.invalidate(position);
+        log.free(position);
+        return value;
+    }
+
+    private byte[] encode(V value) {
+        try {
+            return format.encode(mapper, codec, value);
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    private V decode(long position) {
+        try {
+            return format.decode(mapper, codec, log.read(position));
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+}
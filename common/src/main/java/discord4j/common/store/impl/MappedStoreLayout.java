@@ -0,0 +1,205 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import discord4j.common.JacksonResources;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * A {@link LocalStoreLayout} keeping members, presences and users off-heap, in memory-mapped segment files of a local
+ * directory, which lets bots with tens of millions of members run with a small heap. Every other entity is kept on
+ * the heap as in {@link LocalStoreLayout}, along with the position of each off-heap record and a bounded cache of the
+ * most recently used entities.
+ * <p>
+ * Entities are written as JSON, or in a compact binary form, to an append-only log. Updating an entity appends a new
+ * record, and segments whose records are mostly outdated are compacted in the background, then deleted. The files
+ * only hold the state of the running layout: they are created in a new subdirectory of the given directory and are
+ * not read again on startup.
+ * Call {@link #dispose()} to delete them once the layout is no longer used.
+ */
+public class MappedStoreLayout extends LocalStoreLayout {
+
+    private static final Logger log = Loggers.getLogger(MappedStoreLayout.class);
+
+    private final MappedEntityStorage storage;
+    private final Path directory;
+    private final Scheduler compactionScheduler;
+
+    private MappedStoreLayout(MappedEntityStorage storage, Path directory, Scheduler compactionScheduler) {
+        super(storage);
+        this.storage = storage;
+        this.directory = directory;
+        this.compactionScheduler = compactionScheduler;
+    }
+
+    /**
+     * Create a {@link MappedStoreLayout} with default settings, storing its files under the given directory.
+     *
+     * @param directory the directory where a subdirectory holding the segment files is created
+     * @return a new mapped layout
+     */
+    public static MappedStoreLayout create(Path directory) {
+        return builder(directory).build();
+    }
+
+    /**
+     * Create a new builder for {@link MappedStoreLayout}.
+     *
+     * @param directory the directory where a subdirectory holding the segment files is created
+     * @return a new builder
+     */
+    public static MappedStoreLayout.Builder builder(Path directory) {
+        return new Builder(directory);
+    }
+
+    /**
+     * Return the number of bytes held by live records, excluding outdated records not yet compacted.
+     *
+     * @return the size of the live off-heap records
+     */
+    public long getLiveBytes() {
+        return storage.getLog().getLiveBytes();
+    }
+
+    /**
+     * Return the number of segment files currently mapped.
+     *
+     * @return the segment count
+     */
+    public int getSegmentCount() {
+        return storage.getLog().getSegmentCount();
+    }
+
+    /**
+     * Delete the segment files of this layout and stop its background compaction. The layout must not be used
+     * afterwards.
+     *
+     * @return a {@link Mono} completing once every file is deleted, or scheduled for deletion on exit if it is still
+     * mapped
+     */
+    public Mono<Void> dispose() {
+        return Mono.fromRunnable(() -> {
+            compactionScheduler.dispose();
+            storage.getLog().dispose();
+            storage.invalidateCache();
+            try {
+                Files.deleteIfExists(directory);
+            } catch (DirectoryNotEmptyException e) {
+                // a segment still mapped is deleted on exit, and so is the directory after it
+                log.debug("Store directory {} still holds mapped segments, deleting it on exit", directory);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to delete store directory " + directory, e);
+            }
+        });
+    }
+
+    public static class Builder {
+
+        private final Path directory;
+        private int segmentSize = 64 * 1024 * 1024;
+        private long cacheMaximumSize = 100_000;
+        private boolean compactEncoding = false;
+        private ObjectMapper objectMapper;
+
+        protected Builder(Path directory) {
+            this.directory = Objects.requireNonNull(directory);
+        }
+
+        /**
+         * Set the size of each segment file. A greater size means less files to map, while a smaller size makes
+         * compaction reclaim disk space in smaller increments. Defaults to 64 MiB.
+         *
+         * @param segmentSize the size of each segment file, in bytes
+         * @return this builder
+         */
+        public Builder setSegmentSize(int segmentSize) {
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of entities kept as objects on the heap to avoid decoding them on each read.
+         * Defaults to 100,000.
+         *
+         * @param cacheMaximumSize the maximum number of cached entities
+         * @return this builder
+         */
+        public Builder setCacheMaximumSize(long cacheMaximumSize) {
+            this.cacheMaximumSize = cacheMaximumSize;
+            return this;
+        }
+
+        /**
+         * Set whether entities are written in a compact binary form instead of JSON, sharing field names and repeated
+         * values such as statuses through a dictionary kept on the heap. Defaults to {@code false}.
+         *
+         * @param compactEncoding {@code true} to write entities in a compact form
+         * @return this builder
+         */
+        public Builder setCompactEncoding(boolean compactEncoding) {
+            this.compactEncoding = compactEncoding;
+            return this;
+        }
+
+        /**
+         * Set the {@link ObjectMapper} used to encode entities. Defaults to the mapper created by
+         * {@link JacksonResources#create()}.
+         *
+         * @param objectMapper the mapper to encode entities with
+         * @return this builder
+         */
+        public Builder setObjectMapper(ObjectMapper objectMapper) {
+            this.objectMapper = Objects.requireNonNull(objectMapper);
+            return this;
+        }
+
+        /**
+         * Create the {@link MappedStoreLayout}, along with the subdirectory holding its files.
+         *
+         * @return a new mapped layout
+         * @throws IllegalStateException if the subdirectory cannot be created
+         */
+        public MappedStoreLayout build() {
+            Path storeDirectory;
+            try {
+                Files.createDirectories(directory);
+                storeDirectory = Files.createTempDirectory(directory, "d4j-store-");
+                // registered before any segment, so it is deleted after the segments still mapped on exit
+                storeDirectory.toFile().deleteOnExit();
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to create store directory in " + directory, e);
+            }
+            Scheduler compactionScheduler = Schedulers.newSingle("d4j-store-compaction", true);
+            MappedEntityLog entityLog = new MappedEntityLog(storeDirectory, segmentSize, compactionScheduler::schedule);
+            ObjectMapper mapper = objectMapper == null ? JacksonResources.create().getObjectMapper() : objectMapper;
+            EntityFormat format = compactEncoding ? new CompactEntityFormat() : EntityFormat.JSON;
+            return new MappedStoreLayout(new MappedEntityStorage(entityLog, format, mapper, cacheMaximumSize),
+                    storeDirectory, compactionScheduler);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import discord4j.discordjson.json.EmojiData;
+import discord4j.discordjson.json.MessageData;
+import discord4j.discordjson.json.PartialMessageData;
+import discord4j.discordjson.json.ReactionData;
+import discord4j.discordjson.possible.Possible;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Updates applied to cached messages by gateway dispatches, shared by the layouts caching messages in this package.
+ */
+final class MessageUpdates {
+
+    private MessageUpdates() {
+    }
+
+    static MessageData addReaction(MessageData oldMessage, EmojiData emoji, boolean me) {
+        List<ReactionData> reactions = new ArrayList<>(oldMessage.reactions().toOptional()
+                .orElse(Collections.emptyList()));
+        int i = indexOfReactionByEmojiData(reactions, emoji);
+        if (i < reactions.size()) {
+            // message already has this reaction: bump 1
+            ReactionData existing = reactions.get(i);
+            reactions.set(i, ReactionData.builder()
+                    .from(existing)
+                    .me(existing.me() || me)
+                    .count(existing.count() + 1)
+                    .build());
+        } else {
+            // message doesn't have this reaction: create
+            reactions.add(ReactionData.builder()
+                    .emoji(emoji)
+                    .me(me)
+                    .count(1)
+                    .build());
+        }
+        return MessageData.builder().from(oldMessage).reactions(reactions).build();
+    }
+
+    static MessageData removeReaction(MessageData oldMessage, EmojiData emoji, boolean me) {
+        if (oldMessage.reactions().isAbsent()) {
+            return oldMessage;
+        }
+        List<ReactionData> reactions = new ArrayList<>(oldMessage.reactions().get());
+        int i = indexOfReactionByEmojiData(reactions, emoji);
+        if (i < reactions.size()) {
+            ReactionData existing = reactions.get(i);
+            if (existing.count() - 1 == 0) {
+                reactions.remove(i);
+            } else {
+                reactions.set(i, ReactionData.builder()
+                        .from(existing)
+                        .count(existing.count() - 1)
+                        .me(!me && existing.me())
+                        .build());
+            }
+        }
+        return MessageData.builder().from(oldMessage).reactions(reactions).build();
+    }
+
+    static MessageData removeAllReactions(MessageData oldMessage) {
+        return MessageData.builder()
+                .from(oldMessage)
+                .reactions(Possible.absent())
+                .build();
+    }
+
+    static MessageData removeReactionEmoji(MessageData oldMessage, EmojiData emoji) {
+        if (oldMessage.reactions().isAbsent()) {
+            return oldMessage;
+        }
+        List<ReactionData> reactions = new ArrayList<>(oldMessage.reactions().get());
+        int i = indexOfReactionByEmojiData(reactions, emoji);
+        if (i < reactions.size()) {
+            reactions.remove(i);
+        }
+        return MessageData.builder().from(oldMessage).reactions(reactions).build();
+    }
+
+    static MessageData update(MessageData oldMessage, PartialMessageData messageData) {
+        return MessageData.builder()
+                .from(oldMessage)
+                .content(messageData.content().toOptional()
+                        .orElse(oldMessage.content()))
+                .embeds(messageData.embeds())
+                .mentions(messageData.mentions())
+                .mentionRoles(messageData.mentionRoles())
+                .mentionEveryone(messageData.mentionEveryone().toOptional()
+                        .orElse(oldMessage.mentionEveryone()))
+                .editedTimestamp(messageData.editedTimestamp())
+                .build();
+    }
+
+    private static int indexOfReactionByEmojiData(List<ReactionData> reactions, EmojiData emojiData) {
+        int i;
+        for (i = 0; i < reactions.size(); i++) {
+            ReactionData r = reactions.get(i);
+            // (non-null id && matching id) OR (null id && matching name)
+            boolean emojiHasId = emojiData.id().isPresent();
+            if ((emojiHasId && emojiData.id().equals(r.emoji().id()))
+                    || (!emojiHasId && emojiData.name().equals(r.emoji().name()))) {
+                break;
+            }
+        }
+        return i;
+    }
+}
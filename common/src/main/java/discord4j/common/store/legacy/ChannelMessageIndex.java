@@ -0,0 +1,303 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package discord4j.common.store.legacy;
+
+import discord4j.common.store.impl.ConcurrentLongObjectMap;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Index of cached message IDs organized per channel, bounding the number of messages kept for each channel and in
+ * total.
+ * <p>
+ * Each channel keeps its message IDs in a ring ordered by arrival, where adding a message to a full ring evicts the
+ * oldest one. Channels are kept in a concurrent map and each ring is guarded by its own lock, so messages of distinct
+ * channels are indexed in parallel. Once the total capacity is reached, a few channels are sampled and the oldest
+ * message of the least recently active one is evicted, a channel being active whenever a message is added to it.
+ * Eviction is therefore approximate: the evicted channel is the least recently active one among the sampled channels,
+ * and concurrent additions may briefly exceed or undershoot the total capacity. Evicted IDs are returned to the
+ * caller so the messages can be removed from the backing store.
+ */
+class ChannelMessageIndex {
+
+    private static final long[] EMPTY = new long[0];
+    // number of channels compared when picking the one to evict from
+    private static final int EVICTION_SAMPLES = 8;
+
+    private final int channelCapacity;
+    private final long totalCapacity;
+    private final ConcurrentLongObjectMap<ChannelRing> channels = new ConcurrentLongObjectMap<>();
+    private final AtomicLong size = new AtomicLong();
+    // logical clock ordering channel activity
+    private final AtomicLong clock = new AtomicLong();
+
+    ChannelMessageIndex(int channelCapacity, long totalCapacity) {
+        if (channelCapacity < 1 || totalCapacity < 1) {
+            throw new IllegalArgumentException("Message capacities must be positive");
+        }
+        this.channelCapacity = channelCapacity;
+        this.totalCapacity = totalCapacity;
+    }
+
+    /**
+     * Add a new message to the given channel, marking the channel as the most recently active one. Adding a message
+     * already indexed in the channel, like a replayed message create event, has no effect.
+     *
+     * @param channelId the channel ID
+     * @param messageId the message ID
+     * @return the IDs of the messages evicted to make room for this one
+     */
+    long[] add(long channelId, long messageId) {
+        LongRing evicted = null;
+        ChannelRing ring;
+        for (;;) {
+            ring = channels.computeIfAbsent(channelId, id -> new ChannelRing(id, channelCapacity));
+            synchronized (ring) {
+                if (ring.removed) {
+                    // emptied concurrently, retry with a new ring
+                    continue;
+                }
+                if (ring.contains(messageId)) {
+                    return EMPTY;
+                }
+                if (ring.size() == channelCapacity) {
+                    evicted = new LongRing(Integer.MAX_VALUE);
+                    evicted.add(ring.removeFirst());
+                } else {
+                    size.incrementAndGet();
+                }
+                ring.add(messageId);
+                ring.lastActive = clock.incrementAndGet();
+                break;
+            }
+        }
+        while (size.get() > totalCapacity) {
+            ChannelRing victim = leastRecentlyActive(ring);
+            synchronized (victim) {
+                if (victim.removed || victim.size() == 0) {
+                    continue;
+                }
+                if (evicted == null) {
+                    evicted = new LongRing(Integer.MAX_VALUE);
+                }
+                evicted.add(victim.removeFirst());
+                size.decrementAndGet();
+                if (victim.size() == 0) {
+                    detach(victim);
+                }
+            }
+        }
+        return evicted == null ? EMPTY : evicted.toArray();
+    }
+
+    /**
+     * Remove a message from the given channel.
+     *
+     * @param channelId the channel ID
+     * @param messageId the message ID
+     */
+    void remove(long channelId, long messageId) {
+        ChannelRing ring = channels.get(channelId);
+        if (ring == null) {
+            return;
+        }
+        synchronized (ring) {
+            if (!ring.removed && ring.remove(messageId)) {
+                size.decrementAndGet();
+                if (ring.size() == 0) {
+                    detach(ring);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove all messages of the given channel.
+     *
+     * @param channelId the channel ID
+     * @return the IDs of the removed messages
+     */
+    long[] removeChannel(long channelId) {
+        ChannelRing ring = channels.get(channelId);
+        if (ring == null) {
+            return EMPTY;
+        }
+        synchronized (ring) {
+            if (ring.removed) {
+                return EMPTY;
+            }
+            detach(ring);
+            size.addAndGet(-ring.size());
+            return ring.toArray();
+        }
+    }
+
+    /**
+     * Return the IDs of the messages in the given channel, from oldest to newest.
+     *
+     * @param channelId the channel ID
+     * @return the message IDs in the channel
+     */
+    long[] getMessages(long channelId) {
+        ChannelRing ring = channels.get(channelId);
+        if (ring == null) {
+            return EMPTY;
+        }
+        synchronized (ring) {
+            return ring.removed ? EMPTY : ring.toArray();
+        }
+    }
+
+    int count(long channelId) {
+        ChannelRing ring = channels.get(channelId);
+        if (ring == null) {
+            return 0;
+        }
+        synchronized (ring) {
+            return ring.removed ? 0 : ring.size();
+        }
+    }
+
+    void clear() {
+        for (ChannelRing ring : channels.values()) {
+            synchronized (ring) {
+                if (!ring.removed) {
+                    detach(ring);
+                    size.addAndGet(-ring.size());
+                }
+            }
+        }
+    }
+
+    private ChannelRing leastRecentlyActive(ChannelRing active) {
+        ChannelRing candidate = null;
+        for (ChannelRing ring : channels.sample(EVICTION_SAMPLES)) {
+            if (ring != active && ring.size() > 0
+                    && (candidate == null || ring.lastActive < candidate.lastActive)) {
+                candidate = ring;
+            }
+        }
+        // the active channel is only evicted from if no other channel was found
+        return candidate == null ? active : candidate;
+    }
+
+    // called with the lock of the ring held
+    private void detach(ChannelRing ring) {
+        ring.removed = true;
+        channels.computeIfPresent(ring.channelId, current -> current == ring ? null : current);
+    }
+
+    static class ChannelRing extends LongRing {
+
+        private final long channelId;
+        private volatile long lastActive;
+        // set once the ring is no longer in the channel map, additions must then use a new ring
+        private boolean removed;
+
+        ChannelRing(long channelId, int capacity) {
+            super(capacity);
+            this.channelId = channelId;
+        }
+    }
+
+    /**
+     * A FIFO ring of {@code long} values, allocated lazily up to a maximum capacity.
+     */
+    static class LongRing {
+
+        private final int capacity;
+        private long[] values = new long[4];
+        private int head;
+        private volatile int size;
+
+        LongRing(int capacity) {
+            this.capacity = capacity;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void add(long value) {
+            if (size == values.length) {
+                if (size == capacity) {
+                    throw new IllegalStateException("Ring is full");
+                }
+                long[] grown = new long[(int) Math.min(capacity, values.length * 2L)];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = values[(head + i) % values.length];
+                }
+                values = grown;
+                head = 0;
+            }
+            values[(head + size) % values.length] = value;
+            size++;
+        }
+
+        long removeFirst() {
+            if (size == 0) {
+                throw new IllegalStateException("Ring is empty");
+            }
+            long value = values[head];
+            head = (head + 1) % values.length;
+            size--;
+            return value;
+        }
+
+        boolean contains(long value) {
+            return indexOf(value) >= 0;
+        }
+
+        boolean remove(long value) {
+            int index = indexOf(value);
+            if (index < 0) {
+                return false;
+            }
+            // shift the following values back by one, keeping arrival order
+            for (int i = index; i < size - 1; i++) {
+                values[(head + i) % values.length] = values[(head + i + 1) % values.length];
+            }
+            size--;
+            return true;
+        }
+
+        long[] toArray() {
+            long[] result = new long[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = values[(head + i) % values.length];
+            }
+            return result;
+        }
+
+        private int indexOf(long value) {
+            // search from the newest values, which are the most likely to be updated or deleted
+            for (int i = size - 1; i >= 0; i--) {
+                if (values[(head + i) % values.length] == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(toArray());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package discord4j.common.store.legacy;
+
+import discord4j.common.store.impl.ConcurrentLongObjectMap;
+import discord4j.common.util.Snowflake;
+import discord4j.discordjson.json.GuildData;
+import reactor.util.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Member IDs of each cached guild, kept as compact sets outside the immutable guild data so that joins, leaves and
+ * member chunks do not copy the whole member list.
+ * <p>
+ * Only guilds registered through {@link #set(long, long[])} are tracked, updates targeting any other guild are ignored.
+ * Every set is only accessed while holding the lock of its map entry.
+ * <p>
+ * The guild data materialized with its member list by {@link #withMembers(GuildData)} is cached per guild until its
+ * members change or another guild data instance is given, so repeated reads of an unchanged guild do not rebuild the
+ * member list.
+ */
+class GuildMemberIndex {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final ConcurrentLongObjectMap<Members> membersByGuild = new ConcurrentLongObjectMap<>();
+
+    void set(long guildId, long[] userIds) {
+        Members members = new Members(userIds.length);
+        for (long userId : userIds) {
+            members.ids.add(userId);
+        }
+        membersByGuild.put(guildId, members);
+    }
+
+    void add(long guildId, long userId) {
+        membersByGuild.computeIfPresent(guildId, members -> {
+            if (members.ids.add(userId)) {
+                members.invalidate();
+            }
+            return members;
+        });
+    }
+
+    void addAll(long guildId, long[] userIds) {
+        membersByGuild.computeIfPresent(guildId, members -> {
+            boolean changed = false;
+            for (long userId : userIds) {
+                changed |= members.ids.add(userId);
+            }
+            if (changed) {
+                members.invalidate();
+            }
+            return members;
+        });
+    }
+
+    void remove(long guildId, long userId) {
+        membersByGuild.computeIfPresent(guildId, members -> {
+            if (members.ids.remove(userId)) {
+                members.invalidate();
+            }
+            return members;
+        });
+    }
+
+    long[] getMembers(long guildId) {
+        long[][] result = {EMPTY};
+        membersByGuild.computeIfPresent(guildId, members -> {
+            result[0] = members.ids.toArray();
+            return members;
+        });
+        return result[0];
+    }
+
+    /**
+     * Return the given guild with its member list replaced by the indexed members of that guild.
+     *
+     * @param guild the guild data as stored
+     * @return the guild data with its current members
+     */
+    GuildData withMembers(GuildData guild) {
+        long guildId = Snowflake.asLong(guild.id());
+        Object[] snapshot = new Object[3];
+        membersByGuild.computeIfPresent(guildId, members -> {
+            if (members.source == guild && members.view != null) {
+                snapshot[0] = members.view;
+            } else {
+                snapshot[1] = members.ids.toArray();
+                snapshot[2] = members.version;
+            }
+            return members;
+        });
+        if (snapshot[0] != null) {
+            return (GuildData) snapshot[0];
+        }
+        if (snapshot[1] == null) {
+            return withMembers(guild, EMPTY);
+        }
+        // build outside of the lock and only keep the result if the members did not change meanwhile
+        GuildData view = withMembers(guild, (long[]) snapshot[1]);
+        long version = (long) snapshot[2];
+        membersByGuild.computeIfPresent(guildId, members -> {
+            if (members.version == version) {
+                members.source = guild;
+                members.view = view;
+            }
+            return members;
+        });
+        return view;
+    }
+
+    static GuildData withMembers(GuildData guild, long[] memberIds) {
+        return GuildData.builder()
+                .from(guild)
+                .members(Arrays.stream(memberIds).mapToObj(Snowflake::asString).collect(Collectors.toList()))
+                .build();
+    }
+
+    long[] removeGuild(long guildId) {
+        Members members = membersByGuild.remove(guildId);
+        return members == null ? EMPTY : members.ids.toArray();
+    }
+
+    void clear() {
+        membersByGuild.clear();
+    }
+
+    private static class Members {
+
+        private final LongHashSet ids;
+        private long version;
+        @Nullable
+        private GuildData source;
+        @Nullable
+        private GuildData view;
+
+        private Members(int expectedSize) {
+            this.ids = new LongHashSet(expectedSize);
+        }
+
+        private void invalidate() {
+            version++;
+            source = null;
+            view = null;
+        }
+    }
+}
@@ -17,6 +17,8 @@
 
 package discord4j.common.store.legacy;
 
+import discord4j.common.store.action.gateway.CoalescingBatchHandler;
+import discord4j.common.store.api.ActionMapper;
 import discord4j.common.store.api.layout.DataAccessor;
 import discord4j.common.store.api.layout.GatewayDataUpdater;
 import discord4j.common.store.api.layout.StoreLayout;
@@ -45,13 +47,34 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
     private static final Logger log = Loggers.getLogger(LegacyStoreLayout.class);
 
     private final StateHolder stateHolder;
-
-    private LegacyStoreLayout(StoreService storeService) {
+    private final UserGuildIndex userGuildIndex = new UserGuildIndex();
+    private final GuildMemberIndex memberIndex = new GuildMemberIndex();
+    private final ShardGuildIndex shardGuildIndex = new ShardGuildIndex();
+    private final StoreUpdater updater = new StoreUpdater();
+    private final ChannelMessageIndex messageIndex;
+    private final boolean implicitOfflinePresences;
+    // the ID of the current user, as given by READY, or 0 before it
+    private volatile long selfId;
+
+    private LegacyStoreLayout(StoreService storeService, int maxMessagesPerChannel, long maxMessages,
+                              boolean implicitOfflinePresences) {
         this.stateHolder = new StateHolder(storeService);
+        this.messageIndex = new ChannelMessageIndex(maxMessagesPerChannel, maxMessages);
+        this.implicitOfflinePresences = implicitOfflinePresences;
     }
 
     public static LegacyStoreLayout of(StoreService storeService) {
-        return new LegacyStoreLayout(storeService);
+        return builder(storeService).build();
+    }
+
+    /**
+     * Create a new builder for {@link LegacyStoreLayout}.
+     *
+     * @param storeService the {@link StoreService} providing the backing stores
+     * @return a new builder
+     */
+    public static LegacyStoreLayout.Builder builder(StoreService storeService) {
+        return new Builder(storeService);
     }
 
     @Override
@@ -64,6 +87,27 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
         return this;
     }
 
+    @Override
+    public ActionMapper getCustomActionMapper() {
+        // runs of GUILD_CREATE and member chunks are applied through the batch methods
+        return ActionMapper.builder()
+                .mapBatch(CoalescingBatchHandler.create())
+                .build();
+    }
+
+    /**
+     * Return a {@link Flux} of the changes applied to single entities while handling Gateway updates, each carrying
+     * the previous and current value of the entity so no further store lookup is needed to compare them. Bulk
+     * operations, such as saving the contents of a GUILD_CREATE or removing a guild, are not published.
+     * <p>
+     * Changes are only published while there are subscribers, and are dropped for subscribers that cannot keep up.
+     *
+     * @return a {@link Flux} of {@link StoreChange}
+     */
+    public Flux<StoreChange<?, ?>> changes() {
+        return updater.changes();
+    }
+
     /////////////////////////////////////////////////////////////////////////////
     //// Query model methods
     /////////////////////////////////////////////////////////////////////////////
@@ -116,11 +160,14 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
 
     @Override
     public Mono<Long> countMessagesInChannel(long channelId) {
-        return getMessagesInChannel(channelId).count();
+        return Mono.fromCallable(() -> (long) messageIndex.count(channelId));
     }
 
     @Override
     public Mono<Long> countPresences() {
+        if (implicitOfflinePresences) {
+            return getPresences().count();
+        }
         return stateHolder.getPresenceStore().count();
     }
 
@@ -195,12 +242,16 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
 
     @Override
     public Flux<GuildData> getGuilds() {
-        return stateHolder.getGuildStore().values();
+        return stateHolder.getGuildStore().values().map(this::withMembers);
     }
 
     @Override
     public Mono<GuildData> getGuildById(long guildId) {
-        return stateHolder.getGuildStore().find(guildId);
+        return stateHolder.getGuildStore().find(guildId).map(this::withMembers);
+    }
+
+    private GuildData withMembers(GuildData guild) {
+        return memberIndex.withMembers(guild);
     }
 
     @Override
@@ -232,8 +283,8 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
 
     @Override
     public Flux<MessageData> getMessagesInChannel(long channelId) {
-        return stateHolder.getMessageStore().values()
-                .filter(data -> Snowflake.asLong(data.channelId()) == channelId);
+        return Flux.defer(() -> toFlux(messageIndex.getMessages(channelId)))
+                .flatMap(id -> stateHolder.getMessageStore().find(id));
     }
 
     @Override
@@ -243,18 +294,36 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
 
     @Override
     public Flux<PresenceData> getPresences() {
+        if (implicitOfflinePresences) {
+            return stateHolder.getGuildStore().values()
+                    .flatMap(guild -> getPresencesInGuild(Snowflake.asLong(guild.id())));
+        }
         return stateHolder.getPresenceStore().values();
     }
 
     @Override
     public Flux<PresenceData> getPresencesInGuild(long guildId) {
+        if (implicitOfflinePresences) {
+            return getMembersInGuild(guildId)
+                    .flatMap(member -> stateHolder.getPresenceStore()
+                            .find(LongLongTuple2.of(guildId, Snowflake.asLong(member.user().id())))
+                            .switchIfEmpty(Mono.fromCallable(() -> createPresence(member))));
+        }
         return stateHolder.getPresenceStore()
                 .findInRange(LongLongTuple2.of(guildId, 0), LongLongTuple2.of(guildId, Long.MAX_VALUE));
     }
 
     @Override
     public Mono<PresenceData> getPresenceById(long guildId, long userId) {
-        return stateHolder.getPresenceStore().find(LongLongTuple2.of(guildId, userId));
+        return findPresence(LongLongTuple2.of(guildId, userId));
+    }
+
+    private Mono<PresenceData> findPresence(LongLongTuple2 key) {
+        Mono<PresenceData> presence = stateHolder.getPresenceStore().find(key);
+        if (implicitOfflinePresences) {
+            return presence.switchIfEmpty(stateHolder.getMemberStore().find(key).map(this::createPresence));
+        }
+        return presence;
     }
 
     @Override
@@ -331,13 +400,13 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
     private Mono<Void> saveChannel(ChannelCreate dispatch) {
         ChannelData channel = dispatch.channel();
 
-        Mono<Void> addChannelToGuild = stateHolder.getGuildStore()
-                .find(Snowflake.asLong(channel.guildId().get()))
-                .map(guildData -> GuildData.builder()
-                        .from(guildData)
-                        .channels(ListUtil.add(guildData.channels(), channel.id()))
-                        .build())
-                .flatMap(guild -> stateHolder.getGuildStore().save(Snowflake.asLong(guild.id()), guild));
+        Mono<Void> addChannelToGuild = updater
+                .update(stateHolder.getGuildStore(), Snowflake.asLong(channel.guildId().get()),
+                        guildData -> GuildData.builder()
+                                .from(guildData)
+                                .channels(ListUtil.add(guildData.channels(), channel.id()))
+                                .build())
+                .then();
 
         Mono<Void> saveChannel = stateHolder.getChannelStore()
                 .save(Snowflake.asLong(channel.id()), channel);
@@ -363,18 +432,21 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
     private Mono<ChannelData> deleteChannel(ChannelDelete dispatch) {
         ChannelData channel = dispatch.channel();
 
-        Mono<Void> removeChannelFromGuild = stateHolder.getGuildStore()
-                .find(Snowflake.asLong(channel.guildId().get()))
-                .map(guildData -> GuildData.builder()
-                        .from(guildData)
-                        .channels(ListUtil.remove(guildData.channels(), ch -> channel.id().equals(ch)))
-                        .build())
-                .flatMap(guild -> stateHolder.getGuildStore().save(Snowflake.asLong(guild.id()), guild));
+        Mono<Void> removeChannelFromGuild = updater
+                .update(stateHolder.getGuildStore(), Snowflake.asLong(channel.guildId().get()),
+                        guildData -> GuildData.builder()
+                                .from(guildData)
+                                .channels(ListUtil.remove(guildData.channels(), ch -> channel.id().equals(ch)))
+                                .build())
+                .then();
 
         Mono<Void> deleteChannel = stateHolder.getChannelStore()
                 .delete(Snowflake.asLong(channel.id()));
 
-        return removeChannelFromGuild.then(deleteChannel).thenReturn(channel);
+        Mono<Void> deleteMessages = stateHolder.getMessageStore()
+                .delete(Flux.defer(() -> toFlux(messageIndex.removeChannel(Snowflake.asLong(channel.id())))));
+
+        return removeChannelFromGuild.then(deleteChannel).and(deleteMessages).thenReturn(channel);
     }
 
     @Override
@@ -429,100 +501,106 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
     private Mono<ChannelData> updateChannel(ChannelUpdate dispatch) {
         ChannelData channel = dispatch.channel();
 
-        Mono<Void> saveNew = stateHolder.getChannelStore().save(Snowflake.asLong(channel.id()), channel);
-
-        return stateHolder.getChannelStore()
-                .find(Snowflake.asLong(channel.id()))
-                .flatMap(saveNew::thenReturn)
-                .switchIfEmpty(saveNew.then(Mono.empty()));
+        return updater.replace(stateHolder.getChannelStore(), Snowflake.asLong(channel.id()), channel);
     }
 
     @Override
     public Mono<Void> onGuildCreate(int shardIndex, GuildCreate dispatch) {
-        GuildCreateData createData;
-        GuildData guild;
-        // TODO is there a better solution to this?
-        if (dispatch.guild().large()) {
-            // Solves https://github.com/Discord4J/Discord4J/issues/429
-            // Member store cannot have duplicates because keys cannot
-            // be duplicated, but array addition in GuildBean can
-            //guildBean.setMembers(new long[0]);
-            createData = GuildCreateData.builder()
-                    .from(dispatch.guild())
-                    .members(Collections.emptyList())
-                    .build();
-            guild = GuildData.builder()
-                    .from(createData)
-                    .roles(createData.roles().stream().map(RoleData::id).collect(Collectors.toList()))
-                    .emojis(createData.emojis().stream().map(EmojiData::id).filter(Optional::isPresent).map(Optional::get).collect(Collectors.toList()))
-                    .channels(createData.channels().stream().map(ChannelData::id).collect(Collectors.toList()))
-                    .build();
-        } else {
-            createData = dispatch.guild();
-            guild = GuildData.builder()
-                    .from(createData)
-                    .roles(createData.roles().stream().map(RoleData::id).collect(Collectors.toList()))
-                    .emojis(createData.emojis().stream().map(EmojiData::id).filter(Optional::isPresent).map(Optional::get).collect(Collectors.toList()))
-                    .members(createData.members().stream().map(data -> data.user().id()).distinct().collect(Collectors.toList()))
-                    .channels(createData.channels().stream().map(ChannelData::id).collect(Collectors.toList()))
-                    .build();
+        return onGuildCreateBatch(shardIndex, Collections.singletonList(dispatch));
+    }
+
+    @Override
+    public Mono<Void> onGuildCreateBatch(int shardIndex, List<GuildCreate> dispatches) {
+        List<GuildCreateData> guilds = new ArrayList<>(dispatches.size());
+        for (GuildCreate dispatch : dispatches) {
+            // TODO is there a better solution to this?
+            if (dispatch.guild().large()) {
+                // Solves https://github.com/Discord4J/Discord4J/issues/429
+                // Member store cannot have duplicates because keys cannot
+                // be duplicated, but array addition in GuildBean can
+                guilds.add(GuildCreateData.builder()
+                        .from(dispatch.guild())
+                        .members(Collections.emptyList())
+                        .build());
+            } else {
+                guilds.add(dispatch.guild());
+            }
         }
 
-        long guildId = Snowflake.asLong(guild.id());
-
-        Mono<Void> saveGuild = stateHolder.getGuildStore().save(guildId, guild)
-                .doOnSubscribe(s -> log.trace("GuildCreate doOnSubscribe {}", guildId))
-                .doFinally(s -> log.trace("GuildCreate doFinally {}: {}", guildId, s));
+        // a single save per entity type, covering every guild of the batch
+        Mono<Void> saveGuilds = stateHolder.getGuildStore()
+                .save(Flux.fromIterable(guilds)
+                        .map(createData -> Tuples.of(Snowflake.asLong(createData.id()), toGuildData(createData))))
+                .doOnSubscribe(s -> log.trace("GuildCreate doOnSubscribe {} guilds", guilds.size()))
+                .doFinally(s -> log.trace("GuildCreate doFinally {} guilds: {}", guilds.size(), s));
 
         Mono<Void> saveChannels = stateHolder.getChannelStore()
-                .save(Flux.fromIterable(createData.channels())
-                        .map(channel -> Tuples.of(Snowflake.asLong(channel.id()),
-                                ChannelData.builder().from(channel).guildId(guild.id()).build())));
+                .save(Flux.fromIterable(guilds)
+                        .concatMapIterable(createData -> createData.channels().stream()
+                                .map(channel -> Tuples.of(Snowflake.asLong(channel.id()),
+                                        ChannelData.builder().from(channel).guildId(createData.id()).build()))
+                                .collect(Collectors.toList())));
 
         Mono<Void> saveRoles = stateHolder.getRoleStore()
-                .save(Flux.fromIterable(createData.roles())
+                .save(Flux.fromIterable(guilds)
+                        .concatMapIterable(GuildCreateData::roles)
                         .map(role -> Tuples.of(Snowflake.asLong(role.id()), role)));
 
         Mono<Void> saveEmojis = stateHolder.getGuildEmojiStore()
-                .save(Flux.fromIterable(createData.emojis())
+                .save(Flux.fromIterable(guilds)
+                        .concatMapIterable(GuildCreateData::emojis)
                         .map(emoji -> Tuples.of(Snowflake.asLong(emoji.id()
                                 .orElseThrow(NoSuchElementException::new)), emoji)));
 
         Mono<Void> saveMembers = stateHolder.getMemberStore()
-                .save(Flux.fromIterable(createData.members())
-                        .map(member -> Tuples.of(LongLongTuple2.of(guildId,
-                                Snowflake.asLong(member.user().id())), member)));
+                .save(Flux.fromIterable(guilds)
+                        .concatMapIterable(createData -> toMemberPairs(Snowflake.asLong(createData.id()),
+                                createData.members())));
 
         Mono<Void> saveUsers = stateHolder.getUserStore()
-                .save(Flux.fromIterable(createData.members())
+                .save(Flux.fromIterable(guilds)
+                        .concatMapIterable(GuildCreateData::members)
                         .map(MemberData::user)
                         .map(user -> Tuples.of(Snowflake.asLong(user.id()), user)));
 
+        Mono<Void> indexGuilds = Mono.fromRunnable(() -> {
+            for (GuildCreateData createData : guilds) {
+                long guildId = Snowflake.asLong(createData.id());
+                long[] memberIds = new long[createData.members().size()];
+                for (int i = 0; i < memberIds.length; i++) {
+                    memberIds[i] = Snowflake.asLong(createData.members().get(i).user().id());
+                    userGuildIndex.add(memberIds[i], guildId);
+                }
+                memberIndex.set(guildId, memberIds);
+                shardGuildIndex.add(shardIndex, guildId);
+            }
+        });
+
         Mono<Void> saveVoiceStates = stateHolder.getVoiceStateStore()
-                .save(Flux.fromIterable(createData.voiceStates())
-                        .map(voiceState -> Tuples.of(LongLongTuple2.of(guildId,
-                                Snowflake.asLong(voiceState.userId())),
-                                VoiceStateData.builder()
-                                        .from(voiceState)
-                                        .guildId(guild.id())
-                                        .build())));
+                .save(Flux.fromIterable(guilds)
+                        .concatMapIterable(createData -> createData.voiceStates().stream()
+                                .map(voiceState -> Tuples.of(LongLongTuple2.of(Snowflake.asLong(createData.id()),
+                                        Snowflake.asLong(voiceState.userId())),
+                                        VoiceStateData.builder()
+                                                .from(voiceState)
+                                                .guildId(createData.id())
+                                                .build()))
+                                .collect(Collectors.toList())));
 
         Mono<Void> savePresences = stateHolder.getPresenceStore()
-                .save(Flux.fromIterable(createData.presences())
-                        .map(presence -> Tuples.of(LongLongTuple2.of(guildId,
-                                Snowflake.asLong(presence.user().id())), presence)));
-
-        Mono<Void> saveOfflinePresences = Flux.fromIterable(createData.members())
-                .filterWhen(member -> stateHolder.getPresenceStore()
-                        .find(LongLongTuple2.of(guildId, Snowflake.asLong(member.user().id())))
-                        .hasElement()
-                        .map(id -> !id))
-                .flatMap(member -> stateHolder.getPresenceStore()
-                        .save(LongLongTuple2.of(guildId, Snowflake.asLong(member.user().id())),
-                                createPresence(member)))
+                .save(Flux.fromIterable(guilds)
+                        .concatMapIterable(createData -> createData.presences().stream()
+                                .map(presence -> Tuples.of(LongLongTuple2.of(Snowflake.asLong(createData.id()),
+                                        Snowflake.asLong(presence.user().id())), presence))
+                                .collect(Collectors.toList())));
+
+        Mono<Void> saveOfflinePresences = Flux.fromIterable(guilds)
+                .concatMap(createData -> saveOfflinePresences(Snowflake.asLong(createData.id()),
+                        createData.members()))
                 .then();
 
-        return saveGuild
+        return saveGuilds
+                .and(indexGuilds)
                 .and(saveChannels)
                 .and(saveRoles)
                 .and(saveEmojis)
@@ -530,7 +608,36 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
                 .and(saveUsers)
                 .and(saveVoiceStates)
                 .and(savePresences)
-                .and(saveOfflinePresences);
+                .and(implicitOfflinePresences ? Mono.empty() : saveOfflinePresences);
+    }
+
+    private static GuildData toGuildData(GuildCreateData createData) {
+        return GuildData.builder()
+                .from(createData)
+                .roles(createData.roles().stream().map(RoleData::id).collect(Collectors.toList()))
+                .emojis(createData.emojis().stream().map(EmojiData::id).filter(Optional::isPresent).map(Optional::get).collect(Collectors.toList()))
+                .channels(createData.channels().stream().map(ChannelData::id).collect(Collectors.toList()))
+                .build();
+    }
+
+    private static List<Tuple2<LongLongTuple2, MemberData>> toMemberPairs(long guildId, List<MemberData> members) {
+        List<Tuple2<LongLongTuple2, MemberData>> pairs = new ArrayList<>(members.size());
+        for (MemberData member : members) {
+            pairs.add(Tuples.of(LongLongTuple2.of(guildId, Snowflake.asLong(member.user().id())), member));
+        }
+        return pairs;
+    }
+
+    private Mono<Void> saveOfflinePresences(long guildId, List<MemberData> members) {
+        return Flux.fromIterable(members)
+                .filterWhen(member -> stateHolder.getPresenceStore()
+                        .find(LongLongTuple2.of(guildId, Snowflake.asLong(member.user().id())))
+                        .hasElement()
+                        .map(identity -> !identity))
+                .flatMap(member -> stateHolder.getPresenceStore()
+                        .save(LongLongTuple2.of(guildId, Snowflake.asLong(member.user().id())),
+                                createPresence(member)))
+                .then();
     }
 
     private PresenceData createPresence(MemberData member) {
@@ -563,33 +670,43 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
     public Mono<GuildData> onGuildDelete(int shardIndex, GuildDelete dispatch) {
         long guildId = Snowflake.asLong(dispatch.guild().id());
 
+        return Mono.fromRunnable(() -> shardGuildIndex.remove(guildId)).then(deleteGuild(guildId));
+    }
+
+    private Mono<GuildData> deleteGuild(long guildId) {
         Mono<Void> deleteGuild = stateHolder.getGuildStore().delete(guildId);
 
         return stateHolder.getGuildStore().find(guildId)
                 .flatMap(guild -> {
+                    long[] memberIds = memberIndex.removeGuild(guildId);
                     Flux<Long> channels = Flux.fromIterable(guild.channels()).map(Snowflake::asLong);
                     Flux<Long> roles = Flux.fromIterable(guild.roles()).map(Snowflake::asLong);
                     Flux<Long> emojis = Flux.fromIterable(guild.emojis()).map(Snowflake::asLong);
 
                     Mono<Void> deleteChannels = stateHolder.getChannelStore().delete(channels);
+                    Mono<Void> deleteMessages = stateHolder.getMessageStore()
+                            .delete(channels.flatMap(channelId -> toFlux(messageIndex.removeChannel(channelId))));
                     Mono<Void> deleteRoles = stateHolder.getRoleStore().delete(roles);
                     Mono<Void> deleteEmojis = stateHolder.getGuildEmojiStore().delete(emojis);
                     Mono<Void> deleteMembers = stateHolder.getMemberStore()
                             .deleteInRange(LongLongTuple2.of(guildId, 0), LongLongTuple2.of(guildId, -1));
-                    // TODO delete messages
-                    // TODO delete no longer visible users
+                    Mono<Void> deleteOrphanUsers = stateHolder.getUserStore()
+                            .delete(toFlux(memberIds)
+                                    .filter(userId -> userGuildIndex.remove(userId, guildId)));
                     Mono<Void> deleteVoiceStates = stateHolder.getVoiceStateStore()
                             .deleteInRange(LongLongTuple2.of(guildId, 0), LongLongTuple2.of(guildId, -1));
                     Mono<Void> deletePresences = stateHolder.getPresenceStore()
                             .deleteInRange(LongLongTuple2.of(guildId, 0), LongLongTuple2.of(guildId, -1));
 
                     return deleteChannels
+                            .and(deleteMessages)
                             .and(deleteRoles)
                             .and(deleteEmojis)
                             .and(deleteMembers)
+                            .and(deleteOrphanUsers)
                             .and(deleteVoiceStates)
                             .and(deletePresences)
-                            .thenReturn(guild);
+                            .thenReturn(GuildMemberIndex.withMembers(guild, memberIds));
                 })
                 .flatMap(deleteGuild::thenReturn);
     }
@@ -598,9 +715,8 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
     public Mono<Set<EmojiData>> onGuildEmojisUpdate(int shardIndex, GuildEmojisUpdate dispatch) {
         long guildId = Snowflake.asLong(dispatch.guildId());
 
-        Mono<Void> updateGuildBean = stateHolder.getGuildStore()
-                .find(guildId)
-                .map(guild -> GuildData.builder()
+        Mono<Void> updateGuildBean = updater
+                .update(stateHolder.getGuildStore(), guildId, guild -> GuildData.builder()
                         .from(guild)
                         .emojis(dispatch.emojis().stream()
                                 .map(EmojiData::id)
@@ -608,7 +724,7 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
                                 .map(Optional::get)
                                 .collect(Collectors.toList()))
                         .build())
-                .flatMap(guild -> stateHolder.getGuildStore().save(guildId, guild))
+                .then()
                 .doOnSubscribe(s -> log.trace("GuildEmojisUpdate doOnSubscribe {}", guildId))
                 .doFinally(s -> log.trace("GuildEmojisUpdate doFinally {}: {}", guildId, s));
 
@@ -634,14 +750,12 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
         UserData user = member.user();
         long userId = Snowflake.asLong(user.id());
 
-        Mono<Void> addMemberId = stateHolder.getGuildStore()
-                .find(guildId)
-                .map(guild -> GuildData.builder()
+        Mono<Void> addMemberId = Mono.fromRunnable(() -> memberIndex.add(guildId, userId))
+                .then(updater.update(stateHolder.getGuildStore(), guildId, guild -> GuildData.builder()
                         .from(guild)
-                        .members(ListUtil.add(guild.members(), member.user().id()))
                         .memberCount(guild.memberCount() + 1)
-                        .build())
-                .flatMap(guild -> stateHolder.getGuildStore().save(guildId, guild))
+                        .build()))
+                .then()
                 .doOnSubscribe(s -> log.trace("GuildMemberAdd doOnSubscribe {}", guildId))
                 .doFinally(s -> log.trace("GuildMemberAdd doFinally {}: {}", guildId, s));
 
@@ -651,9 +765,12 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
         Mono<Void> saveUser = stateHolder.getUserStore()
                 .save(userId, user);
 
+        Mono<Void> indexMember = Mono.fromRunnable(() -> userGuildIndex.add(userId, guildId));
+
         return addMemberId
                 .and(saveMember)
-                .and(saveUser);
+                .and(saveUser)
+                .and(indexMember);
     }
 
     @Override
@@ -662,79 +779,66 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
         UserData userData = dispatch.user();
         long userId = Snowflake.asLong(userData.id());
 
-        Mono<Void> removeMemberId = stateHolder.getGuildStore()
-                .find(guildId)
-                .map(guild -> GuildData.builder()
+        Mono<Void> removeMemberId = Mono.fromRunnable(() -> memberIndex.remove(guildId, userId))
+                .then(updater.update(stateHolder.getGuildStore(), guildId, guild -> GuildData.builder()
                         .from(guild)
-                        .members(ListUtil.remove(guild.members(), member -> member.equals(userData.id())))
                         .memberCount(guild.memberCount() - 1)
-                        .build())
-                .flatMap(guild -> stateHolder.getGuildStore().save(guildId, guild))
+                        .build()))
+                .then()
                 .doOnSubscribe(s -> log.trace("GuildMemberRemove doOnSubscribe {}", guildId))
                 .doFinally(s -> log.trace("GuildMemberRemove doFinally {}: {}", guildId, s));
 
-        Mono<MemberData> member = stateHolder.getMemberStore()
-                .find(LongLongTuple2.of(guildId, userId));
-
-        Mono<Void> deleteMember = stateHolder.getMemberStore()
-                .delete(LongLongTuple2.of(guildId, userId));
+        Mono<MemberData> deleteMember = updater.replace(stateHolder.getMemberStore(),
+                LongLongTuple2.of(guildId, userId), null);
 
         Mono<Void> deletePresence = stateHolder.getPresenceStore()
                 .delete(LongLongTuple2.of(guildId, userId));
 
-        Mono<Void> deleteOrphanUser = stateHolder.getMemberStore()
-                .keys().filter(key -> key.getT1() != guildId && key.getT2() == userId)
-                .hasElements()
-                .flatMap(hasMutualServers -> Mono.just(userId)
-                        .filter(__ -> !hasMutualServers)
-                        .flatMap(stateHolder.getUserStore()::delete));
+        Mono<Void> deleteOrphanUser = Mono.fromCallable(() -> userGuildIndex.remove(userId, guildId))
+                .filter(noMutualServers -> noMutualServers)
+                .flatMap(__ -> stateHolder.getUserStore().delete(userId));
 
-        return member.flatMap(value -> Mono.when(removeMemberId, deleteMember, deletePresence, deleteOrphanUser)
+        return deleteMember.flatMap(value -> Mono.when(removeMemberId, deletePresence, deleteOrphanUser)
                 .thenReturn(value));
     }
 
     @Override
     public Mono<Void> onGuildMembersChunk(int shardIndex, GuildMembersChunk dispatch) {
-        long guildId = Snowflake.asLong(dispatch.guildId());
-        List<MemberData> members = dispatch.members();
-
-        Flux<Tuple2<LongLongTuple2, MemberData>> memberPairs = Flux.fromIterable(members)
-                .map(data -> Tuples.of(LongLongTuple2.of(guildId, Snowflake.asLong(data.user().id())),
-                        data));
-
-        Flux<Tuple2<Long, UserData>> userPairs = Flux.fromIterable(members)
-                .map(data -> Tuples.of(Snowflake.asLong(data.user().id()), data.user()));
+        return onGuildMembersChunkBatch(shardIndex, Collections.singletonList(dispatch));
+    }
 
-        Mono<Void> addMemberIds = stateHolder.getGuildStore()
-                .find(guildId)
-                .map(guild -> GuildData.builder()
-                        .from(guild)
-                        .members(ListUtil.addAllDistinct(guild.members(), members.stream()
-                                .map(data -> data.user().id())
-                                .collect(Collectors.toList())))
-                        .build())
-                .flatMap(guild -> stateHolder.getGuildStore().save(guildId, guild))
-                .doOnSubscribe(s -> log.trace("GuildMembersChunk doOnSubscribe {}", guildId))
-                .doFinally(s -> log.trace("GuildMembersChunk doFinally {}: {}", guildId, s));
+    @Override
+    public Mono<Void> onGuildMembersChunkBatch(int shardIndex, List<GuildMembersChunk> dispatches) {
+        Mono<Void> indexMembers = Mono.fromRunnable(() -> {
+            for (GuildMembersChunk chunk : dispatches) {
+                long guildId = Snowflake.asLong(chunk.guildId());
+                long[] memberIds = new long[chunk.members().size()];
+                for (int i = 0; i < memberIds.length; i++) {
+                    memberIds[i] = Snowflake.asLong(chunk.members().get(i).user().id());
+                    userGuildIndex.add(memberIds[i], guildId);
+                }
+                memberIndex.addAll(guildId, memberIds);
+            }
+        });
 
-        Mono<Void> saveMembers = stateHolder.getMemberStore().save(memberPairs);
+        Mono<Void> saveMembers = stateHolder.getMemberStore()
+                .save(Flux.fromIterable(dispatches)
+                        .concatMapIterable(chunk -> toMemberPairs(Snowflake.asLong(chunk.guildId()),
+                                chunk.members())));
 
-        Mono<Void> saveUsers = stateHolder.getUserStore().save(userPairs);
+        Mono<Void> saveUsers = stateHolder.getUserStore()
+                .save(Flux.fromIterable(dispatches)
+                        .concatMapIterable(GuildMembersChunk::members)
+                        .map(data -> Tuples.of(Snowflake.asLong(data.user().id()), data.user())));
 
-        Mono<Void> saveOfflinePresences = Flux.fromIterable(members)
-                .filterWhen(member -> stateHolder.getPresenceStore()
-                        .find(LongLongTuple2.of(guildId, Snowflake.asLong(member.user().id())))
-                        .hasElement()
-                        .map(identity -> !identity))
-                .flatMap(member -> stateHolder.getPresenceStore()
-                        .save(LongLongTuple2.of(guildId, Snowflake.asLong(member.user().id())),
-                                createPresence(member)))
+        Mono<Void> saveOfflinePresences = Flux.fromIterable(dispatches)
+                .concatMap(chunk -> saveOfflinePresences(Snowflake.asLong(chunk.guildId()), chunk.members()))
                 .then();
 
-        return addMemberIds
+        return indexMembers
                 .and(saveMembers)
                 .and(saveUsers)
-                .and(saveOfflinePresences);
+                .and(implicitOfflinePresences ? Mono.empty() : saveOfflinePresences);
     }
 
     @Override
@@ -744,18 +848,12 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
 
         LongLongTuple2 key = LongLongTuple2.of(guildId, memberId);
 
-        return stateHolder.getMemberStore()
-                .find(key)
-                .flatMap(oldMember -> {
-                    MemberData newMember = MemberData.builder()
-                            .from(oldMember)
-                            .nick(dispatch.nick())
-                            .roles(dispatch.roles())
-                            .premiumSince(dispatch.premiumSince())
-                            .build();
-
-                    return stateHolder.getMemberStore().save(key, newMember).thenReturn(oldMember);
-                });
+        return updater.update(stateHolder.getMemberStore(), key, oldMember -> MemberData.builder()
+                .from(oldMember)
+                .nick(dispatch.nick())
+                .roles(dispatch.roles())
+                .premiumSince(dispatch.premiumSince())
+                .build());
     }
 
     @Override
@@ -763,13 +861,12 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
         long guildId = Snowflake.asLong(dispatch.guildId());
         RoleData role = dispatch.role();
 
-        Mono<Void> addRoleId = stateHolder.getGuildStore()
-                .find(guildId)
-                .map(guild -> GuildData.builder()
+        Mono<Void> addRoleId = updater
+                .update(stateHolder.getGuildStore(), guildId, guild -> GuildData.builder()
                         .from(guild)
                         .addRoles(role.id())
                         .build())
-                .flatMap(guild -> stateHolder.getGuildStore().save(guildId, guild))
+                .then()
                 .doOnSubscribe(s -> log.trace("GuildRoleCreate doOnSubscribe {}", guildId))
                 .doFinally(s -> log.trace("GuildRoleCreate doFinally {}: {}", guildId, s));
 
@@ -785,87 +882,66 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
         long roleId = Snowflake.asLong(dispatch.roleId());
 
         @SuppressWarnings("ReactiveStreamsUnusedPublisher")
-        Mono<Void> removeRoleId = stateHolder.getGuildStore()
-                .find(guildId)
-                .map(guild -> GuildData.builder()
+        Mono<Void> removeRoleId = updater
+                .update(stateHolder.getGuildStore(), guildId, guild -> GuildData.builder()
                         .from(guild)
                         .roles(ListUtil.remove(guild.roles(), role -> role.equals(dispatch.roleId())))
                         .build())
-                .flatMap(guild -> stateHolder.getGuildStore().save(guildId, guild))
+                .then()
                 .doOnSubscribe(s -> log.trace("GuildRoleDelete doOnSubscribe {}", guildId))
                 .doFinally(s -> log.trace("GuildRoleDelete doFinally {}: {}", guildId, s));
 
-        Mono<Void> deleteRole = stateHolder.getRoleStore().delete(roleId);
-
         @SuppressWarnings("ReactiveStreamsUnusedPublisher")
-        Mono<Void> removeRoleFromMembers = stateHolder.getGuildStore()
-                .find(guildId)
-                .flatMapMany(guild -> Flux.fromIterable(guild.members())
-                        .map(Snowflake::asLong))
-                .flatMap(memberId -> stateHolder.getMemberStore()
-                        .find(LongLongTuple2.of(guildId, memberId)))
-                .filter(member -> member.roles().contains(dispatch.roleId()))
-                .map(member -> MemberData.builder()
-                        .from(member)
-                        .roles(ListUtil.remove(member.roles(),
-                                role -> role.equals(dispatch.roleId())))
-                        .build())
-                .flatMap(member -> stateHolder.getMemberStore()
-                        .save(LongLongTuple2.of(guildId, Snowflake.asLong(member.user().id())), member))
+        Mono<Void> removeRoleFromMembers = Flux.defer(() -> toFlux(memberIndex.getMembers(guildId)))
+                .flatMap(memberId -> updater.update(stateHolder.getMemberStore(),
+                        LongLongTuple2.of(guildId, memberId), member -> !member.roles().contains(dispatch.roleId()) ?
+                                member : MemberData.builder()
+                                .from(member)
+                                .roles(ListUtil.remove(member.roles(),
+                                        role -> role.equals(dispatch.roleId())))
+                                .build()))
                 .then();
 
-        return stateHolder.getRoleStore()
-                .find(roleId)
+        return updater.replace(stateHolder.getRoleStore(), roleId, null)
                 .flatMap(removeRoleId::thenReturn)
-                .flatMap(deleteRole::thenReturn)
                 .flatMap(removeRoleFromMembers::thenReturn);
     }
 
     @Override
     public Mono<RoleData> onGuildRoleUpdate(int shardIndex, GuildRoleUpdate dispatch) {
         RoleData role = dispatch.role();
-        long roleId = Snowflake.asLong(role.id());
-
-        Mono<Void> saveNew = stateHolder.getRoleStore().save(roleId, role);
 
-        return stateHolder.getRoleStore()
-                .find(roleId)
-                .flatMap(saveNew::thenReturn)
-                .switchIfEmpty(saveNew.then(Mono.empty()));
+        return updater.replace(stateHolder.getRoleStore(), Snowflake.asLong(role.id()), role);
     }
 
     @Override
     public Mono<GuildData> onGuildUpdate(int shardIndex, GuildUpdate dispatch) {
         long guildId = Snowflake.asLong(dispatch.guild().id());
 
-        return stateHolder.getGuildStore()
-                .find(guildId)
-                .flatMap(oldGuildData -> {
-                    GuildData newGuildData = GuildData.builder()
-                            .from(oldGuildData)
-                            .from(dispatch.guild())
-                            .roles(dispatch.guild().roles().stream()
-                                    .map(RoleData::id)
-                                    .collect(Collectors.toList()))
-                            .emojis(dispatch.guild().emojis().stream()
-                                    .map(EmojiData::id)
-                                    .filter(Optional::isPresent)
-                                    .map(Optional::get)
-                                    .collect(Collectors.toList()))
-                            .build();
-
-                    return stateHolder.getGuildStore()
-                            .save(guildId, newGuildData)
-                            .doOnSubscribe(s -> log.trace("GuildUpdate doOnSubscribe {}", guildId))
-                            .doFinally(s -> log.trace("GuildUpdate doFinally {}: {}", guildId, s))
-                            .thenReturn(oldGuildData);
-                });
+        return updater
+                .update(stateHolder.getGuildStore(), guildId, oldGuildData -> GuildData.builder()
+                        .from(oldGuildData)
+                        .from(dispatch.guild())
+                        .roles(dispatch.guild().roles().stream()
+                                .map(RoleData::id)
+                                .collect(Collectors.toList()))
+                        .emojis(dispatch.guild().emojis().stream()
+                                .map(EmojiData::id)
+                                .filter(Optional::isPresent)
+                                .map(Optional::get)
+                                .collect(Collectors.toList()))
+                        .build())
+                .doOnSubscribe(s -> log.trace("GuildUpdate doOnSubscribe {}", guildId))
+                .doFinally(s -> log.trace("GuildUpdate doFinally {}: {}", guildId, s))
+                .map(this::withMembers);
     }
 
     @Override
     public Mono<Void> onShardInvalidation(int shardIndex, InvalidationCause cause) {
-        // TODO implement onShardInvalidation
-        return Mono.empty();
+        return Flux.defer(() -> toFlux(shardGuildIndex.removeShard(shardIndex)))
+                .flatMap(this::deleteGuild)
+                .doOnSubscribe(s -> log.debug("Invalidating shard {} state due to {}", shardIndex, cause))
+                .then();
     }
 
     @Override
@@ -877,26 +953,28 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
         Mono<Void> saveMessage = stateHolder.getMessageStore()
                 .save(messageId, message);
 
-        Mono<Void> editLastMessageId = stateHolder.getChannelStore()
-                .find(channelId)
-                .map(channel -> ChannelData.builder()
+        Mono<Void> evictMessages = stateHolder.getMessageStore()
+                .delete(Flux.defer(() -> toFlux(messageIndex.add(channelId, messageId))));
+
+        Mono<Void> editLastMessageId = updater
+                .update(stateHolder.getChannelStore(), channelId, channel -> ChannelData.builder()
                         .from(channel)
                         .lastMessageId(message.id())
                         .build())
-                .flatMap(channelBean -> stateHolder.getChannelStore().save(channelId, channelBean));
+                .then();
 
-        return saveMessage.and(editLastMessageId);
+        return saveMessage.then(evictMessages).and(editLastMessageId);
     }
 
     @Override
     public Mono<MessageData> onMessageDelete(int shardIndex, MessageDelete dispatch) {
         long messageId = Snowflake.asLong(dispatch.id());
+        long channelId = Snowflake.asLong(dispatch.channelId());
 
-        Mono<Void> deleteMessage = stateHolder.getMessageStore().delete(messageId);
+        Mono<Void> removeFromIndex = Mono.fromRunnable(() -> messageIndex.remove(channelId, messageId));
 
-        return stateHolder.getMessageStore()
-                .find(messageId)
-                .flatMap(deleteMessage::thenReturn);
+        return updater.replace(stateHolder.getMessageStore(), messageId, null)
+                .flatMap(removeFromIndex::thenReturn);
     }
 
     @Override
@@ -905,8 +983,11 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
                 .map(Snowflake::asLong)
                 .collect(Collectors.toList());
 
+        long channelId = Snowflake.asLong(dispatch.channelId());
+
         Mono<Void> deleteMessages = stateHolder.getMessageStore()
-                .delete(Flux.fromIterable(messageIds));
+                .delete(Flux.fromIterable(messageIds))
+                .then(Mono.fromRunnable(() -> messageIds.forEach(id -> messageIndex.remove(channelId, id))));
 
         return Flux.fromIterable(messageIds)
                 .flatMap(stateHolder.getMessageStore()::find)
@@ -916,15 +997,13 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
 
     @Override
     public Mono<Void> onMessageReactionAdd(int shardIndex, MessageReactionAdd dispatch) {
-        long selfId = 0L; // TODO include selfId as parameter
         long userId = Snowflake.asLong(dispatch.userId());
         long messageId = Snowflake.asLong(dispatch.messageId());
 
         // add reaction to message
-        return stateHolder.getMessageStore()
-                .find(messageId)
-                .map(oldMessage -> {
-                    boolean me = Objects.equals(userId, selfId);
+        return updater
+                .update(stateHolder.getMessageStore(), messageId, oldMessage -> {
+                    boolean me = userId == selfId;
                     ImmutableMessageData.Builder newMessageBuilder = MessageData.builder().from(oldMessage);
 
                     if (oldMessage.reactions().isAbsent()) {
@@ -960,21 +1039,21 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
 
                     return newMessageBuilder.build();
                 })
-                .flatMap(message -> stateHolder.getMessageStore().save(messageId, message));
+                .then();
     }
 
     @Override
     public Mono<Void> onMessageReactionRemove(int shardIndex, MessageReactionRemove dispatch) {
-        long selfId = 0L; // TODO include selfId as parameter
         long userId = Snowflake.asLong(dispatch.userId());
         long messageId = Snowflake.asLong(dispatch.messageId());
 
         // remove reactor from message
-        return stateHolder.getMessageStore()
-                .find(messageId)
-                .filter(message -> !message.reactions().isAbsent())
-                .map(oldMessage -> {
-                    boolean me = Objects.equals(userId, selfId);
+        return updater
+                .update(stateHolder.getMessageStore(), messageId, oldMessage -> {
+                    if (oldMessage.reactions().isAbsent()) {
+                        return oldMessage;
+                    }
+                    boolean me = userId == selfId;
                     ImmutableMessageData.Builder newMessageBuilder = MessageData.builder().from(oldMessage);
 
                     List<ReactionData> reactions = oldMessage.reactions().get();
@@ -996,30 +1075,30 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
                     }
                     return newMessageBuilder.build();
                 })
-                .flatMap(message -> stateHolder.getMessageStore().save(messageId, message));
+                .then();
     }
 
     @Override
     public Mono<Void> onMessageReactionRemoveAll(int shardIndex, MessageReactionRemoveAll dispatch) {
         long messageId = Snowflake.asLong(dispatch.messageId());
 
-        return stateHolder.getMessageStore()
-                .find(messageId)
-                .map(message -> MessageData.builder()
+        return updater
+                .update(stateHolder.getMessageStore(), messageId, message -> MessageData.builder()
                         .from(message)
                         .reactions(Possible.absent())
                         .build())
-                .flatMap(message -> stateHolder.getMessageStore().save(messageId, message));
+                .then();
     }
 
     @Override
     public Mono<Void> onMessageReactionRemoveEmoji(int shardIndex, MessageReactionRemoveEmoji dispatch) {
         long messageId = Snowflake.asLong(dispatch.messageId());
 
-        return stateHolder.getMessageStore()
-                .find(messageId)
-                .filter(message -> !message.reactions().isAbsent())
-                .map(oldMessage -> {
+        return updater
+                .update(stateHolder.getMessageStore(), messageId, oldMessage -> {
+                    if (oldMessage.reactions().isAbsent()) {
+                        return oldMessage;
+                    }
                     ImmutableMessageData.Builder newMessageBuilder = MessageData.builder().from(oldMessage);
 
                     List<ReactionData> reactions = oldMessage.reactions().get();
@@ -1032,7 +1111,7 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
                     }
                     return newMessageBuilder.build();
                 })
-                .flatMap(message -> stateHolder.getMessageStore().save(messageId, message));
+                .then();
     }
 
     private int indexOfReactionByEmojiData(List<ReactionData> reactions, EmojiData emojiData) {
@@ -1054,30 +1133,18 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
         PartialMessageData messageData = dispatch.message();
         long messageId = Snowflake.asLong(messageData.id());
 
-        return stateHolder.getMessageStore()
-                .find(messageId)
-                .flatMap(oldMessageData -> {
-                    // updating the content and embed of the bean in the store
-                    boolean contentChanged = !messageData.content().isAbsent() &&
-                            !Objects.equals(oldMessageData.content(), messageData.content().get());
-                    boolean embedsChanged = !Objects.equals(oldMessageData.embeds(), messageData.embeds());
-
-                    MessageData newMessageData = MessageData.builder()
-                            .from(oldMessageData)
-                            .content(messageData.content().toOptional()
-                                    .orElse(oldMessageData.content()))
-                            .embeds(messageData.embeds())
-                            .mentions(messageData.mentions())
-                            .mentionRoles(messageData.mentionRoles())
-                            .mentionEveryone(messageData.mentionEveryone().toOptional()
-                                    .orElse(oldMessageData.mentionEveryone()))
-                            .editedTimestamp(messageData.editedTimestamp())
-                            .build();
-
-                    return stateHolder.getMessageStore()
-                            .save(messageId, newMessageData)
-                            .thenReturn(oldMessageData);
-                });
+        // updating the content and embed of the bean in the store
+        return updater.update(stateHolder.getMessageStore(), messageId, oldMessageData -> MessageData.builder()
+                .from(oldMessageData)
+                .content(messageData.content().toOptional()
+                        .orElse(oldMessageData.content()))
+                .embeds(messageData.embeds())
+                .mentions(messageData.mentions())
+                .mentionRoles(messageData.mentionRoles())
+                .mentionEveryone(messageData.mentionEveryone().toOptional()
+                        .orElse(oldMessageData.mentionEveryone()))
+                .editedTimestamp(messageData.editedTimestamp())
+                .build());
     }
 
     @Override
@@ -1093,28 +1160,32 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
                 .clientStatus(dispatch.clientStatus())
                 .build();
 
-        Mono<Optional<PresenceData>> savePresence = stateHolder.getPresenceStore()
-                .find(key)
-                .flatMap(oldPresenceData -> stateHolder.getPresenceStore()
-                        .save(key, presenceData)
-                        .thenReturn(oldPresenceData))
+        // offline presences are not stored when they can be derived from the member
+        PresenceData newPresence = implicitOfflinePresences && "offline".equals(dispatch.status()) ?
+                null : presenceData;
+
+        // an absent presence is only implied by the member when offline presences are not stored
+        Mono<PresenceData> saveImpliedPresence = !implicitOfflinePresences ? Mono.empty() :
+                Mono.defer(() -> stateHolder.getMemberStore().find(key))
+                        .map(this::createPresence)
+                        .flatMap(oldPresence -> updater.replace(stateHolder.getPresenceStore(), key, newPresence)
+                                .thenReturn(oldPresence));
+
+        Mono<Optional<PresenceData>> savePresence = updater
+                .update(stateHolder.getPresenceStore(), key, oldPresence -> newPresence)
+                .switchIfEmpty(saveImpliedPresence)
                 .map(Optional::of)
                 .defaultIfEmpty(Optional.empty());
 
-        Mono<Optional<UserData>> saveUser = stateHolder.getUserStore()
-                .find(userId)
-                .flatMap(oldUserData -> {
-                    UserData newUserData = UserData.builder()
-                            .from(oldUserData)
-                            .username(userData.username().toOptional()
-                                    .orElse(oldUserData.username()))
-                            .discriminator(userData.discriminator().toOptional()
-                                    .orElse(oldUserData.discriminator()))
-                            .avatar(or(Possible.flatOpt(userData.avatar()), oldUserData::avatar))
-                            .build();
-
-                    return stateHolder.getUserStore().save(userId, newUserData).thenReturn(oldUserData);
-                })
+        Mono<Optional<UserData>> saveUser = updater
+                .update(stateHolder.getUserStore(), userId, oldUserData -> UserData.builder()
+                        .from(oldUserData)
+                        .username(userData.username().toOptional()
+                                .orElse(oldUserData.username()))
+                        .discriminator(userData.discriminator().toOptional()
+                                .orElse(oldUserData.discriminator()))
+                        .avatar(or(Possible.flatOpt(userData.avatar()), oldUserData::avatar))
+                        .build())
                 .map(Optional::of)
                 .defaultIfEmpty(Optional.empty());
 
@@ -1139,20 +1210,15 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
         UserData userData = dispatch.user();
         long userId = Snowflake.asLong(userData.id());
 
-        return stateHolder.getUserStore().save(userId, userData);
+        return Mono.fromRunnable(() -> selfId = userId)
+                .then(stateHolder.getUserStore().save(userId, userData));
     }
 
     @Override
     public Mono<UserData> onUserUpdate(int shardIndex, UserUpdate dispatch) {
         UserData userData = dispatch.user();
-        long userId = Snowflake.asLong(userData.id());
 
-        Mono<Void> saveNew = stateHolder.getUserStore().save(userId, userData);
-
-        return stateHolder.getUserStore()
-                .find(userId)
-                .flatMap(saveNew::thenReturn)
-                .switchIfEmpty(saveNew.then(Mono.empty()));
+        return updater.replace(stateHolder.getUserStore(), Snowflake.asLong(userData.id()), userData);
     }
 
     @Override
@@ -1164,14 +1230,12 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
 
         LongLongTuple2 key = LongLongTuple2.of(guildId, userId);
 
-        Mono<Void> saveNewOrRemove = voiceStateData.channelId().isPresent()
-                ? stateHolder.getVoiceStateStore().save(key, voiceStateData)
-                : stateHolder.getVoiceStateStore().delete(key);
+        return updater.replace(stateHolder.getVoiceStateStore(), key,
+                voiceStateData.channelId().isPresent() ? voiceStateData : null);
+    }
 
-        return stateHolder.getVoiceStateStore()
-                .find(key)
-                .flatMap(saveNewOrRemove::thenReturn)
-                .switchIfEmpty(saveNewOrRemove.then(Mono.empty()));
+    private static Flux<Long> toFlux(long[] ids) {
+        return Flux.fromStream(Arrays.stream(ids).boxed());
     }
 
     @Override
@@ -1179,4 +1243,64 @@ public class LegacyStoreLayout implements StoreLayout, DataAccessor, GatewayData
         // TODO needs implementation
         return Mono.empty();
     }
+
+    public static class Builder {
+
+        private final StoreService storeService;
+        private int maxMessagesPerChannel = Integer.MAX_VALUE;
+        private long maxMessages = Long.MAX_VALUE;
+        private boolean implicitOfflinePresences = false;
+
+        protected Builder(StoreService storeService) {
+            this.storeService = Objects.requireNonNull(storeService);
+        }
+
+        /**
+         * Set the maximum number of messages cached for each channel, evicting the oldest message of a channel when
+         * a new one is added to it. Defaults to no limit.
+         *
+         * @param maxMessagesPerChannel the maximum number of messages cached for each channel
+         * @return this builder
+         */
+        public Builder setMaxMessagesPerChannel(int maxMessagesPerChannel) {
+            this.maxMessagesPerChannel = maxMessagesPerChannel;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of messages cached across all channels. Once reached, the oldest messages of the
+         * least recently active channels are evicted first. Defaults to no limit.
+         *
+         * @param maxMessages the maximum number of messages cached across all channels
+         * @return this builder
+         */
+        public Builder setMaxMessages(long maxMessages) {
+            this.maxMessages = maxMessages;
+            return this;
+        }
+
+        /**
+         * Set whether missing presences are treated as offline. In that mode, no presence is stored for members that
+         * are offline: they are derived from the cached member when queried, saving one presence entry and one store
+         * lookup per offline member. Defaults to {@code false}.
+         *
+         * @param implicitOfflinePresences whether offline presences are derived from cached members instead of
+         * stored
+         * @return this builder
+         */
+        public Builder setImplicitOfflinePresences(boolean implicitOfflinePresences) {
+            this.implicitOfflinePresences = implicitOfflinePresences;
+            return this;
+        }
+
+        /**
+         * Create the {@link LegacyStoreLayout}.
+         *
+         * @return a new legacy layout
+         * @throws IllegalArgumentException if a message capacity is not positive
+         */
+        public LegacyStoreLayout build() {
+            return new LegacyStoreLayout(storeService, maxMessagesPerChannel, maxMessages, implicitOfflinePresences);
+        }
+    }
 }
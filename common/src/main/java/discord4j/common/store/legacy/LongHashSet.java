@@ -0,0 +1,59 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package discord4j.common.store.legacy;
+
+import discord4j.common.store.impl.LongLongMap;
+
+/**
+ * A compact set of {@code long} values, backed by the open addressing {@link LongLongMap} of the local store layout
+ * with every present value mapped to {@code 1}. Not thread-safe.
+ */
+class LongHashSet {
+
+    private static final long PRESENT = 1L;
+
+    private final LongLongMap map;
+
+    LongHashSet() {
+        this(8);
+    }
+
+    LongHashSet(int expectedSize) {
+        this.map = new LongLongMap(expectedSize);
+    }
+
+    int size() {
+        return map.size();
+    }
+
+    boolean add(long value) {
+        return map.put(value, PRESENT) == 0;
+    }
+
+    boolean contains(long value) {
+        return map.get(value) != 0;
+    }
+
+    boolean remove(long value) {
+        return map.remove(value) != 0;
+    }
+
+    long[] toArray() {
+        return map.keys();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package discord4j.common.store.legacy;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index of the guilds received by each shard, used to drop the state of a single shard when its session is
+ * invalidated.
+ * <p>
+ * Each shard keeps its own set of guild IDs, so shards updating the index concurrently only contend on the owner of a
+ * guild, and removing a shard takes time proportional to the number of guilds it owns.
+ */
+class ShardGuildIndex {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final ConcurrentMap<Integer, LongHashSet> guildsByShard = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Integer> shardByGuild = new ConcurrentHashMap<>();
+
+    /**
+     * Record the given shard as the owner of the given guild, replacing any previous owner.
+     *
+     * @param shardIndex the shard index
+     * @param guildId the guild ID
+     */
+    void add(int shardIndex, long guildId) {
+        Integer previous = shardByGuild.put(guildId, shardIndex);
+        if (previous != null && previous != shardIndex) {
+            removeFromShard(previous, guildId);
+        }
+        guildsByShard.compute(shardIndex, (key, guilds) -> {
+            LongHashSet set = guilds == null ? new LongHashSet() : guilds;
+            set.add(guildId);
+            return set;
+        });
+    }
+
+    /**
+     * Remove the given guild from the index.
+     *
+     * @param guildId the guild ID
+     */
+    void remove(long guildId) {
+        Integer shardIndex = shardByGuild.remove(guildId);
+        if (shardIndex != null) {
+            removeFromShard(shardIndex, guildId);
+        }
+    }
+
+    /**
+     * Remove all guilds owned by the given shard from the index.
+     *
+     * @param shardIndex the shard index
+     * @return the IDs of the guilds that were owned by the shard
+     */
+    long[] removeShard(int shardIndex) {
+        LongHashSet guilds = guildsByShard.remove(shardIndex);
+        if (guilds == null) {
+            return EMPTY;
+        }
+        long[] guildIds = guilds.toArray();
+        for (long guildId : guildIds) {
+            shardByGuild.remove(guildId, shardIndex);
+        }
+        return guildIds;
+    }
+
+    void clear() {
+        guildsByShard.clear();
+        shardByGuild.clear();
+    }
+
+    private void removeFromShard(int shardIndex, long guildId) {
+        guildsByShard.computeIfPresent(shardIndex, (key, guilds) -> {
+            guilds.remove(guildId);
+            return guilds.size() == 0 ? null : guilds;
+        });
+    }
+}
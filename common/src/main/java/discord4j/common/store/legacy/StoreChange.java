@@ -0,0 +1,89 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.legacy;
+
+import reactor.util.annotation.Nullable;
+
+import java.util.Optional;
+
+/**
+ * A change applied to a single entity of a {@link LegacyStoreLayout}, carrying both the value it replaced and the value
+ * it was replaced with.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the entity
+ */
+public final class StoreChange<K, V> {
+
+    private final K key;
+    @Nullable
+    private final V oldValue;
+    @Nullable
+    private final V newValue;
+
+    StoreChange(K key, @Nullable V oldValue, @Nullable V newValue) {
+        this.key = key;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+    }
+
+    /**
+     * Return the key of the changed entity, a {@code Long} ID or a {@code LongLongTuple2} of a guild ID and a user ID.
+     *
+     * @return the key of the entity
+     */
+    public K getKey() {
+        return key;
+    }
+
+    /**
+     * Return the value before the change, if the entity was present.
+     *
+     * @return the previous value, or empty if the entity was created by this change
+     */
+    public Optional<V> getOldValue() {
+        return Optional.ofNullable(oldValue);
+    }
+
+    /**
+     * Return the value after the change, if the entity is still present.
+     *
+     * @return the current value, or empty if the entity was removed by this change
+     */
+    public Optional<V> getNewValue() {
+        return Optional.ofNullable(newValue);
+    }
+
+    /**
+     * Return whether the entity is an instance of the given type, such as {@code MessageData}.
+     *
+     * @param type the type to check
+     * @return {@code true} if the old or new value is an instance of the given type
+     */
+    public boolean isOf(Class<?> type) {
+        return type.isInstance(newValue != null ? newValue : oldValue);
+    }
+
+    @Override
+    public String toString() {
+        return "StoreChange{" +
+                "key=" + key +
+                ", oldValue=" + oldValue +
+                ", newValue=" + newValue +
+                '}';
+    }
+}
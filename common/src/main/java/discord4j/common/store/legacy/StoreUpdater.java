@@ -0,0 +1,176 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.legacy;
+
+import discord4j.store.api.Store;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.annotation.Nullable;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Applies read-modify-write updates to single entities of a {@link Store}, returning the value each update replaced.
+ * <p>
+ * Stores only offer separate {@code find} and {@code save} operations, so two updates of the same entity running
+ * concurrently could both read the same value and one of them would be lost. Updates going through this class are
+ * queued per entity instead: each one subscribes to the store only once the previous update of the same key
+ * completed, without blocking any thread while waiting. Cancelling an update does not let the next one start early: an
+ * update still waiting is skipped once its turn comes, and an update already reading or writing the store runs to
+ * completion.
+ * <p>
+ * Every applied change is also published to {@link #changes()} while it has subscribers.
+ */
+class StoreUpdater {
+
+    private final ConcurrentMap<EntityKey, Sinks.Empty<Void>> pending = new ConcurrentHashMap<>();
+    private final Sinks.Many<StoreChange<?, ?>> changes = Sinks.many().multicast().directBestEffort();
+
+    /**
+     * Update an entity from its current value.
+     *
+     * @param store the store holding the entity
+     * @param key the key of the entity
+     * @param remapping a function receiving the current value, or {@code null} if absent, and returning the new value,
+     * or {@code null} to remove the entity. Returning the current value leaves the entity untouched.
+     * @param <K> the type of the key
+     * @param <V> the type of the entity
+     * @return a {@link Mono} emitting the value replaced by the update, or completing empty if the entity was absent
+     */
+    <K extends Comparable<K>, V> Mono<V> compute(Store<K, V> store, K key, Function<V, V> remapping) {
+        return Mono.defer(() -> {
+            EntityKey entityKey = new EntityKey(store, key);
+            Sinks.Empty<Void> done = Sinks.empty();
+            Sinks.Empty<Void> previous = pending.put(entityKey, done);
+            Mono<Void> awaitPrevious = previous == null ? Mono.empty() : previous.asMono();
+            AtomicBoolean cancelled = new AtomicBoolean();
+            // some stores read eagerly when find is called, it must only be called once the previous update is done
+            Mono<V> update = awaitPrevious
+                    .then(Mono.defer(() -> {
+                        if (cancelled.get()) {
+                            return Mono.empty();
+                        }
+                        return Mono.defer(() -> store.find(key))
+                                .flatMap(oldValue -> apply(store, key, oldValue, remapping.apply(oldValue)))
+                                .switchIfEmpty(Mono.defer(() -> apply(store, key, null, remapping.apply(null))));
+                    }))
+                    .doFinally(signal -> {
+                        pending.remove(entityKey, done);
+                        done.tryEmitEmpty();
+                    });
+            // the update is never cancelled itself, so the next one only starts once it is really done
+            return Mono.<V>create(sink -> {
+                sink.onCancel(() -> cancelled.set(true));
+                update.subscribe(sink::success, sink::error, () -> sink.success());
+            });
+        });
+    }
+
+    /**
+     * Update an entity only if it is present.
+     *
+     * @param store the store holding the entity
+     * @param key the key of the entity
+     * @param updater a function receiving the current value and returning the new value
+     * @param <K> the type of the key
+     * @param <V> the type of the entity
+     * @return a {@link Mono} emitting the value replaced by the update, or completing empty if the entity was absent
+     */
+    <K extends Comparable<K>, V> Mono<V> update(Store<K, V> store, K key, Function<V, V> updater) {
+        return compute(store, key, oldValue -> oldValue == null ? null : updater.apply(oldValue));
+    }
+
+    /**
+     * Replace an entity with the given value.
+     *
+     * @param store the store holding the entity
+     * @param key the key of the entity
+     * @param newValue the new value, or {@code null} to remove the entity
+     * @param <K> the type of the key
+     * @param <V> the type of the entity
+     * @return a {@link Mono} emitting the value replaced by the update, or completing empty if the entity was absent
+     */
+    <K extends Comparable<K>, V> Mono<V> replace(Store<K, V> store, K key, @Nullable V newValue) {
+        return compute(store, key, oldValue -> newValue);
+    }
+
+    /**
+     * Return a {@link Flux} of the changes applied by this updater. Changes are only published while there are
+     * subscribers, and are dropped for subscribers that cannot keep up.
+     *
+     * @return a {@link Flux} of changes
+     */
+    Flux<StoreChange<?, ?>> changes() {
+        return changes.asFlux();
+    }
+
+    private <K extends Comparable<K>, V> Mono<V> apply(Store<K, V> store, K key, @Nullable V oldValue,
+                                                       @Nullable V newValue) {
+        Mono<Void> write;
+        if (newValue == oldValue) {
+            write = Mono.empty();
+        } else if (newValue != null) {
+            write = store.save(key, newValue).then(Mono.fromRunnable(() -> publish(key, oldValue, newValue)));
+        } else {
+            write = store.delete(key).then(Mono.fromRunnable(() -> publish(key, oldValue, null)));
+        }
+        return write.then(Mono.justOrEmpty(oldValue));
+    }
+
+    private <K, V> void publish(K key, @Nullable V oldValue, @Nullable V newValue) {
+        if (changes.currentSubscriberCount() == 0) {
+            return;
+        }
+        // updates of different entities may complete concurrently, emissions must be serialized
+        synchronized (changes) {
+            changes.tryEmitNext(new StoreChange<>(key, oldValue, newValue));
+        }
+    }
+
+    private static final class EntityKey {
+
+        private final Store<?, ?> store;
+        private final Object key;
+
+        private EntityKey(Store<?, ?> store, Object key) {
+            this.store = store;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            EntityKey that = (EntityKey) o;
+            return store == that.store && key.equals(that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(store), key);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package discord4j.common.store.legacy;
+
+import discord4j.common.store.impl.ConcurrentLongObjectMap;
+
+import java.util.Arrays;
+
+/**
+ * Reverse index of the guilds each cached user is a member of, maintained alongside the member store.
+ * <p>
+ * Guild IDs are kept in a small array per user, as most users share few guilds with the bot, and each update replaces
+ * the array of a single user atomically. Users are keyed by their primitive ID, avoiding a boxed key and an entry
+ * node per cached user.
+ */
+class UserGuildIndex {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final ConcurrentLongObjectMap<long[]> guildsByUser = new ConcurrentLongObjectMap<>();
+
+    /**
+     * Record the given user as a member of the given guild.
+     *
+     * @param userId the user ID
+     * @param guildId the guild ID
+     */
+    void add(long userId, long guildId) {
+        guildsByUser.compute(userId, guilds -> {
+            if (guilds == null) {
+                return new long[] {guildId};
+            }
+            if (indexOf(guilds, guildId) >= 0) {
+                return guilds;
+            }
+            long[] updated = Arrays.copyOf(guilds, guilds.length + 1);
+            updated[guilds.length] = guildId;
+            return updated;
+        });
+    }
+
+    /**
+     * Remove the given guild from the guilds of the given user.
+     *
+     * @param userId the user ID
+     * @param guildId the guild ID
+     * @return {@code true} if the user is no longer a member of any indexed guild
+     */
+    boolean remove(long userId, long guildId) {
+        long[] previous = guildsByUser.computeIfPresent(userId, guilds -> {
+            int index = indexOf(guilds, guildId);
+            if (index < 0) {
+                return guilds;
+            }
+            if (guilds.length == 1) {
+                return null;
+            }
+            long[] updated = new long[guilds.length - 1];
+            System.arraycopy(guilds, 0, updated, 0, index);
+            System.arraycopy(guilds, index + 1, updated, index, guilds.length - index - 1);
+            return updated;
+        });
+        // the returned array is the one before removal
+        return previous == null || (previous.length == 1 && previous[0] == guildId);
+    }
+
+    /**
+     * Return the IDs of the guilds the given user is a member of.
+     *
+     * @param userId the user ID
+     * @return the guild IDs, empty if the user is not a member of any indexed guild
+     */
+    long[] getGuilds(long userId) {
+        long[] guilds = guildsByUser.get(userId);
+        return guilds == null ? EMPTY : guilds.clone();
+    }
+
+    /**
+     * Return whether the given user is a member of any indexed guild.
+     *
+     * @param userId the user ID
+     * @return {@code true} if the user is a member of at least one guild
+     */
+    boolean hasGuilds(long userId) {
+        return guildsByUser.get(userId) != null;
+    }
+
+    void clear() {
+        guildsByUser.clear();
+    }
+
+    private static int indexOf(long[] guilds, long guildId) {
+        for (int i = 0; i < guilds.length; i++) {
+            if (guilds[i] == guildId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.util;
+
+import reactor.util.annotation.Nullable;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * An immutable routing table mapping types to values, where the value for a given class is resolved once and then
+ * cached for the lifetime of that class through a {@link ClassValue}.
+ * <p>
+ * A class resolves to the value registered for it if one exists, otherwise to the value of the first registered type
+ * it is assignable to, following registration order. Classes with no matching registration resolve to {@code null}.
+ *
+ * @param <V> the type of the routed values
+ */
+public final class ClassRouter<V> {
+
+    private final List<Map.Entry<Class<?>, V>> routes;
+    private final ClassValue<Optional<V>> cache = new ClassValue<Optional<V>>() {
+        @Override
+        protected Optional<V> computeValue(Class<?> type) {
+            return Optional.ofNullable(resolve(type));
+        }
+    };
+
+    private ClassRouter(Map<Class<?>, ? extends V> routes) {
+        List<Map.Entry<Class<?>, V>> list = new ArrayList<>(routes.size());
+        for (Map.Entry<Class<?>, ? extends V> entry : routes.entrySet()) {
+            Class<?> type = Objects.requireNonNull(entry.getKey());
+            V value = Objects.requireNonNull(entry.getValue());
+            list.add(new AbstractMap.SimpleImmutableEntry<>(type, value));
+        }
+        this.routes = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Create a new {@link ClassRouter} from the given type to value mappings. The iteration order of the map is used
+     * as precedence when a class is assignable to more than one registered type, therefore an ordered map like
+     * {@link LinkedHashMap} should be given in that case.
+     *
+     * @param routes the type to value mappings, copied on creation
+     * @param <V> the type of the routed values
+     * @return a new {@link ClassRouter}
+     */
+    public static <V> ClassRouter<V> create(Map<Class<?>, ? extends V> routes) {
+        return new ClassRouter<>(routes);
+    }
+
+    /**
+     * Return the value routed for the given class. Only the first call for each class walks the registered types.
+     *
+     * @param type the class to route
+     * @return the routed value, or {@code null} if no registered type matches the given class
+     */
+    @Nullable
+    public V find(Class<?> type) {
+        return cache.get(type).orElse(null);
+    }
+
+    @Nullable
+    private V resolve(Class<?> type) {
+        for (Map.Entry<Class<?>, V> route : routes) {
+            if (route.getKey() == type) {
+                return route.getValue();
+            }
+        }
+        for (Map.Entry<Class<?>, V> route : routes) {
+            if (route.getKey().isAssignableFrom(type)) {
+                return route.getValue();
+            }
+        }
+        return null;
+    }
+}
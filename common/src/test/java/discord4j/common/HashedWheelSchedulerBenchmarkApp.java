@@ -0,0 +1,94 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common;
+
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compare a {@link HashedWheelScheduler} with a parallel {@link Scheduler} when many timers are pending at once, as
+ * with heartbeats, rate limiter refills and REST bucket sleeps across thousands of shards. Each round schedules timers
+ * with delays spread over a second, cancels half of them before they fire, then waits for the other half, reporting
+ * the cost of scheduling and cancelling and how late the timers fired.
+ */
+public class HashedWheelSchedulerBenchmarkApp {
+
+    private static final int[] TIMERS = {10_000, 50_000, 200_000};
+    private static final long MAX_DELAY_MILLIS = 1_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        Scheduler parallel = Schedulers.newParallel("benchmark-parallel", Schedulers.DEFAULT_POOL_SIZE, true);
+        HashedWheelScheduler wheel = HashedWheelScheduler.create(parallel);
+
+        // warm up both schedulers once before measuring
+        run("warmup", parallel, TIMERS[0], false);
+        run("warmup", wheel, TIMERS[0], false);
+
+        for (int timers : TIMERS) {
+            run("parallel", parallel, timers, true);
+            run("hashed-wheel", wheel, timers, true);
+        }
+        wheel.dispose();
+        parallel.dispose();
+    }
+
+    private static void run(String name, Scheduler scheduler, int timers, boolean report)
+            throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(timers / 2);
+        AtomicLong totalLatenessNanos = new AtomicLong();
+        List<Disposable> cancellable = new ArrayList<>(timers / 2);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < timers; i++) {
+            long delayNanos = TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextLong(1, MAX_DELAY_MILLIS));
+            long deadline = System.nanoTime() + delayNanos;
+            if (i % 2 == 0) {
+                scheduler.schedule(() -> {
+                    totalLatenessNanos.addAndGet(System.nanoTime() - deadline);
+                    fired.countDown();
+                }, delayNanos, TimeUnit.NANOSECONDS);
+            } else {
+                cancellable.add(scheduler.schedule(() -> {
+                    throw new IllegalStateException("Cancelled timer fired");
+                }, delayNanos, TimeUnit.NANOSECONDS));
+            }
+        }
+        long scheduleNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (Disposable disposable : cancellable) {
+            disposable.dispose();
+        }
+        long cancelNanos = System.nanoTime() - start;
+
+        fired.await();
+        if (report) {
+            System.out.printf("%-14s %,8d timers: schedule %6.0f ns/timer, cancel %6.0f ns/timer, " +
+                            "mean lateness %6.2f ms%n", name, timers, (double) scheduleNanos / timers,
+                    (double) cancelNanos / cancellable.size(),
+                    totalLatenessNanos.get() / (double) (timers / 2) / 1e6);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashedWheelSchedulerTest {
+
+    private final HashedWheelScheduler scheduler = HashedWheelScheduler.create(Schedulers.parallel());
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.dispose();
+    }
+
+    @Test
+    public void testDelay() {
+        long start = System.nanoTime();
+        StepVerifier.create(Mono.delay(Duration.ofMillis(50), scheduler))
+                .expectNext(0L)
+                .verifyComplete();
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void testInterval() {
+        StepVerifier.create(Flux.interval(Duration.ofMillis(20), scheduler).take(5))
+                .expectNext(0L, 1L, 2L, 3L, 4L)
+                .verifyComplete();
+    }
+
+    @Test
+    public void testCancelledTaskDoesNotRun() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        Disposable cancelled = scheduler.schedule(runs::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+        scheduler.schedule(done::countDown, 60, TimeUnit.MILLISECONDS);
+        cancelled.dispose();
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+        assertTrue(cancelled.isDisposed());
+    }
+
+    @Test
+    public void testDisposedWorkerCancelsItsTasks() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        Scheduler.Worker worker = scheduler.createWorker();
+        for (int i = 0; i < 100; i++) {
+            worker.schedule(runs::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+        }
+        scheduler.schedule(done::countDown, 60, TimeUnit.MILLISECONDS);
+        worker.dispose();
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.operator;
+
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the throughput of a {@link RateLimitOperator} shared by a growing number of concurrent sequences, with a
+ * capacity large enough to never wait, then with a capacity small enough for most values to wait for a refill. Also
+ * report the number of live threads after creating many limiters, as one would per shard.
+ */
+public class RateLimitOperatorBenchmarkApp {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16};
+    private static final int VALUES_PER_THREAD = 200_000;
+    private static final int LIMITERS = 1_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int threads : THREADS) {
+            run("uncontended-capacity", threads, VALUES_PER_THREAD,
+                    new RateLimitOperator<>(Integer.MAX_VALUE, Duration.ofSeconds(60), Schedulers.parallel()));
+        }
+        for (int threads : THREADS) {
+            run("waiting", threads, 500,
+                    new RateLimitOperator<>(1000, Duration.ofMillis(100), Schedulers.parallel()));
+        }
+
+        int before = Thread.activeCount();
+        for (int i = 0; i < LIMITERS; i++) {
+            Flux.range(0, 10)
+                    .transform(new RateLimitOperator<>(5, Duration.ofSeconds(1), Schedulers.parallel()))
+                    .subscribe();
+        }
+        System.out.printf("%,d limiters: %d live threads before, %d after%n", LIMITERS, before,
+                Thread.activeCount());
+    }
+
+    private static void run(String name, int threads, int valuesPerThread, RateLimitOperator<Integer> operator)
+            throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(() -> Flux.range(0, valuesPerThread)
+                    .transform(operator)
+                    .doFinally(s -> done.countDown())
+                    .subscribe());
+            thread.start();
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        long total = (long) threads * valuesPerThread;
+        System.out.printf("%-22s %2d threads: %,12.0f values/s%n", name, threads,
+                total / (elapsed / (double) TimeUnit.SECONDS.toNanos(1)));
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.operator;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+public class RateLimitOperatorTest {
+
+    @Test
+    public void testValuesWaitForRefill() {
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+        RateLimitOperator<Integer> operator = new RateLimitOperator<>(2, Duration.ofSeconds(1), scheduler, null,
+                () -> scheduler.now(TimeUnit.NANOSECONDS));
+
+        StepVerifier.withVirtualTime(() -> Flux.range(0, 5).transform(operator), () -> scheduler, Long.MAX_VALUE)
+                .expectSubscription()
+                .expectNext(0, 1)
+                .expectNoEvent(Duration.ofMillis(999))
+                .thenAwait(Duration.ofMillis(1))
+                .expectNext(2, 3)
+                .expectNoEvent(Duration.ofMillis(999))
+                .thenAwait(Duration.ofMillis(1))
+                .expectNext(4)
+                .verifyComplete();
+    }
+
+    @Test
+    public void testTokensAreSharedAcrossSequences() {
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+        RateLimitOperator<Integer> operator = new RateLimitOperator<>(2, Duration.ofSeconds(1), scheduler, null,
+                () -> scheduler.now(TimeUnit.NANOSECONDS));
+
+        StepVerifier.withVirtualTime(() -> Flux.merge(Flux.range(0, 2).transform(operator),
+                Flux.range(2, 2).transform(operator)), () -> scheduler, Long.MAX_VALUE)
+                .expectSubscription()
+                .expectNextCount(2)
+                .expectNoEvent(Duration.ofMillis(999))
+                .thenAwait(Duration.ofMillis(1))
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import discord4j.common.JacksonResources;
+import discord4j.discordjson.json.GuildCreateData;
+import discord4j.discordjson.json.GuildData;
+import discord4j.discordjson.json.MemberData;
+import discord4j.discordjson.json.MessageData;
+import discord4j.discordjson.json.PresenceData;
+import discord4j.discordjson.json.RoleData;
+import discord4j.discordjson.json.UserData;
+import discord4j.discordjson.json.gateway.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entities used by the store tests, read from JSON so they only declare the fields relevant to a test.
+ */
+public final class StoreFixtures {
+
+    private static final ObjectMapper MAPPER = JacksonResources.create().getObjectMapper();
+
+    private static final String GUILD = "{\"id\":\"%d\",\"name\":\"guild\",\"icon\":null,\"splash\":null," +
+            "\"discovery_splash\":null,\"owner_id\":\"1\",\"region\":\"us-east\",\"afk_channel_id\":null," +
+            "\"afk_timeout\":300,\"verification_level\":0,\"default_message_notifications\":0," +
+            "\"explicit_content_filter\":0,\"roles\":[%s],\"emojis\":[],\"features\":[],\"mfa_level\":0," +
+            "\"application_id\":null,\"system_channel_id\":null,\"system_channel_flags\":0," +
+            "\"rules_channel_id\":null,\"joined_at\":\"2020-01-01T00:00:00+00:00\",\"large\":false," +
+            "\"unavailable\":false,\"member_count\":%d,\"voice_states\":[],\"members\":[%s],\"channels\":[%s]," +
+            "\"presences\":[%s],\"max_presences\":null,\"max_members\":250000,\"vanity_url_code\":null," +
+            "\"description\":null,\"banner\":null,\"premium_tier\":0,\"premium_subscription_count\":0," +
+            "\"preferred_locale\":\"en-US\",\"public_updates_channel_id\":null,\"max_video_channel_users\":25}";
+
+    private static final String MEMBER = "{\"user\":%s,\"nick\":null,\"roles\":[%s]," +
+            "\"joined_at\":\"2020-01-01T00:00:00+00:00\",\"premium_since\":null,\"deaf\":false,\"mute\":false}";
+
+    private static final String USER = "{\"id\":\"%d\",\"username\":\"user%d\",\"discriminator\":\"0001\"," +
+            "\"avatar\":null}";
+
+    private static final String PRESENCE = "{\"user\":{\"id\":\"%d\"},\"status\":\"%s\",\"activities\":[]," +
+            "\"client_status\":{}}";
+
+    private static final String PRESENCE_UPDATE = "{\"user\":{\"id\":\"%d\"},\"guild_id\":\"%d\"," +
+            "\"status\":\"%s\",\"activities\":[],\"client_status\":{}}";
+
+    private static final String READY = "{\"v\":8,\"user\":%s,\"private_channels\":[],\"guilds\":[]," +
+            "\"session_id\":\"session\",\"_trace\":[],\"shard\":[0,1],\"relationships\":[]}";
+
+    private static final String MESSAGE = "{\"id\":\"%d\",\"channel_id\":\"%d\",\"author\":%s," +
+            "\"content\":\"content\",\"timestamp\":\"2020-01-01T00:00:00+00:00\",\"edited_timestamp\":null," +
+            "\"tts\":false,\"mention_everyone\":false,\"mentions\":[],\"mention_roles\":[],\"attachments\":[]," +
+            "\"embeds\":[],\"pinned\":false,\"type\":0}";
+
+    private static final String REACTION_ADD = "{\"user_id\":\"%d\",\"channel_id\":\"%d\"," +
+            "\"message_id\":\"%d\",\"emoji\":{\"id\":null,\"name\":\"x\"}}";
+
+    private static final String MEMBER_UPDATE = "{\"guild_id\":\"%d\",\"user\":%s,\"roles\":[\"%s\"]," +
+            "\"nick\":\"%s\",\"premium_since\":null}";
+
+    private static final String ROLE = "{\"id\":\"%d\",\"name\":\"role%d\",\"color\":0,\"hoist\":false," +
+            "\"position\":0,\"permissions\":\"0\",\"managed\":false,\"mentionable\":false}";
+
+    private StoreFixtures() {
+    }
+
+    /**
+     * Return the data of a guild without roles, channels nor members.
+     *
+     * @param guildId the guild ID
+     * @return the guild data
+     */
+    public static GuildData guild(long guildId) {
+        return read(String.format(GUILD, guildId, "", 0, "", "", ""), GuildData.class);
+    }
+
+    /**
+     * Create a GUILD_CREATE with the given members, the first {@code onlineCount} of them being online.
+     *
+     * @param guildId the guild ID
+     * @param onlineCount the number of members with an online presence
+     * @param userIds the member IDs
+     * @return a GUILD_CREATE dispatch
+     */
+    public static GuildCreate guildCreate(long guildId, int onlineCount, long... userIds) {
+        List<MemberData> members = new ArrayList<>();
+        List<PresenceData> presences = new ArrayList<>();
+        for (int i = 0; i < userIds.length; i++) {
+            members.add(member(userIds[i]));
+            if (i < onlineCount) {
+                presences.add(presence(userIds[i], "online"));
+            }
+        }
+        GuildCreateData guild = read(String.format(GUILD, guildId, "", userIds.length, "", "", ""),
+                GuildCreateData.class);
+        return GuildCreate.builder()
+                .guild(GuildCreateData.builder()
+                        .from(guild)
+                        .members(members)
+                        .presences(presences)
+                        .build())
+                .build();
+    }
+
+    public static MemberData member(long userId, String... roleIds) {
+        StringBuilder roles = new StringBuilder();
+        for (String roleId : roleIds) {
+            roles.append(roles.length() == 0 ? "" : ",").append('"').append(roleId).append('"');
+        }
+        return read(String.format(MEMBER, String.format(USER, userId, userId), roles), MemberData.class);
+    }
+
+    public static UserData user(long userId) {
+        return read(String.format(USER, userId, userId), UserData.class);
+    }
+
+    public static PresenceData presence(long userId, String status) {
+        return read(String.format(PRESENCE, userId, status), PresenceData.class);
+    }
+
+    public static RoleData role(long roleId) {
+        return read(String.format(ROLE, roleId, roleId), RoleData.class);
+    }
+
+    public static PresenceUpdate presenceUpdate(long guildId, long userId, String status) {
+        return read(String.format(PRESENCE_UPDATE, userId, guildId, status), PresenceUpdate.class);
+    }
+
+    public static Ready ready(long selfId) {
+        return read(String.format(READY, String.format(USER, selfId, selfId)), Ready.class);
+    }
+
+    public static MessageCreate messageCreate(long channelId, long messageId, long authorId) {
+        String author = String.format(USER, authorId, authorId);
+        return MessageCreate.builder()
+                .message(read(String.format(MESSAGE, messageId, channelId, author), MessageData.class))
+                .build();
+    }
+
+    public static MessageReactionAdd reactionAdd(long channelId, long messageId, long userId) {
+        return read(String.format(REACTION_ADD, userId, channelId, messageId), MessageReactionAdd.class);
+    }
+
+    public static GuildMembersChunk chunk(long guildId, long... userIds) {
+        List<MemberData> members = new ArrayList<>();
+        for (long userId : userIds) {
+            members.add(member(userId));
+        }
+        return GuildMembersChunk.builder()
+                .guildId(String.valueOf(guildId))
+                .members(members)
+                .chunkIndex(0)
+                .chunkCount(1)
+                .build();
+    }
+
+    public static GuildMemberAdd memberAdd(long guildId, long userId) {
+        return GuildMemberAdd.builder()
+                .guildId(String.valueOf(guildId))
+                .member(member(userId))
+                .build();
+    }
+
+    public static GuildMemberRemove memberRemove(long guildId, long userId) {
+        return GuildMemberRemove.builder()
+                .guildId(String.valueOf(guildId))
+                .user(user(userId))
+                .build();
+    }
+
+    public static GuildMemberUpdate memberUpdate(long guildId, long userId, String nick, String roleId) {
+        String user = String.format(USER, userId, userId);
+        return read(String.format(MEMBER_UPDATE, guildId, user, roleId, nick), GuildMemberUpdate.class);
+    }
+
+    /**
+     * Read an entity from its JSON representation.
+     *
+     * @param json the JSON representation
+     * @param type the type of the entity
+     * @param <T> the type of the entity
+     * @return the entity
+     */
+    public static <T> T read(String json, Class<T> type) {
+        try {
+            return MAPPER.readValue(json, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import discord4j.common.JacksonResources;
+import discord4j.common.store.api.layout.StoreLayout;
+import discord4j.common.store.impl.LocalStoreLayout;
+import discord4j.common.store.impl.MappedStoreLayout;
+import discord4j.common.store.legacy.LegacyStoreLayout;
+import discord4j.discordjson.json.GuildCreateData;
+import discord4j.discordjson.json.MemberData;
+import discord4j.discordjson.json.UserData;
+import discord4j.discordjson.json.gateway.GuildCreate;
+import discord4j.discordjson.json.gateway.GuildMembersChunk;
+import discord4j.store.jdk.JdkStoreService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Compare the memory footprint and throughput of {@link LegacyStoreLayout}, {@link LocalStoreLayout} and
+ * {@link MappedStoreLayout} when ingesting guild members through member chunks, then querying members and presences
+ * by ID.
+ * <p>
+ * Run with a fixed heap (for example {@code -Xms4g -Xmx4g}) so the retained heap measurements are comparable. The
+ * mapped layout writes its files under the directory given as first argument, or the temporary directory.
+ */
+public class StoreLayoutBenchmarkApp {
+
+    private static final int GUILDS = 50;
+    private static final int MEMBERS_PER_GUILD = 20_000;
+    private static final int CHUNK_SIZE = 1_000;
+    private static final int LOOKUPS = 1_000_000;
+
+    private static final String GUILD_JSON = "{\"id\":\"1\",\"name\":\"guild\",\"icon\":null,\"splash\":null," +
+            "\"discovery_splash\":null,\"owner_id\":\"1\",\"region\":\"us-east\",\"afk_channel_id\":null," +
+            "\"afk_timeout\":300,\"widget_enabled\":false,\"widget_channel_id\":null,\"verification_level\":0," +
+            "\"default_message_notifications\":0,\"explicit_content_filter\":0,\"roles\":[],\"emojis\":[]," +
+            "\"features\":[],\"mfa_level\":0,\"application_id\":null,\"system_channel_id\":null," +
+            "\"system_channel_flags\":0,\"rules_channel_id\":null,\"joined_at\":\"2020-01-01T00:00:00+00:00\"," +
+            "\"large\":true,\"unavailable\":false,\"member_count\":0,\"voice_states\":[],\"members\":[]," +
+            "\"channels\":[],\"presences\":[],\"max_presences\":null,\"max_members\":250000," +
+            "\"vanity_url_code\":null,\"description\":null,\"banner\":null,\"premium_tier\":0," +
+            "\"premium_subscription_count\":0,\"preferred_locale\":\"en-US\",\"public_updates_channel_id\":null," +
+            "\"max_video_channel_users\":25,\"embed_enabled\":false,\"embed_channel_id\":null}";
+
+    private static final String MEMBER_JSON = "{\"user\":{\"id\":\"1\",\"username\":\"user\",\"discriminator\":" +
+            "\"0001\",\"avatar\":null},\"nick\":null,\"roles\":[],\"joined_at\":\"2020-01-01T00:00:00+00:00\"," +
+            "\"premium_since\":null,\"deaf\":false,\"mute\":false}";
+
+    public static void main(String[] args) throws IOException {
+        ObjectMapper mapper = JacksonResources.create().getObjectMapper();
+        GuildCreateData guild = mapper.readValue(GUILD_JSON, GuildCreateData.class);
+        MemberData member = mapper.readValue(MEMBER_JSON, MemberData.class);
+        List<GuildMembersChunk> chunks = createChunks(member);
+
+        // warm up every layout once before measuring
+        run("warmup", () -> LegacyStoreLayout.of(new JdkStoreService()), guild, chunks, false);
+        run("warmup", LocalStoreLayout::create, guild, chunks, false);
+
+        run("legacy", () -> LegacyStoreLayout.of(new JdkStoreService()), guild, chunks, true);
+        run("legacy-implicit-offline",
+                () -> LegacyStoreLayout.builder(new JdkStoreService()).setImplicitOfflinePresences(true).build(),
+                guild, chunks, true);
+        run("local", LocalStoreLayout::create, guild, chunks, true);
+        run("local-compact", LocalStoreLayout::createCompact, guild, chunks, true);
+
+        Path directory = args.length > 0 ? Paths.get(args[0]) : Paths.get(System.getProperty("java.io.tmpdir"));
+        run("mapped", () -> MappedStoreLayout.create(directory), guild, chunks, true);
+        run("mapped-uncached", () -> MappedStoreLayout.builder(directory).setCacheMaximumSize(0).build(),
+                guild, chunks, true);
+        run("mapped-compact", () -> MappedStoreLayout.builder(directory).setCompactEncoding(true).build(),
+                guild, chunks, true);
+    }
+
+    private static void run(String name, Supplier<StoreLayout> layoutFactory, GuildCreateData guild,
+                            List<GuildMembersChunk> chunks, boolean report) {
+        long heapBefore = usedHeap();
+        StoreLayout layout = layoutFactory.get();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < GUILDS; i++) {
+            GuildCreate guildCreate = GuildCreate.builder()
+                    .guild(GuildCreateData.builder().from(guild).id(String.valueOf(i + 1)).build())
+                    .build();
+            layout.getGatewayDataUpdater().onGuildCreate(0, guildCreate).block();
+        }
+        for (GuildMembersChunk chunk : chunks) {
+            layout.getGatewayDataUpdater().onGuildMembersChunk(0, chunk).block();
+        }
+        long ingestNanos = System.nanoTime() - start;
+        long heapAfter = usedHeap();
+
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            long guildId = i % GUILDS + 1;
+            long userId = (i * 7919L) % MEMBERS_PER_GUILD + 1;
+            layout.getDataAccessor().getMemberById(guildId, userId).block();
+            layout.getDataAccessor().getPresenceById(guildId, userId).block();
+        }
+        long lookupNanos = System.nanoTime() - start;
+
+        if (report) {
+            System.out.printf("%-24s ingest: %8.1f ms (%,10.0f members/s), retained: %8.1f MiB, lookup: %8.1f ns " +
+                            "per member and presence%n", name, ingestNanos / 1e6,
+                    GUILDS * MEMBERS_PER_GUILD / (ingestNanos / 1e9), (heapAfter - heapBefore) / 1024.0 / 1024.0,
+                    (double) lookupNanos / LOOKUPS);
+        }
+        // keep the layout reachable until the measurements are done
+        if (layout.getDataAccessor().countMembers().block() == null) {
+            throw new IllegalStateException();
+        }
+        if (layout instanceof MappedStoreLayout) {
+            ((MappedStoreLayout) layout).dispose().block();
+        }
+    }
+
+    private static List<GuildMembersChunk> createChunks(MemberData template) {
+        List<GuildMembersChunk> chunks = new ArrayList<>();
+        for (int guildId = 1; guildId <= GUILDS; guildId++) {
+            for (int offset = 0; offset < MEMBERS_PER_GUILD; offset += CHUNK_SIZE) {
+                List<MemberData> members = new ArrayList<>(CHUNK_SIZE);
+                for (int userId = offset + 1; userId <= offset + CHUNK_SIZE; userId++) {
+                    members.add(MemberData.builder()
+                            .from(template)
+                            .user(UserData.builder()
+                                    .from(template.user())
+                                    .id(String.valueOf(userId))
+                                    .build())
+                            .build());
+                }
+                chunks.add(GuildMembersChunk.builder()
+                        .guildId(String.valueOf(guildId))
+                        .members(members)
+                        .chunkIndex(offset / CHUNK_SIZE)
+                        .chunkCount(MEMBERS_PER_GUILD / CHUNK_SIZE)
+                        .build());
+            }
+        }
+        return chunks;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store;
+
+import discord4j.common.store.action.gateway.GatewayActions;
+import discord4j.common.store.api.ActionMapper;
+import discord4j.common.store.api.layout.DataAccessor;
+import discord4j.common.store.api.layout.GatewayDataUpdater;
+import discord4j.common.store.api.layout.StoreLayout;
+import discord4j.common.store.api.object.PresenceAndUserData;
+import discord4j.common.store.impl.LocalStoreLayout;
+import discord4j.discordjson.json.MemberData;
+import discord4j.discordjson.json.gateway.GuildCreate;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Signal;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StoreTest {
+
+    private static final GuildCreate GUILD_2 = StoreFixtures.guildCreate(2, 0, 20);
+
+    @Test
+    public void testBatchResultsFollowActionOrder() {
+        LocalStoreLayout coalescing = LocalStoreLayout.create();
+        LocalStoreLayout sequential = LocalStoreLayout.create();
+        Store coalescingStore = Store.fromLayout(coalescing);
+        // without a batch handler, actions are executed one at a time
+        Store sequentialStore = Store.fromLayout(layout(sequential, sequential, ActionMapper.empty()));
+
+        for (Store store : new Store[] {coalescingStore, sequentialStore}) {
+            List<Signal<?>> results = store.executeBatch(Arrays.asList(
+                    GatewayActions.guildCreate(0, StoreFixtures.guildCreate(1, 0, 10)),
+                    GatewayActions.guildCreate(0, StoreFixtures.guildCreate(2, 0, 20)),
+                    GatewayActions.guildMembersChunk(0, StoreFixtures.chunk(1, 11)),
+                    GatewayActions.guildMembersChunk(0, StoreFixtures.chunk(2, 21)),
+                    GatewayActions.guildMemberRemove(0, StoreFixtures.memberRemove(1, 11)),
+                    GatewayActions.guildMemberRemove(0, StoreFixtures.memberRemove(1, 12)),
+                    GatewayActions.presenceUpdate(0, StoreFixtures.presenceUpdate(2, 20, "idle"))))
+                    .block();
+
+            assertNotNull(results);
+            assertEquals(7, results.size());
+            for (int i = 0; i < 4; i++) {
+                assertTrue(results.get(i).isOnComplete());
+            }
+            assertEquals("11", ((MemberData) results.get(4).get()).user().id());
+            assertTrue(results.get(5).isOnComplete());
+            PresenceAndUserData presenceAndUser = (PresenceAndUserData) results.get(6).get();
+            assertNotNull(presenceAndUser);
+            assertEquals("offline", presenceAndUser.getPresenceData().get().status());
+        }
+        for (LocalStoreLayout layout : new LocalStoreLayout[] {coalescing, sequential}) {
+            assertEquals(2L, layout.countGuilds().block());
+            assertEquals(3L, layout.countMembers().block());
+            assertEquals("idle", layout.getPresenceById(2, 20).block().status());
+        }
+    }
+
+    @Test
+    public void testFailedRunIsExecutedOneAtATime() {
+        LocalStoreLayout local = LocalStoreLayout.create();
+        // the bulk update fails, as does the single update of guild 2
+        GatewayDataUpdater updater = failing(local, (method, args) -> method.equals("onGuildCreateBatch")
+                || (method.equals("onGuildCreate") && args[1] == GUILD_2));
+        Store store = Store.fromLayout(layout(local, updater, local.getCustomActionMapper()));
+
+        List<Signal<?>> results = store.executeBatch(Arrays.asList(
+                GatewayActions.guildCreate(0, StoreFixtures.guildCreate(1, 0, 10)),
+                GatewayActions.guildCreate(0, GUILD_2),
+                GatewayActions.guildCreate(0, StoreFixtures.guildCreate(3, 0, 30)),
+                GatewayActions.guildMemberRemove(0, StoreFixtures.memberRemove(3, 30))))
+                .block();
+
+        assertNotNull(results);
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).isOnComplete());
+        assertTrue(results.get(1).isOnError());
+        assertTrue(results.get(2).isOnComplete());
+        assertEquals("30", ((MemberData) results.get(3).get()).user().id());
+        assertNotNull(local.getGuildById(1).block());
+        assertNull(local.getGuildById(2).block());
+        assertNotNull(local.getGuildById(3).block());
+    }
+
+    @Test
+    public void testFailedActionDoesNotStopSequentialBatch() {
+        LocalStoreLayout local = LocalStoreLayout.create();
+        GatewayDataUpdater updater = failing(local, (method, args) -> method.equals("onGuildMemberAdd"));
+        Store store = Store.fromLayout(layout(local, updater, ActionMapper.empty()));
+
+        List<Signal<?>> results = store.executeBatch(Arrays.asList(
+                GatewayActions.guildCreate(0, StoreFixtures.guildCreate(1, 0, 10)),
+                GatewayActions.guildMemberAdd(0, StoreFixtures.memberAdd(1, 11)),
+                GatewayActions.guildMemberRemove(0, StoreFixtures.memberRemove(1, 10))))
+                .block();
+
+        assertNotNull(results);
+        assertTrue(results.get(0).isOnComplete());
+        assertTrue(results.get(1).isOnError());
+        assertEquals("10", ((MemberData) results.get(2).get()).user().id());
+        assertEquals(0L, local.countMembers().block());
+    }
+
+    private static StoreLayout layout(DataAccessor accessor, GatewayDataUpdater updater, ActionMapper mapper) {
+        return new StoreLayout() {
+            @Override
+            public DataAccessor getDataAccessor() {
+                return accessor;
+            }
+
+            @Override
+            public GatewayDataUpdater getGatewayDataUpdater() {
+                return updater;
+            }
+
+            @Override
+            public ActionMapper getCustomActionMapper() {
+                return mapper;
+            }
+        };
+    }
+
+    // an updater delegating to the given one, except for the matching calls which throw
+    private static GatewayDataUpdater failing(GatewayDataUpdater delegate, BiPredicate<String, Object[]> failure) {
+        return (GatewayDataUpdater) Proxy.newProxyInstance(GatewayDataUpdater.class.getClassLoader(),
+                new Class<?>[] {GatewayDataUpdater.class}, (proxy, method, args) -> {
+                    if (failure.test(method.getName(), args)) {
+                        throw new IllegalStateException("Failing " + method.getName());
+                    }
+                    try {
+                        return method.invoke(delegate, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import discord4j.common.JacksonResources;
+import discord4j.discordjson.json.MemberData;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactEntityFormatTest {
+
+    private static final EntityCodec<MemberData> MEMBER_CODEC = EntityCodec.json(MemberData.class);
+
+    private final ObjectMapper mapper = JacksonResources.create().getObjectMapper();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        CompactEntityFormat format = new CompactEntityFormat();
+        MemberData member = member(1, "first", "10", "20");
+        assertEquals(member, format.decode(mapper, MEMBER_CODEC, format.encode(mapper, MEMBER_CODEC, member)));
+    }
+
+    @Test
+    public void testRepeatedValuesAreShared() throws IOException {
+        CompactEntityFormat format = new CompactEntityFormat();
+        byte[] first = format.encode(mapper, MEMBER_CODEC, member(1, "first", "10", "20"));
+        int dictionarySize = format.getDictionarySize();
+        byte[] second = format.encode(mapper, MEMBER_CODEC, member(2, "second", "10", "20"));
+
+        byte[] json = EntityFormat.JSON.encode(mapper, MEMBER_CODEC, member(2, "second", "10", "20"));
+
+        assertEquals(dictionarySize, format.getDictionarySize());
+        assertTrue(second.length < json.length);
+        assertEquals("first", format.decode(mapper, MEMBER_CODEC, first).user().username());
+        assertEquals("second", format.decode(mapper, MEMBER_CODEC, second).user().username());
+    }
+
+    @Test
+    public void testNumericStringsRoundTrip() throws IOException {
+        CompactEntityFormat format = new CompactEntityFormat();
+        for (String username : new String[] {"0", "007", "42", "-1", "1e3", "9223372036854775807",
+                "9223372036854775808", "99999999999999999999"}) {
+            MemberData member = member(1, username, "10");
+            byte[] encoded = format.encode(mapper, MEMBER_CODEC, member);
+            assertEquals(username, format.decode(mapper, MEMBER_CODEC, encoded).user().username());
+        }
+    }
+
+    @Test
+    public void testIdsAreNotInterned() throws IOException {
+        CompactEntityFormat format = new CompactEntityFormat();
+        format.encode(mapper, MEMBER_CODEC, member(1, "first", "10", "20"));
+        int dictionarySize = format.getDictionarySize();
+        byte[] encoded = format.encode(mapper, MEMBER_CODEC,
+                member(2, "second", "81384788765712384", "81384788765712385"));
+
+        assertEquals(dictionarySize, format.getDictionarySize());
+        assertEquals(Arrays.asList("81384788765712384", "81384788765712385"),
+                format.decode(mapper, MEMBER_CODEC, encoded).roles());
+    }
+
+    private MemberData member(long id, String username, String... roles) throws IOException {
+        String json = "{\"user\":{\"id\":\"" + id + "\",\"username\":\"" + username + "\",\"discriminator\":\"0001\"," +
+                "\"avatar\":null},\"nick\":null,\"roles\":[\"" + String.join("\",\"", roles) + "\"]," +
+                "\"joined_at\":\"2020-01-01T00:00:00+00:00\",\"premium_since\":null,\"deaf\":false,\"mute\":false}";
+        return mapper.readValue(json, MemberData.class);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentLongObjectMapTest {
+
+    @Test
+    public void testMatchesHashMap() {
+        ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextLong() % 2048;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "value" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+        map.clear();
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void testComputeReturnsPreviousValue() {
+        ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>();
+        assertNull(map.compute(1, old -> "a"));
+        assertEquals("a", map.compute(1, old -> old + "b"));
+        assertEquals("ab", map.get(1));
+        assertEquals("ab", map.compute(1, old -> null));
+        assertNull(map.get(1));
+
+        assertNull(map.computeIfPresent(2, old -> "never"));
+        assertNull(map.get(2));
+        assertEquals("c", map.computeIfAbsent(2, key -> "c"));
+        assertEquals("c", map.computeIfAbsent(2, key -> "d"));
+        assertEquals("c", map.computeIfPresent(2, old -> null));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void testConcurrentComputeIsAtomic() throws Exception {
+        ConcurrentLongObjectMap<Integer> map = new ConcurrentLongObjectMap<>();
+        int threads = 4;
+        int increments = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < increments; i++) {
+                        map.compute(i % 16, old -> old == null ? 1 : old + 1);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        int total = 0;
+        for (Integer count : map.values()) {
+            total += count;
+        }
+        assertEquals(threads * increments, total);
+        assertEquals(16, map.size());
+    }
+
+    @Test
+    public void testSampleReturnsDistinctValues() {
+        ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>();
+        assertTrue(map.sample(8).isEmpty());
+        for (long key = 0; key < 1000; key++) {
+            map.put(key, key);
+        }
+        List<Long> sample = map.sample(8);
+        assertEquals(8, sample.size());
+        assertEquals(8, new HashSet<>(sample).size());
+        assertEquals(1000, new HashSet<>(map.sample(5000)).size());
+    }
+}
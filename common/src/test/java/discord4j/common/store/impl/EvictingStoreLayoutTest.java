@@ -0,0 +1,175 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import discord4j.common.store.StoreFixtures;
+import discord4j.common.store.api.object.InvalidationCause;
+import discord4j.common.store.api.object.PresenceAndUserData;
+import discord4j.discordjson.json.MessageData;
+import discord4j.discordjson.json.PresenceData;
+import discord4j.discordjson.json.ReactionData;
+import discord4j.discordjson.json.UserData;
+import discord4j.discordjson.json.gateway.MessageDelete;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EvictingStoreLayoutTest {
+
+    @Test
+    public void testEvictedMessagesLeaveTheirIndexes() {
+        EvictingStoreLayout layout = EvictingStoreLayout.create(LocalStoreLayout.create(),
+                EvictionPolicy.maximumSize(3));
+        for (long messageId = 1; messageId <= 10; messageId++) {
+            layout.onMessageCreate(0, StoreFixtures.messageCreate(messageId % 2 + 1, messageId, 10)).block();
+        }
+        layout.cleanUp();
+
+        long size = layout.countMessages().block();
+        assertTrue(size <= 3);
+        assertEquals(10 - size, layout.getMessageStats().evictionCount());
+        assertEquals(size, layout.countMessagesInChannel(1).block() + layout.countMessagesInChannel(2).block());
+        assertEquals(size, indexedMessageCount(layout));
+
+        for (MessageData message : layout.getMessages().collectList().block()) {
+            layout.onMessageDelete(0, messageDelete(message)).block();
+        }
+        assertEquals(0, layout.countMessages().block());
+        assertEquals(0, layout.messageIdsByChannel.size());
+        assertEquals(0, layout.channelIdsByShard.size());
+    }
+
+    @Test
+    public void testEvictedPresencesAreReadAsOffline() {
+        EvictingStoreLayout layout = EvictingStoreLayout.builder(LocalStoreLayout.create())
+                .setPresencePolicy(EvictionPolicy.maximumSize(2))
+                .build();
+        layout.onGuildCreate(0, StoreFixtures.guildCreate(1, 4, 10, 11, 12, 13)).block();
+        layout.cleanUp();
+
+        List<PresenceData> presences = layout.getPresencesInGuild(1).collectList().block();
+        assertEquals(4, presences.size());
+        long online = presences.stream().filter(presence -> presence.status().equals("online")).count();
+        assertTrue(online <= 2);
+        assertEquals(4 - online, layout.getPresenceStats().evictionCount());
+        assertEquals(online, layout.presenceUserIdsByGuild.keys(1).length);
+
+        for (PresenceData presence : presences) {
+            long userId = Long.parseLong(presence.user().id());
+            PresenceAndUserData old = layout.onPresenceUpdate(0,
+                    StoreFixtures.presenceUpdate(1, userId, "offline")).block();
+            assertNotNull(old);
+            assertEquals(presence.status(), old.getPresenceData().map(PresenceData::status).orElse(null));
+        }
+        assertEquals(0, layout.presenceUserIdsByGuild.size());
+        assertEquals(0, layout.presenceGuildIdsByShard.size());
+        assertEquals(4, layout.countPresencesInGuild(1).block());
+        assertEquals(0, layout.getPresencesInGuild(1)
+                .filter(presence -> !presence.status().equals("offline"))
+                .count()
+                .block());
+    }
+
+    @Test
+    public void testPresenceUpdatesAreCached() {
+        EvictingStoreLayout layout = EvictingStoreLayout.builder(LocalStoreLayout.create())
+                .setPresencePolicy(EvictionPolicy.maximumSize(10))
+                .build();
+        layout.onGuildCreate(0, StoreFixtures.guildCreate(1, 1, 10)).block();
+        layout.onPresenceUpdate(0, StoreFixtures.presenceUpdate(1, 10, "idle")).block();
+
+        PresenceData presence = layout.getPresenceById(1, 10).block();
+        assertNotNull(presence);
+        assertEquals("idle", presence.status());
+        assertEquals(1, layout.getPresenceStats().hitCount());
+        assertEquals(1, layout.countPresences().block());
+    }
+
+    @Test
+    public void testUsersWithoutMembershipAreCached() {
+        EvictingStoreLayout layout = EvictingStoreLayout.builder(LocalStoreLayout.create())
+                .setUserPolicy(EvictionPolicy.maximumSize(10))
+                .build();
+        layout.onGuildCreate(0, StoreFixtures.guildCreate(1, 1, 10)).block();
+        layout.onMessageCreate(0, StoreFixtures.messageCreate(1, 1, 10)).block();
+        layout.onMessageCreate(0, StoreFixtures.messageCreate(1, 2, 20)).block();
+
+        assertNotNull(layout.getUserById(20).block());
+        assertEquals(1, layout.getUserStats().hitCount());
+        assertNull(layout.getUserById(30).block());
+        assertEquals(1, layout.getUserStats().missCount());
+        List<String> userIds = layout.getUsers().map(UserData::id).collectList().block();
+        assertEquals(2, userIds.size());
+        assertTrue(userIds.contains("10"));
+        assertTrue(userIds.contains("20"));
+        assertEquals(2, layout.countUsers().block());
+    }
+
+    @Test
+    public void testReactionsOfTheCurrentUserAreMarked() {
+        EvictingStoreLayout layout = EvictingStoreLayout.create(LocalStoreLayout.create(),
+                EvictionPolicy.maximumSize(10));
+        layout.onReady(StoreFixtures.ready(99)).block();
+        layout.onMessageCreate(0, StoreFixtures.messageCreate(1, 1, 10)).block();
+        layout.onMessageReactionAdd(0, StoreFixtures.reactionAdd(1, 1, 99)).block();
+        layout.onMessageCreate(0, StoreFixtures.messageCreate(1, 2, 10)).block();
+        layout.onMessageReactionAdd(0, StoreFixtures.reactionAdd(1, 2, 10)).block();
+
+        assertTrue(reactions(layout, 1).get(0).me());
+        assertFalse(reactions(layout, 2).get(0).me());
+    }
+
+    @Test
+    public void testShardInvalidationDropsIndexes() {
+        EvictingStoreLayout layout = EvictingStoreLayout.builder(LocalStoreLayout.create())
+                .setPresencePolicy(EvictionPolicy.maximumSize(10))
+                .build();
+        layout.onGuildCreate(0, StoreFixtures.guildCreate(1, 2, 10, 11)).block();
+        layout.onGuildCreate(1, StoreFixtures.guildCreate(2, 1, 20)).block();
+        layout.onMessageCreate(0, StoreFixtures.messageCreate(1, 1, 10)).block();
+        layout.onMessageCreate(1, StoreFixtures.messageCreate(2, 2, 20)).block();
+
+        layout.onShardInvalidation(0, InvalidationCause.HARD_RECONNECT).block();
+
+        assertEquals(1, layout.countMessages().block());
+        assertNotNull(layout.getMessageById(2, 2).block());
+        assertEquals(1, layout.messageIdsByChannel.size());
+        assertEquals(1, layout.channelIdsByShard.size());
+        assertEquals(1, layout.presenceUserIdsByGuild.size());
+        assertEquals(1, layout.presenceGuildIdsByShard.size());
+        assertNotNull(layout.getPresenceById(2, 20).block());
+    }
+
+    private static long indexedMessageCount(EvictingStoreLayout layout) {
+        return layout.messageIdsByChannel.keys(1).length + layout.messageIdsByChannel.keys(2).length;
+    }
+
+    private static MessageDelete messageDelete(MessageData message) {
+        return StoreFixtures.read(String.format("{\"id\":\"%s\",\"channel_id\":\"%s\"}", message.id(),
+                message.channelId()), MessageDelete.class);
+    }
+
+    private static List<ReactionData> reactions(EvictingStoreLayout layout, long messageId) {
+        MessageData message = layout.getMessageById(1, messageId).block();
+        assertNotNull(message);
+        return message.reactions().toOptional().orElseThrow(AssertionError::new).stream()
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyIndexTest {
+
+    @Test
+    public void testLastRemovalDropsBucket() {
+        KeyIndex index = new KeyIndex();
+        index.add(1, 10, 3);
+        index.add(1, 11, 3);
+        assertEquals(KeyIndex.NO_TAG, index.remove(1, 10));
+        assertTrue(index.contains(1));
+        assertEquals(3, index.remove(1, 11));
+        assertFalse(index.contains(1));
+        assertEquals(0, index.size());
+        assertEquals(KeyIndex.NO_TAG, index.remove(1, 11));
+    }
+
+    @Test
+    public void testRemovalOfMissingKeyKeepsBucket() {
+        KeyIndex index = new KeyIndex();
+        index.add(1, 10, 0);
+        assertEquals(KeyIndex.NO_TAG, index.remove(1, 11));
+        assertEquals(KeyIndex.NO_TAG, index.remove(2, 10));
+        assertArrayEquals(new long[] {10}, index.keys(1));
+    }
+
+    @Test
+    public void testRemovalCanBeVetoed() {
+        KeyIndex index = new KeyIndex();
+        index.add(1, 10, 0);
+        assertEquals(KeyIndex.NO_TAG, index.remove(1, 10, key -> true));
+        assertTrue(index.contains(1));
+        assertEquals(0, index.remove(1, 10, key -> false));
+        assertFalse(index.contains(1));
+    }
+
+    @Test
+    public void testRemoveBucket() {
+        KeyIndex index = new KeyIndex();
+        index.add(1, 10, 5);
+        index.add(1, 11, 5);
+        KeyIndex.Bucket bucket = index.removeBucket(1);
+        assertNotNull(bucket);
+        assertEquals(5, bucket.tag);
+        long[] keys = bucket.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(new long[] {10, 11}, keys);
+        assertNull(index.removeBucket(1));
+        assertEquals(0, index.keys(1).length);
+
+        // a dropped bucket is created again by the next key
+        index.add(1, 12, 6);
+        assertArrayEquals(new long[] {12}, index.keys(1));
+        assertEquals(6, index.remove(1, 12));
+    }
+
+    @Test
+    public void testConcurrentAddAndRemoveKeepsNoEmptyBucket() throws Exception {
+        KeyIndex index = new KeyIndex();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] futures = new Future<?>[4];
+            for (int t = 0; t < futures.length; t++) {
+                long key = t;
+                futures[t] = executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        index.add(i % 8, key, 0);
+                        index.remove(i % 8, key);
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(0, index.size());
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import discord4j.common.store.StoreFixtures;
+import discord4j.common.store.api.layout.DataAccessor;
+import discord4j.common.store.api.layout.GatewayDataUpdater;
+import discord4j.common.store.api.layout.StoreLayout;
+import discord4j.common.store.api.object.InvalidationCause;
+import discord4j.common.store.api.object.MemberAndRolesData;
+import discord4j.common.store.legacy.LegacyStoreLayout;
+import discord4j.discordjson.json.GuildCreateData;
+import discord4j.discordjson.json.GuildData;
+import discord4j.discordjson.json.MemberData;
+import discord4j.discordjson.json.MessageData;
+import discord4j.discordjson.json.PresenceData;
+import discord4j.discordjson.json.RoleData;
+import discord4j.discordjson.json.UserData;
+import discord4j.discordjson.json.gateway.GuildCreate;
+import discord4j.discordjson.json.gateway.GuildMembersChunk;
+import discord4j.store.jdk.JdkStoreService;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalStoreLayoutTest {
+
+    private static final long SELF_ID = 99;
+
+    @Test
+    public void testMatchesLegacyLayout() {
+        LegacyStoreLayout legacy = LegacyStoreLayout.builder(new JdkStoreService())
+                .setImplicitOfflinePresences(true)
+                .build();
+        LocalStoreLayout local = LocalStoreLayout.create();
+        for (StoreLayout layout : new StoreLayout[] {legacy, local}) {
+            apply(layout);
+        }
+
+        assertEquals(legacy.countGuilds().block(), local.countGuilds().block());
+        for (long guildId : new long[] {1, 2}) {
+            assertEquals(memberIds(legacy.getMembersInGuild(guildId).collectList().block()),
+                    memberIds(local.getMembersInGuild(guildId).collectList().block()));
+            assertEquals(legacy.countMembersInGuild(guildId).block(), local.countMembersInGuild(guildId).block());
+            assertEquals(statuses(legacy.getPresencesInGuild(guildId).collectList().block()),
+                    statuses(local.getPresencesInGuild(guildId).collectList().block()));
+
+            GuildData legacyGuild = legacy.getGuildById(guildId).block();
+            GuildData localGuild = local.getGuildById(guildId).block();
+            assertNotNull(legacyGuild);
+            assertNotNull(localGuild);
+            assertEquals(legacyGuild.memberCount(), localGuild.memberCount());
+            assertEquals(new HashSet<>(legacyGuild.members()), new HashSet<>(localGuild.members()));
+        }
+        assertEquals(legacy.countMembers().block(), local.countMembers().block());
+        assertEquals(legacy.countPresences().block(), local.countPresences().block());
+        assertEquals(statuses(legacy.getPresences().collectList().block()),
+                statuses(local.getPresences().collectList().block()));
+        assertEquals(userIds(legacy.getUsers().collectList().block()),
+                userIds(local.getUsers().collectList().block()));
+
+        MemberData legacyMember = legacy.getMemberById(1, 11).block();
+        MemberData localMember = local.getMemberById(1, 11).block();
+        assertNotNull(localMember);
+        assertEquals(legacyMember, localMember);
+        assertEquals(Collections.singletonList("5"), localMember.roles());
+    }
+
+    @Test
+    public void testReactionsOfTheCurrentUserAreMarked() {
+        LegacyStoreLayout legacy = LegacyStoreLayout.of(new JdkStoreService());
+        LocalStoreLayout local = LocalStoreLayout.create();
+        for (StoreLayout layout : new StoreLayout[] {legacy, local}) {
+            layout.getGatewayDataUpdater().onReady(StoreFixtures.ready(SELF_ID)).block();
+            layout.getGatewayDataUpdater().onMessageCreate(0, StoreFixtures.messageCreate(3, 4, 10)).block();
+            layout.getGatewayDataUpdater().onMessageReactionAdd(0, StoreFixtures.reactionAdd(3, 4, 10)).block();
+            layout.getGatewayDataUpdater().onMessageReactionAdd(0, StoreFixtures.reactionAdd(3, 4, SELF_ID))
+                    .block();
+
+            MessageData message = layout.getDataAccessor().getMessageById(3, 4).block();
+            assertNotNull(message);
+            assertEquals(2, message.reactions().get().get(0).count());
+            assertTrue(message.reactions().get().get(0).me());
+        }
+    }
+
+    @Test
+    public void testPresencesOfUncachedMembersAreStored() {
+        LocalStoreLayout local = LocalStoreLayout.create();
+        local.onGuildCreate(0, StoreFixtures.guildCreate(1, 0, 10)).block();
+
+        // large guilds send presences for members that were not requested
+        local.onPresenceUpdate(0, StoreFixtures.presenceUpdate(1, 20, "online")).block();
+        PresenceData presence = local.getPresenceById(1, 20).block();
+        assertNotNull(presence);
+        assertEquals("online", presence.status());
+
+        local.onPresenceUpdate(0, StoreFixtures.presenceUpdate(1, 20, "offline")).block();
+        assertNull(local.getPresenceById(1, 20).block());
+        assertEquals("offline", local.getPresenceById(1, 10).block().status());
+
+        // no guild, nothing to attach the presence to
+        local.onPresenceUpdate(0, StoreFixtures.presenceUpdate(2, 20, "online")).block();
+        assertNull(local.getPresenceById(2, 20).block());
+    }
+
+    @Test
+    public void testCurrentUserIsKeptWithoutGuilds() {
+        LocalStoreLayout local = LocalStoreLayout.create();
+        local.onReady(StoreFixtures.ready(SELF_ID)).block();
+        local.onGuildCreate(0, StoreFixtures.guildCreate(1, 0, SELF_ID, 10)).block();
+        local.onGuildCreate(0, StoreFixtures.guildCreate(2, 0, SELF_ID)).block();
+
+        local.onGuildMemberRemove(0, StoreFixtures.memberRemove(1, SELF_ID)).block();
+        local.onGuildMemberRemove(0, StoreFixtures.memberRemove(2, SELF_ID)).block();
+        local.onGuildMemberRemove(0, StoreFixtures.memberRemove(1, 10)).block();
+
+        assertNotNull(local.getUserById(SELF_ID).block());
+        assertNull(local.getUserById(10).block());
+
+        // the current user stays cached when joining and leaving a guild again
+        local.onGuildMemberAdd(0, StoreFixtures.memberAdd(2, SELF_ID)).block();
+        local.onGuildMemberRemove(0, StoreFixtures.memberRemove(2, SELF_ID)).block();
+        assertNotNull(local.getUserById(SELF_ID).block());
+    }
+
+    @Test
+    public void testSharedUsersAreKeptUntilTheirLastGuild() throws Exception {
+        MappedStoreLayout mapped = MappedStoreLayout.create(Files.createTempDirectory("d4j-store"));
+        try {
+            for (LocalStoreLayout layout : new LocalStoreLayout[] {LocalStoreLayout.create(),
+                    LocalStoreLayout.createCompact(), mapped}) {
+                layout.onGuildCreate(0, StoreFixtures.guildCreate(1, 0, 10, 11)).block();
+                layout.onGuildCreate(0, StoreFixtures.guildCreate(2, 0, 10)).block();
+
+                layout.onGuildMemberRemove(0, StoreFixtures.memberRemove(1, 10)).block();
+                layout.onGuildMemberRemove(0, StoreFixtures.memberRemove(1, 11)).block();
+                assertEquals(Collections.singleton("10"), userIds(layout.getUsers().collectList().block()));
+
+                layout.onGuildMemberAdd(0, StoreFixtures.memberAdd(1, 10)).block();
+                layout.onGuildMemberRemove(0, StoreFixtures.memberRemove(2, 10)).block();
+                assertNotNull(layout.getUserById(10).block());
+                layout.onGuildMemberRemove(0, StoreFixtures.memberRemove(1, 10)).block();
+                assertNull(layout.getUserById(10).block());
+                assertEquals(0L, layout.countUsers().block());
+            }
+        } finally {
+            mapped.dispose().block();
+        }
+    }
+
+    @Test
+    public void testPermissionLookupsMatchSeparateLookups() {
+        GuildCreate guildCreate = StoreFixtures.guildCreate(1, 0, 10, 11);
+        guildCreate = GuildCreate.builder()
+                .guild(GuildCreateData.builder()
+                        .from(guildCreate.guild())
+                        .roles(Arrays.asList(StoreFixtures.role(1), StoreFixtures.role(5), StoreFixtures.role(6)))
+                        .build())
+                .build();
+        // the legacy layout relies on the default implementations
+        for (StoreLayout layout : new StoreLayout[] {LegacyStoreLayout.of(new JdkStoreService()),
+                LocalStoreLayout.create()}) {
+            GatewayDataUpdater updater = layout.getGatewayDataUpdater();
+            DataAccessor accessor = layout.getDataAccessor();
+            updater.onGuildCreate(0, guildCreate).block();
+            updater.onGuildMemberUpdate(0, StoreFixtures.memberUpdate(1, 11, "nick", "5")).block();
+
+            MemberAndRolesData memberAndRoles = accessor.getMemberAndRolesById(1, 11).block();
+            assertNotNull(memberAndRoles);
+            assertEquals(accessor.getMemberById(1, 11).block(), memberAndRoles.getMemberData());
+            assertEquals(1L, memberAndRoles.getGuildOwnerId());
+            assertEquals(Arrays.asList("1", "5"), memberAndRoles.getRoleData().stream()
+                    .map(RoleData::id)
+                    .collect(Collectors.toList()));
+            assertNull(accessor.getMemberAndRolesById(1, 12).block());
+            assertNull(accessor.getMemberAndRolesById(2, 11).block());
+        }
+    }
+
+    @Test
+    public void testShardInvalidationKeepsOtherShards() {
+        LegacyStoreLayout legacy = LegacyStoreLayout.of(new JdkStoreService());
+        LocalStoreLayout local = LocalStoreLayout.create();
+        for (StoreLayout layout : new StoreLayout[] {legacy, local}) {
+            GatewayDataUpdater updater = layout.getGatewayDataUpdater();
+            DataAccessor accessor = layout.getDataAccessor();
+            updater.onGuildCreate(0, StoreFixtures.guildCreate(1, 0, 10, 11)).block();
+            updater.onGuildCreate(1, StoreFixtures.guildCreate(2, 0, 10, 20)).block();
+            updater.onGuildCreate(0, StoreFixtures.guildCreate(3, 0, 30)).block();
+            // the guild moved to another shard, it must survive the invalidation of its previous owner
+            updater.onGuildCreate(1, StoreFixtures.guildCreate(3, 0, 30)).block();
+
+            updater.onShardInvalidation(0, InvalidationCause.HARD_RECONNECT).block();
+            assertNull(accessor.getGuildById(1).block());
+            assertNotNull(accessor.getGuildById(2).block());
+            assertNotNull(accessor.getGuildById(3).block());
+            assertEquals(2L, accessor.countGuilds().block());
+            assertEquals(Collections.emptySet(), memberIds(accessor.getMembersInGuild(1).collectList().block()));
+            assertNotNull(accessor.getMemberById(3, 30).block());
+            // user 10 is still a member of a guild of another shard
+            assertEquals(new HashSet<>(Arrays.asList("10", "20", "30")),
+                    userIds(accessor.getUsers().collectList().block()));
+
+            updater.onShardInvalidation(1, InvalidationCause.HARD_RECONNECT).block();
+            assertEquals(0L, accessor.countGuilds().block());
+            assertEquals(0L, accessor.countMembers().block());
+            assertEquals(0L, accessor.countUsers().block());
+        }
+    }
+
+    @Test
+    public void testBatchUpdatesMatchSingleUpdates() {
+        StoreLayout[][] pairs = {
+                {LegacyStoreLayout.of(new JdkStoreService()), LegacyStoreLayout.of(new JdkStoreService())},
+                {LocalStoreLayout.create(), LocalStoreLayout.create()}
+        };
+        List<GuildCreate> guildCreates = Arrays.asList(StoreFixtures.guildCreate(1, 1, 10, 11),
+                StoreFixtures.guildCreate(2, 0, 10, 20), StoreFixtures.guildCreate(3, 0, 10, 12));
+        List<GuildMembersChunk> chunks = Arrays.asList(StoreFixtures.chunk(1, 13, 14),
+                StoreFixtures.chunk(2, 10, 21), StoreFixtures.chunk(1, 14, 15), StoreFixtures.chunk(3, 12, 16));
+        for (StoreLayout[] pair : pairs) {
+            GatewayDataUpdater single = pair[0].getGatewayDataUpdater();
+            GatewayDataUpdater batch = pair[1].getGatewayDataUpdater();
+            for (GuildCreate guildCreate : guildCreates) {
+                single.onGuildCreate(0, guildCreate).block();
+            }
+            for (GuildMembersChunk chunk : chunks) {
+                single.onGuildMembersChunk(0, chunk).block();
+            }
+            batch.onGuildCreateBatch(0, guildCreates).block();
+            batch.onGuildMembersChunkBatch(0, chunks).block();
+
+            DataAccessor expected = pair[0].getDataAccessor();
+            DataAccessor actual = pair[1].getDataAccessor();
+            assertEquals(3L, actual.countGuilds().block());
+            for (long guildId : new long[] {1, 2, 3}) {
+                assertEquals(memberIds(expected.getMembersInGuild(guildId).collectList().block()),
+                        memberIds(actual.getMembersInGuild(guildId).collectList().block()));
+                assertEquals(statuses(expected.getPresencesInGuild(guildId).collectList().block()),
+                        statuses(actual.getPresencesInGuild(guildId).collectList().block()));
+            }
+            assertEquals(new HashSet<>(Arrays.asList("10", "11", "13", "14", "15")),
+                    memberIds(actual.getMembersInGuild(1).collectList().block()));
+            assertEquals(userIds(expected.getUsers().collectList().block()),
+                    userIds(actual.getUsers().collectList().block()));
+            assertEquals(expected.countMembers().block(), actual.countMembers().block());
+        }
+    }
+
+    private static void apply(StoreLayout layout) {
+        GatewayDataUpdater updater = layout.getGatewayDataUpdater();
+        updater.onReady(StoreFixtures.ready(SELF_ID)).block();
+        updater.onGuildCreate(0, StoreFixtures.guildCreate(1, 2, 10, 11, 12, 13)).block();
+        updater.onGuildCreate(0, StoreFixtures.guildCreate(2, 1, 10, 20)).block();
+        updater.onGuildMemberAdd(0, StoreFixtures.memberAdd(1, 14)).block();
+        updater.onGuildMemberRemove(0, StoreFixtures.memberRemove(1, 12)).block();
+        updater.onGuildMemberRemove(0, StoreFixtures.memberRemove(2, 20)).block();
+        updater.onGuildMemberUpdate(0, StoreFixtures.memberUpdate(1, 11, "nick", "5")).block();
+        updater.onPresenceUpdate(0, StoreFixtures.presenceUpdate(1, 11, "idle")).block();
+        updater.onPresenceUpdate(0, StoreFixtures.presenceUpdate(1, 10, "offline")).block();
+        updater.onPresenceUpdate(0, StoreFixtures.presenceUpdate(2, 10, "dnd")).block();
+        updater.onGuildMembersChunk(0, StoreFixtures.chunk(2, 21, 22)).block();
+    }
+
+    private static Set<String> memberIds(List<MemberData> members) {
+        return members.stream().map(member -> member.user().id()).collect(Collectors.toSet());
+    }
+
+    private static Set<String> userIds(List<UserData> users) {
+        return users.stream().map(UserData::id).collect(Collectors.toSet());
+    }
+
+    // the statuses of each user across guilds
+    private static Map<String, List<String>> statuses(List<PresenceData> presences) {
+        Map<String, List<String>> statuses = new HashMap<>();
+        for (PresenceData presence : presences) {
+            statuses.computeIfAbsent(presence.user().id(), k -> new ArrayList<>()).add(presence.status());
+        }
+        statuses.values().forEach(list -> list.sort(String::compareTo));
+        return statuses;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongObjectMapTest {
+
+    @Test
+    public void testMatchesHashMap() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            // a small key range makes collisions, removals and re-insertions frequent
+            long key = random.nextInt(512) - 256;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "value" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (Map.Entry<Long, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertEquals(expected.keySet(), keySet(map.keys()));
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+    }
+
+    @Test
+    public void testRemoveKeepsCollidingKeysReachable() {
+        LongObjectMap<Long> map = new LongObjectMap<>(8);
+        // keys sharing a home slot form one probe sequence, removing from its middle must not hide the tail
+        List<Long> colliding = new ArrayList<>();
+        int mask = 15;
+        int home = LongObjectMap.mix(0) & mask;
+        for (long key = 0; colliding.size() < 5; key++) {
+            if ((LongObjectMap.mix(key) & mask) == home) {
+                colliding.add(key);
+            }
+        }
+        for (long key : colliding) {
+            map.put(key, key);
+        }
+        assertEquals(colliding.get(1), map.remove(colliding.get(1)));
+        assertEquals(colliding.get(3), map.remove(colliding.get(3)));
+        assertNull(map.get(colliding.get(1)));
+        assertEquals(colliding.get(0), map.get(colliding.get(0)));
+        assertEquals(colliding.get(2), map.get(colliding.get(2)));
+        assertEquals(colliding.get(4), map.get(colliding.get(4)));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    public void testGrowsAndClears() {
+        LongObjectMap<Long> map = new LongObjectMap<>(2);
+        for (long key = 0; key < 10_000; key++) {
+            map.put(key * 31, key);
+        }
+        assertEquals(10_000, map.size());
+        assertEquals(Long.valueOf(5000), map.get(5000 * 31));
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(5000 * 31));
+        assertEquals(0, map.keys().length);
+    }
+
+    @Test
+    public void testEnsureCapacityKeepsEntries() {
+        LongObjectMap<Long> map = new LongObjectMap<>(2);
+        for (long key = 0; key < 5; key++) {
+            map.put(key, key);
+        }
+        map.ensureCapacity(1000);
+        map.ensureCapacity(10);
+        assertEquals(5, map.size());
+        for (long key = 0; key < 5; key++) {
+            assertEquals(Long.valueOf(key), map.get(key));
+        }
+        for (long key = 5; key < 1000; key++) {
+            map.put(key, key);
+        }
+        assertEquals(1000, map.size());
+        assertEquals(Long.valueOf(999), map.get(999));
+    }
+
+    @Test
+    public void testSampleVisitsDistinctValues() {
+        LongObjectMap<Long> map = new LongObjectMap<>();
+        for (long key = 0; key < 100; key++) {
+            map.put(key, key);
+        }
+        List<Long> sample = new ArrayList<>();
+        map.sample(12345, 10, sample);
+        assertEquals(10, sample.size());
+        assertEquals(10, new HashSet<>(sample).size());
+
+        List<Long> all = new ArrayList<>();
+        map.sample(-1, 1000, all);
+        assertEquals(100, all.size());
+        assertEquals(new HashSet<>(map.values()), new HashSet<>(all));
+    }
+
+    private static Set<Long> keySet(long[] keys) {
+        Set<Long> result = new HashSet<>();
+        for (long key : keys) {
+            result.add(key);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import discord4j.common.JacksonResources;
+import discord4j.discordjson.json.UserData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedLongMapTest {
+
+    private static final EntityCodec<UserData> USER_CODEC = EntityCodec.json(UserData.class);
+
+    private final ObjectMapper mapper = JacksonResources.create().getObjectMapper();
+    private final Cache<Long, Object> cache = Caffeine.newBuilder().maximumSize(0).build();
+    private final List<Runnable> compactions = new ArrayList<>();
+    private Path directory;
+    private MappedEntityLog log;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("d4j-store-test");
+        // compactions are run explicitly by the tests
+        log = new MappedEntityLog(directory, 1024, compactions::add);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        log.dispose();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testPutGetRemove() throws IOException {
+        MappedLongMap<UserData> map = new MappedLongMap<>(log, USER_CODEC, EntityFormat.JSON, mapper, cache, 8);
+        assertNull(map.put(1, user(1, "first")));
+        assertEquals("first", map.get(1).username());
+        assertEquals("first", map.put(1, user(1, "second")).username());
+        assertEquals("second", map.get(1).username());
+        assertEquals(1, map.size());
+        assertEquals("second", map.remove(1).username());
+        assertNull(map.get(1));
+        assertEquals(0, log.getLiveBytes());
+    }
+
+    @Test
+    public void testOutdatedSegmentsAreCompacted() throws IOException {
+        MappedLongMap<UserData> map = new MappedLongMap<>(log, USER_CODEC, EntityFormat.JSON, mapper, cache, 8);
+        for (int i = 0; i < 1000; i++) {
+            map.put(i % 4, user(i % 4, "user" + i));
+        }
+        while (!compactions.isEmpty()) {
+            compactions.remove(0).run();
+        }
+        // only the last version of each user is live, every other segment was reclaimed
+        assertTrue(log.getSegmentCount() <= 2);
+        for (int i = 996; i < 1000; i++) {
+            assertEquals("user" + i, map.get(i % 4).username());
+        }
+        map.clear();
+        assertEquals(0, log.getLiveBytes());
+    }
+
+    private UserData user(long id, String username) throws IOException {
+        return mapper.readValue("{\"id\":\"" + id + "\",\"username\":\"" + username + "\"," +
+                "\"discriminator\":\"0001\",\"avatar\":null}", UserData.class);
+    }
+}
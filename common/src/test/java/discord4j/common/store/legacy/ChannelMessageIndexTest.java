@@ -0,0 +1,121 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package discord4j.common.store.legacy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChannelMessageIndexTest {
+
+    @Test
+    public void testChannelRingEvictsOldest() {
+        ChannelMessageIndex index = new ChannelMessageIndex(3, 100);
+        for (long id = 1; id <= 3; id++) {
+            assertArrayEquals(new long[0], index.add(10, id));
+        }
+        assertArrayEquals(new long[] {1}, index.add(10, 4));
+        assertArrayEquals(new long[] {2, 3, 4}, index.getMessages(10));
+
+        index.remove(10, 3);
+        assertArrayEquals(new long[] {2, 4}, index.getMessages(10));
+        assertEquals(2, index.count(10));
+    }
+
+    @Test
+    public void testTotalCapacityEvictsLeastRecentlyActiveChannel() {
+        ChannelMessageIndex index = new ChannelMessageIndex(10, 5);
+        index.add(1, 100);
+        index.add(1, 101);
+        index.add(2, 200);
+        index.add(2, 201);
+        // channel 1 becomes the most recently active one
+        index.add(1, 102);
+        assertArrayEquals(new long[0], index.getMessages(3));
+        assertArrayEquals(new long[] {200}, index.add(3, 300));
+        assertArrayEquals(new long[] {201}, index.add(3, 301));
+        assertEquals(0, index.count(2));
+        assertArrayEquals(new long[] {100, 101, 102}, index.getMessages(1));
+    }
+
+    @Test
+    public void testRemoveChannel() {
+        ChannelMessageIndex index = new ChannelMessageIndex(10, 10);
+        index.add(1, 100);
+        index.add(1, 101);
+        assertArrayEquals(new long[] {100, 101}, index.removeChannel(1));
+        assertEquals(0, index.count(1));
+        for (long id = 0; id < 10; id++) {
+            assertArrayEquals(new long[0], index.add(2, id));
+        }
+    }
+
+    @Test
+    public void testDuplicateMessageIgnored() {
+        ChannelMessageIndex index = new ChannelMessageIndex(2, 10);
+        index.add(1, 100);
+        index.add(1, 101);
+        assertArrayEquals(new long[0], index.add(1, 101));
+        assertArrayEquals(new long[] {100, 101}, index.getMessages(1));
+        assertArrayEquals(new long[] {100}, index.add(1, 102));
+    }
+
+    @Test
+    public void testRemoveLastMessageDropsChannel() {
+        ChannelMessageIndex index = new ChannelMessageIndex(10, 2);
+        index.add(1, 100);
+        index.remove(1, 100);
+        assertEquals(0, index.count(1));
+        index.add(2, 200);
+        index.add(2, 201);
+        assertArrayEquals(new long[] {200}, index.add(2, 202));
+    }
+
+    @Test
+    public void testConcurrentAddsRespectTotalCapacity() throws InterruptedException {
+        ChannelMessageIndex index = new ChannelMessageIndex(50, 1000);
+        AtomicLong evicted = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long channelBase = t * 100;
+            long messageBase = t * 1_000_000L;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    evicted.addAndGet(index.add(channelBase + (i % 40), messageBase + i).length);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long cached = 0;
+        for (int t = 0; t < 4; t++) {
+            for (int c = 0; c < 40; c++) {
+                cached += index.count(t * 100 + c);
+            }
+        }
+        assertTrue(cached <= 1000, "Cached " + cached + " messages");
+        assertEquals(40_000, cached + evicted.get());
+    }
+}
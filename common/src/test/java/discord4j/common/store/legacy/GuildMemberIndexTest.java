@@ -0,0 +1,91 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.legacy;
+
+import discord4j.common.store.StoreFixtures;
+import discord4j.discordjson.json.GuildData;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GuildMemberIndexTest {
+
+    @Test
+    public void testUntrackedGuildIgnored() {
+        GuildMemberIndex index = new GuildMemberIndex();
+        index.add(1, 10);
+        index.addAll(1, new long[] {11, 12});
+        assertArrayEquals(new long[0], index.getMembers(1));
+        assertTrue(index.withMembers(StoreFixtures.guild(1)).members().isEmpty());
+    }
+
+    @Test
+    public void testMemberUpdates() {
+        GuildMemberIndex index = new GuildMemberIndex();
+        index.set(1, new long[] {10, 11});
+        index.add(1, 12);
+        index.addAll(1, new long[] {12, 13});
+        index.remove(1, 10);
+        assertArrayEquals(new long[] {11, 12, 13}, sorted(index.getMembers(1)));
+        assertArrayEquals(new long[] {11, 12, 13}, sorted(index.removeGuild(1)));
+        assertArrayEquals(new long[0], index.getMembers(1));
+    }
+
+    @Test
+    public void testMaterializedGuildCached() {
+        GuildMemberIndex index = new GuildMemberIndex();
+        GuildData guild = StoreFixtures.guild(1);
+        index.set(1, new long[] {10});
+
+        GuildData first = index.withMembers(guild);
+        assertEquals(Arrays.asList("10"), first.members());
+        assertSame(first, index.withMembers(guild));
+
+        // a no-op update keeps the cached view
+        index.add(1, 10);
+        assertSame(first, index.withMembers(guild));
+    }
+
+    @Test
+    public void testMaterializedGuildInvalidated() {
+        GuildMemberIndex index = new GuildMemberIndex();
+        GuildData guild = StoreFixtures.guild(1);
+        index.set(1, new long[] {10});
+        GuildData first = index.withMembers(guild);
+
+        index.add(1, 11);
+        GuildData afterJoin = index.withMembers(guild);
+        assertNotSame(first, afterJoin);
+        assertEquals(2, afterJoin.members().size());
+
+        index.remove(1, 10);
+        assertEquals(Arrays.asList("11"), index.withMembers(guild).members());
+
+        // another instance of the guild, like after a guild update, is materialized again
+        GuildData updated = StoreFixtures.guild(1);
+        GuildData afterUpdate = index.withMembers(updated);
+        assertNotSame(afterUpdate, index.withMembers(guild));
+    }
+
+    private static long[] sorted(long[] values) {
+        long[] copy = values.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.legacy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import discord4j.common.JacksonResources;
+import discord4j.common.store.StoreFixtures;
+import discord4j.discordjson.json.MessageData;
+import discord4j.discordjson.json.PartialMessageData;
+import discord4j.discordjson.json.PresenceData;
+import discord4j.discordjson.json.gateway.MessageCreate;
+import discord4j.discordjson.json.gateway.MessageReactionAdd;
+import discord4j.discordjson.json.gateway.MessageUpdate;
+import discord4j.discordjson.possible.Possible;
+import discord4j.store.jdk.JdkStoreService;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LegacyStoreLayoutTest {
+
+    private static final String MESSAGE_JSON = "{\"id\":\"2\",\"channel_id\":\"1\",\"author\":{\"id\":\"3\"," +
+            "\"username\":\"user\",\"discriminator\":\"0001\",\"avatar\":null},\"content\":\"old\"," +
+            "\"timestamp\":\"2020-01-01T00:00:00+00:00\",\"edited_timestamp\":null,\"tts\":false," +
+            "\"mention_everyone\":false,\"mentions\":[],\"mention_roles\":[],\"attachments\":[],\"embeds\":[]," +
+            "\"pinned\":false,\"type\":0}";
+
+    private final ObjectMapper mapper = JacksonResources.create().getObjectMapper();
+
+    @Test
+    public void testConcurrentReactionsAreNotLost() throws IOException {
+        LegacyStoreLayout layout = LegacyStoreLayout.of(new JdkStoreService());
+        layout.onMessageCreate(0, messageCreate()).block();
+
+        MessageReactionAdd reactionAdd = mapper.readValue("{\"user_id\":\"3\",\"channel_id\":\"1\"," +
+                "\"message_id\":\"2\",\"emoji\":{\"id\":null,\"name\":\"x\"}}", MessageReactionAdd.class);
+        Flux.range(0, 1000)
+                .parallel(4)
+                .runOn(Schedulers.parallel())
+                .flatMap(i -> layout.onMessageReactionAdd(0, reactionAdd))
+                .then()
+                .block();
+
+        MessageData message = layout.getMessageById(1, 2).block();
+        assertNotNull(message);
+        assertEquals(1000, message.reactions().get().get(0).count());
+    }
+
+    @Test
+    public void testUpdateReturnsOldStateAndPublishesChange() throws IOException {
+        LegacyStoreLayout layout = LegacyStoreLayout.of(new JdkStoreService());
+        layout.onMessageCreate(0, messageCreate()).block();
+        List<StoreChange<?, ?>> changes = new CopyOnWriteArrayList<>();
+        layout.changes().filter(change -> change.isOf(MessageData.class)).subscribe(changes::add);
+
+        MessageUpdate messageUpdate = MessageUpdate.builder()
+                .message(PartialMessageData.builder()
+                        .id("2")
+                        .channelId("1")
+                        .content(Possible.of("new"))
+                        .build())
+                .build();
+        MessageData oldMessage = layout.onMessageUpdate(0, messageUpdate).block();
+
+        assertNotNull(oldMessage);
+        assertEquals("old", oldMessage.content());
+        assertEquals(1, changes.size());
+        assertEquals("old", ((MessageData) changes.get(0).getOldValue().get()).content());
+        assertEquals("new", ((MessageData) changes.get(0).getNewValue().get()).content());
+    }
+
+    @Test
+    public void testImplicitOfflinePresencesAreDerived() {
+        LegacyStoreLayout layout = LegacyStoreLayout.builder(new JdkStoreService())
+                .setImplicitOfflinePresences(true)
+                .build();
+        layout.onGuildCreate(0, StoreFixtures.guildCreate(1, 1, 10, 11, 12)).block();
+
+        assertEquals("online", statusOf(layout, 1, 10));
+        assertEquals("offline", statusOf(layout, 1, 11));
+        assertEquals("11", layout.getPresenceById(1, 11).block().user().id());
+        assertNull(layout.getPresenceById(1, 13).block());
+
+        layout.onPresenceUpdate(0, StoreFixtures.presenceUpdate(1, 10, "offline")).block();
+        layout.onPresenceUpdate(0, StoreFixtures.presenceUpdate(1, 11, "idle")).block();
+        assertEquals("offline", statusOf(layout, 1, 10));
+        assertEquals("idle", statusOf(layout, 1, 11));
+        assertEquals(3L, layout.countPresences().block());
+        assertEquals(3L, layout.countPresencesInGuild(1).block());
+    }
+
+    @Test
+    public void testImplicitOfflinePresencesMatchStoredPresences() {
+        LegacyStoreLayout stored = LegacyStoreLayout.of(new JdkStoreService());
+        LegacyStoreLayout implicit = LegacyStoreLayout.builder(new JdkStoreService())
+                .setImplicitOfflinePresences(true)
+                .build();
+        for (LegacyStoreLayout layout : new LegacyStoreLayout[] {stored, implicit}) {
+            layout.onGuildCreate(0, StoreFixtures.guildCreate(1, 2, 10, 11, 12, 13)).block();
+            layout.onGuildCreate(0, StoreFixtures.guildCreate(2, 0, 10, 20)).block();
+            layout.onPresenceUpdate(0, StoreFixtures.presenceUpdate(2, 20, "dnd")).block();
+            layout.onPresenceUpdate(0, StoreFixtures.presenceUpdate(1, 10, "offline")).block();
+        }
+
+        assertEquals(stored.countPresences().block(), implicit.countPresences().block());
+        assertEquals(6L, implicit.countPresences().block());
+        assertEquals(statuses(stored.getPresences().collectList().block()),
+                statuses(implicit.getPresences().collectList().block()));
+        assertEquals(statuses(stored.getPresencesInGuild(2).collectList().block()),
+                statuses(implicit.getPresencesInGuild(2).collectList().block()));
+    }
+
+    private static String statusOf(LegacyStoreLayout layout, long guildId, long userId) {
+        PresenceData presence = layout.getPresenceById(guildId, userId).block();
+        assertNotNull(presence);
+        return presence.status();
+    }
+
+    // the statuses of each user across guilds
+    private static Map<String, List<String>> statuses(List<PresenceData> presences) {
+        Map<String, List<String>> statuses = new HashMap<>();
+        for (PresenceData presence : presences) {
+            statuses.computeIfAbsent(presence.user().id(), k -> new ArrayList<>()).add(presence.status());
+        }
+        statuses.values().forEach(list -> list.sort(String::compareTo));
+        return statuses;
+    }
+
+    private MessageCreate messageCreate() throws IOException {
+        return MessageCreate.builder()
+                .message(mapper.readValue(MESSAGE_JSON, MessageData.class))
+                .build();
+    }
+}
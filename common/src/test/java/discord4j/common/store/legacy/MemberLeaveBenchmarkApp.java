@@ -0,0 +1,86 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.legacy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import discord4j.common.JacksonResources;
+import discord4j.discordjson.json.MemberData;
+import discord4j.discordjson.json.UserData;
+import discord4j.discordjson.json.gateway.GuildMemberAdd;
+import discord4j.discordjson.json.gateway.GuildMemberRemove;
+import discord4j.store.jdk.JdkStoreService;
+
+import java.io.IOException;
+
+/**
+ * Measure the cost of a member leaving a guild while the total number of cached members grows. Each measured leave
+ * is followed by the member joining again, keeping the cache size constant.
+ */
+public class MemberLeaveBenchmarkApp {
+
+    private static final int[] TOTAL_MEMBERS = {10_000, 100_000, 1_000_000};
+    private static final int GUILDS = 100;
+    private static final int LEAVES = 2_000;
+
+    private static final String MEMBER_JSON = "{\"user\":{\"id\":\"1\",\"username\":\"user\",\"discriminator\":" +
+            "\"0001\",\"avatar\":null},\"nick\":null,\"roles\":[],\"joined_at\":\"2020-01-01T00:00:00+00:00\"," +
+            "\"premium_since\":null,\"deaf\":false,\"mute\":false}";
+
+    public static void main(String[] args) throws IOException {
+        ObjectMapper mapper = JacksonResources.create().getObjectMapper();
+        MemberData template = mapper.readValue(MEMBER_JSON, MemberData.class);
+
+        for (int total : TOTAL_MEMBERS) {
+            LegacyStoreLayout layout = LegacyStoreLayout.of(new JdkStoreService());
+            for (int i = 0; i < total; i++) {
+                layout.onGuildMemberAdd(0, memberAdd(template, i % GUILDS, i)).block();
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < LEAVES; i++) {
+                int userId = (i * 7919) % total;
+                layout.onGuildMemberRemove(0, memberRemove(template, userId % GUILDS, userId)).block();
+                layout.onGuildMemberAdd(0, memberAdd(template, userId % GUILDS, userId)).block();
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("%,10d members: %8.2f us per leave and join%n", total, elapsed / 1e3 / LEAVES);
+        }
+    }
+
+    private static GuildMemberAdd memberAdd(MemberData template, long guildId, long userId) {
+        return GuildMemberAdd.builder()
+                .guildId(String.valueOf(guildId + 1))
+                .member(MemberData.builder()
+                        .from(template)
+                        .user(user(template, userId))
+                        .build())
+                .build();
+    }
+
+    private static GuildMemberRemove memberRemove(MemberData template, long guildId, long userId) {
+        return GuildMemberRemove.builder()
+                .guildId(String.valueOf(guildId + 1))
+                .user(user(template, userId))
+                .build();
+    }
+
+    private static UserData user(MemberData template, long userId) {
+        return UserData.builder()
+                .from(template.user())
+                .id(String.valueOf(userId + 1))
+                .build();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.legacy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardGuildIndexTest {
+
+    @Test
+    public void testRemoveShardKeepsOtherShards() {
+        ShardGuildIndex index = new ShardGuildIndex();
+        index.add(0, 1);
+        index.add(0, 2);
+        index.add(1, 3);
+
+        assertArrayEquals(new long[] {1, 2}, sorted(index.removeShard(0)));
+        assertEquals(0, index.removeShard(0).length);
+        assertArrayEquals(new long[] {3}, index.removeShard(1));
+    }
+
+    @Test
+    public void testGuildMovesToNewOwner() {
+        ShardGuildIndex index = new ShardGuildIndex();
+        index.add(0, 1);
+        index.add(0, 2);
+        // the guild was received again by another shard, invalidating the first one must keep it
+        index.add(1, 2);
+
+        assertArrayEquals(new long[] {1}, index.removeShard(0));
+        assertArrayEquals(new long[] {2}, index.removeShard(1));
+    }
+
+    @Test
+    public void testRemovedGuildIsNotInvalidated() {
+        ShardGuildIndex index = new ShardGuildIndex();
+        index.add(0, 1);
+        index.add(0, 2);
+        index.remove(1);
+
+        assertArrayEquals(new long[] {2}, index.removeShard(0));
+
+        // removing the last guild of a shard drops the shard
+        index.add(1, 3);
+        index.remove(3);
+        assertEquals(0, index.removeShard(1).length);
+    }
+
+    @Test
+    public void testClear() {
+        ShardGuildIndex index = new ShardGuildIndex();
+        index.add(0, 1);
+        index.add(1, 2);
+        index.clear();
+
+        assertEquals(0, index.removeShard(0).length);
+        assertEquals(0, index.removeShard(1).length);
+    }
+
+    private static long[] sorted(long[] values) {
+        long[] copy = values.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
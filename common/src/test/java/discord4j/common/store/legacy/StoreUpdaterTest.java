@@ -0,0 +1,109 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.legacy;
+
+import discord4j.store.api.Store;
+import discord4j.store.jdk.JdkStoreService;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StoreUpdaterTest {
+
+    @Test
+    public void testCancelledQueuedUpdateKeepsTheNextOneWaiting() {
+        StoreUpdater updater = new StoreUpdater();
+        Sinks.Empty<Void> release = Sinks.empty();
+        Store<Long, String> store = heldSaves(release.asMono());
+        List<String> seen = new CopyOnWriteArrayList<>();
+
+        updater.replace(store, 1L, "a").subscribe();
+        Disposable cancelled = updater.compute(store, 1L, value -> {
+            seen.add("b:" + value);
+            return "b";
+        }).subscribe();
+        cancelled.dispose();
+        Mono<String> next = updater.compute(store, 1L, value -> {
+            seen.add("c:" + value);
+            return value + "c";
+        }).cache();
+        next.subscribe();
+
+        // the first update is still saving, the cancelled one must not let the next one read the store
+        assertTrue(seen.isEmpty());
+        release.tryEmitEmpty();
+        assertEquals("a", next.block(Duration.ofSeconds(5)));
+        assertEquals("ac", store.find(1L).block());
+        assertEquals(1, seen.size());
+        assertEquals("c:a", seen.get(0));
+    }
+
+    @Test
+    public void testCancelledRunningUpdateCompletesBeforeTheNextOne() {
+        StoreUpdater updater = new StoreUpdater();
+        Sinks.Empty<Void> release = Sinks.empty();
+        Store<Long, String> store = heldSaves(release.asMono());
+        List<String> seen = new CopyOnWriteArrayList<>();
+
+        Disposable cancelled = updater.replace(store, 1L, "a").subscribe();
+        Mono<String> next = updater.compute(store, 1L, value -> {
+            seen.add("b:" + value);
+            return value + "b";
+        }).cache();
+        next.subscribe();
+        cancelled.dispose();
+
+        assertTrue(seen.isEmpty());
+        release.tryEmitEmpty();
+        assertEquals("a", next.block(Duration.ofSeconds(5)));
+        assertEquals("ab", store.find(1L).block());
+    }
+
+    // a store whose writes only complete once the given Mono does
+    @SuppressWarnings("unchecked")
+    private static Store<Long, String> heldSaves(Mono<Void> release) {
+        Store<Long, String> delegate = new JdkStoreService().provideGenericStore(Long.class, String.class);
+        return (Store<Long, String>) Proxy.newProxyInstance(Store.class.getClassLoader(),
+                new Class<?>[] {Store.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("save")) {
+                        return release.then(Mono.defer(() -> (Mono<?>) invoke(delegate, method, args)));
+                    }
+                    return invoke(delegate, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw Exceptions.propagate(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
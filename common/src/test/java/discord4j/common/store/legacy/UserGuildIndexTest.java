@@ -0,0 +1,74 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.store.legacy;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserGuildIndexTest {
+
+    @Test
+    public void testAddIsIdempotent() {
+        UserGuildIndex index = new UserGuildIndex();
+        index.add(1, 10);
+        index.add(1, 10);
+        index.add(1, 20);
+        assertArrayEquals(new long[] {10, 20}, index.getGuilds(1));
+        assertTrue(index.hasGuilds(1));
+        assertFalse(index.hasGuilds(2));
+        assertEquals(0, index.getGuilds(2).length);
+    }
+
+    @Test
+    public void testRemoveReportsLastGuild() {
+        UserGuildIndex index = new UserGuildIndex();
+        index.add(1, 10);
+        index.add(1, 20);
+        assertFalse(index.remove(1, 10));
+        assertArrayEquals(new long[] {20}, index.getGuilds(1));
+        assertTrue(index.remove(1, 20));
+        assertFalse(index.hasGuilds(1));
+    }
+
+    @Test
+    public void testRemoveUnknownGuildKeepsUser() {
+        UserGuildIndex index = new UserGuildIndex();
+        index.add(1, 10);
+        assertFalse(index.remove(1, 30));
+        assertArrayEquals(new long[] {10}, index.getGuilds(1));
+        assertTrue(index.remove(2, 10));
+    }
+
+    @Test
+    public void testGetGuildsReturnsCopy() {
+        UserGuildIndex index = new UserGuildIndex();
+        index.add(1, 10);
+        index.getGuilds(1)[0] = 99;
+        assertArrayEquals(new long[] {10}, index.getGuilds(1));
+    }
+
+    @Test
+    public void testClear() {
+        UserGuildIndex index = new UserGuildIndex();
+        index.add(1, 10);
+        index.add(2, 10);
+        index.clear();
+        assertFalse(index.hasGuilds(1));
+        assertFalse(index.hasGuilds(2));
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ClassRouterTest {
+
+    @Test
+    public void testExactMatchWinsOverRegistrationOrder() {
+        Map<Class<?>, String> routes = new LinkedHashMap<>();
+        routes.put(Number.class, "number");
+        routes.put(Integer.class, "integer");
+        ClassRouter<String> router = ClassRouter.create(routes);
+
+        assertEquals("integer", router.find(Integer.class));
+        assertEquals("number", router.find(Long.class));
+        assertNull(router.find(String.class));
+    }
+
+    @Test
+    public void testAssignableMatchFollowsRegistrationOrder() {
+        Map<Class<?>, String> routes = new LinkedHashMap<>();
+        routes.put(CharSequence.class, "sequence");
+        routes.put(Comparable.class, "comparable");
+        ClassRouter<String> router = ClassRouter.create(routes);
+
+        assertEquals("sequence", router.find(String.class));
+        assertEquals("comparable", router.find(Integer.class));
+        // cached lookups keep returning the same route
+        assertEquals("sequence", router.find(String.class));
+    }
+}
@@ -50,6 +50,7 @@ import discord4j.gateway.json.GatewayPayload;
 import discord4j.gateway.json.ShardGatewayPayload;
 import discord4j.rest.RestClient;
 import discord4j.rest.RestResources;
+import discord4j.rest.util.PermissionSet;
 import discord4j.voice.LocalVoiceConnectionRegistry;
 import discord4j.voice.VoiceConnection;
 import discord4j.voice.VoiceConnectionFactory;
@@ -711,4 +712,9 @@ public class GatewayDiscordClient implements EntityRetriever {
     public Flux<GuildEmoji> getGuildEmojis(Snowflake guildId) {
         return entityRetriever.getGuildEmojis(guildId);
     }
+
+    @Override
+    public Mono<PermissionSet> getMemberBasePermissions(Snowflake guildId, Snowflake userId) {
+        return entityRetriever.getMemberBasePermissions(guildId, userId);
+    }
 }
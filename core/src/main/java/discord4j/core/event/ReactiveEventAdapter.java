@@ -17,6 +17,7 @@
 
 package discord4j.core.event;
 
+import discord4j.common.util.ClassRouter;
 import discord4j.core.event.domain.*;
 import discord4j.core.event.domain.channel.*;
 import discord4j.core.event.domain.guild.*;
@@ -29,12 +30,84 @@ import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
 /**
  * An adapter class to attach reactive listeners to each event type. Create a new instance to subclass it and
  * override one or more event methods. See {@link Event} class for more details.
  */
 public abstract class ReactiveEventAdapter {
 
+    private static final Map<Class<?>, BiFunction<ReactiveEventAdapter, Event, Publisher<?>>> routeMap =
+            new LinkedHashMap<>();
+
+    static {
+        addRoute(ReadyEvent.class, ReactiveEventAdapter::onReady);
+        addRoute(ResumeEvent.class, ReactiveEventAdapter::onResume);
+        addRoute(MessageCreateEvent.class, ReactiveEventAdapter::onMessageCreate);
+        addRoute(MessageDeleteEvent.class, ReactiveEventAdapter::onMessageDelete);
+        addRoute(MessageUpdateEvent.class, ReactiveEventAdapter::onMessageUpdate);
+        addRoute(MessageBulkDeleteEvent.class, ReactiveEventAdapter::onMessageBulkDelete);
+        addRoute(ReactionAddEvent.class, ReactiveEventAdapter::onReactionAdd);
+        addRoute(ReactionRemoveEvent.class, ReactiveEventAdapter::onReactionRemove);
+        addRoute(ReactionRemoveEmojiEvent.class, ReactiveEventAdapter::onReactionRemoveEmoji);
+        addRoute(ReactionRemoveAllEvent.class, ReactiveEventAdapter::onReactionRemoveAll);
+        addRoute(GuildCreateEvent.class, ReactiveEventAdapter::onGuildCreate);
+        addRoute(GuildDeleteEvent.class, ReactiveEventAdapter::onGuildDelete);
+        addRoute(GuildUpdateEvent.class, ReactiveEventAdapter::onGuildUpdate);
+        addRoute(MemberJoinEvent.class, ReactiveEventAdapter::onMemberJoin);
+        addRoute(MemberLeaveEvent.class, ReactiveEventAdapter::onMemberLeave);
+        addRoute(MemberUpdateEvent.class, ReactiveEventAdapter::onMemberUpdate);
+        addRoute(MemberChunkEvent.class, ReactiveEventAdapter::onMemberChunk);
+        addRoute(EmojisUpdateEvent.class, ReactiveEventAdapter::onEmojisUpdate);
+        addRoute(BanEvent.class, ReactiveEventAdapter::onBan);
+        addRoute(UnbanEvent.class, ReactiveEventAdapter::onUnban);
+        addRoute(IntegrationsUpdateEvent.class, ReactiveEventAdapter::onIntegrationsUpdate);
+        addRoute(WebhooksUpdateEvent.class, ReactiveEventAdapter::onWebhooksUpdate);
+        addRoute(TextChannelCreateEvent.class, ReactiveEventAdapter::onTextChannelCreate);
+        addRoute(TextChannelDeleteEvent.class, ReactiveEventAdapter::onTextChannelDelete);
+        addRoute(TextChannelUpdateEvent.class, ReactiveEventAdapter::onTextChannelUpdate);
+        addRoute(VoiceChannelCreateEvent.class, ReactiveEventAdapter::onVoiceChannelCreate);
+        addRoute(VoiceChannelDeleteEvent.class, ReactiveEventAdapter::onVoiceChannelDelete);
+        addRoute(VoiceChannelUpdateEvent.class, ReactiveEventAdapter::onVoiceChannelUpdate);
+        addRoute(CategoryCreateEvent.class, ReactiveEventAdapter::onCategoryCreate);
+        addRoute(CategoryDeleteEvent.class, ReactiveEventAdapter::onCategoryDelete);
+        addRoute(CategoryUpdateEvent.class, ReactiveEventAdapter::onCategoryUpdate);
+        addRoute(NewsChannelCreateEvent.class, ReactiveEventAdapter::onNewsChannelCreate);
+        addRoute(NewsChannelDeleteEvent.class, ReactiveEventAdapter::onNewsChannelDelete);
+        addRoute(NewsChannelUpdateEvent.class, ReactiveEventAdapter::onNewsChannelUpdate);
+        addRoute(StoreChannelCreateEvent.class, ReactiveEventAdapter::onStoreChannelCreate);
+        addRoute(StoreChannelDeleteEvent.class, ReactiveEventAdapter::onStoreChannelDelete);
+        addRoute(StoreChannelUpdateEvent.class, ReactiveEventAdapter::onStoreChannelUpdate);
+        addRoute(TypingStartEvent.class, ReactiveEventAdapter::onTypingStart);
+        addRoute(PinsUpdateEvent.class, ReactiveEventAdapter::onPinsUpdate);
+        addRoute(RoleCreateEvent.class, ReactiveEventAdapter::onRoleCreate);
+        addRoute(RoleDeleteEvent.class, ReactiveEventAdapter::onRoleDelete);
+        addRoute(RoleUpdateEvent.class, ReactiveEventAdapter::onRoleUpdate);
+        addRoute(InviteCreateEvent.class, ReactiveEventAdapter::onInviteCreate);
+        addRoute(InviteDeleteEvent.class, ReactiveEventAdapter::onInviteDelete);
+        addRoute(UserUpdateEvent.class, ReactiveEventAdapter::onUserUpdate);
+        addRoute(PresenceUpdateEvent.class, ReactiveEventAdapter::onPresenceUpdate);
+        addRoute(VoiceStateUpdateEvent.class, ReactiveEventAdapter::onVoiceStateUpdate);
+        addRoute(VoiceServerUpdateEvent.class, ReactiveEventAdapter::onVoiceServerUpdate);
+        addRoute(ConnectEvent.class, ReactiveEventAdapter::onConnect);
+        addRoute(ReconnectEvent.class, ReactiveEventAdapter::onReconnect);
+        addRoute(DisconnectEvent.class, ReactiveEventAdapter::onDisconnect);
+        addRoute(ReconnectStartEvent.class, ReactiveEventAdapter::onReconnectStart);
+        addRoute(ReconnectFailEvent.class, ReactiveEventAdapter::onReconnectFail);
+        addRoute(InteractionCreateEvent.class, ReactiveEventAdapter::onInteractionCreate);
+    }
+
+    private static final ClassRouter<BiFunction<ReactiveEventAdapter, Event, Publisher<?>>> eventRouter =
+            ClassRouter.create(routeMap);
+
+    private static <E extends Event> void addRoute(Class<E> eventType,
+                                                   BiFunction<ReactiveEventAdapter, E, Publisher<?>> method) {
+        routeMap.put(eventType, (adapter, event) -> method.apply(adapter, eventType.cast(event)));
+    }
+
     // ================= Gateway lifecycle events ================= //
 
     /**
@@ -664,65 +737,20 @@ public abstract class ReactiveEventAdapter {
         return new CompositeReactiveEventAdapter(adapters);
     }
 
+    /**
+     * Invoke the listener method matching the type of the given event. The method for each event class is resolved
+     * once and then reused for every following event of the same class.
+     *
+     * @param event the event instance
+     * @return a {@link Publisher} that completes when the matching listener has done processing the event, or an
+     * empty {@link Mono} if no listener method exists for the given event
+     */
     public Publisher<?> hookOnEvent(Event event) {
-        // @formatter:off
-        if (event instanceof ReadyEvent) return onReady((ReadyEvent) event);
-        else if (event instanceof ResumeEvent) return onResume((ResumeEvent) event);
-        else if (event instanceof MessageCreateEvent) return onMessageCreate((MessageCreateEvent) event);
-        else if (event instanceof MessageDeleteEvent) return onMessageDelete((MessageDeleteEvent) event);
-        else if (event instanceof MessageUpdateEvent) return onMessageUpdate((MessageUpdateEvent) event);
-        else if (event instanceof MessageBulkDeleteEvent) return onMessageBulkDelete((MessageBulkDeleteEvent) event);
-        else if (event instanceof ReactionAddEvent) return onReactionAdd((ReactionAddEvent) event);
-        else if (event instanceof ReactionRemoveEvent) return onReactionRemove((ReactionRemoveEvent) event);
-        else if (event instanceof ReactionRemoveEmojiEvent) return onReactionRemoveEmoji((ReactionRemoveEmojiEvent) event);
-        else if (event instanceof ReactionRemoveAllEvent) return onReactionRemoveAll((ReactionRemoveAllEvent) event);
-        else if (event instanceof GuildCreateEvent) return onGuildCreate((GuildCreateEvent) event);
-        else if (event instanceof GuildDeleteEvent) return onGuildDelete((GuildDeleteEvent) event);
-        else if (event instanceof GuildUpdateEvent) return onGuildUpdate((GuildUpdateEvent) event);
-        else if (event instanceof MemberJoinEvent) return onMemberJoin((MemberJoinEvent) event);
-        else if (event instanceof MemberLeaveEvent) return onMemberLeave((MemberLeaveEvent) event);
-        else if (event instanceof MemberUpdateEvent) return onMemberUpdate((MemberUpdateEvent) event);
-        else if (event instanceof MemberChunkEvent) return onMemberChunk((MemberChunkEvent) event);
-        else if (event instanceof EmojisUpdateEvent) return onEmojisUpdate((EmojisUpdateEvent) event);
-        else if (event instanceof BanEvent) return onBan((BanEvent) event);
-        else if (event instanceof UnbanEvent) return onUnban((UnbanEvent) event);
-        else if (event instanceof IntegrationsUpdateEvent) return onIntegrationsUpdate((IntegrationsUpdateEvent) event);
-        else if (event instanceof WebhooksUpdateEvent) return onWebhooksUpdate((WebhooksUpdateEvent) event);
-        else if (event instanceof TextChannelCreateEvent) return onTextChannelCreate((TextChannelCreateEvent) event);
-        else if (event instanceof TextChannelDeleteEvent) return onTextChannelDelete((TextChannelDeleteEvent) event);
-        else if (event instanceof TextChannelUpdateEvent) return onTextChannelUpdate((TextChannelUpdateEvent) event);
-        else if (event instanceof VoiceChannelCreateEvent) return onVoiceChannelCreate((VoiceChannelCreateEvent) event);
-        else if (event instanceof VoiceChannelDeleteEvent) return onVoiceChannelDelete((VoiceChannelDeleteEvent) event);
-        else if (event instanceof VoiceChannelUpdateEvent) return onVoiceChannelUpdate((VoiceChannelUpdateEvent) event);
-        else if (event instanceof CategoryCreateEvent) return onCategoryCreate((CategoryCreateEvent) event);
-        else if (event instanceof CategoryDeleteEvent) return onCategoryDelete((CategoryDeleteEvent) event);
-        else if (event instanceof CategoryUpdateEvent) return onCategoryUpdate((CategoryUpdateEvent) event);
-        else if (event instanceof NewsChannelCreateEvent) return onNewsChannelCreate((NewsChannelCreateEvent) event);
-        else if (event instanceof NewsChannelDeleteEvent) return onNewsChannelDelete((NewsChannelDeleteEvent) event);
-        else if (event instanceof NewsChannelUpdateEvent) return onNewsChannelUpdate((NewsChannelUpdateEvent) event);
-        else if (event instanceof StoreChannelCreateEvent) return onStoreChannelCreate((StoreChannelCreateEvent) event);
-        else if (event instanceof StoreChannelDeleteEvent) return onStoreChannelDelete((StoreChannelDeleteEvent) event);
-        else if (event instanceof StoreChannelUpdateEvent) return onStoreChannelUpdate((StoreChannelUpdateEvent) event);
-        else if (event instanceof TypingStartEvent) return onTypingStart((TypingStartEvent) event);
-        else if (event instanceof PinsUpdateEvent) return onPinsUpdate((PinsUpdateEvent) event);
-        else if (event instanceof RoleCreateEvent) return onRoleCreate((RoleCreateEvent) event);
-        else if (event instanceof RoleDeleteEvent) return onRoleDelete((RoleDeleteEvent) event);
-        else if (event instanceof RoleUpdateEvent) return onRoleUpdate((RoleUpdateEvent) event);
-        else if (event instanceof InviteCreateEvent) return onInviteCreate((InviteCreateEvent) event);
-        else if (event instanceof InviteDeleteEvent) return onInviteDelete((InviteDeleteEvent) event);
-        else if (event instanceof UserUpdateEvent) return onUserUpdate((UserUpdateEvent) event);
-        else if (event instanceof PresenceUpdateEvent) return onPresenceUpdate((PresenceUpdateEvent) event);
-        else if (event instanceof VoiceStateUpdateEvent) return onVoiceStateUpdate((VoiceStateUpdateEvent) event);
-        else if (event instanceof VoiceServerUpdateEvent) return onVoiceServerUpdate((VoiceServerUpdateEvent) event);
-        else if (event instanceof ConnectEvent) return onConnect((ConnectEvent) event);
-        else if (event instanceof ReconnectEvent) return onReconnect((ReconnectEvent) event);
-        else if (event instanceof DisconnectEvent) return onDisconnect((DisconnectEvent) event);
-        else if (event instanceof ReconnectStartEvent) return onReconnectStart((ReconnectStartEvent) event);
-        else if (event instanceof ReconnectFailEvent) return onReconnectFail((ReconnectFailEvent) event);
-        else if (event instanceof InteractionCreateEvent) return onInteractionCreate((InteractionCreateEvent) event);
-        // @formatter:on
-
-        return Mono.empty();
+        BiFunction<ReactiveEventAdapter, Event, Publisher<?>> method = eventRouter.find(event.getClass());
+        if (method == null) {
+            return Mono.empty();
+        }
+        return method.apply(this, event);
     }
 
     private static class CompositeReactiveEventAdapter extends ReactiveEventAdapter {
@@ -0,0 +1,208 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.core.event;
+
+import discord4j.common.LogUtil;
+import discord4j.common.annotations.Experimental;
+import discord4j.common.sinks.EmissionStrategy;
+import discord4j.core.event.domain.Event;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static discord4j.common.LogUtil.format;
+
+/**
+ * Distributes {@link Event} instances to subscribers indexed by the event class they requested.
+ * <p>
+ * Each subscriber owns an unbounded queue drained on the configured {@link Scheduler}. Publishing an event resolves,
+ * once per concrete event class, the subscribers whose requested class is the same type or a supertype of it, and
+ * only those are handed the event. Subscribers of unrelated types never queue, type-check or hop threads for it.
+ * The resolved routes are discarded whenever a subscriber is added or removed.
+ * <p>
+ * Events published while no subscriber is interested in them are dropped, there is no buffering of startup events
+ * before the first subscription.
+ */
+@Experimental
+public class TypeIndexedEventDispatcher implements EventDispatcher {
+
+    private static final Logger log = Loggers.getLogger(TypeIndexedEventDispatcher.class);
+
+    private final ConcurrentMap<Class<?>, Set<Sinks.Many<Event>>> subscribers = new ConcurrentHashMap<>();
+    private final EmissionStrategy emissionStrategy;
+    private final Scheduler eventScheduler;
+
+    private volatile ConcurrentMap<Class<?>, List<Sinks.Many<Event>>> routes = new ConcurrentHashMap<>();
+    private volatile boolean shutdown;
+
+    /**
+     * Creates a new type-indexed event dispatcher using the given threading model.
+     *
+     * @param emissionStrategy a strategy to handle emission failures to each subscriber
+     * @param eventScheduler a {@link Scheduler} to ensure a certain thread model on each published signal
+     */
+    public TypeIndexedEventDispatcher(EmissionStrategy emissionStrategy, Scheduler eventScheduler) {
+        this.emissionStrategy = emissionStrategy;
+        this.eventScheduler = eventScheduler;
+    }
+
+    /**
+     * Create a builder to configure a {@link TypeIndexedEventDispatcher}.
+     *
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public <E extends Event> Flux<E> on(Class<E> eventClass) {
+        return Flux.defer(() -> {
+            Sinks.Many<Event> events = Sinks.many().unicast().onBackpressureBuffer();
+            AtomicReference<Subscription> subscription = new AtomicReference<>();
+            return events.asFlux()
+                    .publishOn(eventScheduler)
+                    .<E>handle((event, sink) -> {
+                        if (log.isTraceEnabled()) {
+                            log.trace(format(sink.currentContext().put(LogUtil.KEY_SHARD_ID,
+                                    event.getShardInfo().getIndex()), "{}"), event.toString());
+                        }
+                        sink.next(eventClass.cast(event));
+                    })
+                    .doOnSubscribe(sub -> {
+                        subscription.set(sub);
+                        register(eventClass, events);
+                        if (log.isDebugEnabled()) {
+                            log.debug("Subscription {} to {} created", Integer.toHexString(sub.hashCode()),
+                                    eventClass.getSimpleName());
+                        }
+                    })
+                    .doFinally(signal -> {
+                        unregister(eventClass, events);
+                        if (log.isDebugEnabled()) {
+                            log.debug("Subscription {} to {} disposed due to {}",
+                                    Integer.toHexString(subscription.get().hashCode()), eventClass.getSimpleName(),
+                                    signal);
+                        }
+                    });
+        });
+    }
+
+    @Override
+    public void publish(Event event) {
+        for (Sinks.Many<Event> sink : routes.computeIfAbsent(event.getClass(), this::resolve)) {
+            emissionStrategy.emitNext(sink, event);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        subscribers.values().forEach(sinks -> sinks.forEach(emissionStrategy::emitComplete));
+    }
+
+    private void register(Class<?> eventClass, Sinks.Many<Event> sink) {
+        subscribers.compute(eventClass, (type, sinks) -> {
+            Set<Sinks.Many<Event>> set = sinks == null ? new CopyOnWriteArraySet<>() : sinks;
+            set.add(sink);
+            return set;
+        });
+        routes = new ConcurrentHashMap<>();
+        if (shutdown) {
+            emissionStrategy.emitComplete(sink);
+        }
+    }
+
+    private void unregister(Class<?> eventClass, Sinks.Many<Event> sink) {
+        subscribers.computeIfPresent(eventClass, (type, sinks) -> {
+            sinks.remove(sink);
+            return sinks.isEmpty() ? null : sinks;
+        });
+        routes = new ConcurrentHashMap<>();
+    }
+
+    private List<Sinks.Many<Event>> resolve(Class<?> eventClass) {
+        List<Sinks.Many<Event>> matching = new ArrayList<>();
+        subscribers.forEach((type, sinks) -> {
+            if (type.isAssignableFrom(eventClass)) {
+                matching.addAll(sinks);
+            }
+        });
+        return matching.isEmpty() ? Collections.emptyList() : matching;
+    }
+
+    /**
+     * A builder to create {@link TypeIndexedEventDispatcher} instances.
+     */
+    public static class Builder {
+
+        protected EmissionStrategy emissionStrategy;
+        protected Scheduler eventScheduler;
+
+        protected Builder() {
+        }
+
+        /**
+         * Set the {@link EmissionStrategy} to apply when handing an event to a subscriber fails, which can happen
+         * when events are published concurrently from multiple shards. Defaults to a timeout-then-drop strategy after
+         * 10 seconds.
+         *
+         * @param emissionStrategy the emission failure handling strategy
+         * @return this builder
+         */
+        public Builder emissionStrategy(EmissionStrategy emissionStrategy) {
+            this.emissionStrategy = Objects.requireNonNull(emissionStrategy);
+            return this;
+        }
+
+        /**
+         * Set the {@link Scheduler} this dispatcher should use to publish events to its subscribers. Using a bounded
+         * elastic/blocking-capable one is recommended for general workloads that may have blocking sequences.
+         *
+         * @param eventScheduler a custom {@link Scheduler} to publish events
+         * @return this builder
+         */
+        public Builder eventScheduler(Scheduler eventScheduler) {
+            this.eventScheduler = Objects.requireNonNull(eventScheduler);
+            return this;
+        }
+
+        public EventDispatcher build() {
+            if (emissionStrategy == null) {
+                emissionStrategy = EmissionStrategy.timeoutDrop(Duration.ofSeconds(10));
+            }
+            if (eventScheduler == null) {
+                eventScheduler = DEFAULT_EVENT_SCHEDULER.get();
+            }
+            return new TypeIndexedEventDispatcher(emissionStrategy, eventScheduler);
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package discord4j.core.event.dispatch;
 
 import discord4j.common.store.api.object.PresenceAndUserData;
+import discord4j.common.util.ClassRouter;
 import discord4j.common.util.Snowflake;
 import discord4j.core.GatewayDiscordClient;
 import discord4j.core.event.domain.*;
@@ -37,7 +38,7 @@ import reactor.util.Loggers;
 
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -45,7 +46,7 @@ import java.util.Map;
  */
 public class DispatchHandlers implements DispatchEventMapper {
 
-    private static final Map<Class<?>, DispatchHandler<?, ?, ?>> handlerMap = new HashMap<>();
+    private static final Map<Class<?>, DispatchHandler<?, ?, ?>> handlerMap = new LinkedHashMap<>();
 
     static {
         addHandler(ChannelCreate.class, ChannelDispatchHandlers::channelCreate);
@@ -91,6 +92,8 @@ public class DispatchHandlers implements DispatchEventMapper {
         addHandler(UnavailableGuildCreate.class, context -> Mono.empty());
     }
 
+    private static final ClassRouter<DispatchHandler<?, ?, ?>> handlerRouter = ClassRouter.create(handlerMap);
+
     private static <D, S, E extends Event> void addHandler(Class<D> dispatchType,
                                                            DispatchHandler<D, S, E> dispatchHandler) {
         handlerMap.put(dispatchType, dispatchHandler);
@@ -109,12 +112,8 @@ public class DispatchHandlers implements DispatchEventMapper {
      */
     @SuppressWarnings("unchecked")
     public <D, S, E extends Event> Mono<E> handle(DispatchContext<D, S> context) {
-        DispatchHandler<D, S, E> handler = (DispatchHandler<D, S, E>) handlerMap.entrySet()
-                .stream()
-                .filter(entry -> entry.getKey().isAssignableFrom(context.getDispatch().getClass()))
-                .map(Map.Entry::getValue)
-                .findFirst()
-                .orElse(null);
+        DispatchHandler<D, S, E> handler =
+                (DispatchHandler<D, S, E>) handlerRouter.find(context.getDispatch().getClass());
         if (handler == null) {
             log.warn("Handler not found from: {}", context.getDispatch().getClass());
             return Mono.empty();
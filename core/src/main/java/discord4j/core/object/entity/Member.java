@@ -25,7 +25,6 @@ import discord4j.core.retriever.EntityRetrievalStrategy;
 import discord4j.core.spec.BanQuerySpec;
 import discord4j.core.spec.GuildMemberEditSpec;
 import discord4j.core.util.OrderUtil;
-import discord4j.core.util.PermissionUtil;
 import discord4j.discordjson.json.MemberData;
 import discord4j.discordjson.json.gateway.ImmutableRequestGuildMembers;
 import discord4j.discordjson.json.gateway.RequestGuildMembers;
@@ -39,12 +38,10 @@ import reactor.util.annotation.Nullable;
 
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -400,13 +397,7 @@ public final class Member extends User {
      * @return The permissions granted to this member by his roles in the guild.
      */
     public Mono<PermissionSet> getBasePermissions() {
-        Mono<Boolean> getIsOwner = getGuild().map(guild -> guild.getOwnerId().equals(getId()));
-        Mono<PermissionSet> getEveryonePerms = getGuild().flatMap(Guild::getEveryoneRole).map(Role::getPermissions);
-        Mono<List<PermissionSet>> getRolePerms = getRoles().map(Role::getPermissions).collectList();
-
-        return getIsOwner.filter(Predicate.isEqual(Boolean.TRUE))
-                .flatMap(ignored -> Mono.just(PermissionSet.all()))
-                .switchIfEmpty(Mono.zip(getEveryonePerms, getRolePerms, PermissionUtil::computeBasePermissions));
+        return getClient().getMemberBasePermissions(getGuildId(), getId());
     }
 
     /**
@@ -20,7 +20,6 @@ import discord4j.core.GatewayDiscordClient;
 import discord4j.core.object.ExtendedPermissionOverwrite;
 import discord4j.core.object.PermissionOverwrite;
 import discord4j.core.object.entity.Guild;
-import discord4j.core.object.entity.Member;
 import discord4j.core.retriever.EntityRetrievalStrategy;
 import discord4j.core.util.OrderUtil;
 import discord4j.core.util.PermissionUtil;
@@ -97,20 +96,20 @@ class BaseGuildChannel extends BaseChannel implements GuildChannel {
 
     @Override
     public Mono<PermissionSet> getEffectivePermissions(Snowflake memberId) {
-        Mono<Member> getMember = getClient().getMemberById(getGuildId(), memberId);
-        Mono<PermissionSet> getBasePerms = getMember.flatMap(Member::getBasePermissions);
-
-        return Mono.zip(getMember, getBasePerms, (member, basePerms) -> {
-            PermissionOverwrite everyoneOverwrite = getOverwriteForRole(getGuildId()).orElse(null);
-
-            List<PermissionOverwrite> roleOverwrites = member.getRoleIds().stream()
-                    .map(this::getOverwriteForRole)
-                    .flatMap(o -> o.map(Stream::of).orElseGet(Stream::empty)) // jdk 9 Optional#stream
-                    .collect(Collectors.toList());
-            PermissionOverwrite memberOverwrite = getOverwriteForMember(member.getId()).orElse(null);
-
-            return PermissionUtil.computePermissions(basePerms, everyoneOverwrite, roleOverwrites, memberOverwrite);
-        });
+        // the member provides the role ids for the overwrites, its base permissions come from the entity retriever
+        return getClient().getMemberById(getGuildId(), memberId)
+                .flatMap(member -> member.getBasePermissions().map(basePerms -> {
+                    PermissionOverwrite everyoneOverwrite = getOverwriteForRole(getGuildId()).orElse(null);
+
+                    List<PermissionOverwrite> roleOverwrites = member.getRoleIds().stream()
+                            .map(this::getOverwriteForRole)
+                            .flatMap(o -> o.map(Stream::of).orElseGet(Stream::empty)) // jdk 9 Optional#stream
+                            .collect(Collectors.toList());
+                    PermissionOverwrite memberOverwrite = getOverwriteForMember(member.getId()).orElse(null);
+
+                    return PermissionUtil.computePermissions(basePerms, everyoneOverwrite, roleOverwrites,
+                            memberOverwrite);
+                }));
     }
 
     @Override
@@ -96,7 +96,7 @@ class BaseMessageChannel extends BaseChannel implements MessageChannel {
 
     @Override
     public final Flux<Long> typeUntil(final Publisher<?> until) {
-        Scheduler delayScheduler = getClient().getCoreResources().getReactorResources().getTimerTaskScheduler();
+        Scheduler delayScheduler = getClient().getCoreResources().getReactorResources().getCoarseTimerScheduler();
         Flux<Long> repeatUntilOther = Flux.interval(Duration.ofSeconds(8L), delayScheduler) // 8 to avoid
                 // choppiness
                 .flatMap(tick -> type().thenReturn(tick + 1)) // add 1 to offset the separate type() request
@@ -25,10 +25,15 @@ import discord4j.core.object.entity.User;
 import discord4j.core.object.entity.channel.Channel;
 import discord4j.core.object.entity.channel.GuildChannel;
 import discord4j.core.util.OrderUtil;
+import discord4j.core.util.PermissionUtil;
 import discord4j.common.util.Snowflake;
+import discord4j.rest.util.PermissionSet;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Abstraction for entity retrieval.
  */
@@ -157,4 +162,41 @@ public interface EntityRetriever {
      * it is emitted through the {@code Flux}.
      */
     Flux<GuildEmoji> getGuildEmojis(Snowflake guildId);
+
+    /**
+     * Requests to calculate the permissions granted to a member by its roles in the guild.
+     * <p>
+     * The default implementation retrieves the guild, the member and the guild's roles separately. Implementations
+     * able to retrieve the member along with its roles at once should override it.
+     *
+     * @param guildId the ID of the guild
+     * @param userId the ID of the member
+     * @return A {@link Mono} where, upon successful completion, emits the base {@link PermissionSet permissions} of
+     * the member. If the member is not found, the {@code Mono} completes empty. If an error is received, it is emitted
+     * through the {@code Mono}.
+     */
+    default Mono<PermissionSet> getMemberBasePermissions(Snowflake guildId, Snowflake userId) {
+        // the guild owner is granted every permission, roles are not retrieved at all
+        return getGuildById(guildId).flatMap(guild -> {
+            if (guild.getOwnerId().equals(userId)) {
+                return Mono.just(PermissionSet.all());
+            }
+            return getMemberById(guildId, userId)
+                    .flatMap(member -> getGuildRoles(guildId)
+                            .filter(role -> role.isEveryone() || member.getRoleIds().contains(role.getId()))
+                            .collectList()
+                            .map(roles -> {
+                                PermissionSet everyonePerms = PermissionSet.none();
+                                List<PermissionSet> rolePerms = new ArrayList<>(roles.size());
+                                for (Role role : roles) {
+                                    if (role.isEveryone()) {
+                                        everyonePerms = role.getPermissions();
+                                    } else {
+                                        rolePerms.add(role.getPermissions());
+                                    }
+                                }
+                                return PermissionUtil.computeBasePermissions(everyonePerms, rolePerms);
+                            }));
+        });
+    }
 }
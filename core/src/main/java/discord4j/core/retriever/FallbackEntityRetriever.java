@@ -25,6 +25,7 @@ import discord4j.core.object.entity.User;
 import discord4j.core.object.entity.channel.Channel;
 import discord4j.core.object.entity.channel.GuildChannel;
 import discord4j.common.util.Snowflake;
+import discord4j.rest.util.PermissionSet;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -102,4 +103,10 @@ public class FallbackEntityRetriever implements EntityRetriever {
     public Flux<GuildEmoji> getGuildEmojis(Snowflake guildId) {
         return first.getGuildEmojis(guildId).switchIfEmpty(fallback.getGuildEmojis(guildId));
     }
+
+    @Override
+    public Mono<PermissionSet> getMemberBasePermissions(Snowflake guildId, Snowflake userId) {
+        return first.getMemberBasePermissions(guildId, userId)
+                .switchIfEmpty(fallback.getMemberBasePermissions(guildId, userId));
+    }
 }
@@ -25,10 +25,15 @@ import discord4j.core.object.entity.*;
 import discord4j.core.object.entity.channel.Channel;
 import discord4j.core.object.entity.channel.GuildChannel;
 import discord4j.core.util.EntityUtil;
+import discord4j.core.util.PermissionUtil;
+import discord4j.discordjson.json.RoleData;
+import discord4j.rest.util.PermissionSet;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 public class StoreEntityRetriever implements EntityRetriever {
 
@@ -122,4 +127,25 @@ public class StoreEntityRetriever implements EntityRetriever {
         return Flux.from(store.execute(ReadActions.getEmojisInGuild(guildId.asLong())))
                 .map(emojiData -> new GuildEmoji(gateway, emojiData, guildId.asLong()));
     }
+
+    @Override
+    public Mono<PermissionSet> getMemberBasePermissions(Snowflake guildId, Snowflake userId) {
+        // the member, the guild owner and the roles are read in a single store action
+        return Mono.from(store.execute(ReadActions.getMemberAndRolesById(guildId.asLong(), userId.asLong())))
+                .map(data -> {
+                    if (data.getGuildOwnerId() == userId.asLong()) {
+                        return PermissionSet.all();
+                    }
+                    PermissionSet everyonePerms = PermissionSet.none();
+                    List<PermissionSet> rolePerms = new ArrayList<>(data.getRoleData().size());
+                    for (RoleData role : data.getRoleData()) {
+                        if (Snowflake.asLong(role.id()) == guildId.asLong()) {
+                            everyonePerms = PermissionSet.of(role.permissions());
+                        } else {
+                            rolePerms.add(PermissionSet.of(role.permissions()));
+                        }
+                    }
+                    return PermissionUtil.computeBasePermissions(everyonePerms, rolePerms);
+                });
+    }
 }
@@ -0,0 +1,279 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.core.shard;
+
+import discord4j.common.util.ClassRouter;
+import discord4j.common.util.Snowflake;
+import discord4j.discordjson.json.gateway.*;
+import discord4j.discordjson.possible.Possible;
+import discord4j.gateway.retry.GatewayStateChange;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.annotation.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Processes gateway dispatches across a fixed number of lanes, keyed by the guild each dispatch belongs to.
+ * <p>
+ * Dispatches of the same guild always hash to the same lane, where they are stored and mapped to events one at a
+ * time, in the order they were received. Direct message dispatches are keyed by their channel instead, keeping each
+ * conversation ordered. Distinct lanes run in parallel on the given {@link Scheduler}, bounding the processing
+ * concurrency of each shard to the number of lanes.
+ * <p>
+ * Dispatches affecting the whole shard, like READY, RESUMED, USER_UPDATE or gateway state changes that may
+ * invalidate the shard's cached entities, act as a barrier: every lane is drained before they are processed on
+ * their own, and following dispatches are only processed once they complete.
+ * <p>
+ * An instance also tracks, for each lane, the number of dispatches received but not yet processed and the total
+ * number of processed dispatches. Shard-scoped dispatches are accounted in the first lane. When shared across the
+ * shards of a {@link GatewayBootstrap}, these metrics aggregate all of them, and up to the number of lanes times the
+ * number of shards dispatches can be processed in parallel.
+ */
+public class DispatchLanes {
+
+    private static final ClassRouter<Function<Dispatch, String>> guildIdRouter;
+    private static final ClassRouter<Function<Dispatch, String>> channelIdRouter;
+
+    static {
+        Map<Class<?>, Function<Dispatch, String>> routes = new LinkedHashMap<>();
+        addRoute(routes, ChannelCreate.class, d -> orNull(d.channel().guildId()));
+        addRoute(routes, ChannelDelete.class, d -> orNull(d.channel().guildId()));
+        addRoute(routes, ChannelPinsUpdate.class, d -> orNull(d.guildId()));
+        addRoute(routes, ChannelUpdate.class, d -> orNull(d.channel().guildId()));
+        addRoute(routes, GuildBanAdd.class, GuildBanAdd::guildId);
+        addRoute(routes, GuildBanRemove.class, GuildBanRemove::guildId);
+        addRoute(routes, GuildCreate.class, d -> d.guild().id());
+        addRoute(routes, GuildDelete.class, d -> d.guild().id());
+        addRoute(routes, GuildEmojisUpdate.class, GuildEmojisUpdate::guildId);
+        addRoute(routes, GuildIntegrationsUpdate.class, GuildIntegrationsUpdate::guildId);
+        addRoute(routes, GuildMemberAdd.class, GuildMemberAdd::guildId);
+        addRoute(routes, GuildMemberRemove.class, GuildMemberRemove::guildId);
+        addRoute(routes, GuildMembersChunk.class, GuildMembersChunk::guildId);
+        addRoute(routes, GuildMemberUpdate.class, GuildMemberUpdate::guildId);
+        addRoute(routes, GuildRoleCreate.class, GuildRoleCreate::guildId);
+        addRoute(routes, GuildRoleDelete.class, GuildRoleDelete::guildId);
+        addRoute(routes, GuildRoleUpdate.class, GuildRoleUpdate::guildId);
+        addRoute(routes, GuildUpdate.class, d -> d.guild().id());
+        addRoute(routes, InviteCreate.class, InviteCreate::guildId);
+        addRoute(routes, InviteDelete.class, InviteDelete::guildId);
+        addRoute(routes, MessageCreate.class, d -> orNull(d.message().guildId()));
+        addRoute(routes, MessageDelete.class, d -> orNull(d.guildId()));
+        addRoute(routes, MessageDeleteBulk.class, d -> orNull(d.guildId()));
+        addRoute(routes, MessageReactionAdd.class, d -> orNull(d.guildId()));
+        addRoute(routes, MessageReactionRemove.class, d -> orNull(d.guildId()));
+        addRoute(routes, MessageReactionRemoveAll.class, d -> orNull(d.guildId()));
+        addRoute(routes, MessageReactionRemoveEmoji.class, d -> orNull(d.guildId()));
+        addRoute(routes, MessageUpdate.class, d -> orNull(d.message().guildId()));
+        addRoute(routes, PresenceUpdate.class, PresenceUpdate::guildId);
+        addRoute(routes, TypingStart.class, d -> orNull(d.guildId()));
+        addRoute(routes, VoiceServerUpdate.class, VoiceServerUpdate::guildId);
+        addRoute(routes, VoiceStateUpdateDispatch.class, d -> orNull(d.voiceState().guildId()));
+        addRoute(routes, WebhooksUpdate.class, WebhooksUpdate::guildId);
+        guildIdRouter = ClassRouter.create(routes);
+
+        // the key of dispatches that can belong to a direct message channel, used when they have no guild
+        Map<Class<?>, Function<Dispatch, String>> channelRoutes = new LinkedHashMap<>();
+        addRoute(channelRoutes, ChannelCreate.class, d -> d.channel().id());
+        addRoute(channelRoutes, ChannelDelete.class, d -> d.channel().id());
+        addRoute(channelRoutes, ChannelPinsUpdate.class, ChannelPinsUpdate::channelId);
+        addRoute(channelRoutes, ChannelUpdate.class, d -> d.channel().id());
+        addRoute(channelRoutes, MessageCreate.class, d -> d.message().channelId());
+        addRoute(channelRoutes, MessageDelete.class, MessageDelete::channelId);
+        addRoute(channelRoutes, MessageDeleteBulk.class, MessageDeleteBulk::channelId);
+        addRoute(channelRoutes, MessageReactionAdd.class, MessageReactionAdd::channelId);
+        addRoute(channelRoutes, MessageReactionRemove.class, MessageReactionRemove::channelId);
+        addRoute(channelRoutes, MessageReactionRemoveAll.class, MessageReactionRemoveAll::channelId);
+        addRoute(channelRoutes, MessageReactionRemoveEmoji.class, MessageReactionRemoveEmoji::channelId);
+        addRoute(channelRoutes, MessageUpdate.class, d -> d.message().channelId());
+        addRoute(channelRoutes, TypingStart.class, TypingStart::channelId);
+        channelIdRouter = ClassRouter.create(channelRoutes);
+    }
+
+    private static <D extends Dispatch> void addRoute(Map<Class<?>, Function<Dispatch, String>> routes,
+                                                      Class<D> dispatchType,
+                                                      Function<D, String> id) {
+        routes.put(dispatchType, dispatch -> id.apply(dispatchType.cast(dispatch)));
+    }
+
+    private static boolean isShardScoped(Dispatch dispatch) {
+        return dispatch instanceof Ready || dispatch instanceof Resumed || dispatch instanceof UserUpdate
+                || dispatch instanceof GatewayStateChange;
+    }
+
+    @Nullable
+    private static String orNull(Possible<String> possible) {
+        return possible.toOptional().orElse(null);
+    }
+
+    private final int laneCount;
+    private final Scheduler scheduler;
+    private final AtomicIntegerArray depths;
+    private final AtomicLongArray processed;
+
+    private DispatchLanes(int laneCount, Scheduler scheduler) {
+        if (laneCount < 1) {
+            throw new IllegalArgumentException("laneCount must be positive");
+        }
+        this.laneCount = laneCount;
+        this.scheduler = scheduler;
+        this.depths = new AtomicIntegerArray(laneCount);
+        this.processed = new AtomicLongArray(laneCount);
+    }
+
+    /**
+     * Create a new {@link DispatchLanes} with one lane per available processor, running on
+     * {@link Schedulers#parallel()}.
+     *
+     * @return a new {@link DispatchLanes}
+     */
+    public static DispatchLanes create() {
+        return create(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a new {@link DispatchLanes} with the given number of lanes, running on {@link Schedulers#parallel()}.
+     *
+     * @param laneCount the number of lanes, which is also the maximum number of dispatches of a shard processed in
+     * parallel
+     * @return a new {@link DispatchLanes}
+     */
+    public static DispatchLanes create(int laneCount) {
+        return create(laneCount, Schedulers.parallel());
+    }
+
+    /**
+     * Create a new {@link DispatchLanes} with the given number of lanes, running on the given {@link Scheduler}.
+     *
+     * @param laneCount the number of lanes, which is also the maximum number of dispatches of a shard processed in
+     * parallel
+     * @param scheduler the {@link Scheduler} each lane is processed on
+     * @return a new {@link DispatchLanes}
+     */
+    public static DispatchLanes create(int laneCount, Scheduler scheduler) {
+        return new DispatchLanes(laneCount, scheduler);
+    }
+
+    /**
+     * Return the number of lanes.
+     *
+     * @return the number of lanes
+     */
+    public int getLaneCount() {
+        return laneCount;
+    }
+
+    /**
+     * Return the lane index the given dispatch is processed on. Dispatches without a guild are routed by their
+     * channel if they have one, and to the first lane otherwise.
+     *
+     * @param dispatch the dispatch to route
+     * @return the index of the lane, between 0 and {@link #getLaneCount()} exclusive
+     */
+    public int getLane(Dispatch dispatch) {
+        String id = route(guildIdRouter, dispatch);
+        if (id == null) {
+            id = route(channelIdRouter, dispatch);
+        }
+        if (id == null) {
+            return 0;
+        }
+        long value = Snowflake.asLong(id);
+        int hash = Long.hashCode(value);
+        return Math.floorMod(hash ^ (hash >>> 16), laneCount);
+    }
+
+    /**
+     * Return the number of dispatches received by the given lane that are not yet processed.
+     *
+     * @param lane the index of the lane
+     * @return the current depth of the lane
+     */
+    public int getDepth(int lane) {
+        return depths.get(lane);
+    }
+
+    /**
+     * Return the greatest current depth across all lanes.
+     *
+     * @return the depth of the most loaded lane
+     */
+    public int getMaxDepth() {
+        int max = 0;
+        for (int i = 0; i < laneCount; i++) {
+            max = Math.max(max, depths.get(i));
+        }
+        return max;
+    }
+
+    /**
+     * Return the number of dispatches processed by the given lane.
+     *
+     * @param lane the index of the lane
+     * @return the total number of processed dispatches in the lane
+     */
+    public long getProcessedCount(int lane) {
+        return processed.get(lane);
+    }
+
+    @Nullable
+    private static String route(ClassRouter<Function<Dispatch, String>> router, Dispatch dispatch) {
+        Function<Dispatch, String> id = router.find(dispatch.getClass());
+        return id == null ? null : id.apply(dispatch);
+    }
+
+    <T> Flux<T> process(Flux<Dispatch> dispatches, Function<Dispatch, ? extends Publisher<T>> processor) {
+        // every window but the first starts with a shard-scoped dispatch, windows are processed one after another
+        return dispatches.windowUntil(DispatchLanes::isShardScoped, true)
+                .concatMap(window -> window.switchOnFirst((first, rest) -> {
+                    Dispatch dispatch = first.get();
+                    if (dispatch != null && isShardScoped(dispatch)) {
+                        depths.incrementAndGet(0);
+                        return Flux.defer(() -> processOne(0, dispatch, processor))
+                                .subscribeOn(scheduler)
+                                .concatWith(processLanes(rest.skip(1), processor));
+                    }
+                    return processLanes(rest, processor);
+                }));
+    }
+
+    private <T> Flux<T> processLanes(Flux<Dispatch> dispatches,
+                                     Function<Dispatch, ? extends Publisher<T>> processor) {
+        return dispatches.groupBy(this::getLane)
+                .flatMap(lane -> {
+                    int index = lane.key();
+                    return lane.doOnNext(__ -> depths.incrementAndGet(index))
+                            .publishOn(scheduler)
+                            .concatMap(dispatch -> processOne(index, dispatch, processor));
+                }, laneCount);
+    }
+
+    private <T> Flux<T> processOne(int index, Dispatch dispatch,
+                                   Function<Dispatch, ? extends Publisher<T>> processor) {
+        return Flux.<T>from(processor.apply(dispatch))
+                .doFinally(__ -> {
+                    depths.decrementAndGet(index);
+                    processed.incrementAndGet(index);
+                });
+    }
+}
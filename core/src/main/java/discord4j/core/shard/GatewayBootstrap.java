@@ -17,10 +17,12 @@
 
 package discord4j.core.shard;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import discord4j.common.LogUtil;
 import discord4j.common.ReactorResources;
 import discord4j.common.annotations.Experimental;
 import discord4j.common.retry.ReconnectOptions;
+import discord4j.common.sinks.EmissionStrategy;
 import discord4j.common.store.Store;
 import discord4j.common.store.action.gateway.GatewayActions;
 import discord4j.common.store.legacy.LegacyStoreLayout;
@@ -38,6 +40,8 @@ import discord4j.core.object.entity.Member;
 import discord4j.core.object.presence.Presence;
 import discord4j.core.retriever.EntityRetrievalStrategy;
 import discord4j.discordjson.json.ActivityUpdateRequest;
+import discord4j.discordjson.json.GatewayData;
+import discord4j.discordjson.json.gateway.Dispatch;
 import discord4j.discordjson.json.gateway.GuildMembersChunk;
 import discord4j.discordjson.json.gateway.StatusUpdate;
 import discord4j.gateway.*;
@@ -45,7 +49,11 @@ import discord4j.gateway.intent.Intent;
 import discord4j.gateway.intent.IntentSet;
 import discord4j.gateway.limiter.PayloadTransformer;
 import discord4j.gateway.limiter.RateLimitTransformer;
+import discord4j.gateway.json.dispatch.EventNames;
+import discord4j.gateway.payload.EtfPayloadReader;
+import discord4j.gateway.payload.EtfPayloadWriter;
 import discord4j.gateway.payload.JacksonPayloadReader;
+import discord4j.gateway.payload.JacksonStreamingPayloadReader;
 import discord4j.gateway.payload.JacksonPayloadWriter;
 import discord4j.gateway.payload.PayloadReader;
 import discord4j.gateway.payload.PayloadWriter;
@@ -136,6 +144,11 @@ public class GatewayBootstrap<O extends GatewayOptions> {
     private EntityRetrievalStrategy entityRetrievalStrategy = null;
     private DispatchEventMapper dispatchEventMapper = null;
     private int maxMissedHeartbeatAck = 1;
+    private ZlibDecompressor.Mode decompressorMode = ZlibDecompressor.Mode.BUFFERED;
+    private Set<String> enabledDispatch = null;
+    private DispatchLanes dispatchLanes = null;
+    private int storeBatchSize = 1;
+    private Duration storeBatchDelay = Duration.ZERO;
     private Function<EventDispatcher, Publisher<?>> dispatcherFunction;
 
     /**
@@ -180,6 +193,11 @@ public class GatewayBootstrap<O extends GatewayOptions> {
         this.entityRetrievalStrategy = source.entityRetrievalStrategy;
         this.dispatchEventMapper = source.dispatchEventMapper;
         this.maxMissedHeartbeatAck = source.maxMissedHeartbeatAck;
+        this.decompressorMode = source.decompressorMode;
+        this.enabledDispatch = source.enabledDispatch;
+        this.dispatchLanes = source.dispatchLanes;
+        this.storeBatchSize = source.storeBatchSize;
+        this.storeBatchDelay = source.storeBatchDelay;
         this.dispatcherFunction = source.dispatcherFunction;
     }
 
@@ -437,7 +455,10 @@ public class GatewayBootstrap<O extends GatewayOptions> {
     }
 
     /**
-     * Customize how inbound Gateway payloads are decoded from {@link ByteBuf}.
+     * Customize how inbound Gateway payloads are decoded from {@link ByteBuf}. The Gateway {@code encoding} used to
+     * connect is given by {@link PayloadReader#getEncoding()}, so setting an {@link EtfPayloadReader} will connect
+     * using ETF encoding and, unless customized through {@link #setPayloadWriter(PayloadWriter)}, encode outbound
+     * payloads using {@link EtfPayloadWriter}.
      *
      * @param payloadReader a Gateway payload decoder
      * @return this builder
@@ -448,7 +469,9 @@ public class GatewayBootstrap<O extends GatewayOptions> {
     }
 
     /**
-     * Customize how outbound Gateway payloads are encoded into {@link ByteBuf}.
+     * Customize how outbound Gateway payloads are encoded into {@link ByteBuf}. Its
+     * {@link PayloadWriter#getEncoding()} must match the one of the {@link PayloadReader}, otherwise connecting fails
+     * with an {@link IllegalArgumentException}.
      *
      * @param payloadWriter a Gateway payload encoder
      * @return this builder
@@ -458,6 +481,26 @@ public class GatewayBootstrap<O extends GatewayOptions> {
         return this;
     }
 
+    /**
+     * Set the names of the Gateway dispatch events that should be decoded, as defined in {@link EventNames}. Every
+     * other dispatch will have its contents skipped while reading, without being processed by the {@link Store} nor
+     * published as an {@link Event}. Defaults to {@code null}, decoding all dispatch events.
+     * <p>
+     * Dispatch sequence numbers are still tracked for skipped events, so resuming a session is not affected. Events
+     * required to maintain a session like READY and RESUMED are always decoded. Make sure to include the events your
+     * entity cache depends on, like GUILD_CREATE, when using the default {@link Store}.
+     * <p>
+     * This setting is applied through {@link JacksonStreamingPayloadReader} and has no effect if a custom
+     * {@link PayloadReader} is set through {@link #setPayloadReader(PayloadReader)}.
+     *
+     * @param enabledDispatch set of dispatch event names to decode, or {@code null} to decode all of them
+     * @return this builder
+     */
+    public GatewayBootstrap<O> setEnabledDispatch(@Nullable Set<String> enabledDispatch) {
+        this.enabledDispatch = enabledDispatch;
+        return this;
+    }
+
     /**
      * Set a custom {@link ReconnectOptions} to configure how Gateway connections will attempt to reconnect every
      * time a websocket session is closed unexpectedly.
@@ -569,6 +612,59 @@ public class GatewayBootstrap<O extends GatewayOptions> {
         return this;
     }
 
+    /**
+     * Set the strategy each connection to Gateway will use to inflate inbound zlib-stream messages. Defaults to
+     * {@link ZlibDecompressor.Mode#BUFFERED}. Using {@link ZlibDecompressor.Mode#STREAMING} inflates every frame as it
+     * arrives into a single pooled buffer per message, avoiding intermediate copies when receiving large payloads.
+     *
+     * @param decompressorMode the {@link ZlibDecompressor.Mode} to use on inbound payloads
+     * @return this builder
+     */
+    public GatewayBootstrap<O> setDecompressorMode(ZlibDecompressor.Mode decompressorMode) {
+        this.decompressorMode = Objects.requireNonNull(decompressorMode);
+        return this;
+    }
+
+    /**
+     * Set how inbound dispatches are stored and mapped to events. Defaults to {@code null}, processing every dispatch
+     * as soon as it is received with no concurrency bound and no ordering guarantees between them.
+     * <p>
+     * Using {@link DispatchLanes} processes the dispatches of each guild serially and in the order they were
+     * received, while distinct guilds are processed in parallel up to the number of lanes. The given instance can be
+     * kept to observe the depth of each lane.
+     *
+     * @param dispatchLanes the {@link DispatchLanes} to process dispatches with, or {@code null} to process them
+     * without ordering
+     * @return this builder
+     */
+    public GatewayBootstrap<O> setDispatchLanes(@Nullable DispatchLanes dispatchLanes) {
+        this.dispatchLanes = dispatchLanes;
+        return this;
+    }
+
+    /**
+     * Set how many consecutive dispatches of a shard can be written to the {@link Store} at once. Defaults to a
+     * maximum size of 1, writing every dispatch on its own.
+     * <p>
+     * With a greater size, dispatches received within the given delay are grouped and their store actions are
+     * executed through {@link Store#executeBatch(java.util.List)}, letting layouts able to apply a batch
+     * group-commit them. The store actions of a shard are then executed in the order dispatches were received.
+     * Batching is not applied if {@link #setDispatchLanes(DispatchLanes)} is used, as lanes already control how
+     * dispatches are processed.
+     *
+     * @param maxSize the maximum number of dispatches written to the store at once
+     * @param maxDelay the maximum time to wait for a batch to fill up before writing it
+     * @return this builder
+     */
+    public GatewayBootstrap<O> setStoreBatching(int maxSize, Duration maxDelay) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.storeBatchSize = maxSize;
+        this.storeBatchDelay = Objects.requireNonNull(maxDelay);
+        return this;
+    }
+
     /**
      * Set an initial subscriber to the bootstrapped {@link EventDispatcher} to gain access to early startup events. The
      * subscriber is derived from the given {@link Function} which returns a {@link Publisher} that is subscribed early
@@ -659,6 +755,7 @@ public class GatewayBootstrap<O extends GatewayOptions> {
                     EntityRetrievalStrategy entityRetrievalStrategy = b.initEntityRetrievalStrategy();
                     DispatchEventMapper dispatchMapper = b.initDispatchEventMapper();
                     Set<String> completingChunkNonces = ConcurrentHashMap.newKeySet();
+                    GatewayEndpointResolver endpointResolver = b.initGatewayEndpointResolver();
 
                     GatewayClientGroupManager clientGroup = b.shardingStrategy.getGroupManager(count);
                     GatewayDiscordClient gateway = new GatewayDiscordClient(b.client, resources, onCloseSink.asMono(),
@@ -675,12 +772,21 @@ public class GatewayBootstrap<O extends GatewayOptions> {
                             }))
                             .cache();
 
-                    Flux<ShardInfo> connections = b.shardingStrategy.getShards(count)
-                            .groupBy(shard -> shard.getIndex() % b.shardingStrategy.getMaxConcurrency())
-                            .flatMap(group -> group.concatMap(shard -> acquireConnection(b, shard, clientFactory,
-                                    gateway, shardCoordinator, store, eventDispatcher, clientGroup,
-                                    onCloseSink, dispatchMapper, completingChunkNonces,
-                                    destroySequence.contextWrite(buildContext(gateway, shard)))));
+                    // shards in different identify buckets connect concurrently, shards in the same bucket in turn
+                    int maxConcurrency = b.shardingStrategy.getMaxConcurrency();
+                    Flux<ShardInfo> connections = Flux.defer(() -> {
+                        ShardStartupProgress progress = new ShardStartupProgress(maxConcurrency);
+                        return b.shardingStrategy.getShards(count)
+                                .doOnSubscribe(s -> progress.onStart())
+                                .doOnNext(progress::onScheduled)
+                                .groupBy(shard -> shard.getIndex() % maxConcurrency, Integer.MAX_VALUE)
+                                .flatMap(group -> group.concatMap(shard -> acquireConnection(b, shard,
+                                        clientFactory, gateway, shardCoordinator, store, eventDispatcher,
+                                        clientGroup, onCloseSink, dispatchMapper, completingChunkNonces,
+                                        endpointResolver, destroySequence.contextWrite(buildContext(gateway, shard)))),
+                                        maxConcurrency)
+                                .doOnNext(progress::onConnected);
+                    });
 
                     Supplier<Mono<Void>> withEventDispatcherFunction = () ->
                             Flux.from(b.dispatcherFunction.apply(eventDispatcher))
@@ -751,6 +857,7 @@ public class GatewayBootstrap<O extends GatewayOptions> {
                                               Sinks.Empty<Void> onCloseSink,
                                               DispatchEventMapper dispatchMapper,
                                               Set<String> completingChunkNonces,
+                                              GatewayEndpointResolver endpointResolver,
                                               Mono<Void> destroySequence) {
         return Mono.deferContextual(ctx ->
                 Mono.<ShardInfo>create(sink -> {
@@ -765,20 +872,16 @@ public class GatewayBootstrap<O extends GatewayOptions> {
                             b.shardingStrategy.getMaxConcurrency());
                     GatewayReactorResources resources = gateway.getGatewayResources().getGatewayReactorResources();
                     ReconnectOptions reconnectOptions = initReconnectOptions(resources);
+                    PayloadReader reader = initPayloadReader();
                     GatewayOptions options = new GatewayOptions(client.getCoreResources().getToken(),
-                            resources, initPayloadReader(), initPayloadWriter(), reconnectOptions,
-                            identify, gatewayObserver, limiter, maxMissedHeartbeatAck);
+                            resources, reader, initPayloadWriter(reader), reconnectOptions,
+                            identify, gatewayObserver, limiter, maxMissedHeartbeatAck, false,
+                            EmissionStrategy.park(Duration.ofMillis(10)), decompressorMode);
                     GatewayClient gatewayClient = clientFactory.apply(this.optionsModifier.apply(options));
                     clientGroup.add(shard.getIndex(), gatewayClient);
                     DispatchStoreLayer dispatchStoreLayer = DispatchStoreLayer.create(store, shard);
 
-                    // wire gateway events to EventDispatcher
-                    Disposable.Composite forCleanup = Disposables.composite();
-                    forCleanup.add(gatewayClient.dispatch()
-                            .takeUntilOther(onCloseSink.asMono())
-                            .checkpoint("Read payload from gateway")
-                            .flatMap(dispatchStoreLayer::store)
-                            .checkpoint("Write gateway update to the store")
+                    Function<StatefulDispatch<?, ?>, Mono<Event>> mapDispatch = stored -> Mono.just(stored)
                             .flatMap(statefulDispatch -> {
                                 if (!(statefulDispatch.getDispatch() instanceof GuildMembersChunk)) {
                                     return Mono.just(statefulDispatch);
@@ -804,12 +907,35 @@ public class GatewayBootstrap<O extends GatewayOptions> {
                                             log.error(format(ctx, "Error dispatching event"), error);
                                             return Mono.empty();
                                         });
-                            })
+                            });
+                    Function<Dispatch, Mono<Event>> processDispatch = dispatch -> dispatchStoreLayer.store(dispatch)
+                            .checkpoint("Write gateway update to the store")
+                            .flatMap(mapDispatch);
+                    Flux<Dispatch> dispatches = gatewayClient.dispatch()
+                            .takeUntilOther(onCloseSink.asMono())
+                            .checkpoint("Read payload from gateway");
+                    Flux<Event> events;
+                    if (b.dispatchLanes != null) {
+                        events = b.dispatchLanes.process(dispatches, processDispatch);
+                    } else if (b.storeBatchSize > 1) {
+                        events = dispatchStoreLayer.store(dispatches, b.storeBatchSize, b.storeBatchDelay)
+                                .checkpoint("Write gateway updates to the store")
+                                .flatMap(mapDispatch);
+                    } else {
+                        events = dispatches.flatMap(processDispatch);
+                    }
+
+                    // wire gateway events to EventDispatcher
+                    Disposable.Composite forCleanup = Disposables.composite();
+                    forCleanup.add(events
                             .doOnNext(eventDispatcher::publish)
                             .subscribe(null,
                                     t -> log.error(format(ctx, "Event mapper terminated with an error"), t),
                                     () -> log.debug(format(ctx, "Event mapper completed"))));
 
+                    // the resolution of the endpoint used by the latest connection attempt
+                    AtomicReference<Mono<String>> endpoint = new AtomicReference<>();
+
                     // wire internal shard coordinator events
                     // TODO: migrate to GatewayClient::stateEvents
                     forCleanup.add(gatewayClient.dispatch()
@@ -837,6 +963,8 @@ public class GatewayBootstrap<O extends GatewayOptions> {
                                                     return Mono.empty();
                                                 });
                                     case RETRY_FAILED:
+                                        // the endpoint may have moved, let the next attempt request it again
+                                        endpointResolver.invalidate(endpoint.get());
                                         log.debug(format(ctx, "Invalidating stores for shard"));
                                 }
                                 return Mono.empty();
@@ -846,14 +974,20 @@ public class GatewayBootstrap<O extends GatewayOptions> {
                                     t -> log.error(format(ctx, "Lifecycle listener terminated with an error"), t),
                                     () -> log.debug(format(ctx, "Lifecycle listener completed"))));
 
-                    forCleanup.add(b.client.getGatewayService()
-                            .getGateway()
+                    Mono<String> gatewayUrl = Mono.defer(() -> {
+                                Mono<String> resolved = endpointResolver.resolve();
+                                endpoint.set(resolved);
+                                return resolved;
+                            })
                             .doOnSubscribe(s -> log.debug(format(ctx, "Acquiring gateway endpoint")))
                             .retryWhen(Retry.backoff(
                                     reconnectOptions.getMaxRetries(), reconnectOptions.getFirstBackoff())
                                     .maxBackoff(reconnectOptions.getMaxBackoffInterval()))
-                            .flatMap(response -> gatewayClient.execute(
-                                    RouteUtils.expandQuery(response.url(), getGatewayParameters())))
+                            .map(url -> RouteUtils.expandQuery(url, getGatewayParameters(reader.getEncoding())));
+
+                    forCleanup.add(gatewayClient.execute(gatewayUrl)
+                            // the endpoint may have moved, let the next connection request it again
+                            .doOnError(t -> endpointResolver.invalidate(endpoint.get()))
                             .doOnError(sink::error) // only useful for startup errors
                             .doFinally(__ -> {
                                 sink.success(); // no-op if we completed it before
@@ -878,14 +1012,22 @@ public class GatewayBootstrap<O extends GatewayOptions> {
         if (payloadReader != null) {
             return payloadReader;
         }
-        return new JacksonPayloadReader(client.getCoreResources().getJacksonResources().getObjectMapper());
+        ObjectMapper mapper = client.getCoreResources().getJacksonResources().getObjectMapper();
+        if (enabledDispatch != null) {
+            return new JacksonStreamingPayloadReader(mapper, true, enabledDispatch);
+        }
+        return new JacksonPayloadReader(mapper);
     }
 
-    private PayloadWriter initPayloadWriter() {
+    private PayloadWriter initPayloadWriter(PayloadReader payloadReader) {
         if (payloadWriter != null) {
             return payloadWriter;
         }
-        return new JacksonPayloadWriter(client.getCoreResources().getJacksonResources().getObjectMapper());
+        ObjectMapper mapper = client.getCoreResources().getJacksonResources().getObjectMapper();
+        if (EtfPayloadReader.ENCODING.equals(payloadReader.getEncoding())) {
+            return new EtfPayloadWriter(mapper);
+        }
+        return new JacksonPayloadWriter(mapper);
     }
 
     private ReconnectOptions initReconnectOptions(GatewayReactorResources resources) {
@@ -893,7 +1035,7 @@ public class GatewayBootstrap<O extends GatewayOptions> {
             return reconnectOptions;
         }
         return ReconnectOptions.builder()
-                .setBackoffScheduler(resources.getTimerTaskScheduler())
+                .setBackoffScheduler(resources.getCoarseTimerScheduler())
                 .build();
     }
 
@@ -902,7 +1044,7 @@ public class GatewayBootstrap<O extends GatewayOptions> {
             return reconnectOptions;
         }
         return ReconnectOptions.builder()
-                .setBackoffScheduler(resources.getTimerTaskScheduler())
+                .setBackoffScheduler(resources.getCoarseTimerScheduler())
                 .build();
     }
 
@@ -920,6 +1062,12 @@ public class GatewayBootstrap<O extends GatewayOptions> {
         return voiceReactorResources.apply(client.getCoreResources().getReactorResources());
     }
 
+    private GatewayEndpointResolver initGatewayEndpointResolver() {
+        String knownUrl = shardingStrategy instanceof RecommendedShardingStrategy ?
+                ((RecommendedShardingStrategy) shardingStrategy).getGatewayUrl() : null;
+        return new GatewayEndpointResolver(client.getGatewayService().getGateway().map(GatewayData::url), knownUrl);
+    }
+
     private EventDispatcher initEventDispatcher() {
         if (eventDispatcher != null) {
             return eventDispatcher;
@@ -932,7 +1080,7 @@ public class GatewayBootstrap<O extends GatewayOptions> {
             return shardCoordinator;
         }
         return LocalShardCoordinator.create(() ->
-                new RateLimitTransformer(1, Duration.ofSeconds(6), reactorResources.getTimerTaskScheduler()));
+                new RateLimitTransformer(1, Duration.ofSeconds(6), reactorResources.getCoarseTimerScheduler()));
     }
 
     private EntityRetrievalStrategy initEntityRetrievalStrategy() {
@@ -966,10 +1114,10 @@ public class GatewayBootstrap<O extends GatewayOptions> {
         }
     }
 
-    private Multimap<String, Object> getGatewayParameters() {
+    private Multimap<String, Object> getGatewayParameters(String encoding) {
         final Multimap<String, Object> parameters = new Multimap<>(3);
         parameters.add("compress", "zlib-stream");
-        parameters.add("encoding", "json");
+        parameters.add("encoding", encoding);
         parameters.add("v", 8);
         return parameters;
     }
@@ -0,0 +1,89 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.core.shard;
+
+import reactor.core.publisher.Mono;
+import reactor.util.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Resolves the Gateway URL once and shares it across every shard of a group, including their reconnections. The URL
+ * is only fetched again after a request for it failed or after the {@link Mono} returned by {@link #resolve()} is
+ * {@link #invalidate(Mono) invalidated}, for example because connecting to it failed.
+ */
+class GatewayEndpointResolver {
+
+    private final Mono<String> fetch;
+    private final AtomicReference<Mono<String>> cached = new AtomicReference<>();
+
+    /**
+     * Create a resolver fetching the Gateway URL with the given source.
+     *
+     * @param fetch a {@link Mono} requesting the Gateway URL upon subscription
+     * @param knownUrl a Gateway URL that was already fetched, for example alongside the recommended shard count, to
+     * avoid requesting it again, or {@code null} to fetch it on first use
+     */
+    GatewayEndpointResolver(Mono<String> fetch, @Nullable String knownUrl) {
+        this.fetch = fetch;
+        if (knownUrl != null) {
+            cached.set(Mono.just(knownUrl));
+        }
+    }
+
+    /**
+     * Return the current resolution of the Gateway URL, starting a new request for it if it is not known yet.
+     * Concurrent callers share the same request. The returned {@link Mono} identifies this resolution when calling
+     * {@link #invalidate(Mono)}.
+     *
+     * @return a {@link Mono} emitting the Gateway URL
+     */
+    Mono<String> resolve() {
+        for (;;) {
+            Mono<String> current = cached.get();
+            if (current != null) {
+                return current;
+            }
+            Mono<String> fetched = newFetch();
+            if (cached.compareAndSet(null, fetched)) {
+                return fetched;
+            }
+        }
+    }
+
+    /**
+     * Forget the given resolution of the Gateway URL, so it is fetched again on the next call to {@link #resolve()}.
+     * Does nothing if another caller already replaced it, so that a late failure does not discard a newer URL.
+     *
+     * @param failed a {@link Mono} previously returned by {@link #resolve()}
+     */
+    void invalidate(@Nullable Mono<String> failed) {
+        if (failed != null) {
+            cached.compareAndSet(failed, null);
+        }
+    }
+
+    private Mono<String> newFetch() {
+        AtomicReference<Mono<String>> self = new AtomicReference<>();
+        Mono<String> fetched = fetch
+                // a failed request is not cached, the next caller requests the URL again
+                .doOnError(t -> cached.compareAndSet(self.get(), null))
+                .cache();
+        self.set(fetched);
+        return fetched;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.core.shard;
+
+import discord4j.discordjson.json.GatewayData;
+import discord4j.discordjson.json.SessionStartLimitData;
+import discord4j.gateway.GatewayClient;
+import discord4j.rest.RestClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+import reactor.util.annotation.Nullable;
+
+import java.time.Duration;
+
+/**
+ * A {@link ShardingStrategy} using the shard count and identify concurrency recommended by Discord, creating as many
+ * {@link GatewayClient} instances as indexes given by that count.
+ * <p>
+ * The maximum concurrency and Gateway URL are only known after {@link #getShardCount(RestClient)} completes, the
+ * maximum concurrency is 1 before that. If there are no session starts remaining, the shard count either fails with an
+ * {@link IllegalStateException} or, if this strategy was created to wait, is only emitted once the session start limit
+ * resets.
+ */
+class RecommendedShardingStrategy implements ShardingStrategy {
+
+    private static final Logger log = Loggers.getLogger(RecommendedShardingStrategy.class);
+
+    private final boolean awaitSessionStartLimitReset;
+    private volatile int maxConcurrency = 1;
+    @Nullable
+    private volatile String gatewayUrl;
+
+    RecommendedShardingStrategy(boolean awaitSessionStartLimitReset) {
+        this.awaitSessionStartLimitReset = awaitSessionStartLimitReset;
+    }
+
+    @Override
+    public Mono<Integer> getShardCount(RestClient restClient) {
+        return getShardCount(restClient.getGatewayService().getGatewayBot(),
+                restClient.getRestResources().getReactorResources().getTimerTaskScheduler());
+    }
+
+    /**
+     * Return the shard count recommended by the given GET /gateway/bot response, applying its session start limit.
+     *
+     * @param gatewayBot the response of GET /gateway/bot
+     * @param timerScheduler the {@link Scheduler} to wait for the session start limit to reset on
+     * @return the recommended shard count
+     */
+    Mono<Integer> getShardCount(Mono<GatewayData> gatewayBot, Scheduler timerScheduler) {
+        return gatewayBot
+                .flatMap(data -> {
+                    gatewayUrl = data.url();
+                    int shardCount = data.shards().get();
+                    if (data.sessionStartLimit().isAbsent()) {
+                        return Mono.just(shardCount);
+                    }
+                    SessionStartLimitData limit = data.sessionStartLimit().get();
+                    maxConcurrency = Math.max(1, limit.maxConcurrency());
+                    log.info("Recommended {} shards, identifying {} at a time, {} of {} session starts remaining",
+                            shardCount, maxConcurrency, limit.remaining(), limit.total());
+                    Duration resetAfter = Duration.ofMillis(limit.resetAfter());
+                    if (limit.remaining() == 0) {
+                        if (!awaitSessionStartLimitReset) {
+                            return Mono.error(new IllegalStateException("No session starts remaining, the limit " +
+                                    "resets in " + resetAfter + ". Use ShardingStrategy.recommended(true) to wait " +
+                                    "for it instead"));
+                        }
+                        log.warn("No session starts remaining, waiting {} for the limit to reset", resetAfter);
+                        return Mono.delay(resetAfter, timerScheduler).thenReturn(shardCount);
+                    } else if (limit.remaining() < shardCount) {
+                        log.warn("Only {} session starts remaining for {} shards, the limit resets in {}",
+                                limit.remaining(), shardCount, resetAfter);
+                    }
+                    return Mono.just(shardCount);
+                });
+    }
+
+    @Override
+    public GatewayClientGroupManager getGroupManager(int shardCount) {
+        return new ShardingGatewayClientGroup(shardCount);
+    }
+
+    @Override
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Return the Gateway URL received alongside the recommended shard count, so it does not need to be requested
+     * again.
+     *
+     * @return the Gateway URL, or {@code null} if {@link #getShardCount(RestClient)} did not complete yet
+     */
+    @Nullable
+    String getGatewayUrl() {
+        return gatewayUrl;
+    }
+}
@@ -0,0 +1,399 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.core.shard;
+
+import io.netty.handler.codec.LineBasedFrameDecoder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.NettyInbound;
+import reactor.netty.NettyOutbound;
+import reactor.netty.tcp.TcpServer;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+import reactor.util.annotation.Nullable;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A server coordinating the shards of multiple processes, usually on the same machine, through their
+ * {@link SocketShardCoordinator}. It grants IDENTIFY slots for each {@code max_concurrency} bucket across every
+ * connected process and tracks which shards are connected cluster-wide.
+ * <p>
+ * An IDENTIFY slot is leased to a shard until it reports being connected, its process cancels the request or
+ * disconnects from this server, or the lease times out. The next shard of the same bucket is granted a slot once the
+ * lease ended and the identify interval elapsed since the previous grant.
+ * <p>
+ * The server listens on the configured {@link SocketAddress}, a TCP address by default. A Unix domain socket can be
+ * used by giving a {@link io.netty.channel.unix.DomainSocketAddress}, provided a native transport is available.
+ */
+public class ShardCoordinatorServer implements Disposable {
+
+    private static final Logger log = Loggers.getLogger(ShardCoordinatorServer.class);
+
+    // requests sent by clients
+    static final String ACQUIRE = "ACQUIRE";
+    static final String CANCEL = "CANCEL";
+    static final String CONNECTED = "CONNECTED";
+    static final String DISCONNECTED = "DISCONNECTED";
+    static final String COUNT = "COUNT";
+    // responses sent by the server
+    static final String GRANTED = "GRANTED";
+
+    static final int MAX_LINE_LENGTH = 1024;
+
+    private final SocketAddress bindAddress;
+    private final long identifyIntervalNanos;
+    private final Duration leaseTimeout;
+    private final Scheduler timerScheduler;
+
+    // guarded by this
+    private final Map<Integer, Bucket> buckets = new HashMap<>();
+    private final Map<Integer, Session> connectedShards = new HashMap<>();
+
+    private volatile DisposableServer server;
+
+    protected ShardCoordinatorServer(Builder builder) {
+        this.bindAddress = builder.bindAddress;
+        this.identifyIntervalNanos = builder.identifyInterval.toNanos();
+        this.leaseTimeout = builder.leaseTimeout;
+        this.timerScheduler = builder.timerScheduler;
+    }
+
+    /**
+     * Create a {@link ShardCoordinatorServer} listening on the given TCP port of the loopback interface, with the
+     * default identify interval and lease timeout.
+     *
+     * @param port the port to listen on, or 0 to use any available port
+     * @return a new {@link ShardCoordinatorServer}, not listening until {@link #start()} is subscribed to
+     */
+    public static ShardCoordinatorServer create(int port) {
+        return builder().setBindAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), port)).build();
+    }
+
+    /**
+     * Create a new builder for {@link ShardCoordinatorServer}.
+     *
+     * @return a new builder
+     */
+    public static ShardCoordinatorServer.Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private SocketAddress bindAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        private Duration identifyInterval = Duration.ofSeconds(6);
+        private Duration leaseTimeout = Duration.ofSeconds(30);
+        private Scheduler timerScheduler = Schedulers.parallel();
+
+        protected Builder() {
+        }
+
+        /**
+         * Set the address to listen on. Defaults to any available port on the loopback interface.
+         *
+         * @param bindAddress a TCP or Unix domain socket address
+         * @return this builder
+         */
+        public Builder setBindAddress(SocketAddress bindAddress) {
+            this.bindAddress = Objects.requireNonNull(bindAddress);
+            return this;
+        }
+
+        /**
+         * Set the minimum time between two IDENTIFY slots granted in the same bucket. Defaults to 6 seconds, like
+         * {@link LocalShardCoordinator}.
+         *
+         * @param identifyInterval the minimum time between two grants in a bucket
+         * @return this builder
+         */
+        public Builder setIdentifyInterval(Duration identifyInterval) {
+            this.identifyInterval = Objects.requireNonNull(identifyInterval);
+            return this;
+        }
+
+        /**
+         * Set the time after which a slot granted to a shard that did not report being connected is taken back.
+         * Defaults to 30 seconds.
+         *
+         * @param leaseTimeout the maximum time a shard holds an IDENTIFY slot
+         * @return this builder
+         */
+        public Builder setLeaseTimeout(Duration leaseTimeout) {
+            this.leaseTimeout = Objects.requireNonNull(leaseTimeout);
+            return this;
+        }
+
+        /**
+         * Set the {@link Scheduler} used to delay grants and expire leases. Defaults to
+         * {@link Schedulers#parallel()}.
+         *
+         * @param timerScheduler a time-capable {@link Scheduler}
+         * @return this builder
+         */
+        public Builder setTimerScheduler(Scheduler timerScheduler) {
+            this.timerScheduler = Objects.requireNonNull(timerScheduler);
+            return this;
+        }
+
+        /**
+         * Create the {@link ShardCoordinatorServer}.
+         *
+         * @return a new {@link ShardCoordinatorServer}, not listening until {@link #start()} is subscribed to
+         */
+        public ShardCoordinatorServer build() {
+            return new ShardCoordinatorServer(this);
+        }
+    }
+
+    /**
+     * Start listening for {@link SocketShardCoordinator} connections.
+     *
+     * @return a {@link Mono} emitting this server once it is listening
+     */
+    public Mono<ShardCoordinatorServer> start() {
+        return TcpServer.create()
+                .bindAddress(() -> bindAddress)
+                .doOnConnection(connection ->
+                        connection.addHandlerLast(new LineBasedFrameDecoder(MAX_LINE_LENGTH)))
+                .handle(this::handle)
+                .bind()
+                .doOnNext(disposableServer -> {
+                    server = disposableServer;
+                    log.info("Shard coordinator listening on {}", disposableServer.address());
+                })
+                .thenReturn(this);
+    }
+
+    /**
+     * Return the address this server is listening on, useful to find the port picked when binding to port 0.
+     *
+     * @return the address this server is listening on
+     * @throws IllegalStateException if this server was not started
+     */
+    public SocketAddress getAddress() {
+        DisposableServer current = server;
+        if (current == null) {
+            throw new IllegalStateException("Server not started");
+        }
+        return current.address();
+    }
+
+    @Override
+    public void dispose() {
+        DisposableServer current = server;
+        if (current != null) {
+            current.disposeNow();
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        DisposableServer current = server;
+        return current != null && current.isDisposed();
+    }
+
+    private Mono<Void> handle(NettyInbound inbound, NettyOutbound outbound) {
+        Session session = new Session();
+        Mono<Void> receive = inbound.receive()
+                .asString(StandardCharsets.UTF_8)
+                .doOnNext(line -> onRequest(session, line))
+                .doFinally(signal -> onClose(session))
+                .then();
+        Mono<Void> send = outbound.sendString(session.responses.asFlux(), StandardCharsets.UTF_8).then();
+        return Mono.when(receive, send);
+    }
+
+    private synchronized void onRequest(Session session, String line) {
+        String[] parts = line.trim().split(" ");
+        try {
+            switch (parts[0]) {
+                case ACQUIRE:
+                    long requestId = Long.parseLong(parts[1]);
+                    int shardIndex = Integer.parseInt(parts[2]);
+                    int maxConcurrency = Integer.parseInt(parts[3]);
+                    int key = shardIndex % maxConcurrency;
+                    Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(k, System.nanoTime()));
+                    bucket.waiters.add(new Waiter(session, requestId, shardIndex));
+                    drain(bucket);
+                    break;
+                case CANCEL:
+                    cancel(session, Long.parseLong(parts[1]));
+                    break;
+                case CONNECTED:
+                    int connectedIndex = Integer.parseInt(parts[1]);
+                    connectedShards.put(connectedIndex, session);
+                    releaseLease(session, connectedIndex);
+                    break;
+                case DISCONNECTED:
+                    connectedShards.remove(Integer.parseInt(parts[1]));
+                    break;
+                case COUNT:
+                    session.send(COUNT + " " + Long.parseLong(parts[1]) + " " + connectedShards.size());
+                    break;
+                default:
+                    log.warn("Ignoring unknown shard coordinator request: {}", line);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Ignoring invalid shard coordinator request: {}", line);
+        }
+    }
+
+    private synchronized void onClose(Session session) {
+        session.responses.tryEmitComplete();
+        connectedShards.values().removeIf(holder -> holder == session);
+        for (Bucket bucket : buckets.values()) {
+            bucket.waiters.removeIf(waiter -> waiter.session == session);
+            if (bucket.lease != null && bucket.lease.session == session) {
+                endLease(bucket);
+            }
+        }
+    }
+
+    private synchronized void onRetry(Bucket bucket) {
+        bucket.retry = null;
+        drain(bucket);
+    }
+
+    private synchronized void onLeaseTimeout(Bucket bucket, Lease lease) {
+        if (bucket.lease == lease) {
+            log.warn("IDENTIFY lease of shard {} in bucket {} timed out", lease.shardIndex, bucket.key);
+            endLease(bucket);
+        }
+    }
+
+    // grant the next waiting shard a slot if there is no lease and enough time passed since the previous grant
+    private void drain(Bucket bucket) {
+        if (bucket.lease != null || bucket.waiters.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long wait = bucket.nextGrantNanos - now;
+        if (wait > 0) {
+            if (bucket.retry == null) {
+                bucket.retry = timerScheduler.schedule(() -> onRetry(bucket), wait, TimeUnit.NANOSECONDS);
+            }
+            return;
+        }
+        Waiter waiter = bucket.waiters.poll();
+        Lease lease = new Lease(waiter.session, waiter.requestId, waiter.shardIndex);
+        bucket.lease = lease;
+        bucket.nextGrantNanos = now + identifyIntervalNanos;
+        lease.timeout = timerScheduler.schedule(() -> onLeaseTimeout(bucket, lease),
+                leaseTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        log.debug("Granted IDENTIFY slot to shard {} in bucket {}", waiter.shardIndex, bucket.key);
+        waiter.session.send(GRANTED + " " + waiter.requestId);
+    }
+
+    // forget a waiting ACQUIRE request, or end the lease it was already granted
+    private void cancel(Session session, long requestId) {
+        for (Bucket bucket : buckets.values()) {
+            if (bucket.waiters.removeIf(waiter -> waiter.session == session && waiter.requestId == requestId)) {
+                return;
+            }
+            Lease lease = bucket.lease;
+            if (lease != null && lease.session == session && lease.requestId == requestId) {
+                log.debug("IDENTIFY slot of shard {} in bucket {} was released", lease.shardIndex, bucket.key);
+                endLease(bucket);
+                return;
+            }
+        }
+    }
+
+    private void releaseLease(Session session, int shardIndex) {
+        for (Bucket bucket : buckets.values()) {
+            Lease lease = bucket.lease;
+            if (lease != null && lease.session == session && lease.shardIndex == shardIndex) {
+                endLease(bucket);
+                return;
+            }
+        }
+    }
+
+    private void endLease(Bucket bucket) {
+        Lease lease = Objects.requireNonNull(bucket.lease);
+        if (lease.timeout != null) {
+            lease.timeout.dispose();
+        }
+        bucket.lease = null;
+        drain(bucket);
+    }
+
+    // a connection from a SocketShardCoordinator, its responses are only emitted while holding the server lock
+    private static class Session {
+
+        private final Sinks.Many<String> responses = Sinks.many().unicast().onBackpressureBuffer();
+
+        private void send(String response) {
+            responses.tryEmitNext(response + "\n");
+        }
+    }
+
+    private static class Bucket {
+
+        private final int key;
+        private final Queue<Waiter> waiters = new ArrayDeque<>();
+        private long nextGrantNanos;
+        @Nullable
+        private Lease lease;
+        @Nullable
+        private Disposable retry;
+
+        private Bucket(int key, long nextGrantNanos) {
+            this.key = key;
+            this.nextGrantNanos = nextGrantNanos;
+        }
+    }
+
+    private static class Waiter {
+
+        private final Session session;
+        private final long requestId;
+        private final int shardIndex;
+
+        private Waiter(Session session, long requestId, int shardIndex) {
+            this.session = session;
+            this.requestId = requestId;
+            this.shardIndex = shardIndex;
+        }
+    }
+
+    private static class Lease {
+
+        private final Session session;
+        private final long requestId;
+        private final int shardIndex;
+        @Nullable
+        private Disposable timeout;
+
+        private Lease(Session session, long requestId, int shardIndex) {
+            this.session = session;
+            this.requestId = requestId;
+            this.shardIndex = shardIndex;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.core.shard;
+
+import discord4j.gateway.ShardInfo;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the shards of a group as they are scheduled for connection and as they connect, logging the startup progress
+ * along with an estimate of the remaining time, extrapolated from the average time each shard took to connect so far.
+ */
+class ShardStartupProgress {
+
+    private static final Logger log = Loggers.getLogger(ShardStartupProgress.class);
+
+    private final AtomicInteger scheduled = new AtomicInteger();
+    private final AtomicInteger connected = new AtomicInteger();
+    private final int maxConcurrency;
+    private volatile long startNanos;
+
+    ShardStartupProgress(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    void onStart() {
+        startNanos = System.nanoTime();
+        log.info("Connecting shards, identifying {} at a time", maxConcurrency);
+    }
+
+    void onScheduled(ShardInfo shard) {
+        scheduled.incrementAndGet();
+    }
+
+    void onConnected(ShardInfo shard) {
+        int done = connected.incrementAndGet();
+        int total = scheduled.get();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+        if (done >= total) {
+            log.info("Connected {} shards in {}", done, elapsed);
+        } else {
+            log.info("Connected {} of {} shards in {}, estimated time remaining: {}", done, total, elapsed,
+                    estimateRemaining(elapsed, done, total));
+        }
+    }
+
+    int getScheduledCount() {
+        return scheduled.get();
+    }
+
+    int getConnectedCount() {
+        return connected.get();
+    }
+
+    static Duration estimateRemaining(Duration elapsed, int connected, int scheduled) {
+        if (connected == 0 || connected >= scheduled) {
+            return Duration.ZERO;
+        }
+        return elapsed.dividedBy(connected).multipliedBy(scheduled - connected);
+    }
+}
@@ -17,8 +17,6 @@
 
 package discord4j.core.shard;
 
-import discord4j.discordjson.json.GatewayData;
-import discord4j.discordjson.possible.Possible;
 import discord4j.gateway.GatewayClient;
 import discord4j.gateway.ShardInfo;
 import discord4j.rest.RestClient;
@@ -68,30 +66,27 @@ public interface ShardingStrategy {
 
     /**
      * Sharding strategy that retrieves the recommended shard count and creates as many {@link GatewayClient}
-     * instances as indexes given by that count.
+     * instances as indexes given by that count. Shards are identified as concurrently as the session start limit
+     * returned alongside the shard count allows. If there are no session starts remaining, retrieving the shard count
+     * fails with an {@link IllegalStateException}.
      *
      * @return a recommended {@link ShardingStrategy}
      */
     static ShardingStrategy recommended() {
-        return new ShardingStrategy() {
-
-            @Override
-            public Mono<Integer> getShardCount(RestClient restClient) {
-                return restClient.getGatewayService().getGatewayBot()
-                        .map(GatewayData::shards)
-                        .map(Possible::get);
-            }
-
-            @Override
-            public GatewayClientGroupManager getGroupManager(int shardCount) {
-                return new ShardingGatewayClientGroup(shardCount);
-            }
+        return recommended(false);
+    }
 
-            @Override
-            public int getMaxConcurrency() {
-                return 1;
-            }
-        };
+    /**
+     * Sharding strategy that retrieves the recommended shard count and creates as many {@link GatewayClient}
+     * instances as indexes given by that count. Shards are identified as concurrently as the session start limit
+     * returned alongside the shard count allows.
+     *
+     * @param awaitSessionStartLimitReset whether to wait for the session start limit to reset when there are no
+     * session starts remaining, which can take up to a day, instead of failing with an {@link IllegalStateException}
+     * @return a recommended {@link ShardingStrategy}
+     */
+    static ShardingStrategy recommended(boolean awaitSessionStartLimitReset) {
+        return new RecommendedShardingStrategy(awaitSessionStartLimitReset);
     }
 
     /**
@@ -0,0 +1,267 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.core.shard;
+
+import discord4j.gateway.SessionInfo;
+import discord4j.gateway.ShardInfo;
+import discord4j.gateway.limiter.PayloadTransformer;
+import io.netty.handler.codec.LineBasedFrameDecoder;
+import io.netty.util.ReferenceCountUtil;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+import reactor.netty.Connection;
+import reactor.netty.tcp.TcpClient;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+import reactor.util.annotation.Nullable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static discord4j.common.LogUtil.format;
+import static discord4j.core.shard.ShardCoordinatorServer.ACQUIRE;
+import static discord4j.core.shard.ShardCoordinatorServer.CANCEL;
+import static discord4j.core.shard.ShardCoordinatorServer.CONNECTED;
+import static discord4j.core.shard.ShardCoordinatorServer.COUNT;
+import static discord4j.core.shard.ShardCoordinatorServer.DISCONNECTED;
+import static discord4j.core.shard.ShardCoordinatorServer.GRANTED;
+import static discord4j.core.shard.ShardCoordinatorServer.MAX_LINE_LENGTH;
+
+/**
+ * A {@link ShardCoordinator} delegating to a {@link ShardCoordinatorServer}, to coordinate IDENTIFY attempts and
+ * connected shards across multiple processes. Every process of the cluster should use a {@link SocketShardCoordinator}
+ * connected to the same server, and the same {@code max_concurrency}.
+ * <p>
+ * The connection to the server is established on first use. If it is lost, pending operations fail and the next
+ * operation connects again. Cancelling an IDENTIFY attempt that is waiting for a slot withdraws it from the server, or
+ * gives the slot back if it was granted in the meantime.
+ */
+public class SocketShardCoordinator implements ShardCoordinator, Disposable {
+
+    private static final Logger log = Loggers.getLogger(SocketShardCoordinator.class);
+
+    private final SocketAddress serverAddress;
+    private final AtomicLong nextRequestId = new AtomicLong();
+    private final AtomicReference<Mono<Link>> link = new AtomicReference<>();
+    private volatile boolean disposed;
+
+    private SocketShardCoordinator(SocketAddress serverAddress) {
+        this.serverAddress = serverAddress;
+    }
+
+    /**
+     * Create a {@link SocketShardCoordinator} connecting to a {@link ShardCoordinatorServer} listening on the given
+     * TCP port of the loopback interface.
+     *
+     * @param port the port the server listens on
+     * @return a new {@link SocketShardCoordinator}
+     */
+    public static SocketShardCoordinator create(int port) {
+        return create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Create a {@link SocketShardCoordinator} connecting to a {@link ShardCoordinatorServer} listening on the given
+     * address.
+     *
+     * @param serverAddress a TCP or Unix domain socket address
+     * @return a new {@link SocketShardCoordinator}
+     */
+    public static SocketShardCoordinator create(SocketAddress serverAddress) {
+        return new SocketShardCoordinator(serverAddress);
+    }
+
+    @Override
+    public PayloadTransformer getIdentifyLimiter(ShardInfo shardInfo, int maxConcurrency) {
+        return sequence -> Flux.from(sequence)
+                .concatMap(payload -> request(id -> ACQUIRE + " " + id + " " + shardInfo.getIndex() + " " +
+                        maxConcurrency, true)
+                        .thenReturn(payload)
+                        .doOnCancel(() -> ReferenceCountUtil.safeRelease(payload))
+                        .doOnError(t -> ReferenceCountUtil.safeRelease(payload)));
+    }
+
+    @Override
+    public Mono<Void> publishConnected(ShardInfo shardInfo) {
+        return Mono.deferContextual(ctx -> send(CONNECTED + " " + shardInfo.getIndex())
+                .doOnSuccess(__ -> log.info(format(ctx, "Shard connected"))));
+    }
+
+    @Override
+    public Mono<Void> publishDisconnected(ShardInfo shardInfo, @Nullable SessionInfo sessionInfo) {
+        return Mono.deferContextual(ctx -> send(DISCONNECTED + " " + shardInfo.getIndex())
+                .doOnSuccess(__ -> log.info(format(ctx, "Shard disconnected"))));
+    }
+
+    @Override
+    public Mono<Integer> getConnectedCount() {
+        return request(id -> COUNT + " " + id, false)
+                .map(response -> Integer.parseInt(response[2]));
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        Mono<Link> current = link.getAndSet(null);
+        if (current != null) {
+            current.subscribe(Link::dispose, t -> {});
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    private Mono<Void> send(String request) {
+        return getLink().doOnNext(l -> l.send(request)).then();
+    }
+
+    private Mono<String[]> request(RequestFactory requestFactory, boolean cancellable) {
+        return getLink().flatMap(l -> Mono.<String[]>create(sink -> {
+            long id = nextRequestId.incrementAndGet();
+            l.pending.put(id, sink);
+            sink.onDispose(() -> l.pending.remove(id));
+            if (cancellable) {
+                // let the server forget the request, or end the lease if the response is already on its way
+                sink.onCancel(() -> l.send(CANCEL + " " + id));
+            }
+            if (l.isDisposed()) {
+                sink.error(new IOException("Lost connection to the shard coordinator"));
+                return;
+            }
+            l.send(requestFactory.create(id));
+        }));
+    }
+
+    private Mono<Link> getLink() {
+        return Mono.defer(() -> {
+            if (disposed) {
+                return Mono.error(new IllegalStateException("Shard coordinator disposed"));
+            }
+            Mono<Link> current;
+            do {
+                current = link.get();
+                if (current == null) {
+                    Mono<Link> connecting = connect().cache();
+                    if (link.compareAndSet(null, connecting)) {
+                        current = connecting;
+                    }
+                }
+            } while (current == null);
+            Mono<Link> attempt = current;
+            return attempt
+                    .doOnError(t -> link.compareAndSet(attempt, null))
+                    .flatMap(l -> {
+                        if (l.isDisposed()) {
+                            // the connection was lost, connect again
+                            link.compareAndSet(attempt, null);
+                            return getLink();
+                        }
+                        return Mono.just(l);
+                    });
+        });
+    }
+
+    private Mono<Link> connect() {
+        Link l = new Link();
+        return TcpClient.create()
+                .remoteAddress(() -> serverAddress)
+                .doOnConnected(connection ->
+                        connection.addHandlerLast(new LineBasedFrameDecoder(MAX_LINE_LENGTH)))
+                .handle((inbound, outbound) -> Mono.when(
+                        inbound.receive()
+                                .asString(StandardCharsets.UTF_8)
+                                .doOnNext(l::onResponse)
+                                .doFinally(signal -> l.dispose())
+                                .then(),
+                        outbound.sendString(l.requests.asFlux(), StandardCharsets.UTF_8).then()))
+                .connect()
+                .doOnNext(connection -> {
+                    log.debug("Connected to shard coordinator at {}", serverAddress);
+                    l.connection = connection;
+                })
+                .thenReturn(l);
+    }
+
+    @FunctionalInterface
+    private interface RequestFactory {
+
+        String create(long requestId);
+    }
+
+    // a connection to the server and the requests waiting for a response through it
+    private static class Link implements Disposable {
+
+        private final Sinks.Many<String> requests = Sinks.many().unicast().onBackpressureBuffer();
+        private final Map<Long, MonoSink<String[]>> pending = new ConcurrentHashMap<>();
+        private volatile Connection connection;
+        private volatile boolean disposed;
+
+        private synchronized void send(String request) {
+            requests.tryEmitNext(request + "\n");
+        }
+
+        private void onResponse(String line) {
+            String[] response = line.trim().split(" ");
+            if (response.length < 2) {
+                return;
+            }
+            long id = Long.parseLong(response[1]);
+            MonoSink<String[]> sink = pending.remove(id);
+            if (sink != null) {
+                sink.success(response);
+            } else if (GRANTED.equals(response[0])) {
+                // nobody is waiting for this slot anymore, give it back so other shards are not held up
+                send(CANCEL + " " + id);
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (disposed) {
+                return;
+            }
+            disposed = true;
+            synchronized (this) {
+                requests.tryEmitComplete();
+            }
+            Connection current = connection;
+            if (current != null) {
+                current.dispose();
+            }
+            IOException error = new IOException("Lost connection to the shard coordinator");
+            pending.values().forEach(sink -> sink.error(error));
+            pending.clear();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.core.event;
+
+import discord4j.core.event.domain.Event;
+import discord4j.gateway.ShardInfo;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Compare {@link EventDispatcher} implementations while increasing the number of listeners, where a single listener
+ * subscribes to the published event type and every other listener subscribes to an unrelated type.
+ */
+public class EventDispatcherBenchmarkApp {
+
+    private static final int[] LISTENER_COUNTS = {1, 10, 30, 60};
+    private static final int EVENTS = 200_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) throws InterruptedException {
+        Scheduler scheduler = Schedulers.newParallel("d4j-bench-events");
+        Map<String, Function<Scheduler, EventDispatcher>> dispatchers = new LinkedHashMap<>();
+        dispatchers.put("default", s -> EventDispatcher.builder().eventScheduler(s).build());
+        dispatchers.put("sinks", s -> new SinksEventDispatcher.Builder().eventScheduler(s).build());
+        dispatchers.put("type-indexed", s -> TypeIndexedEventDispatcher.builder().eventScheduler(s).build());
+
+        try {
+            for (int listeners : LISTENER_COUNTS) {
+                for (Map.Entry<String, Function<Scheduler, EventDispatcher>> entry : dispatchers.entrySet()) {
+                    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                        run(entry.getValue().apply(scheduler), listeners);
+                    }
+                    long elapsed = 0;
+                    for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                        elapsed += run(entry.getValue().apply(scheduler), listeners);
+                    }
+                    double seconds = elapsed / 1e9 / MEASURED_ROUNDS;
+                    System.out.printf("%-14s %3d listeners %10.0f events/s%n", entry.getKey(), listeners,
+                            EVENTS / seconds);
+                }
+            }
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+    private static long run(EventDispatcher dispatcher, int listeners) throws InterruptedException {
+        CountDownLatch received = new CountDownLatch(EVENTS);
+        Disposable.Composite subscriptions = Disposables.composite();
+        subscriptions.add(dispatcher.on(PublishedEvent.class).subscribe(event -> received.countDown()));
+        for (int i = 1; i < listeners; i++) {
+            subscriptions.add(dispatcher.on(UnrelatedEvent.class).subscribe());
+        }
+        PublishedEvent event = new PublishedEvent();
+        long start = System.nanoTime();
+        for (int i = 0; i < EVENTS; i++) {
+            dispatcher.publish(event);
+        }
+        if (!received.await(1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Events were not delivered in time");
+        }
+        long elapsed = System.nanoTime() - start;
+        subscriptions.dispose();
+        dispatcher.shutdown();
+        return elapsed;
+    }
+
+    static class PublishedEvent extends Event {
+
+        PublishedEvent() {
+            super(null, ShardInfo.create(0, 1));
+        }
+    }
+
+    static class UnrelatedEvent extends Event {
+
+        UnrelatedEvent() {
+            super(null, ShardInfo.create(0, 1));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.core.event;
+
+import discord4j.core.event.domain.Event;
+import discord4j.gateway.ShardInfo;
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+public class TypeIndexedEventDispatcherTest {
+
+    @Test
+    public void testRoutesToMatchingTypesOnly() {
+        EventDispatcher dispatcher = TypeIndexedEventDispatcher.builder()
+                .eventScheduler(Schedulers.immediate())
+                .build();
+        FooEvent foo = new FooEvent();
+        BarEvent bar = new BarEvent();
+
+        StepVerifier.create(dispatcher.on(FooEvent.class).take(1))
+                .then(() -> {
+                    dispatcher.publish(bar);
+                    dispatcher.publish(foo);
+                })
+                .expectNext(foo)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        StepVerifier.create(dispatcher.on(Event.class).take(2))
+                .then(() -> {
+                    dispatcher.publish(bar);
+                    dispatcher.publish(foo);
+                })
+                .expectNext(bar, foo)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void testShutdownCompletesSubscribers() {
+        EventDispatcher dispatcher = TypeIndexedEventDispatcher.builder()
+                .eventScheduler(Schedulers.immediate())
+                .build();
+
+        StepVerifier.create(dispatcher.on(FooEvent.class))
+                .then(dispatcher::shutdown)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    static class FooEvent extends Event {
+
+        FooEvent() {
+            super(null, ShardInfo.create(0, 1));
+        }
+    }
+
+    static class BarEvent extends Event {
+
+        BarEvent() {
+            super(null, ShardInfo.create(0, 1));
+        }
+    }
+}
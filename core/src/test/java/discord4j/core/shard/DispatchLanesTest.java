@@ -0,0 +1,163 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.core.shard;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import discord4j.common.JacksonResources;
+import discord4j.discordjson.json.gateway.Dispatch;
+import discord4j.discordjson.json.gateway.GuildCreate;
+import discord4j.discordjson.json.gateway.GuildIntegrationsUpdate;
+import discord4j.discordjson.json.gateway.MessageDelete;
+import discord4j.gateway.retry.GatewayStateChange;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DispatchLanesTest {
+
+    private static final ObjectMapper MAPPER = JacksonResources.create().getObjectMapper();
+
+    private static final String GUILD_CREATE = "{\"id\":\"1\",\"name\":\"guild\",\"icon\":null,\"splash\":null," +
+            "\"discovery_splash\":null,\"owner_id\":\"1\",\"region\":\"us-east\",\"afk_channel_id\":null," +
+            "\"afk_timeout\":300,\"verification_level\":0,\"default_message_notifications\":0," +
+            "\"explicit_content_filter\":0,\"roles\":[],\"emojis\":[],\"features\":[],\"mfa_level\":0," +
+            "\"application_id\":null,\"system_channel_id\":null,\"system_channel_flags\":0," +
+            "\"rules_channel_id\":null,\"joined_at\":\"2020-01-01T00:00:00+00:00\",\"large\":false," +
+            "\"unavailable\":false,\"member_count\":1,\"voice_states\":[],\"members\":[],\"channels\":[]," +
+            "\"presences\":[],\"max_presences\":null,\"max_members\":250000,\"vanity_url_code\":null," +
+            "\"description\":null,\"banner\":null,\"premium_tier\":0,\"premium_subscription_count\":0," +
+            "\"preferred_locale\":\"en-US\",\"public_updates_channel_id\":null,\"max_video_channel_users\":25}";
+
+    @Test
+    public void testGuildDispatchesKeepOrder() throws IOException {
+        DispatchLanes lanes = DispatchLanes.create(4);
+        List<Dispatch> dispatches = new ArrayList<>();
+        Map<Dispatch, String> labels = new IdentityHashMap<>();
+        for (int i = 0; i < 50; i++) {
+            Dispatch dispatch = integrationsUpdate(i % 5);
+            dispatches.add(dispatch);
+            labels.put(dispatch, (i % 5) + ":" + i);
+        }
+        List<String> processed = Collections.synchronizedList(new ArrayList<>());
+        Random random = new Random(0);
+        lanes.process(Flux.fromIterable(dispatches), dispatch -> Mono.delay(Duration.ofMillis(random.nextInt(5)))
+                .doOnNext(__ -> processed.add(labels.get(dispatch))))
+                .blockLast(Duration.ofSeconds(10));
+
+        assertEquals(50, processed.size());
+        for (int guild = 0; guild < 5; guild++) {
+            int previous = -1;
+            for (String label : processed) {
+                String[] parts = label.split(":");
+                if (Integer.parseInt(parts[0]) == guild) {
+                    int index = Integer.parseInt(parts[1]);
+                    assertTrue(index > previous, "Out of order dispatch for guild " + guild + ": " + processed);
+                    previous = index;
+                }
+            }
+        }
+        long total = 0;
+        for (int lane = 0; lane < lanes.getLaneCount(); lane++) {
+            assertEquals(0, lanes.getDepth(lane));
+            total += lanes.getProcessedCount(lane);
+        }
+        assertEquals(50, total);
+    }
+
+    @Test
+    public void testDirectMessagesRoutedByChannel() throws IOException {
+        DispatchLanes lanes = DispatchLanes.create(64);
+        for (int id = 1; id < 64; id++) {
+            Dispatch directMessage = MAPPER.readValue("{\"id\":\"10\",\"channel_id\":\"" + id + "\"}",
+                    MessageDelete.class);
+            assertEquals(lanes.getLane(integrationsUpdate(id)), lanes.getLane(directMessage));
+        }
+        Set<Integer> used = new HashSet<>();
+        for (int id = 1; id < 64; id++) {
+            used.add(lanes.getLane(MAPPER.readValue("{\"id\":\"10\",\"channel_id\":\"" + id + "\"}",
+                    MessageDelete.class)));
+        }
+        assertTrue(used.size() > 1, "Direct messages should not all be routed to the same lane");
+    }
+
+    @Test
+    public void testShardScopedDispatchIsBarrier() throws IOException {
+        DispatchLanes lanes = DispatchLanes.create(4);
+        Dispatch slow = integrationsUpdate(1);
+        Dispatch fast = integrationsUpdate(2);
+        Dispatch invalidation = GatewayStateChange.sessionInvalidated();
+        Dispatch after = integrationsUpdate(3);
+        Map<Dispatch, String> labels = new IdentityHashMap<>();
+        labels.put(slow, "slow");
+        labels.put(fast, "fast");
+        labels.put(invalidation, "invalidation");
+        labels.put(after, "after");
+
+        List<String> events = record(lanes, Arrays.asList(slow, fast, invalidation, after), labels,
+                dispatch -> dispatch == slow ? 200 : 0);
+
+        int invalidationStart = events.indexOf("start:invalidation");
+        assertTrue(events.indexOf("end:slow") < invalidationStart, events.toString());
+        assertTrue(events.indexOf("end:fast") < invalidationStart, events.toString());
+        assertTrue(events.indexOf("end:invalidation") < events.indexOf("start:after"), events.toString());
+    }
+
+    @Test
+    public void testInvalidationRacingGuildCreate() throws IOException {
+        DispatchLanes lanes = DispatchLanes.create(4);
+        Dispatch guildCreate = MAPPER.readValue(GUILD_CREATE, GuildCreate.class);
+        Dispatch invalidation = GatewayStateChange.sessionInvalidated();
+        Dispatch sameGuild = integrationsUpdate(1);
+        Dispatch otherGuild = integrationsUpdate(2);
+        Map<Dispatch, String> labels = new IdentityHashMap<>();
+        labels.put(guildCreate, "create");
+        labels.put(invalidation, "invalidation");
+        labels.put(sameGuild, "same");
+        labels.put(otherGuild, "other");
+
+        List<String> events = record(lanes, Arrays.asList(guildCreate, invalidation, otherGuild, sameGuild), labels,
+                dispatch -> dispatch == guildCreate ? 200 : 0);
+
+        assertEquals(Arrays.asList("start:create", "end:create", "start:invalidation", "end:invalidation"),
+                events.subList(0, 4));
+        assertTrue(events.indexOf("start:other") > 3, events.toString());
+        assertTrue(events.indexOf("start:same") > 3, events.toString());
+    }
+
+    private static List<String> record(DispatchLanes lanes, List<Dispatch> dispatches, Map<Dispatch, String> labels,
+                                       ToLongFunction<Dispatch> delayMillis) {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        lanes.process(Flux.fromIterable(dispatches), dispatch -> Mono.fromRunnable(
+                () -> events.add("start:" + labels.get(dispatch)))
+                .then(Mono.delay(Duration.ofMillis(delayMillis.applyAsLong(dispatch))))
+                .doOnNext(__ -> events.add("end:" + labels.get(dispatch))))
+                .blockLast(Duration.ofSeconds(10));
+        assertEquals(dispatches.size() * 2, events.size(), events.toString());
+        return events;
+    }
+
+    private static Dispatch integrationsUpdate(long guildId) throws IOException {
+        return MAPPER.readValue("{\"guild_id\":\"" + guildId + "\"}", GuildIntegrationsUpdate.class);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.core.shard;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class GatewayEndpointResolverTest {
+
+    @Test
+    public void testFetchedOnceAcrossShards() {
+        AtomicInteger requests = new AtomicInteger();
+        GatewayEndpointResolver resolver = new GatewayEndpointResolver(
+                Mono.fromCallable(() -> "wss://gateway-" + requests.incrementAndGet()), null);
+        for (int i = 0; i < 100; i++) {
+            StepVerifier.create(resolver.resolve()).expectNext("wss://gateway-1").verifyComplete();
+        }
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testKnownUrlIsNotFetched() {
+        AtomicInteger requests = new AtomicInteger();
+        GatewayEndpointResolver resolver = new GatewayEndpointResolver(
+                Mono.fromCallable(() -> "wss://gateway-" + requests.incrementAndGet()), "wss://known");
+        Mono<String> known = resolver.resolve();
+        StepVerifier.create(known).expectNext("wss://known").verifyComplete();
+        assertEquals(0, requests.get());
+        resolver.invalidate(known);
+        StepVerifier.create(resolver.resolve()).expectNext("wss://gateway-1").verifyComplete();
+    }
+
+    @Test
+    public void testStaleInvalidationKeepsNewerUrl() {
+        AtomicInteger requests = new AtomicInteger();
+        GatewayEndpointResolver resolver = new GatewayEndpointResolver(
+                Mono.fromCallable(() -> "wss://gateway-" + requests.incrementAndGet()), "wss://known");
+        Mono<String> known = resolver.resolve();
+        resolver.invalidate(known);
+        StepVerifier.create(resolver.resolve()).expectNext("wss://gateway-1").verifyComplete();
+        // a second shard reporting a failure with the old URL must not discard the new one
+        resolver.invalidate(known);
+        StepVerifier.create(resolver.resolve()).expectNext("wss://gateway-1").verifyComplete();
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testFailureIsNotCached() {
+        AtomicInteger requests = new AtomicInteger();
+        GatewayEndpointResolver resolver = new GatewayEndpointResolver(Mono.fromCallable(() -> {
+            if (requests.incrementAndGet() == 1) {
+                throw new IllegalStateException("unavailable");
+            }
+            return "wss://gateway";
+        }), null);
+        StepVerifier.create(resolver.resolve()).verifyError(IllegalStateException.class);
+        StepVerifier.create(resolver.resolve()).expectNext("wss://gateway").verifyComplete();
+        StepVerifier.create(resolver.resolve()).expectNext("wss://gateway").verifyComplete();
+        assertEquals(2, requests.get());
+    }
+}
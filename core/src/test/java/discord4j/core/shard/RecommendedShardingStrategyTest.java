@@ -0,0 +1,85 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.core.shard;
+
+import discord4j.common.JacksonResources;
+import discord4j.discordjson.json.GatewayData;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecommendedShardingStrategyTest {
+
+    private static final String GATEWAY_BOT_JSON = "{\"url\":\"wss://gateway.discord.gg\",\"shards\":%d," +
+            "\"session_start_limit\":{\"total\":1000,\"remaining\":%d,\"reset_after\":60000," +
+            "\"max_concurrency\":%d}}";
+
+    @Test
+    public void testMaxConcurrencyIsTakenFromSessionStartLimit() throws IOException {
+        RecommendedShardingStrategy strategy = new RecommendedShardingStrategy(false);
+        assertEquals(1, strategy.getMaxConcurrency());
+        StepVerifier.create(strategy.getShardCount(gatewayBot(32, 1000, 16), Schedulers.immediate()))
+                .expectNext(32)
+                .verifyComplete();
+        assertEquals(16, strategy.getMaxConcurrency());
+        assertEquals("wss://gateway.discord.gg", strategy.getGatewayUrl());
+    }
+
+    @Test
+    public void testMaxConcurrencyIsAtLeastOne() throws IOException {
+        RecommendedShardingStrategy strategy = new RecommendedShardingStrategy(false);
+        StepVerifier.create(strategy.getShardCount(gatewayBot(2, 1000, 0), Schedulers.immediate()))
+                .expectNext(2)
+                .verifyComplete();
+        assertEquals(1, strategy.getMaxConcurrency());
+    }
+
+    @Test
+    public void testMissingSessionStartsFailByDefault() throws IOException {
+        RecommendedShardingStrategy strategy = new RecommendedShardingStrategy(false);
+        StepVerifier.create(strategy.getShardCount(gatewayBot(2, 0, 1), Schedulers.immediate()))
+                .verifyErrorSatisfies(e -> {
+                    assertEquals(IllegalStateException.class, e.getClass());
+                    assertTrue(e.getMessage().contains("No session starts remaining"));
+                });
+    }
+
+    @Test
+    public void testMissingSessionStartsAreAwaitedOnTheTimerScheduler() throws IOException {
+        RecommendedShardingStrategy strategy = new RecommendedShardingStrategy(true);
+        VirtualTimeScheduler timer = VirtualTimeScheduler.create();
+        StepVerifier.create(strategy.getShardCount(gatewayBot(2, 0, 1), timer))
+                .then(() -> timer.advanceTimeBy(Duration.ofSeconds(59)))
+                .expectNoEvent(Duration.ZERO)
+                .then(() -> timer.advanceTimeBy(Duration.ofSeconds(1)))
+                .expectNext(2)
+                .verifyComplete();
+    }
+
+    private static Mono<GatewayData> gatewayBot(int shards, int remaining, int maxConcurrency) throws IOException {
+        return Mono.just(JacksonResources.create().getObjectMapper().readValue(
+                String.format(GATEWAY_BOT_JSON, shards, remaining, maxConcurrency), GatewayData.class));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.core.shard;
+
+import discord4j.gateway.ShardInfo;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.SocketAddress;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardCoordinatorServerTest {
+
+    private static final Duration IDENTIFY_INTERVAL = Duration.ofMillis(300);
+
+    private ShardCoordinatorServer server;
+    private SocketShardCoordinator first;
+    private SocketShardCoordinator second;
+
+    @BeforeEach
+    public void setUp() {
+        server = ShardCoordinatorServer.builder()
+                .setIdentifyInterval(IDENTIFY_INTERVAL)
+                .setLeaseTimeout(Duration.ofSeconds(5))
+                .build()
+                .start()
+                .block();
+        SocketAddress address = server.getAddress();
+        first = SocketShardCoordinator.create(address);
+        second = SocketShardCoordinator.create(address);
+        // establish both connections before measuring
+        first.getConnectedCount().block();
+        second.getConnectedCount().block();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        first.dispose();
+        second.dispose();
+        server.dispose();
+    }
+
+    @Test
+    public void testIdentifySlotsAreGrantedPerBucketAcrossProcesses() {
+        // shards 0 and 2 share bucket 0 but run in different processes, shard 1 is alone in bucket 1
+        long start = System.nanoTime();
+        identify(first, 0).then(first.publishConnected(shard(0))).block();
+        long shard1Millis = identify(second, 1).then(elapsed(start)).block();
+        long shard2Millis = identify(second, 2).then(elapsed(start)).block();
+
+        assertTrue(shard1Millis < IDENTIFY_INTERVAL.toMillis());
+        assertTrue(shard2Millis >= IDENTIFY_INTERVAL.toMillis());
+    }
+
+    @Test
+    public void testCancelledIdentifyIsWithdrawn() {
+        // shard 0 holds the slot of bucket 0, shard 2 waits for it and gives up
+        identify(first, 0).block();
+        Disposable cancelled = identify(second, 2).subscribe();
+        Mono.delay(IDENTIFY_INTERVAL).block();
+        cancelled.dispose();
+        // let the cancellation reach the server before the slot is released
+        second.getConnectedCount().block();
+        first.publishConnected(shard(0)).block();
+
+        // shard 4 is next in bucket 0: the withdrawn request must not take the slot and delay it
+        long start = System.nanoTime();
+        long shard4Millis = identify(second, 4).then(elapsed(start)).block();
+        assertTrue(shard4Millis < IDENTIFY_INTERVAL.toMillis());
+    }
+
+    @Test
+    public void testConnectedShardsAreCountedAcrossProcesses() {
+        first.publishConnected(shard(0)).block();
+        second.publishConnected(shard(1)).block();
+        second.publishConnected(shard(2)).block();
+        assertEquals(3, first.getConnectedCount().block());
+
+        first.publishDisconnected(shard(0), null).block();
+        assertEquals(2, second.getConnectedCount().block());
+
+        // shards of a process that lost its connection are no longer counted
+        second.dispose();
+        Integer count = Flux.interval(Duration.ofMillis(50))
+                .concatMap(tick -> first.getConnectedCount())
+                .filter(connected -> connected == 0)
+                .blockFirst(Duration.ofSeconds(5));
+        assertEquals(0, count);
+    }
+
+    private static Mono<Void> identify(SocketShardCoordinator coordinator, int index) {
+        ByteBuf payload = Unpooled.copiedBuffer(new byte[]{1});
+        return Flux.from(coordinator.getIdentifyLimiter(shard(index), 2).apply(Mono.just(payload)))
+                .doOnNext(ByteBuf::release)
+                .then();
+    }
+
+    private static Mono<Long> elapsed(long start) {
+        return Mono.fromCallable(() -> Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    private static ShardInfo shard(int index) {
+        return ShardInfo.create(index, 5);
+    }
+}
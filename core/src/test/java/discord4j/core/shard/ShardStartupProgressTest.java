@@ -0,0 +1,48 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.core.shard;
+
+import discord4j.gateway.ShardInfo;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ShardStartupProgressTest {
+
+    @Test
+    public void testCountsScheduledAndConnectedShards() {
+        ShardStartupProgress progress = new ShardStartupProgress(2);
+        progress.onStart();
+        for (int i = 0; i < 4; i++) {
+            progress.onScheduled(ShardInfo.create(i, 4));
+        }
+        progress.onConnected(ShardInfo.create(0, 4));
+        progress.onConnected(ShardInfo.create(1, 4));
+        assertEquals(4, progress.getScheduledCount());
+        assertEquals(2, progress.getConnectedCount());
+    }
+
+    @Test
+    public void testRemainingTimeIsExtrapolatedFromConnectedShards() {
+        assertEquals(Duration.ofSeconds(30),
+                ShardStartupProgress.estimateRemaining(Duration.ofSeconds(10), 2, 8));
+        assertEquals(Duration.ZERO, ShardStartupProgress.estimateRemaining(Duration.ofSeconds(10), 8, 8));
+        assertEquals(Duration.ZERO, ShardStartupProgress.estimateRemaining(Duration.ZERO, 0, 8));
+    }
+}
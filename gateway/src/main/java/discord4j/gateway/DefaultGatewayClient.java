@@ -83,6 +83,7 @@ public class DefaultGatewayClient implements GatewayClient {
     private static final Logger log = Loggers.getLogger(DefaultGatewayClient.class);
     private static final Logger senderLog = Loggers.getLogger("discord4j.gateway.protocol.sender");
     private static final Logger receiverLog = Loggers.getLogger("discord4j.gateway.protocol.receiver");
+    private static final String JSON_ENCODING = "json";
 
     // basic properties
     private final GatewayReactorResources reactorResources;
@@ -98,6 +99,7 @@ public class DefaultGatewayClient implements GatewayClient {
     private final int maxMissedHeartbeatAck;
     private final boolean unpooled;
     private final EmissionStrategy emissionStrategy;
+    private final ZlibDecompressor.Mode decompressorMode;
 
     private final Map<Opcode<?>, PayloadHandler<?>> handlerMap = new HashMap<>();
 
@@ -163,6 +165,7 @@ public class DefaultGatewayClient implements GatewayClient {
         this.maxMissedHeartbeatAck = Math.max(0, options.getMaxMissedHeartbeatAck());
         this.unpooled = options.isUnpooled();
         this.emissionStrategy = options.getEmissionStrategy();
+        this.decompressorMode = options.getDecompressorMode();
 
         addHandler(Opcode.DISPATCH, this::handleDispatch);
         addHandler(Opcode.HEARTBEAT, this::handleHeartbeat);
@@ -177,7 +180,7 @@ public class DefaultGatewayClient implements GatewayClient {
         this.outbound = newEmitterSink();
         this.heartbeats = newEmitterSink();
 
-        this.heartbeatEmitter = new ResettableInterval(this.reactorResources.getTimerTaskScheduler());
+        this.heartbeatEmitter = new ResettableInterval(this.reactorResources.getCoarseTimerScheduler());
 
         SessionInfo resumeSession = this.identifyOptions.getResumeSession().orElse(null);
         if (resumeSession != null) {
@@ -199,6 +202,11 @@ public class DefaultGatewayClient implements GatewayClient {
 
     @Override
     public Mono<Void> execute(String gatewayUrl) {
+        return execute(Mono.just(gatewayUrl));
+    }
+
+    @Override
+    public Mono<Void> execute(Mono<String> gatewayUrl) {
         return Mono.deferContextual(
                 context -> {
                     currentContext = context;
@@ -227,13 +235,14 @@ public class DefaultGatewayClient implements GatewayClient {
                             .flatMap(payload -> Flux.from(payloadWriter.write(payload)))
                             .transform(buf -> Flux.merge(buf, sender.asFlux()))
                             .transform(new RateLimitOperator<>(outboundLimiterCapacity(), Duration.ofSeconds(60),
-                                    reactorResources.getTimerTaskScheduler(),
+                                    reactorResources.getCoarseTimerScheduler(),
                                     reactorResources.getPayloadSenderScheduler()));
                     Flux<ByteBuf> outFlux = Flux.merge(heartbeatFlux, identifyFlux, resumeFlux, payloadFlux)
                             .doOnNext(buf -> logPayload(senderLog, context, buf))
                             .doOnDiscard(ByteBuf.class, DefaultGatewayClient::safeRelease);
 
-                    sessionHandler = new GatewayWebsocketHandler(receiver, outFlux, context);
+                    sessionHandler = new GatewayWebsocketHandler(receiver, outFlux, context, false, decompressorMode,
+                            !JSON_ENCODING.equals(payloadWriter.getEncoding()));
 
                     Mono<Void> readyHandler = dispatch.asFlux()
                             .filter(DefaultGatewayClient::isReadyOrResumed)
@@ -308,17 +317,18 @@ public class DefaultGatewayClient implements GatewayClient {
                             .doOnNext(tick -> emissionStrategy.emitNext(heartbeats, tick))
                             .then();
 
-                    Mono<Void> httpFuture = reactorResources.getHttpClient()
+                    // resolved on every attempt, so a reconnection picks up a refreshed URL
+                    Mono<Void> httpFuture = gatewayUrl.flatMap(url -> reactorResources.getHttpClient()
                             .headers(headers -> headers.add(USER_AGENT, initUserAgent()))
                             .observe(getObserver(context))
                             .websocket(WebsocketClientSpec.builder()
                                     .maxFramePayloadLength(Integer.MAX_VALUE)
                                     .build())
-                            .uri(gatewayUrl)
+                            .uri(url)
                             .handle(sessionHandler::handle)
                             .contextWrite(LogUtil.clearContext())
                             .flatMap(t2 -> handleClose(t2.getT1(), t2.getT2()))
-                            .then();
+                            .then());
 
                     return Mono.zip(httpFuture, readyHandler, receiverFuture, senderFuture, heartbeatHandler)
                             .doOnError(t -> {
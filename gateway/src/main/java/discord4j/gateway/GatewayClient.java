@@ -52,6 +52,20 @@ public interface GatewayClient {
      */
     Mono<Void> execute(String gatewayUrl);
 
+    /**
+     * Establish a reconnecting gateway connection to the URL emitted by the given {@link Mono}, which is subscribed to
+     * again on every connection attempt, allowing reconnections to use a refreshed URL.
+     * <p>
+     * The default implementation resolves the URL once and calls {@link #execute(String)}.
+     *
+     * @param gatewayUrl a {@link Mono} emitting the URL used to establish a websocket connection
+     * @return a {@link Mono} signaling completion of the session. If a non-recoverable error terminates the session,
+     * it is emitted as an error through this Mono.
+     */
+    default Mono<Void> execute(Mono<String> gatewayUrl) {
+        return gatewayUrl.flatMap(this::execute);
+    }
+
     /**
      * Terminates this client's current gateway connection.
      *
@@ -42,6 +42,7 @@ public class GatewayOptions {
     private final int maxMissedHeartbeatAck;
     private final boolean unpooled;
     private final EmissionStrategy emissionStrategy;
+    private final ZlibDecompressor.Mode decompressorMode;
 
     public GatewayOptions(String token, GatewayReactorResources reactorResources, PayloadReader payloadReader,
                           PayloadWriter payloadWriter, ReconnectOptions reconnectOptions,
@@ -56,6 +57,15 @@ public class GatewayOptions {
                           IdentifyOptions identifyOptions, GatewayObserver initialObserver,
                           PayloadTransformer identifyLimiter, int maxMissedHeartbeatAck, boolean unpooled,
                           EmissionStrategy emissionStrategy) {
+        this(token, reactorResources, payloadReader, payloadWriter, reconnectOptions, identifyOptions, initialObserver,
+                identifyLimiter, maxMissedHeartbeatAck, unpooled, emissionStrategy, ZlibDecompressor.Mode.BUFFERED);
+    }
+
+    public GatewayOptions(String token, GatewayReactorResources reactorResources, PayloadReader payloadReader,
+                          PayloadWriter payloadWriter, ReconnectOptions reconnectOptions,
+                          IdentifyOptions identifyOptions, GatewayObserver initialObserver,
+                          PayloadTransformer identifyLimiter, int maxMissedHeartbeatAck, boolean unpooled,
+                          EmissionStrategy emissionStrategy, ZlibDecompressor.Mode decompressorMode) {
         this.token = Objects.requireNonNull(token, "token");
         this.reactorResources = Objects.requireNonNull(reactorResources, "reactorResources");
         this.payloadReader = Objects.requireNonNull(payloadReader, "payloadReader");
@@ -67,6 +77,12 @@ public class GatewayOptions {
         this.maxMissedHeartbeatAck = maxMissedHeartbeatAck;
         this.unpooled = unpooled;
         this.emissionStrategy = Objects.requireNonNull(emissionStrategy, "emissionStrategy");
+        this.decompressorMode = Objects.requireNonNull(decompressorMode, "decompressorMode");
+        // the connection encoding comes from the reader while frames are sent according to the writer
+        if (!payloadReader.getEncoding().equals(payloadWriter.getEncoding())) {
+            throw new IllegalArgumentException("PayloadReader encoding '" + payloadReader.getEncoding() +
+                    "' does not match PayloadWriter encoding '" + payloadWriter.getEncoding() + "'");
+        }
     }
 
     public String getToken() {
@@ -112,4 +128,8 @@ public class GatewayOptions {
     public EmissionStrategy getEmissionStrategy() {
         return emissionStrategy;
     }
+
+    public ZlibDecompressor.Mode getDecompressorMode() {
+        return decompressorMode;
+    }
 }
@@ -36,12 +36,14 @@ public class GatewayReactorResources extends ReactorResources {
     private final Scheduler payloadSenderScheduler;
 
     public GatewayReactorResources(ReactorResources parent) {
-        super(parent.getHttpClient(), parent.getTimerTaskScheduler(), parent.getBlockingTaskScheduler());
+        super(parent.getHttpClient(), parent.getTimerTaskScheduler(), parent.getBlockingTaskScheduler(),
+                parent.getCoarseTimerScheduler());
         this.payloadSenderScheduler = DEFAULT_PAYLOAD_SENDER_SCHEDULER.get();
     }
 
     public GatewayReactorResources(ReactorResources parent, Scheduler payloadSenderScheduler) {
-        super(parent.getHttpClient(), parent.getTimerTaskScheduler(), parent.getBlockingTaskScheduler());
+        super(parent.getHttpClient(), parent.getTimerTaskScheduler(), parent.getBlockingTaskScheduler(),
+                parent.getCoarseTimerScheduler());
         this.payloadSenderScheduler = payloadSenderScheduler;
     }
 
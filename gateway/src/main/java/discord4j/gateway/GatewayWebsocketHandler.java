@@ -23,6 +23,7 @@ import discord4j.gateway.retry.GatewayException;
 import discord4j.gateway.retry.PartialDisconnectException;
 import discord4j.gateway.retry.ReconnectException;
 import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.WebSocketFrame;
@@ -65,6 +66,8 @@ public class GatewayWebsocketHandler {
     private final ContextView context;
     private final boolean unpooled;
     private final EmissionStrategy emissionStrategy;
+    private final ZlibDecompressor.Mode decompressorMode;
+    private final boolean binaryFrames;
 
     /**
      * Create a new handler with the given data pipelines.
@@ -79,12 +82,44 @@ public class GatewayWebsocketHandler {
 
     public GatewayWebsocketHandler(Sinks.Many<ByteBuf> inbound, Flux<ByteBuf> outbound, ContextView context,
                                    boolean unpooled) {
+        this(inbound, outbound, context, unpooled, ZlibDecompressor.Mode.BUFFERED);
+    }
+
+    /**
+     * Create a new handler with the given data pipelines and a specific inflating strategy.
+     *
+     * @param inbound the {@link Sinks.Many} of {@link ByteBuf} to process inbound payloads
+     * @param outbound the {@link Flux} of {@link ByteBuf} to process outbound payloads
+     * @param context the Reactor {@link ContextView} that owns this handler, to enrich logging
+     * @param unpooled whether inbound buffers should be allocated outside the connection pool
+     * @param decompressorMode the {@link ZlibDecompressor.Mode} used to inflate inbound messages
+     */
+    public GatewayWebsocketHandler(Sinks.Many<ByteBuf> inbound, Flux<ByteBuf> outbound, ContextView context,
+                                   boolean unpooled, ZlibDecompressor.Mode decompressorMode) {
+        this(inbound, outbound, context, unpooled, decompressorMode, false);
+    }
+
+    /**
+     * Create a new handler with the given data pipelines, a specific inflating strategy and outbound frame type.
+     *
+     * @param inbound the {@link Sinks.Many} of {@link ByteBuf} to process inbound payloads
+     * @param outbound the {@link Flux} of {@link ByteBuf} to process outbound payloads
+     * @param context the Reactor {@link ContextView} that owns this handler, to enrich logging
+     * @param unpooled whether inbound buffers should be allocated outside the connection pool
+     * @param decompressorMode the {@link ZlibDecompressor.Mode} used to inflate inbound messages
+     * @param binaryFrames {@code true} to send outbound payloads as binary frames, required by non-text encodings,
+     * or {@code false} to send them as text frames
+     */
+    public GatewayWebsocketHandler(Sinks.Many<ByteBuf> inbound, Flux<ByteBuf> outbound, ContextView context,
+                                   boolean unpooled, ZlibDecompressor.Mode decompressorMode, boolean binaryFrames) {
         this.inbound = inbound;
         this.outbound = outbound;
         this.sessionClose = Sinks.one();
         this.context = context;
         this.unpooled = unpooled;
         this.emissionStrategy = EmissionStrategy.park(Duration.ofNanos(10));
+        this.decompressorMode = decompressorMode;
+        this.binaryFrames = binaryFrames;
     }
 
     /**
@@ -100,7 +135,7 @@ public class GatewayWebsocketHandler {
      * {@link CloseStatus}.
      */
     public Mono<Tuple2<DisconnectBehavior, CloseStatus>> handle(WebsocketInbound in, WebsocketOutbound out) {
-        ZlibDecompressor decompressor = new ZlibDecompressor(out.alloc());
+        ZlibDecompressor decompressor = new ZlibDecompressor(out.alloc(), unpooled, decompressorMode);
 
         Mono<CloseWebSocketFrame> outboundClose = sessionClose.asMono()
                 .doOnNext(behavior -> log.debug(format(context, "Closing session with behavior: {}"), behavior))
@@ -124,7 +159,9 @@ public class GatewayWebsocketHandler {
                 .doOnNext(status -> close(DisconnectBehavior.retryAbruptly(
                         new GatewayException(context, "Inbound close status"))));
 
-        Mono<Void> outboundEvents = out.sendObject(Flux.merge(outboundClose, outbound.map(TextWebSocketFrame::new)))
+        Flux<WebSocketFrame> outboundFrames = outbound.map(buf -> binaryFrames ?
+                new BinaryWebSocketFrame(buf) : new TextWebSocketFrame(buf));
+        Mono<Void> outboundEvents = out.sendObject(Flux.merge(outboundClose, outboundFrames))
                 .then();
 
         in.withConnection(c -> c.onDispose(() -> log.debug(format(context, "Connection disposed"))));
@@ -23,32 +23,52 @@ import reactor.core.publisher.Flux;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.function.Predicate;
+import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterOutputStream;
 
 /**
  * Implements a zlib inflater on a stream of {@link ByteBuf} elements.
+ * <p>
+ * Two strategies are available, selected through {@link Mode}: {@link Mode#BUFFERED} collects every frame of a
+ * message before inflating it as a whole, while {@link Mode#STREAMING} inflates each frame as soon as it arrives,
+ * writing directly into the output buffer of the message currently being assembled.
  */
 public class ZlibDecompressor {
 
     private static final int ZLIB_SUFFIX = 0x0000FFFF;
+    private static final int MIN_OUTPUT_CAPACITY = 1024;
     private static final Predicate<ByteBuf> windowPredicate = payload ->
             payload.readableBytes() >= 4 && payload.getInt(payload.readableBytes() - 4) == ZLIB_SUFFIX;
 
     private final ByteBufAllocator allocator;
     private final Inflater context = new Inflater();
     private final boolean unpooled;
+    private final Mode mode;
+
+    // streaming mode state, only accessed serially from the inbound frame sequence
+    private byte[] inputScratch = new byte[0];
+    private ByteBuf output;
+    private int lastMessageSize = MIN_OUTPUT_CAPACITY;
 
     public ZlibDecompressor(ByteBufAllocator allocator) {
         this(allocator, false);
     }
 
     public ZlibDecompressor(ByteBufAllocator allocator, boolean unpooled) {
+        this(allocator, unpooled, Mode.BUFFERED);
+    }
+
+    public ZlibDecompressor(ByteBufAllocator allocator, boolean unpooled, Mode mode) {
         this.allocator = allocator;
         this.unpooled = unpooled;
+        this.mode = mode;
     }
 
     public Flux<ByteBuf> completeMessages(Flux<ByteBuf> payloads) {
+        if (mode == Mode.STREAMING) {
+            return streamMessages(payloads);
+        }
         return payloads.windowUntil(windowPredicate)
                 .flatMap(Flux::collectList)
                 .map(list -> {
@@ -72,4 +92,84 @@ public class ZlibDecompressor {
                     }
                 });
     }
+
+    private Flux<ByteBuf> streamMessages(Flux<ByteBuf> payloads) {
+        return payloads.<ByteBuf>handle((payload, sink) -> {
+            boolean complete = windowPredicate.test(payload);
+            try {
+                inflate(payload);
+            } catch (DataFormatException e) {
+                releaseOutput();
+                sink.error(e);
+                return;
+            }
+            if (complete) {
+                ByteBuf message = output;
+                output = null;
+                lastMessageSize = Math.max(MIN_OUTPUT_CAPACITY, message.readableBytes());
+                sink.next(message.asReadOnly());
+            }
+        }).doFinally(signal -> {
+            releaseOutput();
+            context.end();
+        });
+    }
+
+    private void inflate(ByteBuf payload) throws DataFormatException {
+        int length = payload.readableBytes();
+        if (payload.hasArray()) {
+            context.setInput(payload.array(), payload.arrayOffset() + payload.readerIndex(), length);
+        } else {
+            // Inflater can only consume arrays on Java 8, so reuse a single scratch copy for direct frames
+            if (inputScratch.length < length) {
+                inputScratch = new byte[length];
+            }
+            payload.getBytes(payload.readerIndex(), inputScratch, 0, length);
+            context.setInput(inputScratch, 0, length);
+        }
+        if (output == null) {
+            output = unpooled ? Unpooled.buffer(lastMessageSize) : allocator.heapBuffer(lastMessageSize);
+        }
+        while (true) {
+            output.ensureWritable(Math.max(MIN_OUTPUT_CAPACITY, length));
+            int written = context.inflate(output.array(), output.arrayOffset() + output.writerIndex(),
+                    output.writableBytes());
+            output.writerIndex(output.writerIndex() + written);
+            if (written == 0) {
+                if (context.needsDictionary()) {
+                    throw new DataFormatException("Preset dictionaries are not supported");
+                }
+                if (context.needsInput() || context.finished()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void releaseOutput() {
+        if (output != null) {
+            if (!unpooled && output.refCnt() > 0) {
+                output.release();
+            }
+            output = null;
+        }
+    }
+
+    /**
+     * Strategy used by a {@link ZlibDecompressor} to assemble and inflate inbound messages.
+     */
+    public enum Mode {
+
+        /**
+         * Collect all frames that belong to a message and then inflate them together. Requires copying each message
+         * to intermediate arrays.
+         */
+        BUFFERED,
+
+        /**
+         * Inflate each frame as it is received, writing into a single output buffer that is emitted once the zlib
+         * flush suffix is found. Avoids intermediate arrays and windowing.
+         */
+        STREAMING
+    }
 }
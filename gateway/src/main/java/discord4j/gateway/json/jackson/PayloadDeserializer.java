@@ -114,8 +114,16 @@ public class PayloadDeserializer extends StdDeserializer<GatewayPayload<?>> {
         return new GatewayPayload(Opcode.forRaw(op), data, s, t);
     }
 
+    /**
+     * Resolve the class a payload {@code d} field should be bound to, given its opcode and event name.
+     *
+     * @param op the raw opcode of the payload
+     * @param t the event name of the payload, only relevant for dispatch payloads
+     * @return the class to deserialize the payload data into, or {@code null} if the payload data should be ignored
+     * @throws IllegalArgumentException if the opcode or dispatch event name is unknown
+     */
     @Nullable
-    private static Class<? extends PayloadData> getPayloadType(int op, String t) {
+    public static Class<? extends PayloadData> getPayloadType(int op, @Nullable String t) {
         if (op == Opcode.DISPATCH.getRawOp()) {
             if (!dispatchTypes.containsKey(t)) {
                 throw new IllegalArgumentException("Attempt to deserialize payload with unknown event type: " + t);
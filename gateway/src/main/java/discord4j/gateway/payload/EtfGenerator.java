@@ -0,0 +1,305 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.gateway.payload;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonGenerationException;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.base.GeneratorBase;
+import com.fasterxml.jackson.core.json.JsonWriteContext;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static discord4j.gateway.payload.EtfTags.*;
+
+/**
+ * A {@link com.fasterxml.jackson.core.JsonGenerator} writing values as External Term Format straight into a
+ * {@link ByteBuf}. Objects become maps with binary keys, arrays become lists, strings become binaries and
+ * {@code null} and booleans become their equivalent atoms.
+ * <p>
+ * Map and list sizes are not known up front, so a placeholder is written when they start and patched once they end.
+ * The buffer is owned by the caller: closing this generator does not release it.
+ */
+final class EtfGenerator extends GeneratorBase {
+
+    private final ByteBuf out;
+
+    // writer index of each open map or list, to patch its size in
+    private int[] starts = new int[16];
+    private int depth;
+
+    /**
+     * Create a generator writing a versioned term to the given buffer.
+     *
+     * @param codec the {@link ObjectCodec} used to write values with this generator
+     * @param out the buffer to write to
+     */
+    EtfGenerator(ObjectCodec codec, ByteBuf out) {
+        super(0, codec);
+        this.out = out;
+        out.writeByte(VERSION);
+    }
+
+    @Override
+    public void writeStartArray() throws IOException {
+        _verifyValueWrite("start an array");
+        _writeContext = _writeContext.createChildArrayContext();
+        push();
+        out.writeByte(LIST_EXT);
+        out.writeInt(0);
+    }
+
+    @Override
+    public void writeEndArray() throws IOException {
+        if (!_writeContext.inArray()) {
+            _reportError("Current context not Array but " + _writeContext.typeDesc());
+        }
+        int count = _writeContext.getEntryCount();
+        int start = pop();
+        if (count == 0) {
+            // an empty list is written as NIL alone
+            out.writerIndex(start);
+        } else {
+            out.setInt(start + 1, count);
+        }
+        out.writeByte(NIL_EXT);
+        _writeContext = _writeContext.clearAndGetParent();
+    }
+
+    @Override
+    public void writeStartObject() throws IOException {
+        _verifyValueWrite("start an object");
+        _writeContext = _writeContext.createChildObjectContext();
+        push();
+        out.writeByte(MAP_EXT);
+        out.writeInt(0);
+    }
+
+    @Override
+    public void writeEndObject() throws IOException {
+        if (!_writeContext.inObject()) {
+            _reportError("Current context not Object but " + _writeContext.typeDesc());
+        }
+        out.setInt(pop() + 1, _writeContext.getEntryCount());
+        _writeContext = _writeContext.clearAndGetParent();
+    }
+
+    @Override
+    public void writeFieldName(String name) throws IOException {
+        if (_writeContext.writeFieldName(name) == JsonWriteContext.STATUS_EXPECT_VALUE) {
+            _reportError("Can not write a field name, expecting a value");
+        }
+        writeUtf8Binary(name);
+    }
+
+    @Override
+    public void writeString(String text) throws IOException {
+        if (text == null) {
+            writeNull();
+            return;
+        }
+        _verifyValueWrite(WRITE_STRING);
+        writeUtf8Binary(text);
+    }
+
+    @Override
+    public void writeString(char[] text, int offset, int len) throws IOException {
+        writeString(new String(text, offset, len));
+    }
+
+    @Override
+    public void writeRawUTF8String(byte[] text, int offset, int length) throws IOException {
+        _verifyValueWrite(WRITE_STRING);
+        writeBinaryExt(text, offset, length);
+    }
+
+    @Override
+    public void writeUTF8String(byte[] text, int offset, int length) throws IOException {
+        writeRawUTF8String(text, offset, length);
+    }
+
+    @Override
+    public void writeRaw(String text) throws IOException {
+        _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeRaw(String text, int offset, int len) throws IOException {
+        _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeRaw(char[] text, int offset, int len) throws IOException {
+        _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeRaw(char c) throws IOException {
+        _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeBinary(Base64Variant bv, byte[] data, int offset, int len) throws IOException {
+        _verifyValueWrite(WRITE_BINARY);
+        writeBinaryExt(data, offset, len);
+    }
+
+    @Override
+    public void writeNumber(int v) throws IOException {
+        _verifyValueWrite(WRITE_NUMBER);
+        writeInteger(v);
+    }
+
+    @Override
+    public void writeNumber(long v) throws IOException {
+        _verifyValueWrite(WRITE_NUMBER);
+        if (v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE) {
+            writeInteger((int) v);
+        } else {
+            writeBig(BigInteger.valueOf(v));
+        }
+    }
+
+    @Override
+    public void writeNumber(BigInteger v) throws IOException {
+        if (v == null) {
+            writeNull();
+            return;
+        }
+        if (v.bitLength() < 32) {
+            writeNumber(v.intValue());
+            return;
+        }
+        _verifyValueWrite(WRITE_NUMBER);
+        writeBig(v);
+    }
+
+    @Override
+    public void writeNumber(double v) throws IOException {
+        _verifyValueWrite(WRITE_NUMBER);
+        out.writeByte(NEW_FLOAT_EXT);
+        out.writeDouble(v);
+    }
+
+    @Override
+    public void writeNumber(float v) throws IOException {
+        writeNumber((double) v);
+    }
+
+    @Override
+    public void writeNumber(BigDecimal v) throws IOException {
+        if (v == null) {
+            writeNull();
+            return;
+        }
+        writeNumber(v.doubleValue());
+    }
+
+    @Override
+    public void writeNumber(String encodedValue) throws IOException {
+        writeString(encodedValue);
+    }
+
+    @Override
+    public void writeBoolean(boolean state) throws IOException {
+        _verifyValueWrite(WRITE_BOOLEAN);
+        writeAtom(state ? TRUE_ATOM : FALSE_ATOM);
+    }
+
+    @Override
+    public void writeNull() throws IOException {
+        _verifyValueWrite(WRITE_NULL);
+        writeAtom(NIL_ATOM);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    protected void _releaseBuffers() {
+    }
+
+    @Override
+    protected void _verifyValueWrite(String typeMsg) throws IOException {
+        if (_writeContext.writeValue() == JsonWriteContext.STATUS_EXPECT_NAME) {
+            _reportError("Can not " + typeMsg + ", expecting field name");
+        }
+    }
+
+    private void push() {
+        if (depth == starts.length) {
+            starts = Arrays.copyOf(starts, depth * 2);
+        }
+        starts[depth++] = out.writerIndex();
+    }
+
+    private int pop() throws JsonGenerationException {
+        if (depth == 0) {
+            _reportError("Unbalanced end of array or object");
+        }
+        return starts[--depth];
+    }
+
+    private void writeUtf8Binary(String text) {
+        out.writeByte(BINARY_EXT);
+        int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        out.setInt(lengthIndex, ByteBufUtil.writeUtf8(out, text));
+    }
+
+    private void writeBinaryExt(byte[] bytes, int offset, int length) {
+        out.writeByte(BINARY_EXT);
+        out.writeInt(length);
+        out.writeBytes(bytes, offset, length);
+    }
+
+    private void writeAtom(String atom) {
+        out.writeByte(SMALL_ATOM_UTF8_EXT);
+        out.writeByte(atom.length());
+        out.writeCharSequence(atom, StandardCharsets.US_ASCII);
+    }
+
+    private void writeInteger(int value) {
+        if (value >= 0 && value <= 255) {
+            out.writeByte(SMALL_INTEGER_EXT);
+            out.writeByte(value);
+        } else {
+            out.writeByte(INTEGER_EXT);
+            out.writeInt(value);
+        }
+    }
+
+    private void writeBig(BigInteger value) {
+        byte[] magnitude = value.abs().toByteArray();
+        // skip the sign byte BigInteger may add in front of the magnitude
+        int start = magnitude[0] == 0 ? 1 : 0;
+        int length = magnitude.length - start;
+        out.writeByte(SMALL_BIG_EXT);
+        out.writeByte(length);
+        out.writeByte(value.signum() < 0 ? 1 : 0);
+        for (int i = magnitude.length - 1; i >= start; i--) {
+            out.writeByte(magnitude[i]);
+        }
+    }
+}
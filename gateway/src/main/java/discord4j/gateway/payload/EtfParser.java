@@ -0,0 +1,458 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.gateway.payload;
+
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.core.base.ParserMinimalBase;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import reactor.util.annotation.Nullable;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static discord4j.gateway.payload.EtfTags.*;
+
+/**
+ * A {@link JsonParser} reading External Term Format values straight from a {@link ByteBuf}, so they can be bound in a
+ * single pass without an intermediate copy of their tokens.
+ * <p>
+ * Maps become objects, lists and tuples become arrays and binaries become strings. The {@code nil}, {@code true}
+ * and {@code false} atoms become their JSON equivalents and any other atom is read as a string. Big integers, like
+ * snowflakes, are read as strings, matching their representation under JSON encoding.
+ * <p>
+ * Malformed input surfaces as an {@link IllegalArgumentException} or {@link IndexOutOfBoundsException}.
+ */
+final class EtfParser extends ParserMinimalBase {
+
+    private ObjectCodec codec;
+    private ByteBuf in;
+    private Context context = new Context(null, JsonStreamContext.TYPE_ROOT, 0);
+    private boolean started;
+    private boolean closed;
+
+    // value of the current token
+    @Nullable
+    private String text;
+    private int intValue;
+    private double doubleValue;
+
+    /**
+     * Create a parser for the versioned term found in the readable bytes of the given buffer. The parser advances
+     * the reader index of the buffer as it reads.
+     *
+     * @param codec the {@link ObjectCodec} used to read values from this parser
+     * @param in the buffer to read from
+     */
+    EtfParser(ObjectCodec codec, ByteBuf in) {
+        this.codec = codec;
+        this.in = in;
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+        if (closed) {
+            return null;
+        }
+        Context current = context;
+        if (current.inRoot()) {
+            if (started) {
+                return _currToken = null;
+            }
+            started = true;
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported ETF version: " + version);
+            }
+            return _currToken = readValue(in.readUnsignedByte());
+        }
+        if (current.inObject()) {
+            if (current.expectValue) {
+                current.expectValue = false;
+                return _currToken = readValue(in.readUnsignedByte());
+            }
+            if (current.remaining == 0) {
+                context = current.parent;
+                return _currToken = JsonToken.END_OBJECT;
+            }
+            current.advance();
+            current.expectValue = true;
+            current.name = readKey(in.readUnsignedByte());
+            return _currToken = JsonToken.FIELD_NAME;
+        }
+        if (current.remaining == 0 && current.listTail) {
+            current.listTail = false;
+            if (in.getUnsignedByte(in.readerIndex()) == NIL_EXT) {
+                in.skipBytes(1);
+            } else {
+                // improper list, its tail is read as the last element
+                current.remaining = 1;
+            }
+        }
+        if (current.remaining == 0) {
+            context = current.parent;
+            return _currToken = JsonToken.END_ARRAY;
+        }
+        current.advance();
+        if (current.byteList) {
+            intValue = in.readUnsignedByte();
+            return _currToken = JsonToken.VALUE_NUMBER_INT;
+        }
+        return _currToken = readValue(in.readUnsignedByte());
+    }
+
+    private JsonToken readValue(int tag) {
+        switch (tag) {
+            case SMALL_INTEGER_EXT:
+                intValue = in.readUnsignedByte();
+                return JsonToken.VALUE_NUMBER_INT;
+            case INTEGER_EXT:
+                intValue = in.readInt();
+                return JsonToken.VALUE_NUMBER_INT;
+            case NEW_FLOAT_EXT:
+                doubleValue = in.readDouble();
+                return JsonToken.VALUE_NUMBER_FLOAT;
+            case FLOAT_EXT:
+                doubleValue = Double.parseDouble(readString(31, StandardCharsets.ISO_8859_1).trim());
+                return JsonToken.VALUE_NUMBER_FLOAT;
+            case ATOM_EXT:
+                return atom(readString(in.readUnsignedShort(), StandardCharsets.ISO_8859_1));
+            case SMALL_ATOM_EXT:
+                return atom(readString(in.readUnsignedByte(), StandardCharsets.ISO_8859_1));
+            case ATOM_UTF8_EXT:
+                return atom(readString(in.readUnsignedShort(), StandardCharsets.UTF_8));
+            case SMALL_ATOM_UTF8_EXT:
+                return atom(readString(in.readUnsignedByte(), StandardCharsets.UTF_8));
+            case BINARY_EXT:
+                text = readString(in.readInt(), StandardCharsets.UTF_8);
+                return JsonToken.VALUE_STRING;
+            case STRING_EXT:
+                // a list of small integers
+                context = new Context(context, JsonStreamContext.TYPE_ARRAY, in.readUnsignedShort());
+                context.byteList = true;
+                return JsonToken.START_ARRAY;
+            case NIL_EXT:
+                context = new Context(context, JsonStreamContext.TYPE_ARRAY, 0);
+                return JsonToken.START_ARRAY;
+            case LIST_EXT:
+                context = new Context(context, JsonStreamContext.TYPE_ARRAY, in.readInt());
+                context.listTail = true;
+                return JsonToken.START_ARRAY;
+            case SMALL_TUPLE_EXT:
+                context = new Context(context, JsonStreamContext.TYPE_ARRAY, in.readUnsignedByte());
+                return JsonToken.START_ARRAY;
+            case LARGE_TUPLE_EXT:
+                context = new Context(context, JsonStreamContext.TYPE_ARRAY, in.readInt());
+                return JsonToken.START_ARRAY;
+            case MAP_EXT:
+                context = new Context(context, JsonStreamContext.TYPE_OBJECT, in.readInt());
+                return JsonToken.START_OBJECT;
+            case SMALL_BIG_EXT:
+                text = readBig(in.readUnsignedByte());
+                return JsonToken.VALUE_STRING;
+            case LARGE_BIG_EXT:
+                text = readBig(in.readInt());
+                return JsonToken.VALUE_STRING;
+            case COMPRESSED:
+                // only found around a whole term, the rest of the input is the inflated term
+                in = inflate();
+                return readValue(in.readUnsignedByte());
+            default:
+                throw new IllegalArgumentException("Unsupported ETF tag: " + tag);
+        }
+    }
+
+    private JsonToken atom(String atom) {
+        switch (atom) {
+            case NIL_ATOM:
+                return JsonToken.VALUE_NULL;
+            case TRUE_ATOM:
+                return JsonToken.VALUE_TRUE;
+            case FALSE_ATOM:
+                return JsonToken.VALUE_FALSE;
+            default:
+                text = atom;
+                return JsonToken.VALUE_STRING;
+        }
+    }
+
+    private String readKey(int tag) {
+        switch (tag) {
+            case ATOM_EXT:
+                return readString(in.readUnsignedShort(), StandardCharsets.ISO_8859_1);
+            case SMALL_ATOM_EXT:
+                return readString(in.readUnsignedByte(), StandardCharsets.ISO_8859_1);
+            case ATOM_UTF8_EXT:
+                return readString(in.readUnsignedShort(), StandardCharsets.UTF_8);
+            case SMALL_ATOM_UTF8_EXT:
+                return readString(in.readUnsignedByte(), StandardCharsets.UTF_8);
+            case BINARY_EXT:
+                return readString(in.readInt(), StandardCharsets.UTF_8);
+            case SMALL_INTEGER_EXT:
+                return Integer.toString(in.readUnsignedByte());
+            case INTEGER_EXT:
+                return Integer.toString(in.readInt());
+            case SMALL_BIG_EXT:
+                return readBig(in.readUnsignedByte());
+            case LARGE_BIG_EXT:
+                return readBig(in.readInt());
+            default:
+                throw new IllegalArgumentException("Unsupported ETF map key tag: " + tag);
+        }
+    }
+
+    private String readString(int length, Charset charset) {
+        String value = in.toString(in.readerIndex(), length, charset);
+        in.skipBytes(length);
+        return value;
+    }
+
+    private String readBig(int length) {
+        boolean negative = in.readUnsignedByte() != 0;
+        if (length <= 8) {
+            long value = 0;
+            for (int i = 0; i < length; i++) {
+                value |= ((long) in.readUnsignedByte()) << (8 * i);
+            }
+            String digits = Long.toUnsignedString(value);
+            return negative ? "-" + digits : digits;
+        }
+        // digits are stored in little-endian order
+        byte[] magnitude = new byte[length];
+        for (int i = length - 1; i >= 0; i--) {
+            magnitude[i] = in.readByte();
+        }
+        BigInteger value = new BigInteger(1, magnitude);
+        return (negative ? value.negate() : value).toString();
+    }
+
+    private ByteBuf inflate() {
+        int size = in.readInt();
+        byte[] input = new byte[in.readableBytes()];
+        in.readBytes(input);
+        byte[] output = new byte[size];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            int written = inflater.inflate(output);
+            if (written != size) {
+                throw new IllegalArgumentException("Invalid ETF compressed term size: " + written);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Invalid ETF compressed term", e);
+        } finally {
+            inflater.end();
+        }
+        return Unpooled.wrappedBuffer(output);
+    }
+
+    @Override
+    protected void _handleEOF() throws JsonParseException {
+        if (!context.inRoot()) {
+            _reportInvalidEOF();
+        }
+    }
+
+    @Override
+    public String getCurrentName() {
+        if (_currToken == JsonToken.START_OBJECT || _currToken == JsonToken.START_ARRAY) {
+            Context parent = context.parent;
+            return parent == null ? null : parent.name;
+        }
+        return context.name;
+    }
+
+    @Override
+    public void overrideCurrentName(String name) {
+        context.name = name;
+    }
+
+    @Override
+    public JsonStreamContext getParsingContext() {
+        return context;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public ObjectCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public void setCodec(ObjectCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public Version version() {
+        return Version.unknownVersion();
+    }
+
+    @Override
+    public JsonLocation getTokenLocation() {
+        return JsonLocation.NA;
+    }
+
+    @Override
+    public JsonLocation getCurrentLocation() {
+        return JsonLocation.NA;
+    }
+
+    @Override
+    public String getText() {
+        if (_currToken == null) {
+            return null;
+        }
+        switch (_currToken) {
+            case VALUE_STRING:
+                return text;
+            case FIELD_NAME:
+                return context.name;
+            case VALUE_NUMBER_INT:
+                return Integer.toString(intValue);
+            case VALUE_NUMBER_FLOAT:
+                return Double.toString(doubleValue);
+            default:
+                return _currToken.asString();
+        }
+    }
+
+    @Override
+    public char[] getTextCharacters() {
+        String value = getText();
+        return value == null ? null : value.toCharArray();
+    }
+
+    @Override
+    public int getTextLength() {
+        String value = getText();
+        return value == null ? 0 : value.length();
+    }
+
+    @Override
+    public int getTextOffset() {
+        return 0;
+    }
+
+    @Override
+    public boolean hasTextCharacters() {
+        return false;
+    }
+
+    @Override
+    public byte[] getBinaryValue(Base64Variant b64variant) throws IOException {
+        ByteArrayBuilder builder = new ByteArrayBuilder();
+        _decodeBase64(getText(), builder, b64variant);
+        return builder.toByteArray();
+    }
+
+    @Override
+    public Number getNumberValue() throws IOException {
+        return getNumberType() == NumberType.INT ? (Number) intValue : (Number) doubleValue;
+    }
+
+    @Override
+    public NumberType getNumberType() throws IOException {
+        if (_currToken == JsonToken.VALUE_NUMBER_INT) {
+            return NumberType.INT;
+        }
+        if (_currToken == JsonToken.VALUE_NUMBER_FLOAT) {
+            return NumberType.DOUBLE;
+        }
+        throw _constructError("Current token (" + _currToken + ") not numeric");
+    }
+
+    @Override
+    public int getIntValue() throws IOException {
+        return getNumberType() == NumberType.INT ? intValue : (int) doubleValue;
+    }
+
+    @Override
+    public long getLongValue() throws IOException {
+        return getNumberType() == NumberType.INT ? intValue : (long) doubleValue;
+    }
+
+    @Override
+    public BigInteger getBigIntegerValue() throws IOException {
+        return getNumberType() == NumberType.INT ? BigInteger.valueOf(intValue) :
+                BigDecimal.valueOf(doubleValue).toBigInteger();
+    }
+
+    @Override
+    public float getFloatValue() throws IOException {
+        return (float) getDoubleValue();
+    }
+
+    @Override
+    public double getDoubleValue() throws IOException {
+        return getNumberType() == NumberType.INT ? intValue : doubleValue;
+    }
+
+    @Override
+    public BigDecimal getDecimalValue() throws IOException {
+        return getNumberType() == NumberType.INT ? BigDecimal.valueOf(intValue) : BigDecimal.valueOf(doubleValue);
+    }
+
+    // a container being read, with the number of elements or fields left in it
+    private static final class Context extends JsonStreamContext {
+
+        @Nullable
+        private final Context parent;
+        private int remaining;
+        private boolean expectValue;
+        private boolean listTail;
+        private boolean byteList;
+        @Nullable
+        private String name;
+
+        private Context(@Nullable Context parent, int type, int remaining) {
+            super(type, -1);
+            this.parent = parent;
+            this.remaining = remaining;
+        }
+
+        private void advance() {
+            remaining--;
+            _index++;
+        }
+
+        @Override
+        public JsonStreamContext getParent() {
+            return parent;
+        }
+
+        @Override
+        public String getCurrentName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.gateway.payload;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import discord4j.gateway.json.GatewayPayload;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.util.ReferenceCountUtil;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+import reactor.util.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * A {@link PayloadReader} for the Gateway ETF encoding, decoding Erlang External Term Format payloads.
+ * <p>
+ * Terms are read as a stream of JSON tokens straight from the incoming buffer and bound to the discord-json types
+ * through the given {@link ObjectMapper} in a single pass, without producing JSON text or intermediate trees.
+ * Binding follows the same rules as {@link JacksonStreamingPayloadReader}, including the optional set of enabled
+ * dispatch event names.
+ */
+public class EtfPayloadReader implements PayloadReader {
+
+    /**
+     * The name of this encoding, as expected by the Gateway {@code encoding} query parameter.
+     */
+    public static final String ENCODING = "etf";
+
+    private static final Logger log = Loggers.getLogger(EtfPayloadReader.class);
+
+    private final ObjectMapper mapper;
+    private final boolean lenient;
+    private final JacksonStreamingPayloadReader delegate;
+
+    public EtfPayloadReader(ObjectMapper mapper) {
+        this(mapper, true);
+    }
+
+    public EtfPayloadReader(ObjectMapper mapper, boolean lenient) {
+        this(mapper, lenient, null);
+    }
+
+    /**
+     * Create a new reader that only binds the data of the given dispatch event names.
+     *
+     * @param mapper the {@link ObjectMapper} used to bind payload data
+     * @param lenient whether decoding errors should be logged and ignored instead of propagated
+     * @param enabledDispatch the dispatch event names to decode, or {@code null} to decode all of them
+     */
+    public EtfPayloadReader(ObjectMapper mapper, boolean lenient, @Nullable Set<String> enabledDispatch) {
+        this.mapper = mapper;
+        this.lenient = lenient;
+        this.delegate = new JacksonStreamingPayloadReader(mapper, lenient, enabledDispatch);
+    }
+
+    @Override
+    public Mono<GatewayPayload<?>> read(ByteBuf buf) {
+        return Mono.create(sink -> {
+            sink.onDispose(() -> ReferenceCountUtil.release(buf));
+            // read from a duplicate to keep the original indexes untouched for logging purposes
+            try (JsonParser parser = new EtfParser(mapper, buf.duplicate())) {
+                sink.success(delegate.readPayload(parser));
+            } catch (IOException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                if (lenient) {
+                    // if eof input - just ignore
+                    if (buf.readableBytes() > 0) {
+                        log.warn("Error while decoding ETF ({}): {}", e.toString(), ByteBufUtil.hexDump(buf));
+                    }
+                    sink.success();
+                } else {
+                    sink.error(Exceptions.propagate(e));
+                }
+            }
+        });
+    }
+
+    @Override
+    public String getEncoding() {
+        return ENCODING;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.gateway.payload;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import discord4j.gateway.json.GatewayPayload;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+
+/**
+ * A {@link PayloadWriter} for the Gateway ETF encoding, encoding payloads as Erlang External Term Format.
+ * <p>
+ * Payloads are serialized through the given {@link ObjectMapper} straight into a buffer obtained from a
+ * {@link ByteBufAllocator}, without building an intermediate tree.
+ */
+public class EtfPayloadWriter implements PayloadWriter {
+
+    private final ObjectMapper mapper;
+    private final ByteBufAllocator allocator;
+
+    public EtfPayloadWriter(ObjectMapper mapper) {
+        this(mapper, ByteBufAllocator.DEFAULT);
+    }
+
+    /**
+     * Create a new writer allocating its buffers from the given {@link ByteBufAllocator}.
+     *
+     * @param mapper the {@link ObjectMapper} used to serialize payloads
+     * @param allocator the {@link ByteBufAllocator} to allocate encoded payloads from
+     */
+    public EtfPayloadWriter(ObjectMapper mapper, ByteBufAllocator allocator) {
+        this.mapper = mapper;
+        this.allocator = allocator;
+    }
+
+    @Override
+    public Mono<ByteBuf> write(GatewayPayload<?> payload) {
+        return Mono.create(sink -> sink.onRequest(__ -> {
+            ByteBuf buf = allocator.buffer();
+            try (EtfGenerator generator = new EtfGenerator(mapper, buf)) {
+                mapper.writeValue(generator, payload);
+            } catch (IOException | IllegalArgumentException e) {
+                buf.release();
+                sink.error(Exceptions.propagate(e));
+                return;
+            }
+            sink.success(buf);
+        }));
+    }
+
+    @Override
+    public String getEncoding() {
+        return EtfPayloadReader.ENCODING;
+    }
+}
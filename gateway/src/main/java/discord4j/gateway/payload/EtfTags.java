@@ -0,0 +1,53 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.gateway.payload;
+
+/**
+ * Tags and constants of the External Term Format used by Discord Gateway ETF encoding.
+ *
+ * @see <a href="https://erlang.org/doc/apps/erts/erl_ext_dist.html">External Term Format</a>
+ */
+final class EtfTags {
+
+    static final int VERSION = 131;
+
+    static final int NEW_FLOAT_EXT = 70;
+    static final int COMPRESSED = 80;
+    static final int SMALL_INTEGER_EXT = 97;
+    static final int INTEGER_EXT = 98;
+    static final int FLOAT_EXT = 99;
+    static final int ATOM_EXT = 100;
+    static final int SMALL_TUPLE_EXT = 104;
+    static final int LARGE_TUPLE_EXT = 105;
+    static final int NIL_EXT = 106;
+    static final int STRING_EXT = 107;
+    static final int LIST_EXT = 108;
+    static final int BINARY_EXT = 109;
+    static final int SMALL_BIG_EXT = 110;
+    static final int LARGE_BIG_EXT = 111;
+    static final int SMALL_ATOM_EXT = 115;
+    static final int MAP_EXT = 116;
+    static final int ATOM_UTF8_EXT = 118;
+    static final int SMALL_ATOM_UTF8_EXT = 119;
+
+    static final String NIL_ATOM = "nil";
+    static final String TRUE_ATOM = "true";
+    static final String FALSE_ATOM = "false";
+
+    private EtfTags() {
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.gateway.payload;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserSequence;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import discord4j.discordjson.json.gateway.GuildCreate;
+import discord4j.discordjson.json.gateway.Opcode;
+import discord4j.discordjson.json.gateway.PayloadData;
+import discord4j.discordjson.json.gateway.UnavailableGuildCreate;
+import discord4j.gateway.json.GatewayPayload;
+import discord4j.gateway.json.dispatch.EventNames;
+import discord4j.gateway.json.jackson.PayloadDeserializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.util.ReferenceCountUtil;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+import reactor.util.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A {@link PayloadReader} that decodes a {@link GatewayPayload} in a single pass over the token stream of the input
+ * buffer, binding the {@code d} field directly to its target class.
+ * <p>
+ * Unlike {@link JacksonPayloadReader}, the input is not copied to an intermediate array and no {@code JsonNode} tree is
+ * built. The {@code d} field is only buffered when its type cannot be determined at the time it is found, which
+ * happens if the {@code op} or {@code t} fields come after it. To detect unavailable guilds in GUILD_CREATE, only
+ * the scalar fields preceding the first array or object of the guild are buffered.
+ * <p>
+ * A set of enabled dispatch event names can be given to skip the {@code d} field of every other dispatch at the token
+ * level, without binding it. Such payloads are still emitted with their opcode, sequence and event name so session
+ * tracking keeps working, but with no data. {@link EventNames#READY} and {@link EventNames#RESUMED} are always
+ * enabled as they are required to maintain a Gateway session.
+ */
+public class JacksonStreamingPayloadReader implements PayloadReader {
+
+    private static final Logger log = Loggers.getLogger(JacksonStreamingPayloadReader.class);
+
+    private static final String OP_FIELD = "op";
+    private static final String D_FIELD = "d";
+    private static final String T_FIELD = "t";
+    private static final String S_FIELD = "s";
+    private static final String UNAVAILABLE_FIELD = "unavailable";
+
+    private final ObjectMapper mapper;
+    private final boolean lenient;
+    @Nullable
+    private final Set<String> enabledDispatch;
+
+    public JacksonStreamingPayloadReader(ObjectMapper mapper) {
+        this(mapper, true);
+    }
+
+    public JacksonStreamingPayloadReader(ObjectMapper mapper, boolean lenient) {
+        this(mapper, lenient, null);
+    }
+
+    /**
+     * Create a new reader that only binds the data of the given dispatch event names.
+     *
+     * @param mapper the {@link ObjectMapper} used to bind payload data
+     * @param lenient whether decoding errors should be logged and ignored instead of propagated
+     * @param enabledDispatch the dispatch event names to decode, as defined in {@link EventNames}, or {@code null} to
+     * decode all of them
+     */
+    public JacksonStreamingPayloadReader(ObjectMapper mapper, boolean lenient, @Nullable Set<String> enabledDispatch) {
+        this.mapper = mapper;
+        this.lenient = lenient;
+        if (enabledDispatch == null) {
+            this.enabledDispatch = null;
+        } else {
+            Set<String> names = new HashSet<>(enabledDispatch);
+            names.add(EventNames.READY);
+            names.add(EventNames.RESUMED);
+            this.enabledDispatch = names;
+        }
+    }
+
+    @Override
+    public Mono<GatewayPayload<?>> read(ByteBuf buf) {
+        return Mono.create(sink -> {
+            sink.onDispose(() -> ReferenceCountUtil.release(buf));
+            try (JsonParser parser = createParser(buf)) {
+                sink.success(readPayload(parser));
+            } catch (IOException | IllegalArgumentException e) {
+                if (lenient) {
+                    // if eof input - just ignore
+                    if (buf.readableBytes() > 0) {
+                        log.warn("Error while decoding JSON ({}): {}", e.toString(),
+                                new String(ByteBufUtil.getBytes(buf), StandardCharsets.UTF_8));
+                    }
+                    sink.success();
+                } else {
+                    sink.error(Exceptions.propagate(e));
+                }
+            }
+        });
+    }
+
+    private JsonParser createParser(ByteBuf buf) throws IOException {
+        JsonFactory factory = mapper.getFactory();
+        if (buf.hasArray()) {
+            return factory.createParser(buf.array(), buf.arrayOffset() + buf.readerIndex(), buf.readableBytes());
+        }
+        // read from a duplicate to keep the original indexes untouched for logging purposes
+        return factory.createParser((InputStream) new ByteBufInputStream(buf.duplicate()));
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    GatewayPayload<?> readPayload(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a payload object");
+        }
+        Integer op = null;
+        String t = null;
+        Integer s = null;
+        PayloadData data = null;
+        TokenBuffer pendingData = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case OP_FIELD:
+                    op = parser.getIntValue();
+                    break;
+                case T_FIELD:
+                    t = value == JsonToken.VALUE_NULL ? null : parser.getText();
+                    break;
+                case S_FIELD:
+                    s = value == JsonToken.VALUE_NULL ? null : parser.getIntValue();
+                    break;
+                case D_FIELD:
+                    if (isDataTypeKnown(op, t)) {
+                        data = readData(parser, op, t);
+                    } else {
+                        pendingData = new TokenBuffer(parser);
+                        pendingData.copyCurrentStructure(parser);
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        if (op == null) {
+            throw new JsonParseException(parser, "Missing payload opcode");
+        }
+        if (pendingData != null) {
+            try (JsonParser dataParser = pendingData.asParser(parser)) {
+                dataParser.nextToken();
+                data = readData(dataParser, op, t);
+            }
+        }
+        return new GatewayPayload(Opcode.forRaw(op), data, s, t);
+    }
+
+    private static boolean isDataTypeKnown(@Nullable Integer op, @Nullable String t) {
+        return op != null && (op != Opcode.DISPATCH.getRawOp() || t != null);
+    }
+
+    @Nullable
+    private PayloadData readData(JsonParser parser, int op, @Nullable String t) throws IOException {
+        if (isSkipped(op, t)) {
+            parser.skipChildren();
+            return null;
+        }
+        Class<? extends PayloadData> payloadType = PayloadDeserializer.getPayloadType(op, t);
+        if (payloadType == null || parser.currentToken() == JsonToken.VALUE_NULL) {
+            parser.skipChildren();
+            return null;
+        }
+        if (payloadType == GuildCreate.class && parser.currentToken() == JsonToken.START_OBJECT) {
+            return readGuildCreate(parser);
+        }
+        return mapper.readValue(parser, payloadType);
+    }
+
+    private boolean isSkipped(int op, @Nullable String t) {
+        return enabledDispatch != null && op == Opcode.DISPATCH.getRawOp() && !enabledDispatch.contains(t);
+    }
+
+    private PayloadData readGuildCreate(JsonParser parser) throws IOException {
+        // an unavailable guild only carries scalar fields, so only the leading scalars are buffered: once the first
+        // array or object is found, the flag is known and the rest is bound straight from the live input
+        TokenBuffer buffer = new TokenBuffer(parser);
+        boolean unavailable = false;
+        buffer.copyCurrentEvent(parser);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            buffer.writeFieldName(field);
+            if (value.isStructStart()) {
+                // not closed, as that would close the live parser too
+                JsonParser guildParser = JsonParserSequence.createFlattened(true, buffer.asParser(parser), parser);
+                return mapper.readValue(guildParser, unavailable ? UnavailableGuildCreate.class : GuildCreate.class);
+            }
+            buffer.copyCurrentEvent(parser);
+            if (value == JsonToken.VALUE_TRUE && UNAVAILABLE_FIELD.equals(field)) {
+                unavailable = true;
+            }
+        }
+        buffer.copyCurrentEvent(parser);
+        try (JsonParser guildParser = buffer.asParser(parser)) {
+            return mapper.readValue(guildParser, unavailable ? UnavailableGuildCreate.class : GuildCreate.class);
+        }
+    }
+}
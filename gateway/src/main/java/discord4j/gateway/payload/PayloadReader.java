@@ -33,4 +33,14 @@ public interface PayloadReader {
      * @return a publisher of {@code GatewayPayload} representing the inbound payload
      */
     Publisher<GatewayPayload<?>> read(ByteBuf payload);
+
+    /**
+     * Return the Gateway encoding this strategy is able to decode, used as the {@code encoding} query parameter when
+     * connecting to the Gateway. Defaults to {@code json}.
+     *
+     * @return the name of the Gateway encoding
+     */
+    default String getEncoding() {
+        return "json";
+    }
 }
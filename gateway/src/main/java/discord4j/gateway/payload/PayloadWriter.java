@@ -32,4 +32,14 @@ public interface PayloadWriter {
      * @return the publisher of outbound {@code ByteBuf}
      */
     Publisher<ByteBuf> write(GatewayPayload<?> payload);
+
+    /**
+     * Return the Gateway encoding this strategy is able to encode, used as the {@code encoding} query parameter when
+     * connecting to the Gateway. Defaults to {@code json}.
+     *
+     * @return the name of the Gateway encoding
+     */
+    default String getEncoding() {
+        return "json";
+    }
 }
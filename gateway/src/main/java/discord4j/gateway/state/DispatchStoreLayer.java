@@ -20,20 +20,21 @@ import discord4j.common.store.Store;
 import discord4j.common.store.action.gateway.GatewayActions;
 import discord4j.common.store.api.StoreAction;
 import discord4j.common.store.api.object.InvalidationCause;
+import discord4j.common.util.ClassRouter;
 import discord4j.discordjson.json.gateway.*;
 import discord4j.gateway.ShardInfo;
 import discord4j.gateway.json.ShardAwareDispatch;
 import discord4j.gateway.retry.GatewayStateChange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
 import reactor.util.Logger;
 import reactor.util.Loggers;
+import reactor.util.annotation.Nullable;
 
-import java.util.HashSet;
-import java.util.Objects;
-import java.util.Set;
+import java.time.Duration;
+import java.util.*;
 import java.util.function.BiFunction;
-import java.util.function.Predicate;
 
 /**
  * A {@link DispatchStoreLayer} allows to intercept any {@link Dispatch} instance and execute the appropriate
@@ -44,43 +45,42 @@ import java.util.function.Predicate;
 public class DispatchStoreLayer {
 
     private static final Logger log = Loggers.getLogger(DispatchStoreLayer.class);
-    private static final Set<DispatchToAction> DISPATCH_TO_ACTION = new HashSet<>();
+    private static final Map<Class<?>, BiFunction<Integer, Dispatch, StoreAction<?>>> DISPATCH_TO_ACTION =
+            new LinkedHashMap<>();
 
     static {
-        add(ChannelCreate.class::isInstance, GatewayActions::channelCreate);
-        add(ChannelDelete.class::isInstance, GatewayActions::channelDelete);
-        add(ChannelUpdate.class::isInstance, GatewayActions::channelUpdate);
-        add(GuildCreate.class::isInstance, GatewayActions::guildCreate);
-        add(GuildDelete.class::isInstance, GatewayActions::guildDelete);
-        add(GuildEmojisUpdate.class::isInstance, GatewayActions::guildEmojisUpdate);
-        add(GuildMemberAdd.class::isInstance, GatewayActions::guildMemberAdd);
-        add(GuildMemberRemove.class::isInstance, GatewayActions::guildMemberRemove);
-        add(GuildMembersChunk.class::isInstance, GatewayActions::guildMembersChunk);
-        add(GuildMemberUpdate.class::isInstance, GatewayActions::guildMemberUpdate);
-        add(GuildRoleCreate.class::isInstance, GatewayActions::guildRoleCreate);
-        add(GuildRoleDelete.class::isInstance, GatewayActions::guildRoleDelete);
-        add(GuildRoleUpdate.class::isInstance, GatewayActions::guildRoleUpdate);
-        add(GuildUpdate.class::isInstance, GatewayActions::guildUpdate);
-        add(MessageCreate.class::isInstance, GatewayActions::messageCreate);
-        add(MessageDelete.class::isInstance, GatewayActions::messageDelete);
-        add(MessageDeleteBulk.class::isInstance, GatewayActions::messageDeleteBulk);
-        add(MessageReactionAdd.class::isInstance, GatewayActions::messageReactionAdd);
-        add(MessageReactionRemove.class::isInstance, GatewayActions::messageReactionRemove);
-        add(MessageReactionRemoveAll.class::isInstance, GatewayActions::messageReactionRemoveAll);
-        add(MessageReactionRemoveEmoji.class::isInstance, GatewayActions::messageReactionRemoveEmoji);
-        add(MessageUpdate.class::isInstance, GatewayActions::messageUpdate);
-        add(PresenceUpdate.class::isInstance, GatewayActions::presenceUpdate);
-        add(Ready.class::isInstance, (Integer shard, Ready dispatch) -> GatewayActions.ready(dispatch));
-        add(UserUpdate.class::isInstance, GatewayActions::userUpdate);
-        add(VoiceStateUpdateDispatch.class::isInstance, GatewayActions::voiceStateUpdateDispatch);
-        add(dispatch -> dispatch instanceof GatewayStateChange
-                        && ((GatewayStateChange) dispatch).getState() == GatewayStateChange.State.DISCONNECTED,
-                (shard, dispatch) -> GatewayActions.invalidateShard(shard, InvalidationCause.LOGOUT));
-        add(dispatch -> dispatch instanceof GatewayStateChange
-                        && ((GatewayStateChange) dispatch).getState() == GatewayStateChange.State.SESSION_INVALIDATED,
-                (shard, dispatch) -> GatewayActions.invalidateShard(shard, InvalidationCause.HARD_RECONNECT));
+        add(ChannelCreate.class, GatewayActions::channelCreate);
+        add(ChannelDelete.class, GatewayActions::channelDelete);
+        add(ChannelUpdate.class, GatewayActions::channelUpdate);
+        add(GuildCreate.class, GatewayActions::guildCreate);
+        add(GuildDelete.class, GatewayActions::guildDelete);
+        add(GuildEmojisUpdate.class, GatewayActions::guildEmojisUpdate);
+        add(GuildMemberAdd.class, GatewayActions::guildMemberAdd);
+        add(GuildMemberRemove.class, GatewayActions::guildMemberRemove);
+        add(GuildMembersChunk.class, GatewayActions::guildMembersChunk);
+        add(GuildMemberUpdate.class, GatewayActions::guildMemberUpdate);
+        add(GuildRoleCreate.class, GatewayActions::guildRoleCreate);
+        add(GuildRoleDelete.class, GatewayActions::guildRoleDelete);
+        add(GuildRoleUpdate.class, GatewayActions::guildRoleUpdate);
+        add(GuildUpdate.class, GatewayActions::guildUpdate);
+        add(MessageCreate.class, GatewayActions::messageCreate);
+        add(MessageDelete.class, GatewayActions::messageDelete);
+        add(MessageDeleteBulk.class, GatewayActions::messageDeleteBulk);
+        add(MessageReactionAdd.class, GatewayActions::messageReactionAdd);
+        add(MessageReactionRemove.class, GatewayActions::messageReactionRemove);
+        add(MessageReactionRemoveAll.class, GatewayActions::messageReactionRemoveAll);
+        add(MessageReactionRemoveEmoji.class, GatewayActions::messageReactionRemoveEmoji);
+        add(MessageUpdate.class, GatewayActions::messageUpdate);
+        add(PresenceUpdate.class, GatewayActions::presenceUpdate);
+        add(Ready.class, (Integer shard, Ready dispatch) -> GatewayActions.ready(dispatch));
+        add(UserUpdate.class, GatewayActions::userUpdate);
+        add(VoiceStateUpdateDispatch.class, GatewayActions::voiceStateUpdateDispatch);
+        add(GatewayStateChange.class, DispatchStoreLayer::gatewayStateChange);
     }
 
+    private static final ClassRouter<BiFunction<Integer, Dispatch, StoreAction<?>>> ACTION_ROUTER =
+            ClassRouter.create(DISPATCH_TO_ACTION);
+
     private final Store store;
     private final ShardInfo shardInfo;
 
@@ -102,11 +102,22 @@ public class DispatchStoreLayer {
         return new DispatchStoreLayer(store, shardInfo);
     }
 
-    @SuppressWarnings("unchecked")
-    private static <D extends Dispatch> void add(Predicate<? super Dispatch> predicate,
+    private static <D extends Dispatch> void add(Class<D> dispatchType,
                                                  BiFunction<Integer, D, StoreAction<?>> actionFactory) {
-        DISPATCH_TO_ACTION.add(new DispatchToAction(predicate,
-                (shard, dispatch) -> actionFactory.apply(shard, (D) dispatch)));
+        DISPATCH_TO_ACTION.put(dispatchType,
+                (shard, dispatch) -> actionFactory.apply(shard, dispatchType.cast(dispatch)));
+    }
+
+    @Nullable
+    private static StoreAction<?> gatewayStateChange(Integer shard, GatewayStateChange dispatch) {
+        switch (dispatch.getState()) {
+            case DISCONNECTED:
+                return GatewayActions.invalidateShard(shard, InvalidationCause.LOGOUT);
+            case SESSION_INVALIDATED:
+                return GatewayActions.invalidateShard(shard, InvalidationCause.HARD_RECONNECT);
+            default:
+                return null;
+        }
     }
 
     /**
@@ -123,22 +134,10 @@ public class DispatchStoreLayer {
      */
     public Mono<StatefulDispatch<?, ?>> store(Dispatch dispatch) {
         Objects.requireNonNull(dispatch);
-        ShardInfo shardInfo;
-        Dispatch actualDispatch;
-        if (dispatch instanceof ShardAwareDispatch) {
-            ShardAwareDispatch shardAwareDispatch = (ShardAwareDispatch) dispatch;
-            shardInfo = ShardInfo.create(shardAwareDispatch.getShardIndex(), shardAwareDispatch.getShardCount());
-            actualDispatch = shardAwareDispatch.getDispatch();
-        } else {
-            shardInfo = this.shardInfo;
-            actualDispatch = dispatch;
-        }
-        return Flux.fromStream(DISPATCH_TO_ACTION.stream()
-                .filter(entry -> entry.predicate.test(actualDispatch))
-                .map(entry -> entry.actionFactory))
-                .singleOrEmpty()
-                .onErrorMap(IndexOutOfBoundsException.class, AssertionError::new)
-                .map(actionFactory -> actionFactory.apply(shardInfo.getIndex(), actualDispatch))
+        ShardInfo shardInfo = shardInfoOf(dispatch);
+        Dispatch actualDispatch = unwrap(dispatch);
+        return Mono.justOrEmpty(ACTION_ROUTER.find(actualDispatch.getClass()))
+                .flatMap(actionFactory -> Mono.justOrEmpty(actionFactory.apply(shardInfo.getIndex(), actualDispatch)))
                 .flatMap(action -> Mono.from(store.execute(action)))
                 .<StatefulDispatch<?, ?>>map(oldState -> StatefulDispatch.of(shardInfo, actualDispatch, oldState))
                 .onErrorResume(t -> Mono.fromRunnable(
@@ -146,15 +145,90 @@ public class DispatchStoreLayer {
                 .defaultIfEmpty(StatefulDispatch.of(shardInfo, actualDispatch, null));
     }
 
-    private static class DispatchToAction {
+    /**
+     * Executes the store actions of the given dispatches as a single batch through {@link Store#executeBatch(List)},
+     * allowing store layouts supporting it to apply consecutive updates in a single unit of work. Actions are executed
+     * in the same order as the dispatches they are produced from, and the resulting {@link StatefulDispatch} instances
+     * are emitted in that same order. Each dispatch is handled as described in {@link #store(Dispatch)}.
+     *
+     * @param dispatches the dispatches to produce the store actions for
+     * @return a {@link Flux} emitting one {@link StatefulDispatch} per given dispatch, holding the result of its
+     * store action execution, if any. If an error occurs while executing the action of a dispatch, the error is
+     * dropped and logged, and the {@link StatefulDispatch} of that dispatch is emitted with empty old state.
+     */
+    public Flux<StatefulDispatch<?, ?>> store(List<? extends Dispatch> dispatches) {
+        Objects.requireNonNull(dispatches);
+        int size = dispatches.size();
+        ShardInfo[] shardInfos = new ShardInfo[size];
+        Dispatch[] actualDispatches = new Dispatch[size];
+        boolean[] hasAction = new boolean[size];
+        List<StoreAction<?>> actions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Dispatch dispatch = dispatches.get(i);
+            shardInfos[i] = shardInfoOf(dispatch);
+            actualDispatches[i] = unwrap(dispatch);
+            Dispatch actualDispatch = actualDispatches[i];
+            BiFunction<Integer, Dispatch, StoreAction<?>> actionFactory =
+                    ACTION_ROUTER.find(actualDispatch.getClass());
+            StoreAction<?> action = actionFactory == null ? null :
+                    actionFactory.apply(shardInfos[i].getIndex(), actualDispatch);
+            if (action != null) {
+                hasAction[i] = true;
+                actions.add(action);
+            }
+        }
+        return store.executeBatch(actions)
+                .onErrorResume(t -> {
+                    log.error("Error when executing store actions on dispatches " + dispatches, t);
+                    return Mono.just(Collections.<Signal<?>>nCopies(actions.size(), Signal.complete()));
+                })
+                .flatMapIterable(results -> {
+                    List<StatefulDispatch<?, ?>> statefulDispatches = new ArrayList<>(size);
+                    Iterator<Signal<?>> it = results.iterator();
+                    for (int i = 0; i < size; i++) {
+                        Signal<?> result = hasAction[i] && it.hasNext() ? it.next() : null;
+                        if (result != null && result.isOnError()) {
+                            log.error("Error when executing store action on dispatch " + dispatches.get(i),
+                                    result.getThrowable());
+                        }
+                        Object oldState = result == null ? null : result.get();
+                        statefulDispatches.add(StatefulDispatch.of(shardInfos[i], actualDispatches[i], oldState));
+                    }
+                    return statefulDispatches;
+                });
+    }
+
+    /**
+     * Executes the store actions of the given dispatches in batches of up to {@code maxSize} dispatches, each batch
+     * being written through {@link #store(List)} once it is full or {@code maxDelay} elapsed since its first
+     * dispatch. Batches are written one after the other, in the order dispatches were received, and pending batches
+     * are kept while the store is busy writing a previous one.
+     *
+     * @param dispatches the dispatches to produce the store actions for
+     * @param maxSize the maximum number of dispatches written at once
+     * @param maxDelay the maximum time to wait for a batch to fill up before writing it
+     * @return a {@link Flux} emitting one {@link StatefulDispatch} per given dispatch, in order, as described in
+     * {@link #store(List)}
+     */
+    public Flux<StatefulDispatch<?, ?>> store(Flux<Dispatch> dispatches, int maxSize, Duration maxDelay) {
+        return dispatches.bufferTimeout(maxSize, maxDelay)
+                // bufferTimeout does not honor backpressure and fails once a batch is ready without demand
+                .onBackpressureBuffer()
+                .concatMap(this::store);
+    }
 
-        private final Predicate<? super Dispatch> predicate;
-        private final BiFunction<Integer, Dispatch, StoreAction<?>> actionFactory;
+    private ShardInfo shardInfoOf(Dispatch dispatch) {
+        if (dispatch instanceof ShardAwareDispatch) {
+            ShardAwareDispatch shardAwareDispatch = (ShardAwareDispatch) dispatch;
+            return ShardInfo.create(shardAwareDispatch.getShardIndex(), shardAwareDispatch.getShardCount());
+        }
+        return shardInfo;
+    }
 
-        private DispatchToAction(Predicate<? super Dispatch> predicate,
-                                 BiFunction<Integer, Dispatch, StoreAction<?>> actionFactory) {
-            this.predicate = predicate;
-            this.actionFactory = actionFactory;
+    private static Dispatch unwrap(Dispatch dispatch) {
+        if (dispatch instanceof ShardAwareDispatch) {
+            return ((ShardAwareDispatch) dispatch).getDispatch();
         }
+        return dispatch;
     }
 }
@@ -0,0 +1,98 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package discord4j.gateway;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import reactor.core.publisher.Flux;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compare {@link ZlibDecompressor.Mode} strategies over the same inbound traffic.
+ * <p>
+ * Recorded traffic can be given as the first argument: a file containing the raw websocket frame contents of a
+ * zlib-stream session, each one prefixed by its length as a 4-byte big-endian integer. Otherwise a synthetic session
+ * is generated.
+ */
+public class ZlibDecompressorBenchmarkApp {
+
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 50;
+
+    public static void main(String[] args) throws IOException {
+        List<byte[]> frames = args.length > 0 ? readFrames(args[0]) :
+                ZlibDecompressorTest.compress(ZlibDecompressorTest.sampleMessages(5000), 4096);
+        long totalBytes = frames.stream().mapToLong(frame -> frame.length).sum();
+        System.out.printf("Loaded %d frames (%d bytes)%n", frames.size(), totalBytes);
+
+        for (ZlibDecompressor.Mode mode : ZlibDecompressor.Mode.values()) {
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                run(mode, frames);
+            }
+            long start = System.nanoTime();
+            long inflated = 0;
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                inflated += run(mode, frames);
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("%-10s %8.3f ms/session, %8.1f MB/s inflated%n", mode,
+                    elapsed / 1e6 / MEASURED_ROUNDS, inflated / 1e6 / (elapsed / 1e9));
+        }
+    }
+
+    private static long run(ZlibDecompressor.Mode mode, List<byte[]> frames) {
+        ZlibDecompressor decompressor = new ZlibDecompressor(ByteBufAllocator.DEFAULT, false, mode);
+        Long result = Flux.fromIterable(frames)
+                .map(Unpooled::wrappedBuffer)
+                .transform(decompressor::completeMessages)
+                .map(ZlibDecompressorBenchmarkApp::sizeAndRelease)
+                .reduce(0L, Long::sum)
+                .block();
+        return result == null ? 0 : result;
+    }
+
+    private static long sizeAndRelease(ByteBuf buf) {
+        int size = buf.readableBytes();
+        buf.release();
+        return size;
+    }
+
+    private static List<byte[]> readFrames(String path) throws IOException {
+        List<byte[]> frames = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new FileInputStream(path))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return frames;
+                }
+                byte[] frame = new byte[length];
+                in.readFully(frame);
+                frames.add(frame);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package discord4j.gateway;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ZlibDecompressorTest {
+
+    @Test
+    public void testBufferedMode() {
+        List<String> messages = sampleMessages(200);
+        List<byte[]> frames = compress(messages, 256);
+        assertEquals(messages, inflate(ZlibDecompressor.Mode.BUFFERED, frames));
+    }
+
+    @Test
+    public void testStreamingMode() {
+        List<String> messages = sampleMessages(200);
+        List<byte[]> frames = compress(messages, 256);
+        assertEquals(messages, inflate(ZlibDecompressor.Mode.STREAMING, frames));
+    }
+
+    @Test
+    public void testStreamingModeWithDirectFrames() {
+        List<String> messages = sampleMessages(50);
+        List<byte[]> frames = compress(messages, 100);
+        ZlibDecompressor decompressor = new ZlibDecompressor(ByteBufAllocator.DEFAULT, false,
+                ZlibDecompressor.Mode.STREAMING);
+        // the decompressor does not own its input, so release the direct frames once they are consumed
+        List<ByteBuf> inputs = new ArrayList<>(frames.size());
+        try {
+            List<String> result = Flux.fromIterable(frames)
+                    .map(frame -> ByteBufAllocator.DEFAULT.directBuffer(frame.length).writeBytes(frame))
+                    .doOnNext(inputs::add)
+                    .transform(decompressor::completeMessages)
+                    .map(ZlibDecompressorTest::readAndRelease)
+                    .collectList()
+                    .block();
+            assertEquals(messages, result);
+        } finally {
+            inputs.forEach(ByteBuf::release);
+        }
+    }
+
+    static List<String> inflate(ZlibDecompressor.Mode mode, List<byte[]> frames) {
+        ZlibDecompressor decompressor = new ZlibDecompressor(ByteBufAllocator.DEFAULT, false, mode);
+        return Flux.fromIterable(frames)
+                .map(Unpooled::wrappedBuffer)
+                .transform(decompressor::completeMessages)
+                .map(ZlibDecompressorTest::readAndRelease)
+                .collectList()
+                .block();
+    }
+
+    static List<String> sampleMessages(int count) {
+        List<String> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder builder = new StringBuilder("{\"t\":\"GUILD_MEMBER_ADD\",\"s\":" + i + ",\"op\":0,\"d\":[");
+            for (int j = 0; j < i % 40; j++) {
+                builder.append("{\"user\":{\"id\":\"").append(80351110224678912L + i * 1000L + j)
+                        .append("\",\"username\":\"member").append(j).append("\"}},");
+            }
+            builder.append("{}]}");
+            messages.add(builder.toString());
+        }
+        return messages;
+    }
+
+    /**
+     * Compress the given messages as a single zlib-stream, split into frames of at most {@code maxFrameSize} bytes
+     * where each message ends with a sync flush, just like Discord Gateway sends them.
+     */
+    static List<byte[]> compress(List<String> messages, int maxFrameSize) {
+        Deflater deflater = new Deflater();
+        byte[] buffer = new byte[8192];
+        List<byte[]> frames = new ArrayList<>();
+        for (String message : messages) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            deflater.setInput(message.getBytes(StandardCharsets.UTF_8));
+            int count;
+            do {
+                count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                out.write(buffer, 0, count);
+            } while (count == buffer.length);
+            byte[] compressed = out.toByteArray();
+            for (int offset = 0; offset < compressed.length; offset += maxFrameSize) {
+                int length = Math.min(maxFrameSize, compressed.length - offset);
+                byte[] frame = new byte[length];
+                System.arraycopy(compressed, offset, frame, 0, length);
+                frames.add(frame);
+            }
+        }
+        deflater.end();
+        return frames;
+    }
+
+    private static String readAndRelease(ByteBuf buf) {
+        try {
+            return buf.toString(StandardCharsets.UTF_8);
+        } finally {
+            buf.release();
+        }
+    }
+}
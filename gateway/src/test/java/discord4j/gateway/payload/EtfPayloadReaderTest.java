@@ -0,0 +1,158 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package discord4j.gateway.payload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import discord4j.common.JacksonResources;
+import discord4j.discordjson.json.gateway.Heartbeat;
+import discord4j.discordjson.json.gateway.ImmutableHeartbeat;
+import discord4j.gateway.json.GatewayPayload;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EtfPayloadReaderTest {
+
+    private static final ObjectMapper MAPPER = JacksonResources.create().getObjectMapper();
+
+    @Test
+    public void testHello() throws IOException {
+        assertNotNull(assertMatchesJson("hello").getData());
+    }
+
+    @Test
+    public void testHeartbeatAck() throws IOException {
+        assertNull(assertMatchesJson("heartbeat_ack").getData());
+    }
+
+    @Test
+    public void testMessageDelete() throws IOException {
+        assertNotNull(assertMatchesJson("message_delete").getData());
+    }
+
+    @Test
+    public void testMessageCreate() throws IOException {
+        assertNotNull(assertMatchesJson("message_create").getData());
+    }
+
+    @Test
+    public void testUnavailableGuildCreate() throws IOException {
+        assertNotNull(assertMatchesJson("guild_create_unavailable").getData());
+    }
+
+    @Test
+    public void testWriterRoundTrip() {
+        GatewayPayload<Heartbeat> heartbeat = GatewayPayload.heartbeat(ImmutableHeartbeat.of(1337));
+        ByteBuf buf = Mono.from(new EtfPayloadWriter(MAPPER).write(heartbeat)).block();
+        GatewayPayload<?> payload = Mono.from(new EtfPayloadReader(MAPPER).read(buf)).block();
+        assertNotNull(payload);
+        assertEquals(heartbeat.getOp(), payload.getOp());
+        assertEquals(heartbeat.getData(), payload.getData());
+    }
+
+    @Test
+    public void testWriterAllocatesFromGivenAllocator() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(false);
+        GatewayPayload<Heartbeat> heartbeat = GatewayPayload.heartbeat(ImmutableHeartbeat.of(1337));
+        ByteBuf buf = Mono.from(new EtfPayloadWriter(MAPPER, allocator).write(heartbeat)).block();
+        assertNotNull(buf);
+        assertSame(allocator, buf.alloc());
+        assertTrue(buf.release());
+    }
+
+    @Test
+    public void testGeneratorMatchesFixtures() throws IOException {
+        for (String fixture : new String[] {"hello", "heartbeat_ack", "message_delete", "message_create",
+                "guild_create_unavailable"}) {
+            JsonNode expected = MAPPER.readTree(readFixture(fixture + ".json"));
+            ByteBuf buf = Unpooled.buffer();
+            try (EtfGenerator generator = new EtfGenerator(MAPPER, buf)) {
+                MAPPER.writeTree(generator, expected);
+            }
+            try (EtfParser parser = new EtfParser(MAPPER, buf)) {
+                assertEquals(expected, MAPPER.readTree(parser), fixture);
+            }
+        }
+    }
+
+    @Test
+    public void testParserReadsEmptyAndBigValues() throws IOException {
+        ByteBuf buf = Unpooled.buffer();
+        try (EtfGenerator generator = new EtfGenerator(MAPPER, buf)) {
+            generator.writeStartObject();
+            generator.writeFieldName("empty");
+            generator.writeStartArray();
+            generator.writeEndArray();
+            generator.writeFieldName("id");
+            generator.writeNumber(41771983423143937L);
+            generator.writeFieldName("nested");
+            generator.writeStartObject();
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+        try (EtfParser parser = new EtfParser(MAPPER, buf)) {
+            JsonNode node = MAPPER.readTree(parser);
+            assertEquals(0, node.get("empty").size());
+            assertEquals("41771983423143937", node.get("id").textValue());
+            assertEquals(0, node.get("nested").size());
+        }
+    }
+
+    @Test
+    public void testLenientOnTruncatedInput() throws IOException {
+        byte[] etf = readFixture("message_create.etf");
+        ByteBuf truncated = Unpooled.wrappedBuffer(etf, 0, etf.length / 2);
+        assertNull(Mono.from(new EtfPayloadReader(MAPPER).read(truncated)).block());
+    }
+
+    private static GatewayPayload<?> assertMatchesJson(String fixture) throws IOException {
+        GatewayPayload<?> expected = Mono.from(new JacksonStreamingPayloadReader(MAPPER)
+                .read(Unpooled.wrappedBuffer(readFixture(fixture + ".json")))).block();
+        GatewayPayload<?> actual = Mono.from(new EtfPayloadReader(MAPPER)
+                .read(Unpooled.wrappedBuffer(readFixture(fixture + ".etf")))).block();
+        assertNotNull(expected);
+        assertNotNull(actual);
+        assertEquals(expected.getOp(), actual.getOp());
+        assertEquals(expected.getSequence(), actual.getSequence());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getData(), actual.getData());
+        return actual;
+    }
+
+    private static byte[] readFixture(String name) throws IOException {
+        try (InputStream in = EtfPayloadReaderTest.class.getResourceAsStream("/etf/" + name)) {
+            assertNotNull(in, "Missing fixture: " + name);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
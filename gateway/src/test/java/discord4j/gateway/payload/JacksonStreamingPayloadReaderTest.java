@@ -0,0 +1,118 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package discord4j.gateway.payload;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import discord4j.common.JacksonResources;
+import discord4j.discordjson.json.gateway.GuildCreate;
+import discord4j.discordjson.json.gateway.Opcode;
+import discord4j.discordjson.json.gateway.UnavailableGuildCreate;
+import discord4j.gateway.json.GatewayPayload;
+import discord4j.gateway.json.dispatch.EventNames;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JacksonStreamingPayloadReaderTest {
+
+    private static final ObjectMapper MAPPER = JacksonResources.create().getObjectMapper();
+
+    private static final String HELLO =
+            "{\"t\":null,\"s\":null,\"op\":10,\"d\":{\"heartbeat_interval\":41250,\"_trace\":[\"gateway-prd\"]}}";
+    private static final String HEARTBEAT_ACK = "{\"t\":null,\"s\":null,\"op\":11,\"d\":null}";
+    private static final String MESSAGE_DELETE_TYPE_LAST =
+            "{\"op\":0,\"s\":42,\"d\":{\"id\":\"1\",\"channel_id\":\"2\",\"guild_id\":\"3\"},\"t\":\"MESSAGE_DELETE\"}";
+    private static final String UNAVAILABLE_GUILD_CREATE =
+            "{\"t\":\"GUILD_CREATE\",\"s\":2,\"op\":0,\"d\":{\"unavailable\":true,\"id\":\"41771983423143937\"}}";
+    // scalars before and after the first array, and the sequence after the data
+    private static final String GUILD_CREATE = "{\"t\":\"GUILD_CREATE\",\"op\":0,\"d\":{\"id\":\"1\"," +
+            "\"name\":\"guild\",\"icon\":null,\"splash\":null,\"discovery_splash\":null,\"owner_id\":\"1\"," +
+            "\"region\":\"us-east\",\"afk_channel_id\":null,\"afk_timeout\":300,\"verification_level\":0," +
+            "\"default_message_notifications\":0,\"explicit_content_filter\":0,\"roles\":[],\"emojis\":[]," +
+            "\"features\":[\"NEWS\"],\"mfa_level\":0,\"application_id\":null,\"system_channel_id\":null," +
+            "\"system_channel_flags\":0,\"rules_channel_id\":null,\"joined_at\":\"2020-01-01T00:00:00+00:00\"," +
+            "\"large\":false,\"unavailable\":false,\"member_count\":1,\"voice_states\":[],\"members\":[]," +
+            "\"channels\":[],\"presences\":[],\"max_presences\":null,\"max_members\":250000," +
+            "\"vanity_url_code\":null,\"description\":null,\"banner\":null,\"premium_tier\":0," +
+            "\"premium_subscription_count\":0,\"preferred_locale\":\"en-US\",\"public_updates_channel_id\":null," +
+            "\"max_video_channel_users\":25},\"s\":3}";
+
+    @Test
+    public void testMatchesTreeReader() {
+        for (String json : new String[] {HELLO, HEARTBEAT_ACK, MESSAGE_DELETE_TYPE_LAST, UNAVAILABLE_GUILD_CREATE,
+                GUILD_CREATE}) {
+            GatewayPayload<?> expected = read(new JacksonPayloadReader(MAPPER), json);
+            GatewayPayload<?> actual = read(new JacksonStreamingPayloadReader(MAPPER), json);
+            assertNotNull(actual);
+            assertEquals(expected.getOp(), actual.getOp());
+            assertEquals(expected.getData(), actual.getData());
+            assertEquals(expected.getSequence(), actual.getSequence());
+        }
+    }
+
+    @Test
+    public void testDispatchWithTypeAfterData() {
+        GatewayPayload<?> payload = read(new JacksonStreamingPayloadReader(MAPPER), MESSAGE_DELETE_TYPE_LAST);
+        assertEquals(Opcode.DISPATCH, payload.getOp());
+        assertEquals("MESSAGE_DELETE", payload.getType());
+        assertEquals(42, payload.getSequence());
+        assertNotNull(payload.getData());
+    }
+
+    @Test
+    public void testUnavailableGuildCreate() {
+        GatewayPayload<?> payload = read(new JacksonStreamingPayloadReader(MAPPER), UNAVAILABLE_GUILD_CREATE);
+        assertTrue(payload.getData() instanceof UnavailableGuildCreate);
+    }
+
+    @Test
+    public void testGuildCreateBoundFromLiveInput() {
+        GatewayPayload<?> payload = read(new JacksonStreamingPayloadReader(MAPPER), GUILD_CREATE);
+        assertTrue(payload.getData() instanceof GuildCreate);
+        GuildCreate guildCreate = (GuildCreate) payload.getData();
+        assertEquals("guild", guildCreate.guild().name());
+        assertEquals(1, guildCreate.guild().memberCount());
+        // fields after the guild are still read from the same parser
+        assertEquals(3, payload.getSequence());
+    }
+
+    @Test
+    public void testSkipsDisabledDispatch() {
+        PayloadReader reader = new JacksonStreamingPayloadReader(MAPPER, true,
+                Collections.singleton(EventNames.MESSAGE_CREATE));
+        GatewayPayload<?> payload = read(reader, MESSAGE_DELETE_TYPE_LAST);
+        assertEquals(Opcode.DISPATCH, payload.getOp());
+        assertEquals(42, payload.getSequence());
+        assertNull(payload.getData());
+        assertNotNull(read(reader, HELLO).getData());
+    }
+
+    @Test
+    public void testLenientOnInvalidInput() {
+        assertNull(read(new JacksonStreamingPayloadReader(MAPPER), "{\"op\":0,"));
+    }
+
+    private static GatewayPayload<?> read(PayloadReader reader, String json) {
+        return Mono.from(reader.read(Unpooled.copiedBuffer(json, StandardCharsets.UTF_8))).block();
+    }
+}
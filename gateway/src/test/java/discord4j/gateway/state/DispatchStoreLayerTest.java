@@ -0,0 +1,178 @@
+/*
+ * This file is part of Discord4J.
+ *
+ * Discord4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Discord4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Discord4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package discord4j.gateway.state;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import discord4j.common.JacksonResources;
+import discord4j.common.store.Store;
+import discord4j.common.store.api.ActionMapper;
+import discord4j.common.store.api.layout.DataAccessor;
+import discord4j.common.store.api.layout.GatewayDataUpdater;
+import discord4j.common.store.api.layout.StoreLayout;
+import discord4j.common.store.impl.LocalStoreLayout;
+import discord4j.discordjson.json.MessageData;
+import discord4j.discordjson.json.PartialMessageData;
+import discord4j.discordjson.json.gateway.Dispatch;
+import discord4j.discordjson.json.gateway.MessageCreate;
+import discord4j.discordjson.json.gateway.MessageDelete;
+import discord4j.discordjson.json.gateway.MessageUpdate;
+import discord4j.discordjson.possible.Possible;
+import discord4j.gateway.ShardInfo;
+import discord4j.gateway.retry.GatewayStateChange;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DispatchStoreLayerTest {
+
+    private static final ObjectMapper MAPPER = JacksonResources.create().getObjectMapper();
+
+    private static final String MESSAGE_JSON = "{\"id\":\"%d\",\"channel_id\":\"1\",\"author\":{\"id\":\"3\"," +
+            "\"username\":\"user\",\"discriminator\":\"0001\",\"avatar\":null},\"content\":\"old\"," +
+            "\"timestamp\":\"2020-01-01T00:00:00+00:00\",\"edited_timestamp\":null,\"tts\":false," +
+            "\"mention_everyone\":false,\"mentions\":[],\"mention_roles\":[],\"attachments\":[],\"embeds\":[]," +
+            "\"pinned\":false,\"type\":0}";
+
+    @Test
+    public void testFailedActionOnlyDropsItsOwnState() throws IOException {
+        LocalStoreLayout local = LocalStoreLayout.create();
+        DispatchStoreLayer layer = DispatchStoreLayer.create(Store.fromLayout(failingMessageUpdates(local)),
+                ShardInfo.create(0, 1));
+        layer.store(Arrays.asList(messageCreate(2), messageCreate(4))).blockLast();
+
+        List<Dispatch> dispatches = Arrays.asList(
+                messageUpdate(2),
+                GatewayStateChange.connected(),
+                messageDelete(2),
+                messageDelete(4));
+        List<StatefulDispatch<?, ?>> results = layer.store(dispatches).collectList().block();
+
+        assertNotNull(results);
+        assertEquals(4, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertSame(dispatches.get(i), results.get(i).getDispatch());
+        }
+        assertFalse(results.get(0).getOldState().isPresent());
+        assertFalse(results.get(1).getOldState().isPresent());
+        assertEquals("2", ((MessageData) results.get(2).getOldState().get()).id());
+        assertEquals("4", ((MessageData) results.get(3).getOldState().get()).id());
+        assertEquals(0L, local.countMessages().block());
+    }
+
+    @Test
+    public void testBatchesAreKeptWhileTheStoreIsBusy() throws IOException {
+        LocalStoreLayout local = LocalStoreLayout.create();
+        DispatchStoreLayer layer = DispatchStoreLayer.create(Store.fromLayout(slowUpdates(local)),
+                ShardInfo.create(0, 1));
+        // many more batches than requested by the writer are produced at once, like after READY
+        List<Dispatch> dispatches = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            dispatches.add(messageCreate(i + 1));
+        }
+        List<StatefulDispatch<?, ?>> results = layer.store(Flux.fromIterable(dispatches), 5, Duration.ofMillis(1))
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        assertNotNull(results);
+        assertEquals(dispatches.size(), results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertSame(dispatches.get(i), results.get(i).getDispatch());
+        }
+        assertEquals(500L, local.countMessages().block());
+    }
+
+    // a layout whose message updates fail, leaving other updates to the given layout
+    private static StoreLayout failingMessageUpdates(LocalStoreLayout local) {
+        GatewayDataUpdater updater = (GatewayDataUpdater) Proxy.newProxyInstance(
+                GatewayDataUpdater.class.getClassLoader(), new Class<?>[] {GatewayDataUpdater.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("onMessageUpdate")) {
+                        throw new IllegalStateException("Failing message update");
+                    }
+                    try {
+                        return method.invoke(local, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        return withUpdater(local, updater);
+    }
+
+    // a layout whose updates each take a moment, like a remote or disk-backed store
+    private static StoreLayout slowUpdates(LocalStoreLayout local) {
+        GatewayDataUpdater updater = (GatewayDataUpdater) Proxy.newProxyInstance(
+                GatewayDataUpdater.class.getClassLoader(), new Class<?>[] {GatewayDataUpdater.class},
+                (proxy, method, args) -> Mono.delay(Duration.ofMillis(1))
+                        .then(Mono.defer(() -> {
+                            try {
+                                return (Mono<?>) method.invoke(local, args);
+                            } catch (InvocationTargetException | IllegalAccessException e) {
+                                return Mono.error(e);
+                            }
+                        })));
+        return withUpdater(local, updater);
+    }
+
+    private static StoreLayout withUpdater(LocalStoreLayout local, GatewayDataUpdater updater) {
+        return new StoreLayout() {
+            @Override
+            public DataAccessor getDataAccessor() {
+                return local;
+            }
+
+            @Override
+            public GatewayDataUpdater getGatewayDataUpdater() {
+                return updater;
+            }
+
+            @Override
+            public ActionMapper getCustomActionMapper() {
+                return local.getCustomActionMapper();
+            }
+        };
+    }
+
+    private static MessageCreate messageCreate(long messageId) throws IOException {
+        return MessageCreate.builder()
+                .message(MAPPER.readValue(String.format(MESSAGE_JSON, messageId), MessageData.class))
+                .build();
+    }
+
+    private static MessageUpdate messageUpdate(long messageId) {
+        return MessageUpdate.builder()
+                .message(PartialMessageData.builder()
+                        .id(String.valueOf(messageId))
+                        .channelId("1")
+                        .content(Possible.of("new"))
+                        .build())
+                .build();
+    }
+
+    private static MessageDelete messageDelete(long messageId) throws IOException {
+        return MAPPER.readValue("{\"id\":\"" + messageId + "\",\"channel_id\":\"1\"}", MessageDelete.class);
+    }
+}
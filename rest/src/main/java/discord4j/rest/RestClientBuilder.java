@@ -278,7 +278,7 @@ public class RestClientBuilder<C, O extends RouterOptions> {
         if (globalRateLimiter != null) {
             return globalRateLimiter;
         }
-        return BucketGlobalRateLimiter.create(50, Duration.ofSeconds(1), reactorResources.getTimerTaskScheduler());
+        return BucketGlobalRateLimiter.create(50, Duration.ofSeconds(1), reactorResources.getCoarseTimerScheduler());
     }
 
     private RequestQueueFactory initRequestQueueFactory() {
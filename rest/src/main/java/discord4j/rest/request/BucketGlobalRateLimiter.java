@@ -36,11 +36,13 @@ public class BucketGlobalRateLimiter implements GlobalRateLimiter {
     private static final Logger log = Loggers.getLogger(BucketGlobalRateLimiter.class);
 
     private final RateLimitOperator<Integer> operator;
+    private final Scheduler delayScheduler;
 
     private volatile long limitedUntil = 0;
 
     BucketGlobalRateLimiter(int capacity, Duration refillPeriod, Scheduler delayScheduler) {
         this.operator = new RateLimitOperator<>(capacity, refillPeriod, delayScheduler);
+        this.delayScheduler = delayScheduler;
     }
 
     /**
@@ -83,7 +85,7 @@ public class BucketGlobalRateLimiter implements GlobalRateLimiter {
                 .filter(delay -> delay.getSeconds() > 0)
                 .flatMapMany(delay -> {
                     log.trace("[{}] Delaying for {}", Integer.toHexString(hashCode()), delay);
-                    return Mono.delay(delay).flatMapMany(tick -> Flux.from(stage));
+                    return Mono.delay(delay, delayScheduler).flatMapMany(tick -> Flux.from(stage));
                 })
                 .switchIfEmpty(stage);
     }
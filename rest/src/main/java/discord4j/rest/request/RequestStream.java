@@ -65,7 +65,7 @@ class RequestStream {
         this.id = id;
         this.requestQueue = routerOptions.getRequestQueueFactory().create();
         this.globalRateLimiter = routerOptions.getGlobalRateLimiter();
-        this.timedTaskScheduler = routerOptions.getReactorResources().getTimerTaskScheduler();
+        this.timedTaskScheduler = routerOptions.getReactorResources().getCoarseTimerScheduler();
         this.responseFunctions = routerOptions.getResponseTransformers();
         this.httpClient = httpClient;
         this.rateLimitStrategy = rateLimitStrategy;
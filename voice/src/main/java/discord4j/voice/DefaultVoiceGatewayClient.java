@@ -152,7 +152,7 @@ public class DefaultVoiceGatewayClient {
         this.ipDiscoveryRetrySpec = Objects.requireNonNull(options.getIpDiscoveryRetrySpec());
 
         this.voiceSocket = new VoiceSocket(reactorResources.getUdpClient());
-        this.heartbeat = new ResettableInterval(reactorResources.getTimerTaskScheduler());
+        this.heartbeat = new ResettableInterval(reactorResources.getCoarseTimerScheduler());
         this.cleanup = Disposables.swap();
         this.emissionStrategy = EmissionStrategy.timeoutDrop(Duration.ofSeconds(5));
 
@@ -35,7 +35,8 @@ public class VoiceReactorResources extends ReactorResources {
     private final Scheduler receiveTaskScheduler;
 
     public VoiceReactorResources(ReactorResources parent) {
-        super(parent.getHttpClient(), parent.getTimerTaskScheduler(), parent.getBlockingTaskScheduler());
+        super(parent.getHttpClient(), parent.getTimerTaskScheduler(), parent.getBlockingTaskScheduler(),
+                parent.getCoarseTimerScheduler());
         this.udpClient = UdpClient.create();
         this.sendTaskScheduler = parent.getTimerTaskScheduler();
         this.receiveTaskScheduler = parent.getTimerTaskScheduler();
@@ -43,7 +44,8 @@ public class VoiceReactorResources extends ReactorResources {
 
     public VoiceReactorResources(ReactorResources parent, UdpClient udpClient, Scheduler sendTaskScheduler,
                                  Scheduler receiveTaskScheduler) {
-        super(parent.getHttpClient(), parent.getTimerTaskScheduler(), parent.getBlockingTaskScheduler());
+        super(parent.getHttpClient(), parent.getTimerTaskScheduler(), parent.getBlockingTaskScheduler(),
+                parent.getCoarseTimerScheduler());
         this.udpClient = udpClient;
         this.sendTaskScheduler = sendTaskScheduler;
         this.receiveTaskScheduler = receiveTaskScheduler;